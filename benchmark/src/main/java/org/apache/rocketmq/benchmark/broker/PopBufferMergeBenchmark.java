@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.broker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.processor.PopBufferMergeService;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.pop.AckMsg;
+import org.apache.rocketmq.store.pop.BatchAckMsg;
+import org.apache.rocketmq.store.pop.PopCheckPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Marks acks on check points held in {@link PopBufferMergeService}, one offset per {@link AckMsg} and a batch of
+ * offsets per {@link BatchAckMsg}. The merge service is not started, so the check points are never flushed to the
+ * revive topic and only the buffer lookup and bit marking are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class PopBufferMergeBenchmark {
+
+    private static final String TOPIC = "PopBufferMergeBenchmark";
+    private static final String GROUP = "PopBufferMergeBenchmarkGroup";
+    private static final String BROKER_NAME = "broker-a";
+    private static final int QUEUE_NUM = 64;
+    private static final int MSG_NUM_PER_CK = 32;
+    private static final int BATCH_ACK_SIZE = 8;
+    // keeps all start offsets the same length, the merge key concatenates queue id and start offset
+    private static final long START_OFFSET_BASE = 1_000_000_000L;
+
+    @Param({"100000"})
+    private int ckNum;
+
+    private PopBufferMergeService popBufferMergeService;
+    private long popTime;
+
+    @Setup
+    public void setup() {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setEnablePopBufferMerge(true);
+        brokerConfig.setPopCkStayBufferTime(Integer.MAX_VALUE);
+        brokerConfig.setPopCkMaxBufferSize(ckNum * 2);
+        BrokerController brokerController = new BrokerController(brokerConfig, new NettyServerConfig(),
+            new NettyClientConfig(), new MessageStoreConfig());
+        popBufferMergeService = brokerController.getPopMessageProcessor().getPopBufferMergeService();
+        popTime = System.currentTimeMillis();
+        for (int i = 0; i < ckNum; i++) {
+            PopCheckPoint ck = new PopCheckPoint();
+            ck.setBitMap(0);
+            ck.setNum((byte) MSG_NUM_PER_CK);
+            ck.setPopTime(popTime);
+            ck.setInvisibleTime(TimeUnit.HOURS.toMillis(1));
+            ck.setStartOffset(startOffset(i));
+            ck.setCId(GROUP);
+            ck.setTopic(TOPIC);
+            ck.setQueueId(i % QUEUE_NUM);
+            ck.setBrokerName(BROKER_NAME);
+            if (!popBufferMergeService.addCk(ck, 0, -1, startOffset(i) + MSG_NUM_PER_CK)) {
+                throw new IllegalStateException("add ck failed: " + ck);
+            }
+        }
+    }
+
+    private static long startOffset(int ckIndex) {
+        return START_OFFSET_BASE + (long) (ckIndex / QUEUE_NUM) * MSG_NUM_PER_CK;
+    }
+
+    private void fillAckMsg(AckMsg ackMsg, int ckIndex) {
+        ackMsg.setStartOffset(startOffset(ckIndex));
+        ackMsg.setConsumerGroup(GROUP);
+        ackMsg.setTopic(TOPIC);
+        ackMsg.setQueueId(ckIndex % QUEUE_NUM);
+        ackMsg.setPopTime(popTime);
+        ackMsg.setBrokerName(BROKER_NAME);
+    }
+
+    @Benchmark
+    public boolean addAk() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int ckIndex = random.nextInt(ckNum);
+        AckMsg ackMsg = new AckMsg();
+        fillAckMsg(ackMsg, ckIndex);
+        ackMsg.setAckOffset(startOffset(ckIndex) + random.nextInt(MSG_NUM_PER_CK));
+        return popBufferMergeService.addAk(0, ackMsg);
+    }
+
+    @Benchmark
+    public boolean addBatchAk() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int ckIndex = random.nextInt(ckNum);
+        BatchAckMsg batchAckMsg = new BatchAckMsg();
+        fillAckMsg(batchAckMsg, ckIndex);
+        int from = random.nextInt(MSG_NUM_PER_CK - BATCH_ACK_SIZE + 1);
+        List<Long> ackOffsetList = new ArrayList<>(BATCH_ACK_SIZE);
+        for (int i = 0; i < BATCH_ACK_SIZE; i++) {
+            ackOffsetList.add(startOffset(ckIndex) + from + i);
+        }
+        batchAckMsg.setAckOffsetList(ackOffsetList);
+        return popBufferMergeService.addAk(0, batchAckMsg);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(PopBufferMergeBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
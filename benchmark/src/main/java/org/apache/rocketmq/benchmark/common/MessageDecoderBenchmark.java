@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.common;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Encodes a message into the commit log format and decodes it back, with and without the body, as the broker does
+ * when serving pulls that need the message properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class MessageDecoderBenchmark {
+
+    @Param({"1024"})
+    private int bodySize;
+
+    @Param({"4"})
+    private int userPropertyNum;
+
+    private MessageExt messageExt;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws Exception {
+        messageExt = new MessageExt();
+        messageExt.setTopic("MessageDecoderBenchmark");
+        messageExt.setQueueId(3);
+        messageExt.setQueueOffset(123456L);
+        messageExt.setCommitLogOffset(987654321L);
+        messageExt.setBornTimestamp(System.currentTimeMillis());
+        messageExt.setStoreTimestamp(System.currentTimeMillis());
+        messageExt.setBornHost(new InetSocketAddress("127.0.0.1", 8123));
+        messageExt.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        messageExt.setBody(new byte[bodySize]);
+        messageExt.setTags("TagA");
+        messageExt.setKeys("KeyA");
+        MessageAccessor.putProperty(messageExt, MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX,
+            "7F0000010A2C18B4AAC2614B4D790000");
+        for (int i = 0; i < userPropertyNum; i++) {
+            messageExt.putUserProperty("userKey" + i, "userValue" + i);
+        }
+        encoded = MessageDecoder.encode(messageExt, false);
+    }
+
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return MessageDecoder.encode(messageExt, false);
+    }
+
+    @Benchmark
+    public MessageExt decode() {
+        return MessageDecoder.decode(ByteBuffer.wrap(encoded), true, false);
+    }
+
+    @Benchmark
+    public MessageExt decodeWithoutBody() {
+        return MessageDecoder.decode(ByteBuffer.wrap(encoded), false, false);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(MessageDecoderBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
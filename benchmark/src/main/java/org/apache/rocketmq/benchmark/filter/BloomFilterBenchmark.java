@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.filter;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.filter.util.BitsArray;
+import org.apache.rocketmq.filter.util.BlockedBloomFilter;
+import org.apache.rocketmq.filter.util.BloomFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Consumer filter bit maps of the classic and the blocked bloom filter, half of the consumers match the message.
+ * {@code isHit} tests the bit map of a message for one consumer the way {@code ExpressionMessageFilter} does,
+ * {@code hashTo} sets the bits of one consumer the way {@code CommitLogDispatcherCalcBitMap} does. The false positive
+ * rate among the consumers not matching, and of random keys, is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class BloomFilterBenchmark {
+
+    private static final int RANDOM_KEY_NUM = 100000;
+
+    @Param({"false", "true"})
+    private boolean blocked;
+
+    @Param({"32", "200"})
+    private int consumerNum;
+
+    @Param({"20"})
+    private int errorRate;
+
+    private BloomFilter bloomFilter;
+    private int[][] bitPositions;
+    private byte[] bitMap;
+    private BitsArray bits;
+    private int index = 0;
+
+    @Setup
+    public void setup() {
+        bloomFilter = blocked ? BlockedBloomFilter.createByFn(errorRate, consumerNum)
+            : BloomFilter.createByFn(errorRate, consumerNum);
+        bitPositions = new int[consumerNum][];
+        BitsArray matched = bloomFilter.createBits();
+        for (int i = 0; i < consumerNum; i++) {
+            bitPositions[i] = bloomFilter.calcBitPositions("CID_" + i + "#BloomFilterBenchmark");
+            if (i % 2 == 0) {
+                bloomFilter.hashTo(bitPositions[i], matched);
+            }
+        }
+        bitMap = matched.bytes();
+        bits = bloomFilter.createBits();
+
+        int falseHit = 0;
+        for (int i = 1; i < consumerNum; i += 2) {
+            if (bloomFilter.isHit(bitPositions[i], bitMap)) {
+                falseHit++;
+            }
+        }
+        int randomFalseHit = 0;
+        for (int i = 0; i < RANDOM_KEY_NUM; i++) {
+            if (bloomFilter.isHit(bloomFilter.calcBitPositions("RANDOM_" + i), bitMap)) {
+                randomFalseHit++;
+            }
+        }
+        System.out.printf("%n%s, bytes: %d, false positive: %.4f, random false positive: %.4f%n", bloomFilter,
+            bitMap.length, falseHit / (consumerNum / 2.0), (double) randomFalseHit / RANDOM_KEY_NUM);
+    }
+
+    @Benchmark
+    public boolean isHit() {
+        int[] positions = bitPositions[index];
+        index = (index + 1) % consumerNum;
+        return bloomFilter.isHit(positions, bitMap);
+    }
+
+    @Benchmark
+    public BitsArray hashTo() {
+        int[] positions = bitPositions[index];
+        index = (index + 1) % consumerNum;
+        bloomFilter.hashTo(positions, bits);
+        return bits;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(BloomFilterBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.filter.CommitLogDispatcherCalcBitMap;
+import org.apache.rocketmq.broker.filter.ConsumerFilterManager;
+import org.apache.rocketmq.broker.filter.ExpressionMessageFilter;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.filter.ExpressionType;
+import org.apache.rocketmq.remoting.netty.NettyClientConfig;
+import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.filter.FilterAPI;
+import org.apache.rocketmq.store.ConsumeQueueExt;
+import org.apache.rocketmq.store.DispatchRequest;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * SQL92 consumer groups of one topic, filtered either by the bloom filter bit map followed by evaluating the
+ * expression, or by the exact match set. {@code pull} filters a batch of messages for one group the way
+ * {@code DefaultMessageStore.getMessage} does, the properties are given as a map so decoding the stored message is
+ * not measured. {@code dispatch} calculates the bit map of one message for all the groups. The bytes each message
+ * takes in consume queue ext are printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class FilterMatchSetBenchmark {
+
+    private static final String TOPIC = "FilterMatchSetBenchmark";
+    private static final String GROUP_PREFIX = "FilterMatchSetBenchmarkGroup";
+
+    @Param({"false", "true"})
+    private boolean matchSet;
+
+    @Param({"200"})
+    private int groupNum;
+
+    /**
+     * Whether a message matches about half of the groups instead of about one.
+     */
+    @Param({"false", "true"})
+    private boolean dense;
+
+    @Param({"32"})
+    private int batchNum;
+
+    @Param({"4096"})
+    private int messageNum;
+
+    private CommitLogDispatcherCalcBitMap calcBitMap;
+    private ExpressionMessageFilter[] messageFilters;
+    private DispatchRequest[] dispatchRequests;
+    private ConsumeQueueExt.CqExtUnit[] cqExtUnits;
+    private int groupIndex = 0;
+    private int messageIndex = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setEnableCalcFilterBitMap(true);
+        brokerConfig.setEnableFilterMatchSet(matchSet);
+        brokerConfig.setExpectConsumerNumUseFilter(groupNum);
+        brokerConfig.setFilterMatchSetSlotNum(groupNum);
+        BrokerController brokerController = new BrokerController(brokerConfig, new NettyServerConfig(),
+            new NettyClientConfig(), new MessageStoreConfig());
+        ConsumerFilterManager filterManager = brokerController.getConsumerFilterManager();
+
+        messageFilters = new ExpressionMessageFilter[groupNum];
+        for (int i = 0; i < groupNum; i++) {
+            String group = GROUP_PREFIX + i;
+            String expression = dense
+                ? "a BETWEEN " + i * 2 + " AND " + (i * 2 + 525) + " AND b <> 'tag" + i % 10 + "'"
+                : "a BETWEEN " + i * 5 + " AND " + (i * 5 + 50) + " AND b = 'tag" + i % 10 + "'";
+            filterManager.register(TOPIC, group, expression, ExpressionType.SQL92, 1);
+            messageFilters[i] = new ExpressionMessageFilter(FilterAPI.build(TOPIC, expression, ExpressionType.SQL92),
+                filterManager.get(TOPIC, group), filterManager);
+        }
+        // there is no message store, the match sets of all the messages are trusted
+        filterManager.initMatchSetSinceOffset(0L);
+
+        calcBitMap = new CommitLogDispatcherCalcBitMap(brokerConfig, filterManager);
+        dispatchRequests = new DispatchRequest[messageNum];
+        cqExtUnits = new ConsumeQueueExt.CqExtUnit[messageNum];
+        long storeTime = System.currentTimeMillis() + 1000;
+        Random random = new Random(0);
+        for (int i = 0; i < messageNum; i++) {
+            Map<String, String> properties = new HashMap<>();
+            properties.put("a", String.valueOf(random.nextInt(groupNum * 5 + 50)));
+            properties.put("b", "tag" + random.nextInt(10));
+            dispatchRequests[i] = new DispatchRequest(TOPIC, 0, i * 100L, 100, 0L, storeTime, i, null,
+                UUID.randomUUID().toString(), 0, 0, properties);
+            calcBitMap.dispatch(dispatchRequests[i]);
+            cqExtUnits[i] = new ConsumeQueueExt.CqExtUnit(0L, storeTime, dispatchRequests[i].getBitMap());
+        }
+        System.out.printf("%nbit map bytes per message: %d%n", cqExtUnits[0].getFilterBitMap().length);
+    }
+
+    @Benchmark
+    public int pull() {
+        ExpressionMessageFilter messageFilter = messageFilters[groupIndex];
+        groupIndex = (groupIndex + 1) % groupNum;
+        int matched = 0;
+        for (int i = 0; i < batchNum; i++) {
+            int index = messageIndex;
+            messageIndex = (messageIndex + 1) % messageNum;
+            if (messageFilter.isMatchedByConsumeQueue(0L, cqExtUnits[index], dispatchRequests[index].getCommitLogOffset())
+                && messageFilter.isMatchedByCommitLog(null, dispatchRequests[index].getPropertiesMap())) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public byte[] dispatch() {
+        DispatchRequest request = dispatchRequests[messageIndex];
+        messageIndex = (messageIndex + 1) % messageNum;
+        calcBitMap.dispatch(request);
+        return request.getBitMap();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(FilterMatchSetBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.broker.filter.MessageEvaluationContext;
+import org.apache.rocketmq.common.filter.ExpressionType;
+import org.apache.rocketmq.filter.FilterFactory;
+import org.apache.rocketmq.filter.expression.Expression;
+import org.apache.rocketmq.filter.expression.ExpressionCompiler;
+import org.apache.rocketmq.filter.expression.MQFilterException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Evaluates SQL92 filter expressions against the properties of a message, the same way the broker does for every
+ * message pulled by a SQL92 subscription, either parsed or further compiled by {@link ExpressionCompiler}. Compiling is
+ * not measured, the parser caches compiled expressions. The expressions are referred to by name since JMH does not
+ * escape parameter values in its JSON results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class SqlFilterBenchmark {
+
+    private static final Map<String, String> EXPRESSIONS = new HashMap<>();
+
+    static {
+        EXPRESSIONS.put("EQUAL", "a = 1");
+        EXPRESSIONS.put("RANGE", "a BETWEEN 1 AND 10 AND b = 'abc'");
+        EXPRESSIONS.put("COMPOUND", "(a > 5 OR c IN ('x', 'y', 'z')) AND b IS NOT NULL AND d STARTSWITH 'pre' AND e = TRUE");
+    }
+
+    @Param({"EQUAL", "RANGE", "COMPOUND"})
+    private String expression;
+
+    @Param({"false", "true"})
+    private boolean compile;
+
+    private Expression compiled;
+    private MessageEvaluationContext context;
+
+    @Setup
+    public void setup() throws MQFilterException {
+        compiled = FilterFactory.INSTANCE.get(ExpressionType.SQL92).compile(EXPRESSIONS.get(expression));
+        if (compile) {
+            compiled = ExpressionCompiler.compile(compiled);
+        }
+        Map<String, String> properties = new HashMap<>();
+        properties.put("a", "3");
+        properties.put("b", "abc");
+        properties.put("c", "y");
+        properties.put("d", "prefix");
+        properties.put("e", "true");
+        properties.put("TAGS", "TagA");
+        properties.put("KEYS", "KeyA");
+        context = new MessageEvaluationContext(properties);
+    }
+
+    @Benchmark
+    public Object evaluate() throws Exception {
+        return compiled.evaluate(context);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(SqlFilterBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.remoting;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.RequestCode;
+import org.apache.rocketmq.remoting.protocol.SerializeType;
+import org.apache.rocketmq.remoting.protocol.header.SendMessageRequestHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Encodes a send message request into its wire frame and decodes it back including the custom header, with the
+ * JSON and the ROCKETMQ header serialization.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class RemotingCommandBenchmark {
+
+    @Param({"JSON", "ROCKETMQ"})
+    private SerializeType serializeType;
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private SendMessageRequestHeader requestHeader;
+    private byte[] body;
+    private byte[] frame;
+
+    @Setup
+    public void setup() {
+        requestHeader = new SendMessageRequestHeader();
+        requestHeader.setProducerGroup("RemotingCommandBenchmarkGroup");
+        requestHeader.setTopic("RemotingCommandBenchmark");
+        requestHeader.setDefaultTopic("TBW102");
+        requestHeader.setDefaultTopicQueueNums(4);
+        requestHeader.setQueueId(3);
+        requestHeader.setSysFlag(0);
+        requestHeader.setBornTimestamp(System.currentTimeMillis());
+        requestHeader.setFlag(0);
+        requestHeader.setProperties("TAGS\u0001TagA\u0002KEYS\u0001KeyA\u0002UNIQ_KEY\u00017F0000010A2C18B4AAC2614B4D790000\u0002");
+        requestHeader.setReconsumeTimes(0);
+        body = new byte[bodySize];
+
+        ByteBuffer encoded = encode();
+        // the frame handed to decode starts after the total length, as stripped by NettyDecoder
+        frame = new byte[encoded.limit() - 4];
+        encoded.position(4);
+        encoded.get(frame);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.SEND_MESSAGE, requestHeader);
+        request.setSerializeTypeCurrentRPC(serializeType);
+        request.setBody(body);
+        return request.encode();
+    }
+
+    @Benchmark
+    public SendMessageRequestHeader decode() throws RemotingCommandException {
+        RemotingCommand request = RemotingCommand.decode(frame);
+        return (SendMessageRequestHeader) request.decodeCommandCustomHeader(SendMessageRequestHeader.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(RemotingCommandBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
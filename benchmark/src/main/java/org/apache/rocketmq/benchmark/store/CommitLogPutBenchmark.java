@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.store;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.PutMessageResult;
+import org.apache.rocketmq.store.PutMessageStatus;
+import org.apache.rocketmq.store.config.FlushDiskType;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Appends messages through {@code CommitLog.asyncPutMessage} and waits for the result, with sync and async flush
+ * and with the transient store pool on and off. The transient store pool is meant for async flush, with sync flush
+ * every put also waits for the commit service to move the pooled buffer into the file, which the sync runs with the
+ * pool enabled make visible. The commit log grows by the body size per message, mind the disk space on fast disks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class CommitLogPutBenchmark {
+
+    private static final String TOPIC = "CommitLogPutBenchmark";
+    private static final int QUEUE_NUM = 8;
+
+    @Param({"ASYNC_FLUSH", "SYNC_FLUSH"})
+    private FlushDiskType flushDiskType;
+
+    @Param({"false", "true"})
+    private boolean transientStorePool;
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private final String baseDir = StoreBenchmarkUtil.createBaseDir();
+    private DefaultMessageStore messageStore;
+    private byte[] body;
+    private int queueId;
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig messageStoreConfig = StoreBenchmarkUtil.createMessageStoreConfig(baseDir);
+        messageStoreConfig.setMappedFileSizeCommitLog(256 * 1024 * 1024);
+        messageStoreConfig.setFlushDiskType(flushDiskType);
+        messageStoreConfig.setTransientStorePoolEnable(transientStorePool);
+        messageStoreConfig.setTransientStorePoolSize(2);
+        messageStore = StoreBenchmarkUtil.startMessageStore(messageStoreConfig);
+        body = new byte[bodySize];
+    }
+
+    @TearDown
+    public void tearDown() {
+        StoreBenchmarkUtil.destroy(messageStore, baseDir);
+    }
+
+    @Benchmark
+    public PutMessageResult asyncPutMessage() {
+        MessageExtBrokerInner msg = StoreBenchmarkUtil.buildMessage(TOPIC, queueId++ % QUEUE_NUM, body);
+        PutMessageResult result = messageStore.getCommitLog().asyncPutMessage(msg).join();
+        if (result.getPutMessageStatus() != PutMessageStatus.PUT_OK) {
+            throw new IllegalStateException("put message failed: " + result.getPutMessageStatus());
+        }
+        return result;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(CommitLogPutBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
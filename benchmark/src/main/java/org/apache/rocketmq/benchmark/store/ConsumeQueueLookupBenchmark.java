@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.store;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.TopicAttributes;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.attribute.CQType;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.PutMessageStatus;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.queue.ConsumeQueueInterface;
+import org.apache.rocketmq.store.queue.CqUnit;
+import org.apache.rocketmq.store.queue.ReferredIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Looks up random logical offsets and timestamps in a consume queue holding the same number of messages, once as
+ * a {@link CQType#SimpleCQ} with one unit per message and once as a {@link CQType#BatchCQ} with one unit per
+ * {@link #batchNum} messages.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ConsumeQueueLookupBenchmark {
+
+    private static final String TOPIC = "ConsumeQueueLookupBenchmark";
+
+    @Param({"SimpleCQ", "BatchCQ"})
+    private CQType cqType;
+
+    @Param({"1000000"})
+    private int messageNum;
+
+    @Param({"16"})
+    private int batchNum;
+
+    private final String baseDir = StoreBenchmarkUtil.createBaseDir();
+    private DefaultMessageStore messageStore;
+    private ConsumeQueueInterface consumeQueue;
+    private long minTimestamp;
+    private long maxTimestamp;
+
+    @Setup
+    public void setup() throws Exception {
+        ConcurrentMap<String, TopicConfig> topicConfigTable = new ConcurrentHashMap<>();
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(TopicAttributes.QUEUE_TYPE_ATTRIBUTE.getName(), cqType.toString());
+        TopicConfig topicConfig = new TopicConfig(TOPIC);
+        topicConfig.setAttributes(attributes);
+        topicConfigTable.put(TOPIC, topicConfig);
+
+        MessageStoreConfig messageStoreConfig = StoreBenchmarkUtil.createMessageStoreConfig(baseDir);
+        messageStore = StoreBenchmarkUtil.startMessageStore(messageStoreConfig, topicConfigTable);
+        int unitBatchNum = cqType == CQType.BatchCQ ? batchNum : 1;
+        byte[] body = new byte[64];
+        minTimestamp = System.currentTimeMillis();
+        for (int i = 0; i < messageNum; i += unitBatchNum) {
+            MessageExtBrokerInner msg = StoreBenchmarkUtil.buildMessage(TOPIC, 0, body);
+            if (unitBatchNum > 1) {
+                MessageAccessor.putProperty(msg, MessageConst.PROPERTY_INNER_NUM, String.valueOf(unitBatchNum));
+                msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+                msg.setSysFlag(MessageSysFlag.INNER_BATCH_FLAG);
+            }
+            PutMessageStatus status = messageStore.putMessage(msg).getPutMessageStatus();
+            if (status != PutMessageStatus.PUT_OK) {
+                throw new IllegalStateException("put message failed: " + status);
+            }
+        }
+        maxTimestamp = System.currentTimeMillis();
+        StoreBenchmarkUtil.waitDispatched(messageStore);
+        consumeQueue = messageStore.getConsumeQueue(TOPIC, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        StoreBenchmarkUtil.destroy(messageStore, baseDir);
+    }
+
+    @Benchmark
+    public long get() {
+        CqUnit cqUnit = consumeQueue.get(ThreadLocalRandom.current().nextInt(messageNum));
+        return cqUnit == null ? -1 : cqUnit.getPos();
+    }
+
+    @Benchmark
+    public long iterateFrom() {
+        long pos = 0;
+        ReferredIterator<CqUnit> iterator = consumeQueue.iterateFrom(ThreadLocalRandom.current().nextInt(messageNum));
+        if (iterator == null) {
+            return -1;
+        }
+        try {
+            for (int i = 0; i < 32 && iterator.hasNext(); i++) {
+                pos += iterator.next().getPos();
+            }
+        } finally {
+            iterator.release();
+        }
+        return pos;
+    }
+
+    @Benchmark
+    public long getOffsetInQueueByTime() {
+        return consumeQueue.getOffsetInQueueByTime(
+            ThreadLocalRandom.current().nextLong(minTimestamp, maxTimestamp + 1));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(ConsumeQueueLookupBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.store;
+
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.GetMessageResult;
+import org.apache.rocketmq.store.GetMessageStatus;
+import org.apache.rocketmq.store.PutMessageStatus;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.queue.ConsumeQueueRangeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Consumer groups tailing one queue: every invocation moves the tail one batch forward and each group pulls that
+ * batch through {@code DefaultMessageStore.getMessage}, with and without the consume queue range cache.
+ * <p>
+ * The tail restarts from the head of the preloaded queue when it reaches the end, the cache is invalidated then as
+ * its window only moves forward.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ConsumeQueueRangeCacheBenchmark {
+
+    private static final String TOPIC = "ConsumeQueueRangeCacheBenchmark";
+    private static final String GROUP_PREFIX = "ConsumeQueueRangeCacheBenchmarkGroup";
+
+    @Param({"false", "true"})
+    private boolean enableCache;
+
+    @Param({"50"})
+    private int groupNum;
+
+    @Param({"32"})
+    private int maxMsgNums;
+
+    @Param({"200000"})
+    private int messageNum;
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private final String baseDir = StoreBenchmarkUtil.createBaseDir();
+    private DefaultMessageStore messageStore;
+    private String[] groups;
+    private long tailOffset = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig messageStoreConfig = StoreBenchmarkUtil.createMessageStoreConfig(baseDir);
+        messageStoreConfig.setEnableConsumeQueueRangeCache(enableCache);
+        messageStore = StoreBenchmarkUtil.startMessageStore(messageStoreConfig);
+        byte[] body = new byte[bodySize];
+        for (int i = 0; i < messageNum; i++) {
+            PutMessageStatus status = messageStore.putMessage(StoreBenchmarkUtil.buildMessage(TOPIC, 0, body))
+                .getPutMessageStatus();
+            if (status != PutMessageStatus.PUT_OK) {
+                throw new IllegalStateException("put message failed: " + status);
+            }
+        }
+        StoreBenchmarkUtil.waitDispatched(messageStore);
+
+        groups = new String[groupNum];
+        for (int i = 0; i < groupNum; i++) {
+            groups[i] = GROUP_PREFIX + i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ConsumeQueueRangeCache cache = messageStore.getConsumeQueueRangeCache();
+        if (cache != null) {
+            long hitUnits = cache.getHitUnits();
+            long totalUnits = hitUnits + cache.getMissUnits();
+            System.out.printf("%nconsume queue range cache hit rate: %.4f (%d/%d)%n",
+                totalUnits == 0 ? 0 : (double) hitUnits / totalUnits, hitUnits, totalUnits);
+        }
+        StoreBenchmarkUtil.destroy(messageStore, baseDir);
+    }
+
+    @Benchmark
+    public int tailFanOut() {
+        if (tailOffset + maxMsgNums > messageNum) {
+            tailOffset = 0;
+            ConsumeQueueRangeCache cache = messageStore.getConsumeQueueRangeCache();
+            if (cache != null) {
+                cache.invalidate();
+            }
+        }
+        int totalSize = 0;
+        for (String group : groups) {
+            GetMessageResult result = messageStore.getMessage(group, TOPIC, 0, tailOffset, maxMsgNums, null);
+            try {
+                if (result.getStatus() != GetMessageStatus.FOUND) {
+                    throw new IllegalStateException("get message failed: " + result.getStatus());
+                }
+                totalSize += result.getBufferTotalSize();
+            } finally {
+                result.release();
+            }
+        }
+        tailOffset += maxMsgNums;
+        return totalSize;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(ConsumeQueueRangeCacheBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.store;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.GetMessageResult;
+import org.apache.rocketmq.store.GetMessageStatus;
+import org.apache.rocketmq.store.PutMessageStatus;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Pulls batches from random offsets of a preloaded queue through {@code DefaultMessageStore.getMessage}, the
+ * messages are all in page cache so this measures the consume queue walk and the commit log slicing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class GetMessageBenchmark {
+
+    private static final String TOPIC = "GetMessageBenchmark";
+    private static final String GROUP = "GetMessageBenchmarkGroup";
+
+    @Param({"1", "32"})
+    private int maxMsgNums;
+
+    @Param({"200000"})
+    private int messageNum;
+
+    @Param({"1024"})
+    private int bodySize;
+
+    private final String baseDir = StoreBenchmarkUtil.createBaseDir();
+    private DefaultMessageStore messageStore;
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig messageStoreConfig = StoreBenchmarkUtil.createMessageStoreConfig(baseDir);
+        messageStore = StoreBenchmarkUtil.startMessageStore(messageStoreConfig);
+        byte[] body = new byte[bodySize];
+        for (int i = 0; i < messageNum; i++) {
+            PutMessageStatus status = messageStore.putMessage(StoreBenchmarkUtil.buildMessage(TOPIC, 0, body))
+                .getPutMessageStatus();
+            if (status != PutMessageStatus.PUT_OK) {
+                throw new IllegalStateException("put message failed: " + status);
+            }
+        }
+        StoreBenchmarkUtil.waitDispatched(messageStore);
+    }
+
+    @TearDown
+    public void tearDown() {
+        StoreBenchmarkUtil.destroy(messageStore, baseDir);
+    }
+
+    @Benchmark
+    public int getMessage() {
+        long offset = ThreadLocalRandom.current().nextInt(messageNum - maxMsgNums);
+        GetMessageResult result = messageStore.getMessage(GROUP, TOPIC, 0, offset, maxMsgNums, null);
+        try {
+            if (result.getStatus() != GetMessageStatus.FOUND) {
+                throw new IllegalStateException("get message failed: " + result.getStatus());
+            }
+            return result.getBufferTotalSize();
+        } finally {
+            result.release();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(GetMessageBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
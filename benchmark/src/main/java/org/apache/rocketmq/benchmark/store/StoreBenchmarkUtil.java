@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.benchmark.store;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.stats.BrokerStatsManager;
+
+/**
+ * Builds the message stores and messages shared by the store benchmarks, every store lives in its own directory
+ * under {@code java.io.tmpdir} and is removed by {@link #destroy(DefaultMessageStore, String)}.
+ */
+final class StoreBenchmarkUtil {
+
+    static final InetSocketAddress BORN_HOST = new InetSocketAddress("127.0.0.1", 8123);
+    static final InetSocketAddress STORE_HOST = new InetSocketAddress("127.0.0.1", 10911);
+
+    private StoreBenchmarkUtil() {
+    }
+
+    static String createBaseDir() {
+        String baseDir = System.getProperty("java.io.tmpdir") + File.separator + "rocketmq-benchmark"
+            + File.separator + UUID.randomUUID();
+        UtilAll.ensureDirOK(baseDir);
+        return baseDir;
+    }
+
+    static MessageStoreConfig createMessageStoreConfig(String baseDir) {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(baseDir);
+        messageStoreConfig.setStorePathCommitLog(baseDir + File.separator + "commitlog");
+        messageStoreConfig.setHaListenPort(0);
+        return messageStoreConfig;
+    }
+
+    static DefaultMessageStore startMessageStore(MessageStoreConfig messageStoreConfig) throws Exception {
+        return startMessageStore(messageStoreConfig, new ConcurrentHashMap<>());
+    }
+
+    static DefaultMessageStore startMessageStore(MessageStoreConfig messageStoreConfig,
+        ConcurrentMap<String, TopicConfig> topicConfigTable) throws Exception {
+        DefaultMessageStore messageStore = new DefaultMessageStore(messageStoreConfig,
+            new BrokerStatsManager("StoreBenchmark", true),
+            (topic, queueId, logicOffset, tagsCode, msgStoreTime, filterBitMap, properties) -> {
+            }, new BrokerConfig(), topicConfigTable);
+        if (!messageStore.load()) {
+            throw new IllegalStateException("load message store failed");
+        }
+        messageStore.start();
+        return messageStore;
+    }
+
+    static void waitDispatched(DefaultMessageStore messageStore) throws InterruptedException {
+        while (messageStore.dispatchBehindBytes() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    static void destroy(DefaultMessageStore messageStore, String baseDir) {
+        if (messageStore != null) {
+            messageStore.shutdown();
+            messageStore.destroy();
+        }
+        UtilAll.deleteFile(new File(baseDir));
+    }
+
+    static MessageExtBrokerInner buildMessage(String topic, int queueId, byte[] body) {
+        MessageExtBrokerInner msg = new MessageExtBrokerInner();
+        msg.setTopic(topic);
+        msg.setTags("TagA");
+        msg.setKeys("KeyA");
+        msg.setBody(body);
+        msg.setQueueId(queueId);
+        msg.setSysFlag(0);
+        msg.setBornTimestamp(System.currentTimeMillis());
+        msg.setBornHost(BORN_HOST);
+        msg.setStoreHost(STORE_HOST);
+        msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+        return msg;
+    }
+}
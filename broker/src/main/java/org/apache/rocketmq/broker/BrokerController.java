@@ -60,6 +60,7 @@ import org.apache.rocketmq.broker.failover.EscapeBridge;
 import org.apache.rocketmq.broker.filter.CommitLogDispatcherCalcBitMap;
 import org.apache.rocketmq.broker.filter.ConsumerFilterManager;
 import org.apache.rocketmq.broker.latency.BrokerFastFailure;
+import org.apache.rocketmq.broker.latency.BrokerProcessorExecutor;
 import org.apache.rocketmq.broker.longpolling.LmqPullRequestHoldService;
 import org.apache.rocketmq.broker.longpolling.NotifyMessageArrivingListener;
 import org.apache.rocketmq.broker.longpolling.PullRequestHoldService;
@@ -67,12 +68,14 @@ import org.apache.rocketmq.broker.metrics.BrokerMetricsManager;
 import org.apache.rocketmq.broker.mqtrace.ConsumeMessageHook;
 import org.apache.rocketmq.broker.mqtrace.SendMessageHook;
 import org.apache.rocketmq.broker.offset.BroadcastOffsetManager;
+import org.apache.rocketmq.broker.offset.CompactConsumerOffsetManager;
 import org.apache.rocketmq.broker.offset.ConsumerOffsetManager;
 import org.apache.rocketmq.broker.offset.ConsumerOrderInfoManager;
 import org.apache.rocketmq.broker.offset.LmqConsumerOffsetManager;
 import org.apache.rocketmq.broker.offset.RocksDBConsumerOffsetManager;
 import org.apache.rocketmq.broker.offset.RocksDBLmqConsumerOffsetManager;
 import org.apache.rocketmq.broker.out.BrokerOuterAPI;
+import org.apache.rocketmq.broker.out.TopicConfigRegistrationTracker;
 import org.apache.rocketmq.broker.plugin.BrokerAttachedPlugin;
 import org.apache.rocketmq.broker.processor.AckMessageProcessor;
 import org.apache.rocketmq.broker.processor.AdminBrokerProcessor;
@@ -92,10 +95,12 @@ import org.apache.rocketmq.broker.processor.ReplyMessageProcessor;
 import org.apache.rocketmq.broker.processor.SendMessageProcessor;
 import org.apache.rocketmq.broker.schedule.ScheduleMessageService;
 import org.apache.rocketmq.broker.slave.SlaveSynchronize;
+import org.apache.rocketmq.broker.subscription.JournalSubscriptionGroupManager;
 import org.apache.rocketmq.broker.subscription.LmqSubscriptionGroupManager;
 import org.apache.rocketmq.broker.subscription.RocksDBLmqSubscriptionGroupManager;
 import org.apache.rocketmq.broker.subscription.RocksDBSubscriptionGroupManager;
 import org.apache.rocketmq.broker.subscription.SubscriptionGroupManager;
+import org.apache.rocketmq.broker.topic.JournalTopicConfigManager;
 import org.apache.rocketmq.broker.topic.LmqTopicConfigManager;
 import org.apache.rocketmq.broker.topic.RocksDBLmqTopicConfigManager;
 import org.apache.rocketmq.broker.topic.RocksDBTopicConfigManager;
@@ -206,6 +211,7 @@ public class BrokerController {
     private final RebalanceLockManager rebalanceLockManager = new RebalanceLockManager();
     private final TopicRouteInfoManager topicRouteInfoManager;
     protected BrokerOuterAPI brokerOuterAPI;
+    protected final TopicConfigRegistrationTracker topicConfigRegistrationTracker = new TopicConfigRegistrationTracker();
     protected ScheduledExecutorService scheduledExecutorService;
     protected ScheduledExecutorService syncBrokerMemberGroupExecutorService;
     protected ScheduledExecutorService brokerHeartbeatExecutorService;
@@ -314,10 +320,18 @@ public class BrokerController {
         if (this.messageStoreConfig.isEnableRocksDBStore()) {
             this.topicConfigManager = messageStoreConfig.isEnableLmq() ? new RocksDBLmqTopicConfigManager(this) : new RocksDBTopicConfigManager(this);
             this.subscriptionGroupManager = messageStoreConfig.isEnableLmq() ? new RocksDBLmqSubscriptionGroupManager(this) : new RocksDBSubscriptionGroupManager(this);
-            this.consumerOffsetManager = messageStoreConfig.isEnableLmq() ? new RocksDBLmqConsumerOffsetManager(this) : new RocksDBConsumerOffsetManager(this);
+        } else if (this.brokerConfig.isEnableConfigJournal() && !messageStoreConfig.isEnableLmq()) {
+            this.topicConfigManager = new JournalTopicConfigManager(this);
+            this.subscriptionGroupManager = new JournalSubscriptionGroupManager(this);
         } else {
             this.topicConfigManager = messageStoreConfig.isEnableLmq() ? new LmqTopicConfigManager(this) : new TopicConfigManager(this);
             this.subscriptionGroupManager = messageStoreConfig.isEnableLmq() ? new LmqSubscriptionGroupManager(this) : new SubscriptionGroupManager(this);
+        }
+        if (this.brokerConfig.isEnableCompactConsumerOffset()) {
+            this.consumerOffsetManager = new CompactConsumerOffsetManager(this);
+        } else if (this.messageStoreConfig.isEnableRocksDBStore()) {
+            this.consumerOffsetManager = messageStoreConfig.isEnableLmq() ? new RocksDBLmqConsumerOffsetManager(this) : new RocksDBConsumerOffsetManager(this);
+        } else {
             this.consumerOffsetManager = messageStoreConfig.isEnableLmq() ? new LmqConsumerOffsetManager(this) : new ConsumerOffsetManager(this);
         }
         this.topicQueueMappingManager = new TopicQueueMappingManager(this);
@@ -460,107 +474,68 @@ public class BrokerController {
         this.scheduledExecutorService = ThreadUtils.newScheduledThreadPool(1,
             new ThreadFactoryImpl("BrokerControllerScheduledThread", true, getBrokerIdentity()));
 
-        this.sendMessageExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.sendMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "send",
             this.brokerConfig.getSendMessageThreadPoolNums(),
-            this.brokerConfig.getSendMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.sendThreadPoolQueue,
             new ThreadFactoryImpl("SendMessageThread_", getBrokerIdentity()));
 
-        this.pullMessageExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getPullMessageThreadPoolNums(),
+        this.pullMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "pull",
             this.brokerConfig.getPullMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.pullThreadPoolQueue,
             new ThreadFactoryImpl("PullMessageThread_", getBrokerIdentity()));
 
-        this.litePullMessageExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.litePullMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "lite_pull",
             this.brokerConfig.getLitePullMessageThreadPoolNums(),
-            this.brokerConfig.getLitePullMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.litePullThreadPoolQueue,
             new ThreadFactoryImpl("LitePullMessageThread_", getBrokerIdentity()));
 
-        this.putMessageFutureExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getPutMessageFutureThreadPoolNums(),
+        this.putMessageFutureExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "async_put",
             this.brokerConfig.getPutMessageFutureThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.putThreadPoolQueue,
             new ThreadFactoryImpl("SendMessageThread_", getBrokerIdentity()));
 
-        this.ackMessageExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.ackMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "ack",
             this.brokerConfig.getAckMessageThreadPoolNums(),
-            this.brokerConfig.getAckMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.ackThreadPoolQueue,
             new ThreadFactoryImpl("AckMessageThread_", getBrokerIdentity()));
 
-        this.queryMessageExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getQueryMessageThreadPoolNums(),
+        this.queryMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "query_message",
             this.brokerConfig.getQueryMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.queryThreadPoolQueue,
             new ThreadFactoryImpl("QueryMessageThread_", getBrokerIdentity()));
 
-        this.adminBrokerExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.adminBrokerExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "admin",
             this.brokerConfig.getAdminBrokerThreadPoolNums(),
-            this.brokerConfig.getAdminBrokerThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.adminBrokerThreadPoolQueue,
             new ThreadFactoryImpl("AdminBrokerThread_", getBrokerIdentity()));
 
-        this.clientManageExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getClientManageThreadPoolNums(),
+        this.clientManageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "client_manager",
             this.brokerConfig.getClientManageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.clientManagerThreadPoolQueue,
             new ThreadFactoryImpl("ClientManageThread_", getBrokerIdentity()));
 
-        this.heartbeatExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.heartbeatExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "heartbeat",
             this.brokerConfig.getHeartbeatThreadPoolNums(),
-            this.brokerConfig.getHeartbeatThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.heartbeatThreadPoolQueue,
             new ThreadFactoryImpl("HeartbeatThread_", true, getBrokerIdentity()));
 
-        this.consumerManageExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getConsumerManageThreadPoolNums(),
+        this.consumerManageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "consumer_manager",
             this.brokerConfig.getConsumerManageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.consumerManagerThreadPoolQueue,
             new ThreadFactoryImpl("ConsumerManageThread_", true, getBrokerIdentity()));
 
-        this.replyMessageExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.replyMessageExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "reply",
             this.brokerConfig.getProcessReplyMessageThreadPoolNums(),
-            this.brokerConfig.getProcessReplyMessageThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.replyThreadPoolQueue,
             new ThreadFactoryImpl("ProcessReplyMessageThread_", getBrokerIdentity()));
 
-        this.endTransactionExecutor = ThreadUtils.newThreadPoolExecutor(
-            this.brokerConfig.getEndTransactionThreadPoolNums(),
+        this.endTransactionExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "transaction",
             this.brokerConfig.getEndTransactionThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.endTransactionThreadPoolQueue,
             new ThreadFactoryImpl("EndTransactionThread_", getBrokerIdentity()));
 
-        this.loadBalanceExecutor = ThreadUtils.newThreadPoolExecutor(
+        this.loadBalanceExecutor = BrokerProcessorExecutor.newExecutor(this.brokerConfig, "load_balance",
             this.brokerConfig.getLoadBalanceProcessorThreadPoolNums(),
-            this.brokerConfig.getLoadBalanceProcessorThreadPoolNums(),
-            1000 * 60,
-            TimeUnit.MILLISECONDS,
             this.loadBalanceThreadPoolQueue,
             new ThreadFactoryImpl("LoadBalanceProcessorThread_", getBrokerIdentity()));
 
@@ -634,6 +609,19 @@ public class BrokerController {
             }
         }, 10, 1, TimeUnit.SECONDS);
 
+        if (BrokerProcessorExecutor.TYPE_ADAPTIVE.equalsIgnoreCase(this.brokerConfig.getProcessorExecutorType())) {
+            this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        BrokerController.this.adjustProcessorExecutors();
+                    } catch (Throwable e) {
+                        LOG.error("BrokerController: failed to adjust processor executors", e);
+                    }
+                }
+            }, 10000, this.brokerConfig.getAdaptiveThreadPoolAdjustInterval(), TimeUnit.MILLISECONDS);
+        }
+
         this.scheduledExecutorService.scheduleAtFixedRate(new Runnable() {
 
             @Override
@@ -812,6 +800,9 @@ public class BrokerController {
         if (messageStore != null) {
             registerMessageStoreHook();
             result = this.messageStore.load();
+            if (result) {
+                this.consumerFilterManager.initMatchSetSinceOffset(this.messageStore.getMaxPhyOffset());
+            }
         }
 
         if (messageStoreConfig.isTimerWheelEnable()) {
@@ -1153,6 +1144,22 @@ public class BrokerController {
         }
     }
 
+    public void adjustProcessorExecutors() {
+        ExecutorService[] executors = new ExecutorService[] {
+            this.sendMessageExecutor, this.pullMessageExecutor, this.litePullMessageExecutor,
+            this.putMessageFutureExecutor, this.ackMessageExecutor, this.queryMessageExecutor,
+            this.adminBrokerExecutor, this.clientManageExecutor, this.heartbeatExecutor,
+            this.consumerManageExecutor, this.replyMessageExecutor, this.endTransactionExecutor,
+            this.loadBalanceExecutor
+        };
+        for (ExecutorService executor : executors) {
+            if (executor instanceof BrokerProcessorExecutor) {
+                ((BrokerProcessorExecutor) executor).adjustPoolSize(
+                    this.brokerConfig.getAdaptiveThreadPoolTargetQueueingTimeMills());
+            }
+        }
+    }
+
     public long headSlowTimeMills(BlockingQueue<Runnable> q) {
         long slowTimeMills = 0;
         final Runnable peek = q.peek();
@@ -1744,6 +1751,13 @@ public class BrokerController {
             return;
         }
 
+        if (isDeltaRegistrationEnabled()) {
+            // The delta holds the given topics, registering them alone would leave name servers on a data version
+            // the next delta is not based on
+            registerBrokerAll(true, false, true);
+            return;
+        }
+
         TopicConfigAndMappingSerializeWrapper topicConfigSerializeWrapper = new TopicConfigAndMappingSerializeWrapper();
         topicConfigSerializeWrapper.setDataVersion(dataVersion);
 
@@ -1808,6 +1822,10 @@ public class BrokerController {
 
         TopicConfigAndMappingSerializeWrapper topicConfigWrapper = this.getTopicConfigManager().
             buildSerializeWrapper(topicConfigTable, topicQueueMappingInfoMap);
+        if (isDeltaRegistrationEnabled()) {
+            doRegisterBrokerDelta(checkOrderConfig, topicConfigWrapper);
+            return;
+        }
         if (this.brokerConfig.isEnableSplitRegistration() || forceRegister || needRegister(this.brokerConfig.getBrokerClusterName(),
             this.getBrokerAddr(),
             this.brokerConfig.getBrokerName(),
@@ -1843,6 +1861,53 @@ public class BrokerController {
         handleRegisterBrokerResult(registerBrokerResultList, checkOrderConfig);
     }
 
+    private boolean isDeltaRegistrationEnabled() {
+        return this.brokerConfig.isEnableDeltaRegistration()
+            && !this.brokerConfig.isEnableSplitRegistration()
+            && !this.brokerConfig.isCompressedRegister();
+    }
+
+    protected void doRegisterBrokerDelta(boolean checkOrderConfig, TopicConfigAndMappingSerializeWrapper topicConfigWrapper) {
+        DataVersion baseDataVersion = this.topicConfigRegistrationTracker.getRegisteredDataVersion();
+        if (baseDataVersion == null) {
+            doRegisterBrokerAll(checkOrderConfig, false, topicConfigWrapper);
+            this.topicConfigRegistrationTracker.registered(topicConfigWrapper.getTopicConfigTable(),
+                topicConfigWrapper.getDataVersion());
+            return;
+        }
+
+        if (shutdown) {
+            BrokerController.LOG.info("BrokerController#doRegisterBrokerDelta: broker has shutdown, no need to register any more.");
+            return;
+        }
+
+        List<String> deletedTopicList = new ArrayList<>();
+        TopicConfigAndMappingSerializeWrapper deltaTopicConfigWrapper = new TopicConfigAndMappingSerializeWrapper();
+        deltaTopicConfigWrapper.setDataVersion(topicConfigWrapper.getDataVersion());
+        deltaTopicConfigWrapper.setTopicConfigTable(this.topicConfigRegistrationTracker.delta(
+            topicConfigWrapper.getTopicConfigTable(), topicConfigWrapper.getDataVersion(), deletedTopicList));
+        // Static topics are few, their mappings are always sent in full
+        deltaTopicConfigWrapper.setTopicQueueMappingInfoMap(topicConfigWrapper.getTopicQueueMappingInfoMap());
+
+        List<RegisterBrokerResult> registerBrokerResultList = this.brokerOuterAPI.registerBrokerDelta(
+            this.brokerConfig.getBrokerClusterName(),
+            this.getBrokerAddr(),
+            this.brokerConfig.getBrokerName(),
+            this.brokerConfig.getBrokerId(),
+            this.getHAServerAddr(),
+            topicConfigWrapper,
+            deltaTopicConfigWrapper,
+            baseDataVersion,
+            deletedTopicList,
+            Lists.newArrayList(),
+            this.brokerConfig.getRegisterBrokerTimeoutMills(),
+            this.brokerConfig.isEnableSlaveActingMaster(),
+            this.brokerConfig.isEnableSlaveActingMaster() ? this.brokerConfig.getBrokerNotActiveTimeoutMillis() : null,
+            this.getBrokerIdentity());
+
+        handleRegisterBrokerResult(registerBrokerResultList, checkOrderConfig);
+    }
+
     protected void sendHeartbeat() {
         if (this.brokerConfig.isEnableControllerMode()) {
             this.replicasManager.sendHeartbeatToController();
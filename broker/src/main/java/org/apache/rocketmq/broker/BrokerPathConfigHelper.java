@@ -35,6 +35,10 @@ public class BrokerPathConfigHelper {
         return rootDir + File.separator + "config" + File.separator + "topics.json";
     }
 
+    public static String getTopicConfigJournalPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "topics.journal";
+    }
+
     public static String getTopicQueueMappingPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "topicQueueMapping.json";
     }
@@ -43,6 +47,10 @@ public class BrokerPathConfigHelper {
         return rootDir + File.separator + "config" + File.separator + "consumerOffset.json";
     }
 
+    public static String getConsumerOffsetJournalPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "consumerOffset.journal";
+    }
+
     public static String getLmqConsumerOffsetPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "lmqConsumerOffset.json";
     }
@@ -54,6 +62,11 @@ public class BrokerPathConfigHelper {
     public static String getSubscriptionGroupPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "subscriptionGroup.json";
     }
+
+    public static String getSubscriptionGroupJournalPath(final String rootDir) {
+        return rootDir + File.separator + "config" + File.separator + "subscriptionGroup.journal";
+    }
+
     public static String getTimerCheckPath(final String rootDir) {
         return rootDir + File.separator + "config" + File.separator + "timercheck";
     }
@@ -163,8 +163,7 @@ public class BrokerPreOnlineService extends ServiceThread {
 
             if (null != consumerOffsetSerializeWrapper && brokerController.getConsumerOffsetManager().getDataVersion().compare(consumerOffsetSerializeWrapper.getDataVersion()) <= 0) {
                 LOGGER.info("{}'s consumerOffset data version is larger than master broker, {}'s consumerOffset will be used.", brokerAddr, brokerAddr);
-                this.brokerController.getConsumerOffsetManager().getOffsetTable()
-                    .putAll(consumerOffsetSerializeWrapper.getOffsetTable());
+                this.brokerController.getConsumerOffsetManager().putOffsetTable(consumerOffsetSerializeWrapper.getOffsetTable());
                 this.brokerController.getConsumerOffsetManager().getDataVersion().assignNewOne(consumerOffsetSerializeWrapper.getDataVersion());
                 this.brokerController.getConsumerOffsetManager().persist();
             }
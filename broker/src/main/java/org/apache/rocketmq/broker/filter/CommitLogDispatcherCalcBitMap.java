@@ -58,10 +58,13 @@ public class CommitLogDispatcherCalcBitMap implements CommitLogDispatcher {
                 return;
             }
 
+            if (this.brokerConfig.isEnableFilterMatchSet()) {
+                calcMatchSet(request, filterDatas);
+                return;
+            }
+
             Iterator<ConsumerFilterData> iterator = filterDatas.iterator();
-            BitsArray filterBitMap = BitsArray.create(
-                this.consumerFilterManager.getBloomFilter().getM()
-            );
+            BitsArray filterBitMap = this.consumerFilterManager.getBloomFilter().createBits();
 
             long startTime = System.currentTimeMillis();
             while (iterator.hasNext()) {
@@ -108,4 +111,40 @@ public class CommitLogDispatcherCalcBitMap implements CommitLogDispatcher {
             log.error("Calc bit map error! topic={}, offset={}, queueId={}, {}", request.getTopic(), request.getCommitLogOffset(), request.getQueueId(), e);
         }
     }
+
+    /**
+     * Evaluate all the filters of the topic having a slot with the same context, and save which of them match.
+     */
+    protected void calcMatchSet(DispatchRequest request, Collection<ConsumerFilterData> filterDatas) {
+        FilterMatchSet filterMatchSet = this.consumerFilterManager.getFilterMatchSet();
+        byte[] matchSet = filterMatchSet.create();
+        MessageEvaluationContext context = new MessageEvaluationContext(request.getPropertiesMap());
+
+        long startTime = System.currentTimeMillis();
+        for (ConsumerFilterData filterData : filterDatas) {
+            int slot = filterData.getMatchSetSlot();
+            if (slot < 0 || slot >= filterMatchSet.getSlotNum() || filterData.getCompiledExpression() == null) {
+                continue;
+            }
+
+            Object ret = null;
+            try {
+                ret = filterData.getCompiledExpression().evaluate(context);
+            } catch (Throwable e) {
+                log.error("Calc filter match set error!commitLogOffset={}, consumer={}, {}", request.getCommitLogOffset(), filterData, e);
+            }
+
+            if (ret instanceof Boolean && (Boolean) ret) {
+                FilterMatchSet.set(matchSet, slot);
+            }
+        }
+
+        request.setBitMap(matchSet);
+
+        long elapsedTime = UtilAll.computeElapsedTimeMilliseconds(startTime);
+        // 1ms
+        if (elapsedTime >= 1) {
+            log.warn("Spend {} ms to calc match set, consumerNum={}, topic={}", elapsedTime, filterDatas.size(), request.getTopic());
+        }
+    }
 }
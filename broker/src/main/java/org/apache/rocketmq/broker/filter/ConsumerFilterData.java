@@ -40,6 +40,14 @@ public class ConsumerFilterData {
     private long deadTime = 0;
     private BloomFilterData bloomFilterData;
     private long clientVersion;
+    /**
+     * Slot in the match set of the topic, -1 if none, see {@link FilterMatchSet}.
+     */
+    private transient volatile int matchSetSlot = -1;
+    /**
+     * Commit log offset from which on the messages surely have the bit of the slot, see {@link FilterMatchSet}.
+     */
+    private transient volatile long matchSetSinceOffset = Long.MAX_VALUE;
 
     public boolean isDead() {
         return this.deadTime >= this.bornTime;
@@ -131,6 +139,22 @@ public class ConsumerFilterData {
         this.clientVersion = clientVersion;
     }
 
+    public int getMatchSetSlot() {
+        return matchSetSlot;
+    }
+
+    public void setMatchSetSlot(int matchSetSlot) {
+        this.matchSetSlot = matchSetSlot;
+    }
+
+    public long getMatchSetSinceOffset() {
+        return matchSetSinceOffset;
+    }
+
+    public void setMatchSetSinceOffset(long matchSetSinceOffset) {
+        this.matchSetSinceOffset = matchSetSinceOffset;
+    }
+
     @Override
     public boolean equals(Object o) {
         return EqualsBuilder.reflectionEquals(this, o, Collections.<String>emptyList());
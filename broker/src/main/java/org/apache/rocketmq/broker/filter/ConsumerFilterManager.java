@@ -30,12 +30,15 @@ import org.apache.rocketmq.common.ConfigManager;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.common.filter.ExpressionType;
 import org.apache.rocketmq.filter.FilterFactory;
+import org.apache.rocketmq.filter.expression.ExpressionCompiler;
+import org.apache.rocketmq.filter.util.BlockedBloomFilter;
 import org.apache.rocketmq.filter.util.BloomFilter;
 import org.apache.rocketmq.filter.util.BloomFilterData;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
 import org.apache.rocketmq.remoting.protocol.heartbeat.SubscriptionData;
+import org.apache.rocketmq.store.MessageStore;
 
 /**
  * Consumer filter data manager.Just manage the consumers use expression filter.
@@ -51,21 +54,39 @@ public class ConsumerFilterManager extends ConfigManager {
 
     private transient BrokerController brokerController;
     private transient BloomFilter bloomFilter;
+    // bloom filter of the other format, to read the bit maps calculated before the format is switched.
+    private transient BloomFilter legacyBloomFilter;
+    private transient FilterMatchSet filterMatchSet;
 
     public ConsumerFilterManager() {
         // just for test
         this.bloomFilter = BloomFilter.createByFn(20, 64);
+        this.legacyBloomFilter = BlockedBloomFilter.createByFn(20, 64);
+        this.filterMatchSet = new FilterMatchSet(64, this.bloomFilter.getM());
     }
 
     public ConsumerFilterManager(BrokerController brokerController) {
         this.brokerController = brokerController;
-        this.bloomFilter = BloomFilter.createByFn(
-            brokerController.getBrokerConfig().getMaxErrorRateOfBloomFilter(),
-            brokerController.getBrokerConfig().getExpectConsumerNumUseFilter()
+        int errorRate = brokerController.getBrokerConfig().getMaxErrorRateOfBloomFilter();
+        int consumerNum = brokerController.getBrokerConfig().getExpectConsumerNumUseFilter();
+        BloomFilter classicBloomFilter = BloomFilter.createByFn(errorRate, consumerNum);
+        BloomFilter blockedBloomFilter = BlockedBloomFilter.createByFn(errorRate, consumerNum);
+        if (brokerController.getBrokerConfig().isEnableBlockedBloomFilter()) {
+            this.bloomFilter = blockedBloomFilter;
+            this.legacyBloomFilter = classicBloomFilter;
+        } else {
+            this.bloomFilter = classicBloomFilter;
+            this.legacyBloomFilter = blockedBloomFilter;
+        }
+        // the match set can not be mistaken for a blocked bit map by its first byte
+        this.filterMatchSet = new FilterMatchSet(
+            brokerController.getBrokerConfig().getFilterMatchSetSlotNum(),
+            classicBloomFilter.getM()
         );
         // then set bit map length of store config.
         brokerController.getMessageStoreConfig().setBitMapLengthConsumeQueueExt(
-            this.bloomFilter.getM()
+            brokerController.getBrokerConfig().isEnableFilterMatchSet()
+                ? this.filterMatchSet.getLength() * Byte.SIZE : this.bloomFilter.getM()
         );
     }
 
@@ -154,7 +175,68 @@ public class ConsumerFilterManager extends ConfigManager {
 
         BloomFilterData bloomFilterData = bloomFilter.generate(consumerGroup + "#" + topic);
 
-        return filterDataMapByTopic.register(consumerGroup, expression, type, bloomFilterData, clientVersion);
+        boolean registered = filterDataMapByTopic.register(consumerGroup, expression, type, bloomFilterData, clientVersion);
+        if (registered) {
+            ConsumerFilterData filterData = filterDataMapByTopic.getGroupFilterData().get(consumerGroup);
+            compileExpression(filterData);
+            assignMatchSetSlot(filterDataMapByTopic, filterData);
+        }
+        return registered;
+    }
+
+    /**
+     * Give the filter data a slot in the match set of its topic, if the shared filter scan is enabled.
+     */
+    private void assignMatchSetSlot(FilterDataMapByTopic filterDataMapByTopic, ConsumerFilterData filterData) {
+        if (this.brokerController == null || !this.brokerController.getBrokerConfig().isEnableFilterMatchSet()) {
+            return;
+        }
+        if (filterData == null || filterData.getMatchSetSlot() >= 0) {
+            return;
+        }
+        if (!filterDataMapByTopic.assignMatchSetSlot(filterData, this.filterMatchSet.getSlotNum())) {
+            log.warn("No free match set slot of topic {}, filter of {} is evaluated when pulled",
+                filterData.getTopic(), filterData.getConsumerGroup());
+            return;
+        }
+        // the slot is visible to the dispatch now, so the messages not written yet are sure to have its bit.
+        // while loading, the store is not recovered yet and the offset is set by initMatchSetSinceOffset.
+        MessageStore messageStore = this.brokerController.getMessageStore();
+        filterData.setMatchSetSinceOffset(messageStore != null ? messageStore.getMaxPhyOffset() : Long.MAX_VALUE);
+    }
+
+    /**
+     * Trust the match set bits of the slots assigned while loading only for the messages written after the recovered
+     * commit log. The slots are handed out again on every start, so the bits stored before may belong to other filters.
+     *
+     * @param maxPhyOffset max commit log offset after the message store is loaded
+     */
+    public void initMatchSetSinceOffset(final long maxPhyOffset) {
+        for (FilterDataMapByTopic filterDataMapByTopic : this.filterDataByTopic.values()) {
+            for (ConsumerFilterData filterData : filterDataMapByTopic.getGroupFilterData().values()) {
+                if (filterData.getMatchSetSlot() >= 0 && filterData.getMatchSetSinceOffset() == Long.MAX_VALUE) {
+                    filterData.setMatchSetSinceOffset(maxPhyOffset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the parsed SQL92 expression of the filter data by a compiled one, if enabled.
+     */
+    private void compileExpression(ConsumerFilterData filterData) {
+        if (this.brokerController == null || !this.brokerController.getBrokerConfig().isEnableCompiledSqlFilter()) {
+            return;
+        }
+        if (filterData == null || filterData.getCompiledExpression() == null
+            || !ExpressionType.SQL92.equals(filterData.getExpressionType())) {
+            return;
+        }
+        try {
+            filterData.setCompiledExpression(ExpressionCompiler.compile(filterData.getCompiledExpression()));
+        } catch (Throwable e) {
+            log.warn("compile filter expression error, use the parsed one, {}", filterData, e);
+        }
     }
 
     public void unRegister(final String consumerGroup) {
@@ -210,6 +292,14 @@ public class ConsumerFilterManager extends ConfigManager {
         return bloomFilter;
     }
 
+    public BloomFilter getLegacyBloomFilter() {
+        return legacyBloomFilter;
+    }
+
+    public FilterMatchSet getFilterMatchSet() {
+        return filterMatchSet;
+    }
+
     @Override
     public String encode() {
         return encode(false);
@@ -248,10 +338,20 @@ public class ConsumerFilterManager extends ConfigManager {
                         filterData.setCompiledExpression(
                                 FilterFactory.INSTANCE.get(filterData.getExpressionType()).compile(filterData.getExpression())
                         );
+                        compileExpression(filterData);
+                        assignMatchSetSlot(dataMapByTopic, filterData);
                     } catch (Exception e) {
                         log.error("load filter data error, " + filterData, e);
                     }
 
+                    // only the format of bloom filter is switched, the bit map calculated before is still read
+                    // by the legacy bloom filter.
+                    if (this.legacyBloomFilter != null && this.legacyBloomFilter.isValid(filterData.getBloomFilterData())) {
+                        filterData.setBloomFilterData(
+                            this.bloomFilter.generate(filterData.getConsumerGroup() + "#" + filterData.getTopic())
+                        );
+                    }
+
                     // check whether bloom filter is changed
                     // if changed, ignore the bit map calculated before.
                     if (!this.bloomFilter.isValid(filterData.getBloomFilterData())) {
@@ -327,6 +427,8 @@ public class ConsumerFilterManager extends ConfigManager {
 
         private String topic;
 
+        private transient ConsumerFilterData[] matchSetSlots;
+
         public FilterDataMapByTopic() {
         }
 
@@ -439,6 +541,42 @@ public class ConsumerFilterManager extends ConfigManager {
             }
         }
 
+        /**
+         * Give the filter data a free slot of the match set. The slots of the filter data which are replaced or
+         * removed since are freed first.
+         *
+         * @return false if all the slots are used
+         */
+        public synchronized boolean assignMatchSetSlot(ConsumerFilterData filterData, int slotNum) {
+            if (filterData.getMatchSetSlot() >= 0) {
+                return true;
+            }
+            if (this.matchSetSlots == null) {
+                this.matchSetSlots = new ConsumerFilterData[slotNum];
+            }
+            int free = -1;
+            for (int i = 0; i < this.matchSetSlots.length; i++) {
+                ConsumerFilterData owner = this.matchSetSlots[i];
+                if (owner != null && this.groupFilterData.get(owner.getConsumerGroup()) != owner) {
+                    owner.setMatchSetSlot(-1);
+                    this.matchSetSlots[i] = null;
+                    owner = null;
+                }
+                if (owner == null && free < 0) {
+                    free = i;
+                }
+            }
+            if (free < 0) {
+                return false;
+            }
+            this.matchSetSlots[free] = filterData;
+            // no message is known to have the bit of the slot until the offset is set once the slot is visible
+            filterData.setMatchSetSinceOffset(Long.MAX_VALUE);
+            filterData.setMatchSetSlot(free);
+            log.info("Assign match set slot {} to consumer filter: {}", free, filterData);
+            return true;
+        }
+
         protected void reAlive(ConsumerFilterData filterData) {
             long oldDeadTime = filterData.getDeadTime();
             filterData.setDeadTime(0);
@@ -22,8 +22,8 @@ import java.util.Map;
 import org.apache.rocketmq.common.KeyBuilder;
 import org.apache.rocketmq.common.MixAll;
 import org.apache.rocketmq.common.filter.ExpressionType;
+import org.apache.rocketmq.common.message.MessageBufferView;
 import org.apache.rocketmq.common.message.MessageConst;
-import org.apache.rocketmq.common.message.MessageDecoder;
 import org.apache.rocketmq.remoting.protocol.heartbeat.SubscriptionData;
 
 /**
@@ -54,15 +54,15 @@ public class ExpressionForRetryMessageFilter extends ExpressionMessageFilter {
 
         ConsumerFilterData realFilterData = this.consumerFilterData;
         Map<String, String> tempProperties = properties;
-        boolean decoded = false;
+        MessageBufferView messageView = null;
+        if (tempProperties == null && msgBuffer != null) {
+            messageView = new MessageBufferView(msgBuffer);
+        }
         if (isRetryTopic) {
             // retry topic, use original filter data.
             // poor performance to support retry filter.
-            if (tempProperties == null && msgBuffer != null) {
-                decoded = true;
-                tempProperties = MessageDecoder.decodeProperties(msgBuffer);
-            }
-            String realTopic = tempProperties.get(MessageConst.PROPERTY_RETRY_TOPIC);
+            String realTopic = messageView != null
+                ? messageView.getProperty(MessageConst.PROPERTY_RETRY_TOPIC) : tempProperties.get(MessageConst.PROPERTY_RETRY_TOPIC);
             String group = KeyBuilder.parseGroup(subscriptionData.getTopic());
             realFilterData = this.consumerFilterManager.get(realTopic, group);
         }
@@ -73,20 +73,17 @@ public class ExpressionForRetryMessageFilter extends ExpressionMessageFilter {
             return true;
         }
 
-        if (!decoded && tempProperties == null && msgBuffer != null) {
-            tempProperties = MessageDecoder.decodeProperties(msgBuffer);
-        }
-
         Object ret = null;
         try {
-            MessageEvaluationContext context = new MessageEvaluationContext(tempProperties);
+            MessageEvaluationContext context = messageView != null
+                ? new MessageEvaluationContext(messageView) : new MessageEvaluationContext(tempProperties);
 
             ret = realFilterData.getCompiledExpression().evaluate(context);
         } catch (Throwable e) {
-            log.error("Message Filter error, " + realFilterData + ", " + tempProperties, e);
+            log.error("Message Filter error, " + realFilterData + ", " + (messageView != null ? messageView : tempProperties), e);
         }
 
-        log.debug("Pull eval result: {}, {}, {}", ret, realFilterData, tempProperties);
+        log.debug("Pull eval result: {}, {}, {}", ret, realFilterData, messageView != null ? messageView : tempProperties);
 
         if (ret == null || !(ret instanceof Boolean)) {
             return false;
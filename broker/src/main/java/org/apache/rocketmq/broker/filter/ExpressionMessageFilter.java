@@ -21,7 +21,7 @@ import java.nio.ByteBuffer;
 import java.util.Map;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.common.filter.ExpressionType;
-import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageBufferView;
 import org.apache.rocketmq.filter.util.BitsArray;
 import org.apache.rocketmq.filter.util.BloomFilter;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
@@ -38,6 +38,15 @@ public class ExpressionMessageFilter implements MessageFilter {
     protected final ConsumerFilterData consumerFilterData;
     protected final ConsumerFilterManager consumerFilterManager;
     protected final boolean bloomDataValid;
+    /**
+     * Whether the message last checked by consume queue is matched by the exact match set, the commit log is
+     * not evaluated again then.
+     */
+    protected boolean matchedByMatchSet = false;
+    /**
+     * Bit positions of the consumer in the legacy bloom filter, calculated when first used.
+     */
+    protected int[] legacyBitPositions;
 
     public ExpressionMessageFilter(SubscriptionData subscriptionData, ConsumerFilterData consumerFilterData,
         ConsumerFilterManager consumerFilterManager) {
@@ -58,6 +67,12 @@ public class ExpressionMessageFilter implements MessageFilter {
 
     @Override
     public boolean isMatchedByConsumeQueue(Long tagsCode, ConsumeQueueExt.CqExtUnit cqExtUnit) {
+        return isMatchedByConsumeQueue(tagsCode, cqExtUnit, -1L);
+    }
+
+    @Override
+    public boolean isMatchedByConsumeQueue(Long tagsCode, ConsumeQueueExt.CqExtUnit cqExtUnit, long commitLogOffset) {
+        matchedByMatchSet = false;
         if (null == subscriptionData) {
             return true;
         }
@@ -92,21 +107,41 @@ public class ExpressionMessageFilter implements MessageFilter {
             }
 
             byte[] filterBitMap = cqExtUnit.getFilterBitMap();
-            BloomFilter bloomFilter = this.consumerFilterManager.getBloomFilter();
-            if (filterBitMap == null || !this.bloomDataValid
-                || filterBitMap.length * Byte.SIZE != consumerFilterData.getBloomFilterData().getBitNum()) {
-                return true;
+            FilterMatchSet filterMatchSet = this.consumerFilterManager.getFilterMatchSet();
+            if (filterMatchSet != null && filterMatchSet.isMatchSet(filterBitMap)) {
+                int slot = consumerFilterData.getMatchSetSlot();
+                // the match set may be calculated before the slot is assigned
+                if (slot < 0 || commitLogOffset < consumerFilterData.getMatchSetSinceOffset()) {
+                    return true;
+                }
+                boolean ret = FilterMatchSet.contains(filterBitMap, slot);
+                log.debug("Pull {} by match set: {}, {}", ret, consumerFilterData, cqExtUnit);
+                matchedByMatchSet = ret;
+                return ret;
             }
 
-            BitsArray bitsArray = null;
             try {
-                bitsArray = BitsArray.create(filterBitMap);
-                boolean ret = bloomFilter.isHit(consumerFilterData.getBloomFilterData(), bitsArray);
-                log.debug("Pull {} by bit map:{}, {}, {}", ret, consumerFilterData, bitsArray, cqExtUnit);
-                return ret;
+                BloomFilter bloomFilter = this.consumerFilterManager.getBloomFilter();
+                if (this.bloomDataValid && bloomFilter.isBitMap(filterBitMap)) {
+                    boolean ret = bloomFilter.isHit(consumerFilterData.getBloomFilterData().getBitPos(), filterBitMap);
+                    log.debug("Pull {} by bit map:{}, {}", ret, consumerFilterData, cqExtUnit);
+                    return ret;
+                }
+
+                // calculated before the format of bloom filter is switched
+                BloomFilter legacyBloomFilter = this.consumerFilterManager.getLegacyBloomFilter();
+                if (legacyBloomFilter != null && legacyBloomFilter.isBitMap(filterBitMap)) {
+                    if (legacyBitPositions == null) {
+                        legacyBitPositions = legacyBloomFilter.calcBitPositions(
+                            consumerFilterData.getConsumerGroup() + "#" + consumerFilterData.getTopic());
+                    }
+                    boolean ret = legacyBloomFilter.isHit(legacyBitPositions, filterBitMap);
+                    log.debug("Pull {} by legacy bit map:{}, {}", ret, consumerFilterData, cqExtUnit);
+                    return ret;
+                }
             } catch (Throwable e) {
                 log.error("bloom filter error, sub=" + subscriptionData
-                    + ", filter=" + consumerFilterData + ", bitMap=" + bitsArray, e);
+                    + ", filter=" + consumerFilterData + ", bitMap=" + BitsArray.create(filterBitMap), e);
             }
         }
 
@@ -127,6 +162,11 @@ public class ExpressionMessageFilter implements MessageFilter {
             return true;
         }
 
+        if (matchedByMatchSet) {
+            matchedByMatchSet = false;
+            return true;
+        }
+
         ConsumerFilterData realFilterData = this.consumerFilterData;
         Map<String, String> tempProperties = properties;
 
@@ -136,20 +176,23 @@ public class ExpressionMessageFilter implements MessageFilter {
             return true;
         }
 
+        // only the properties referred by the expression are read from the stored message
+        MessageBufferView messageView = null;
         if (tempProperties == null && msgBuffer != null) {
-            tempProperties = MessageDecoder.decodeProperties(msgBuffer);
+            messageView = new MessageBufferView(msgBuffer);
         }
 
         Object ret = null;
         try {
-            MessageEvaluationContext context = new MessageEvaluationContext(tempProperties);
+            MessageEvaluationContext context = messageView != null
+                ? new MessageEvaluationContext(messageView) : new MessageEvaluationContext(tempProperties);
 
             ret = realFilterData.getCompiledExpression().evaluate(context);
         } catch (Throwable e) {
-            log.error("Message Filter error, " + realFilterData + ", " + tempProperties, e);
+            log.error("Message Filter error, " + realFilterData + ", " + (messageView != null ? messageView : tempProperties), e);
         }
 
-        log.debug("Pull eval result: {}, {}, {}", ret, realFilterData, tempProperties);
+        log.debug("Pull eval result: {}, {}, {}", ret, realFilterData, messageView != null ? messageView : tempProperties);
 
         if (ret == null || !(ret instanceof Boolean)) {
             return false;
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.broker.filter;
+
+/**
+ * Exact match set of one message, calculated once for all the filters of its topic when it is dispatched and saved in
+ * consume queue ext instead of the bloom filter bit map.
+ * <p>
+ * Every filter data of a topic owns a slot, the bit of the slot is set if the message matches the filter. The first
+ * byte is a magic code, and the length never equals the one of the bloom filter bit map, so that the two formats can
+ * not be mistaken for each other.
+ * </p>
+ */
+public class FilterMatchSet {
+
+    public static final byte MAGIC_CODE = (byte) 0xA5;
+
+    private final int slotNum;
+    private final int length;
+
+    /**
+     * @param slotNum max number of filters of a topic in the match set
+     * @param bloomBitNum bit num of the bloom filter bit map
+     */
+    public FilterMatchSet(int slotNum, int bloomBitNum) {
+        if (slotNum < 1) {
+            throw new IllegalArgumentException("Slot num is less than 1.");
+        }
+        this.slotNum = slotNum;
+        int length = 1 + (slotNum + Byte.SIZE - 1) / Byte.SIZE;
+        if (length * Byte.SIZE == bloomBitNum) {
+            length++;
+        }
+        this.length = length;
+    }
+
+    public byte[] create() {
+        byte[] matchSet = new byte[length];
+        matchSet[0] = MAGIC_CODE;
+        return matchSet;
+    }
+
+    public boolean isMatchSet(byte[] bitMap) {
+        return bitMap != null && bitMap.length == length && bitMap[0] == MAGIC_CODE;
+    }
+
+    public static void set(byte[] matchSet, int slot) {
+        matchSet[1 + slot / Byte.SIZE] |= (byte) (1 << (slot % Byte.SIZE));
+    }
+
+    public static boolean contains(byte[] matchSet, int slot) {
+        return (matchSet[1 + slot / Byte.SIZE] & (1 << (slot % Byte.SIZE))) != 0;
+    }
+
+    public int getSlotNum() {
+        return slotNum;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterMatchSet{" +
+            "slotNum=" + slotNum +
+            ", length=" + length +
+            '}';
+    }
+}
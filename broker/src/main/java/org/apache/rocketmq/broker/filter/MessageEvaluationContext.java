@@ -17,6 +17,7 @@
 
 package org.apache.rocketmq.broker.filter;
 
+import org.apache.rocketmq.common.message.MessageBufferView;
 import org.apache.rocketmq.filter.expression.EvaluationContext;
 
 import java.util.HashMap;
@@ -29,13 +30,24 @@ import java.util.Map.Entry;
 public class MessageEvaluationContext implements EvaluationContext {
 
     private Map<String, String> properties;
+    private MessageBufferView messageView;
 
     public MessageEvaluationContext(Map<String, String> properties) {
         this.properties = properties;
     }
 
+    /**
+     * Reads the properties from the stored message when they are evaluated, without decoding all of them.
+     */
+    public MessageEvaluationContext(MessageBufferView messageView) {
+        this.messageView = messageView;
+    }
+
     @Override
     public Object get(final String name) {
+        if (this.messageView != null) {
+            return this.messageView.getProperty(name);
+        }
         if (this.properties == null) {
             return null;
         }
@@ -44,6 +56,7 @@ public class MessageEvaluationContext implements EvaluationContext {
 
     @Override
     public Map<String, Object> keyValues() {
+        Map<String, String> properties = this.messageView != null ? this.messageView.getProperties() : this.properties;
         if (properties == null) {
             return null;
         }
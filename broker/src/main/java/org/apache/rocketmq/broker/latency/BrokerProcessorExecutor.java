@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import io.opentelemetry.api.common.Attributes;
+import java.lang.reflect.Method;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.rocketmq.broker.metrics.BrokerMetricsManager;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.future.FutureTaskExt;
+import org.apache.rocketmq.common.thread.FutureTaskExtThreadPoolExecutor;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+import org.apache.rocketmq.remoting.common.RemotingHelper;
+import org.apache.rocketmq.remoting.netty.RequestTask;
+
+import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_PROCESSOR;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_REQUEST_CODE;
+
+/**
+ * Thread pool of a request processor, which records how long each request waited in its queue and, when created
+ * with a maximum pool size above the core one, can resize itself by that wait time.
+ */
+public class BrokerProcessorExecutor extends FutureTaskExtThreadPoolExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
+
+    public static final String TYPE_FIXED = "FIXED";
+    public static final String TYPE_ADAPTIVE = "ADAPTIVE";
+    public static final String TYPE_VIRTUAL = "VIRTUAL";
+
+    private static final long KEEP_ALIVE_TIME_MILLS = 1000 * 60;
+
+    private final String processor;
+    private final int minPoolSize;
+    private final AtomicLong maxQueueingTimeMills = new AtomicLong(0);
+
+    public BrokerProcessorExecutor(String processor, int minPoolSize, int maxPoolSize,
+        BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
+        super(minPoolSize, maxPoolSize, KEEP_ALIVE_TIME_MILLS, TimeUnit.MILLISECONDS, workQueue, threadFactory,
+            new AbortPolicy());
+        this.processor = processor;
+        this.minPoolSize = minPoolSize;
+    }
+
+    /**
+     * Creates the executor of a processor as configured by {@link BrokerConfig#getProcessorExecutorType()}.
+     *
+     * @param processor name of the processor in metrics
+     * @param poolSize configured thread pool size of the processor
+     */
+    public static BrokerProcessorExecutor newExecutor(BrokerConfig brokerConfig, String processor, int poolSize,
+        BlockingQueue<Runnable> workQueue, ThreadFactoryImpl threadFactory) {
+        String type = brokerConfig.getProcessorExecutorType();
+        if (TYPE_VIRTUAL.equalsIgnoreCase(type)) {
+            ThreadFactory virtualThreadFactory = newVirtualThreadFactory(threadFactory.getThreadNamePrefix());
+            if (virtualThreadFactory != null) {
+                int virtualPoolSize = Math.max(poolSize, brokerConfig.getVirtualThreadPoolNums());
+                BrokerProcessorExecutor executor = new BrokerProcessorExecutor(processor, virtualPoolSize,
+                    virtualPoolSize, workQueue, virtualThreadFactory);
+                executor.allowCoreThreadTimeOut(true);
+                return executor;
+            }
+            LOGGER.warn("Virtual threads are not supported by this JVM, run processor {} on platform threads", processor);
+        } else if (TYPE_ADAPTIVE.equalsIgnoreCase(type)) {
+            return new BrokerProcessorExecutor(processor, poolSize,
+                poolSize * Math.max(1, brokerConfig.getAdaptiveThreadPoolMaxFactor()), workQueue, threadFactory);
+        } else if (!TYPE_FIXED.equalsIgnoreCase(type)) {
+            LOGGER.warn("Unknown processor executor type {}, run processor {} on fixed thread pool", type, processor);
+        }
+        return new BrokerProcessorExecutor(processor, poolSize, poolSize, workQueue, threadFactory);
+    }
+
+    /**
+     * @return factory of virtual threads named by the prefix, or null before JDK 21
+     */
+    static ThreadFactory newVirtualThreadFactory(String threadNamePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+            Method factory = builderClass.getMethod("factory");
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        RequestTask requestTask = requestTask(r);
+        if (requestTask == null) {
+            return;
+        }
+        long queueingTimeMills = Math.max(0, System.currentTimeMillis() - requestTask.getCreateTimestamp());
+        long max = maxQueueingTimeMills.get();
+        while (queueingTimeMills > max && !maxQueueingTimeMills.compareAndSet(max, queueingTimeMills)) {
+            max = maxQueueingTimeMills.get();
+        }
+        if (requestTask.getRequest() != null) {
+            Attributes attributes = BrokerMetricsManager.newAttributesBuilder()
+                .put(LABEL_PROCESSOR, processor)
+                .put(LABEL_REQUEST_CODE, RemotingHelper.getRequestCodeDesc(requestTask.getRequest().getCode()))
+                .build();
+            BrokerMetricsManager.requestQueueingLatency.record(queueingTimeMills, attributes);
+        }
+    }
+
+    /**
+     * Adds a quarter of the threads when requests waited longer than the target since the last adjustment, or
+     * retires one when none waited over a quarter of the target and some threads are idle. Does nothing if the
+     * pool was created with a fixed size.
+     */
+    public void adjustPoolSize(long targetQueueingTimeMills) {
+        long queueingTimeMills = Math.max(maxQueueingTimeMills.getAndSet(0), headQueueingTimeMills());
+        int maxPoolSize = getMaximumPoolSize();
+        int corePoolSize = getCorePoolSize();
+        if (minPoolSize >= maxPoolSize) {
+            return;
+        }
+        int newCorePoolSize = corePoolSize;
+        if (queueingTimeMills > targetQueueingTimeMills) {
+            newCorePoolSize = Math.min(maxPoolSize, corePoolSize + Math.max(1, corePoolSize / 4));
+        } else if (queueingTimeMills * 4 <= targetQueueingTimeMills && getActiveCount() < corePoolSize) {
+            newCorePoolSize = Math.max(minPoolSize, corePoolSize - 1);
+        }
+        if (newCorePoolSize != corePoolSize) {
+            setCorePoolSize(newCorePoolSize);
+            LOGGER.info("Resize {} processor thread pool from {} to {}, max queueing time {}ms",
+                processor, corePoolSize, newCorePoolSize, queueingTimeMills);
+        }
+    }
+
+    private long headQueueingTimeMills() {
+        RequestTask requestTask = requestTask(getQueue().peek());
+        return requestTask == null ? 0 : Math.max(0, System.currentTimeMillis() - requestTask.getCreateTimestamp());
+    }
+
+    private static RequestTask requestTask(Runnable runnable) {
+        if (runnable instanceof FutureTaskExt && ((FutureTaskExt<?>) runnable).getRunnable() instanceof RequestTask) {
+            return (RequestTask) ((FutureTaskExt<?>) runnable).getRunnable();
+        }
+        return null;
+    }
+
+    public String getProcessor() {
+        return processor;
+    }
+
+    public int getMinPoolSize() {
+        return minPoolSize;
+    }
+}
@@ -26,8 +26,11 @@ import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 public class LmqPullRequestHoldService extends PullRequestHoldService {
     private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.BROKER_LOGGER_NAME);
 
+    /**
+     * LMQ queues come and go, their entries are removed by the periodic check, so the timer wheel is never used.
+     */
     public LmqPullRequestHoldService(BrokerController brokerController) {
-        super(brokerController);
+        super(brokerController, false);
     }
 
     @Override
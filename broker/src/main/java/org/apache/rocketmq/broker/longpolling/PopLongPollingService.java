@@ -19,15 +19,19 @@ package org.apache.rocketmq.broker.longpolling;
 
 import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.common.KeyBuilder;
 import org.apache.rocketmq.common.PopAckConstants;
 import org.apache.rocketmq.common.ServiceThread;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
@@ -52,6 +56,7 @@ public class PopLongPollingService extends ServiceThread {
 
     private final AtomicLong totalPollingNum = new AtomicLong(0);
     private final boolean notifyLast;
+    private final Timer pollingTimer;
 
     public PopLongPollingService(BrokerController brokerController, NettyRequestProcessor processor, boolean notifyLast) {
         this.brokerController = brokerController;
@@ -61,6 +66,12 @@ public class PopLongPollingService extends ServiceThread {
         this.pollingMap = new ConcurrentLinkedHashMap.Builder<String, ConcurrentSkipListSet<PopRequest>>()
             .maximumWeightedCapacity(this.brokerController.getBrokerConfig().getPopPollingMapSize()).build();
         this.notifyLast = notifyLast;
+        if (brokerController.getBrokerConfig().isEnableLongPollingTimerWheel()) {
+            this.pollingTimer = new HashedWheelTimer(new ThreadFactoryImpl("PopPollingTimer_"),
+                brokerController.getBrokerConfig().getLongPollingTimerWheelTickMs(), TimeUnit.MILLISECONDS, 512);
+        } else {
+            this.pollingTimer = null;
+        }
     }
 
     @Override
@@ -76,6 +87,15 @@ public class PopLongPollingService extends ServiceThread {
         int i = 0;
         while (!this.stopped) {
             try {
+                if (pollingTimer != null) {
+                    // timeouts come from the timer, only report and clean here
+                    this.waitForRunning(20 * 100);
+                    POP_LOGGER.info("pollingMapSize={},atomicTotalSize={}", pollingMap.size(), totalPollingNum.get());
+                    if (lastCleanTime == 0 || System.currentTimeMillis() - lastCleanTime > 5 * 60 * 1000) {
+                        cleanUnusedResource();
+                    }
+                    continue;
+                }
                 this.waitForRunning(20);
                 i++;
                 if (pollingMap.isEmpty()) {
@@ -88,26 +108,7 @@ public class PopLongPollingService extends ServiceThread {
                     if (popQ == null) {
                         continue;
                     }
-                    PopRequest first;
-                    do {
-                        first = popQ.pollFirst();
-                        if (first == null) {
-                            break;
-                        }
-                        if (!first.isTimeout()) {
-                            if (popQ.add(first)) {
-                                break;
-                            } else {
-                                POP_LOGGER.info("polling, add fail again: {}", first);
-                            }
-                        }
-                        if (brokerController.getBrokerConfig().isEnablePopLog()) {
-                            POP_LOGGER.info("timeout , wakeUp polling : {}", first);
-                        }
-                        totalPollingNum.decrementAndGet();
-                        wakeUp(first);
-                    }
-                    while (true);
+                    wakeUpTimeout(popQ);
                     if (i >= 100) {
                         long tmpPollingNum = popQ.size();
                         tmpTotalPollingNum = tmpTotalPollingNum + tmpPollingNum;
@@ -144,6 +145,32 @@ public class PopLongPollingService extends ServiceThread {
             }
         } catch (Throwable e) {
         }
+        if (pollingTimer != null) {
+            pollingTimer.stop();
+        }
+    }
+
+    private void wakeUpTimeout(ConcurrentSkipListSet<PopRequest> popQ) {
+        PopRequest first;
+        do {
+            first = popQ.pollFirst();
+            if (first == null) {
+                break;
+            }
+            if (!first.isTimeout()) {
+                if (popQ.add(first)) {
+                    break;
+                } else {
+                    POP_LOGGER.info("polling, add fail again: {}", first);
+                }
+            }
+            if (brokerController.getBrokerConfig().isEnablePopLog()) {
+                POP_LOGGER.info("timeout , wakeUp polling : {}", first);
+            }
+            totalPollingNum.decrementAndGet();
+            wakeUp(first);
+        }
+        while (true);
     }
 
     public void notifyMessageArrivingWithRetryTopic(final String topic, final int queueId) {
@@ -267,6 +294,15 @@ public class PopLongPollingService extends ServiceThread {
         if (queue.add(request)) {
             remotingCommand.setSuspended(true);
             totalPollingNum.incrementAndGet();
+            if (pollingTimer != null) {
+                final ConcurrentSkipListSet<PopRequest> pollingQueue = queue;
+                request.setTimeout(pollingTimer.newTimeout(timeout -> {
+                    if (pollingQueue.remove(request)) {
+                        totalPollingNum.decrementAndGet();
+                        wakeUp(request);
+                    }
+                }, Math.max(0, expired - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+            }
             if (brokerController.getBrokerConfig().isEnablePopLog()) {
                 POP_LOGGER.info("polling {}, result POLLING_SUC", remotingCommand);
             }
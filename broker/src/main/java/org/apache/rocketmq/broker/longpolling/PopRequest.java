@@ -17,6 +17,7 @@
 package org.apache.rocketmq.broker.longpolling;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Timeout;
 import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -33,6 +34,7 @@ public class PopRequest {
     private final long expired;
     private final AtomicBoolean complete = new AtomicBoolean(false);
     private final long op = COUNTER.getAndIncrement();
+    private volatile Timeout timeout;
 
     public PopRequest(RemotingCommand remotingCommand, ChannelHandlerContext ctx, long expired) {
         this.ctx = ctx;
@@ -57,7 +59,18 @@ public class PopRequest {
     }
 
     public boolean complete() {
-        return complete.compareAndSet(false, true);
+        if (!complete.compareAndSet(false, true)) {
+            return false;
+        }
+        Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return true;
+    }
+
+    public void setTimeout(Timeout timeout) {
+        this.timeout = timeout;
     }
 
     public long getExpired() {
@@ -77,6 +90,9 @@ public class PopRequest {
     }
 
     public static final Comparator<PopRequest> COMPARATOR = (o1, o2) -> {
+        if (o1 == o2) {
+            return 0;
+        }
         int ret = (int) (o1.getExpired() - o2.getExpired());
 
         if (ret != 0) {
@@ -16,14 +16,18 @@
  */
 package org.apache.rocketmq.broker.longpolling;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.common.ServiceThread;
 import org.apache.rocketmq.common.SystemClock;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
@@ -36,9 +40,24 @@ public class PullRequestHoldService extends ServiceThread {
     private final SystemClock systemClock = new SystemClock();
     protected ConcurrentMap<String/* topic@queueId */, ManyPullRequest> pullRequestTable =
         new ConcurrentHashMap<>(1024);
+    private final Timer holdTimer;
 
     public PullRequestHoldService(final BrokerController brokerController) {
+        this(brokerController, brokerController.getBrokerConfig().isEnableLongPollingTimerWheel());
+    }
+
+    /**
+     * @param timerWheel whether suspended requests are timed out one by one by a timer wheel and only woken by message
+     * arrival for their own queue, instead of a periodic check of all of them
+     */
+    protected PullRequestHoldService(final BrokerController brokerController, final boolean timerWheel) {
         this.brokerController = brokerController;
+        if (timerWheel) {
+            this.holdTimer = new HashedWheelTimer(new ThreadFactoryImpl("PullRequestHoldTimer_"),
+                brokerController.getBrokerConfig().getLongPollingTimerWheelTickMs(), TimeUnit.MILLISECONDS, 512);
+        } else {
+            this.holdTimer = null;
+        }
     }
 
     public void suspendPullRequest(final String topic, final int queueId, final PullRequest pullRequest) {
@@ -54,6 +73,39 @@ public class PullRequestHoldService extends ServiceThread {
 
         pullRequest.getRequestCommand().setSuspended(true);
         mpr.addPullRequest(pullRequest);
+
+        if (this.holdTimer != null) {
+            pullRequest.setTimeout(this.holdTimer.newTimeout(timeout -> onHoldTimeout(topic, queueId, pullRequest),
+                pullRequest.getTimeoutMillis(), TimeUnit.MILLISECONDS));
+            // a message may have arrived between the pull and the suspend, with no one to notify
+            final long offset = this.brokerController.getMessageStore().getMaxOffsetInQueue(topic, queueId);
+            if (offset > pullRequest.getPullFromThisOffset()) {
+                this.notifyMessageArriving(topic, queueId, offset);
+            }
+        }
+    }
+
+    private void onHoldTimeout(final String topic, final int queueId, final PullRequest pullRequest) {
+        if (pullRequest.isComplete()) {
+            return;
+        }
+        ManyPullRequest mpr = this.pullRequestTable.get(this.buildKey(topic, queueId));
+        if (mpr == null || !mpr.removePullRequest(pullRequest)) {
+            // being checked by a notification, which puts it back if it doesn't match
+            this.holdTimer.newTimeout(timeout -> onHoldTimeout(topic, queueId, pullRequest),
+                this.brokerController.getBrokerConfig().getLongPollingTimerWheelTickMs(), TimeUnit.MILLISECONDS);
+            return;
+        }
+        if (!pullRequest.complete()) {
+            return;
+        }
+        try {
+            this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(pullRequest.getClientChannel(),
+                pullRequest.getRequestCommand());
+        } catch (Throwable e) {
+            log.error("PullRequestHoldService: failed to execute request when time's up, topic={}, queueId={}",
+                topic, queueId, e);
+        }
     }
 
     private String buildKey(final String topic, final int queueId) {
@@ -69,6 +121,10 @@ public class PullRequestHoldService extends ServiceThread {
         log.info("{} service started", this.getServiceName());
         while (!this.isStopped()) {
             try {
+                if (this.holdTimer != null) {
+                    this.waitForRunning(5 * 1000);
+                    continue;
+                }
                 if (this.brokerController.getBrokerConfig().isLongPollingEnable()) {
                     this.waitForRunning(5 * 1000);
                 } else {
@@ -86,6 +142,9 @@ public class PullRequestHoldService extends ServiceThread {
             }
         }
 
+        if (this.holdTimer != null) {
+            this.holdTimer.stop();
+        }
         log.info("{} service end", this.getServiceName());
     }
 
@@ -143,6 +202,9 @@ public class PullRequestHoldService extends ServiceThread {
                         }
 
                         if (match) {
+                            if (!request.complete()) {
+                                continue;
+                            }
                             try {
                                 this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
                                     request.getRequestCommand());
@@ -156,6 +218,9 @@ public class PullRequestHoldService extends ServiceThread {
                     }
 
                     if (System.currentTimeMillis() >= (request.getSuspendTimestamp() + request.getTimeoutMillis())) {
+                        if (!request.complete()) {
+                            continue;
+                        }
                         try {
                             this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
                                 request.getRequestCommand());
@@ -183,6 +248,9 @@ public class PullRequestHoldService extends ServiceThread {
                 continue;
             }
             for (PullRequest request : mpr.cloneListAndClear()) {
+                if (!request.complete()) {
+                    continue;
+                }
                 try {
                     log.info("notify master online, wakeup {} {}", request.getClientChannel(), request.getRequestCommand());
                     this.brokerController.getPullMessageProcessor().executeRequestWhenWakeup(request.getClientChannel(),
@@ -92,6 +92,7 @@ import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.GAUGE_PRO
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.GAUGE_PRODUCER_CONNECTIONS;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.HISTOGRAM_FINISH_MSG_LATENCY;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.HISTOGRAM_MESSAGE_SIZE;
+import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.HISTOGRAM_REQUEST_QUEUEING_LATENCY;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_AGGREGATION;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_CLUSTER_NAME;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_CONSUMER_GROUP;
@@ -128,6 +129,7 @@ public class BrokerMetricsManager {
     // broker stats metrics
     public static ObservableLongGauge processorWatermark = new NopObservableLongGauge();
     public static ObservableLongGauge brokerPermission = new NopObservableLongGauge();
+    public static LongHistogram requestQueueingLatency = new NopLongHistogram();
 
     // request metrics
     public static LongCounter messagesInTotal = new NopLongCounter();
@@ -401,6 +403,25 @@ public class BrokerMetricsManager {
         SdkMeterProviderUtil.setCardinalityLimit(commitLatencyViewBuilder, brokerConfig.getMetricsOtelCardinalityLimit());
         providerBuilder.registerView(commitLatencySelector, commitLatencyViewBuilder.build());
 
+        List<Double> queueingLatencyBuckets = Arrays.asList(
+            1d, //1ms
+            5d, //5ms
+            10d, //10ms
+            50d, //50ms
+            100d, //100ms
+            500d, //500ms
+            1d * 1000, //1s
+            3d * 1000 //3s
+        );
+        InstrumentSelector queueingLatencySelector = InstrumentSelector.builder()
+            .setType(InstrumentType.HISTOGRAM)
+            .setName(HISTOGRAM_REQUEST_QUEUEING_LATENCY)
+            .build();
+        ViewBuilder queueingLatencyViewBuilder = View.builder()
+            .setAggregation(Aggregation.explicitBucketHistogram(queueingLatencyBuckets));
+        SdkMeterProviderUtil.setCardinalityLimit(queueingLatencyViewBuilder, brokerConfig.getMetricsOtelCardinalityLimit());
+        providerBuilder.registerView(queueingLatencySelector, queueingLatencyViewBuilder.build());
+
         for (Pair<InstrumentSelector, ViewBuilder> selectorViewPair : RemotingMetricsManager.getMetricsView()) {
             ViewBuilder viewBuilder = selectorViewPair.getObject2();
             SdkMeterProviderUtil.setCardinalityLimit(viewBuilder, brokerConfig.getMetricsOtelCardinalityLimit());
@@ -455,6 +476,12 @@ public class BrokerMetricsManager {
                 measurement.record(brokerController.getReplyThreadPoolQueue().size(), newAttributesBuilder().put(LABEL_PROCESSOR, "reply").build());
             });
 
+        requestQueueingLatency = brokerMeter.histogramBuilder(HISTOGRAM_REQUEST_QUEUEING_LATENCY)
+            .setDescription("Time requests wait in the queue of their processor")
+            .ofLongs()
+            .setUnit("ms")
+            .build();
+
         brokerPermission = brokerMeter.gaugeBuilder(GAUGE_BROKER_PERMISSION)
             .setDescription("Broker permission")
             .ofLongs()
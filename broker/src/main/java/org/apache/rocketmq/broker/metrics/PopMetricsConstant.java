@@ -21,6 +21,9 @@ public class PopMetricsConstant {
     public static final String COUNTER_POP_REVIVE_IN_MESSAGE_TOTAL = "rocketmq_pop_revive_in_message_total";
     public static final String COUNTER_POP_REVIVE_OUT_MESSAGE_TOTAL = "rocketmq_pop_revive_out_message_total";
     public static final String COUNTER_POP_REVIVE_RETRY_MESSAGES_TOTAL = "rocketmq_pop_revive_retry_messages_total";
+    public static final String COUNTER_POP_REVIVE_ACK_PUT_BYTES_TOTAL = "rocketmq_pop_revive_ack_put_bytes_total";
+    public static final String COUNTER_POP_REVIVE_ACK_PUT_MESSAGES_TOTAL = "rocketmq_pop_revive_ack_put_messages_total";
+    public static final String HISTOGRAM_POP_REVIVE_ACK_MERGE_SIZE = "rocketmq_pop_revive_ack_merge_size";
 
     public static final String GAUGE_POP_REVIVE_LAG = "rocketmq_pop_revive_lag";
     public static final String GAUGE_POP_REVIVE_LATENCY = "rocketmq_pop_revive_latency";
@@ -40,10 +40,14 @@ import org.apache.rocketmq.common.metrics.NopLongCounter;
 import org.apache.rocketmq.common.metrics.NopLongHistogram;
 import org.apache.rocketmq.store.PutMessageStatus;
 import org.apache.rocketmq.store.pop.AckMsg;
+import org.apache.rocketmq.store.pop.BatchAckMsg;
+import org.apache.rocketmq.store.pop.MergedAckMsg;
 import org.apache.rocketmq.store.pop.PopCheckPoint;
 
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_CONSUMER_GROUP;
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_TOPIC;
+import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.COUNTER_POP_REVIVE_ACK_PUT_BYTES_TOTAL;
+import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.COUNTER_POP_REVIVE_ACK_PUT_MESSAGES_TOTAL;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.COUNTER_POP_REVIVE_IN_MESSAGE_TOTAL;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.COUNTER_POP_REVIVE_OUT_MESSAGE_TOTAL;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.COUNTER_POP_REVIVE_RETRY_MESSAGES_TOTAL;
@@ -52,6 +56,7 @@ import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.GAUGE_POP_OF
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.GAUGE_POP_REVIVE_LAG;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.GAUGE_POP_REVIVE_LATENCY;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.HISTOGRAM_POP_BUFFER_SCAN_TIME_CONSUME;
+import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.HISTOGRAM_POP_REVIVE_ACK_MERGE_SIZE;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.LABEL_PUT_STATUS;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.LABEL_QUEUE_ID;
 import static org.apache.rocketmq.broker.metrics.PopMetricsConstant.LABEL_REVIVE_MESSAGE_TYPE;
@@ -63,6 +68,9 @@ public class PopMetricsManager {
     private static LongCounter popRevivePutTotal = new NopLongCounter();
     private static LongCounter popReviveGetTotal = new NopLongCounter();
     private static LongCounter popReviveRetryMessageTotal = new NopLongCounter();
+    private static LongCounter popReviveAckPutBytesTotal = new NopLongCounter();
+    private static LongCounter popReviveAckPutMessagesTotal = new NopLongCounter();
+    private static LongHistogram popReviveAckMergeSize = new NopLongHistogram();
 
     public static List<Pair<InstrumentSelector, ViewBuilder>> getMetricsView() {
         List<Double> rpcCostTimeBuckets = Arrays.asList(
@@ -80,7 +88,16 @@ public class PopMetricsManager {
         ViewBuilder popBufferScanTimeConsumeViewBuilder = View.builder()
             .setAggregation(Aggregation.explicitBucketHistogram(rpcCostTimeBuckets));
 
-        return Lists.newArrayList(new Pair<>(popBufferScanTimeConsumeSelector, popBufferScanTimeConsumeViewBuilder));
+        List<Double> ackMergeSizeBuckets = Arrays.asList(1d, 2d, 4d, 8d, 16d, 32d, 64d, 128d, 256d, 512d, 1024d);
+        InstrumentSelector popReviveAckMergeSizeSelector = InstrumentSelector.builder()
+            .setType(InstrumentType.HISTOGRAM)
+            .setName(HISTOGRAM_POP_REVIVE_ACK_MERGE_SIZE)
+            .build();
+        ViewBuilder popReviveAckMergeSizeViewBuilder = View.builder()
+            .setAggregation(Aggregation.explicitBucketHistogram(ackMergeSizeBuckets));
+
+        return Lists.newArrayList(new Pair<>(popBufferScanTimeConsumeSelector, popBufferScanTimeConsumeViewBuilder),
+            new Pair<>(popReviveAckMergeSizeSelector, popReviveAckMergeSizeViewBuilder));
     }
 
     public static void initMetrics(Meter meter, BrokerController brokerController,
@@ -101,6 +118,17 @@ public class PopMetricsManager {
         popReviveRetryMessageTotal = meter.counterBuilder(COUNTER_POP_REVIVE_RETRY_MESSAGES_TOTAL)
             .setDescription("Total number of put message to pop retry topic")
             .build();
+        popReviveAckPutBytesTotal = meter.counterBuilder(COUNTER_POP_REVIVE_ACK_PUT_BYTES_TOTAL)
+            .setDescription("Total body bytes of ack message put to revive topic")
+            .setUnit("bytes")
+            .build();
+        popReviveAckPutMessagesTotal = meter.counterBuilder(COUNTER_POP_REVIVE_ACK_PUT_MESSAGES_TOTAL)
+            .setDescription("Total number of consumed messages acked by message put to revive topic")
+            .build();
+        popReviveAckMergeSize = meter.histogramBuilder(HISTOGRAM_POP_REVIVE_ACK_MERGE_SIZE)
+            .setDescription("Number of acks in a merged ack message")
+            .ofLongs()
+            .build();
 
         meter.gaugeBuilder(GAUGE_POP_OFFSET_BUFFER_SIZE)
             .setDescription("Time number of buffered offset")
@@ -158,6 +186,28 @@ public class PopMetricsManager {
         incPopRevivePutCount(ackMsg.getConsumerGroup(), ackMsg.getTopic(), PopReviveMessageType.ACK, status, 1);
     }
 
+    public static void recordPopReviveAckPut(AckMsg ackMsg, int bodySize, PutMessageStatus status) {
+        int ackNum = ackMsg instanceof BatchAckMsg ? ((BatchAckMsg) ackMsg).getAckOffsetList().size() : 1;
+        incPopRevivePutCount(ackMsg.getConsumerGroup(), ackMsg.getTopic(), PopReviveMessageType.ACK, status, 1);
+        incPopReviveAckPutSize(PopReviveMessageType.ACK, bodySize, ackNum);
+    }
+
+    public static void recordPopReviveMergedAckPut(MergedAckMsg mergedAckMsg, int bodySize, PutMessageStatus status) {
+        for (AckMsg ackMsg : mergedAckMsg.getAckMsgList()) {
+            incPopRevivePutCount(ackMsg.getConsumerGroup(), ackMsg.getTopic(), PopReviveMessageType.MERGED_ACK, status, 1);
+        }
+        popReviveAckMergeSize.record(mergedAckMsg.getAckMsgList().size(), newAttributesBuilder().build());
+        incPopReviveAckPutSize(PopReviveMessageType.MERGED_ACK, bodySize, mergedAckMsg.getAckNum());
+    }
+
+    private static void incPopReviveAckPutSize(PopReviveMessageType messageType, int bodySize, int ackNum) {
+        Attributes attributes = newAttributesBuilder()
+            .put(LABEL_REVIVE_MESSAGE_TYPE, messageType.name())
+            .build();
+        popReviveAckPutBytesTotal.add(bodySize, attributes);
+        popReviveAckPutMessagesTotal.add(ackNum, attributes);
+    }
+
     public static void incPopReviveCkPutCount(PopCheckPoint checkPoint, PutMessageStatus status) {
         incPopRevivePutCount(checkPoint.getCId(), checkPoint.getTopic(), PopReviveMessageType.CK, status, 1);
     }
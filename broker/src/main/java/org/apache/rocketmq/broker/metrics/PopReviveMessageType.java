@@ -18,5 +18,6 @@ package org.apache.rocketmq.broker.metrics;
 
 public enum PopReviveMessageType {
     CK,
-    ACK
+    ACK,
+    MERGED_ACK
 }
@@ -0,0 +1,608 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.offset;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
+import org.apache.rocketmq.broker.offset.CompactOffsetTable.Row;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.remoting.protocol.DataVersion;
+import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
+
+/**
+ * Keeps consumer offsets in a {@link CompactOffsetTable} instead of boxed maps, and persists them to an append-only
+ * binary journal instead of serializing the whole table to JSON every time.
+ * <p>
+ * Each {@link #persist()} appends the rows committed to since the previous one. When the journal has grown to twice
+ * the size of its last full snapshot it is rewritten as a new snapshot. Every record carries its length and CRC, a
+ * torn record at the end of the journal is dropped on load. LMQ groups are kept as queue 0 of their topic@group row.
+ * <p>
+ * When no journal exists yet, the offsets of the manager used before are taken over, the RocksDB one in RocksDB store
+ * mode, else the JSON file of {@link ConsumerOffsetManager} or {@link LmqConsumerOffsetManager}. The JSON file is
+ * written again on every journal snapshot and on {@link #stop()}, so the JSON managers can be switched back to after a
+ * clean shutdown. The RocksDB one can not, its offsets are never written back.
+ */
+public class CompactConsumerOffsetManager extends ConsumerOffsetManager {
+    static final int JOURNAL_MAGIC = 0x524D434F;
+    static final byte JOURNAL_VERSION = 1;
+    static final byte RECORD_ROW_NAME = 1;
+    static final byte RECORD_ROW_OFFSETS = 2;
+    static final byte RECORD_ROW_REMOVED = 3;
+    static final byte RECORD_DATA_VERSION = 4;
+
+    private static final int HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final long MIN_COMPACT_JOURNAL_SIZE = 4 * 1024 * 1024;
+
+    private final transient CompactOffsetTable compactOffsetTable = new CompactOffsetTable();
+    /**
+     * Ids of the rows whose name is in the journal, only accessed while persisting
+     */
+    private final transient Set<Integer> journaledRowIds = new HashSet<>();
+    private transient FileChannel journalChannel;
+    private transient long snapshotSize;
+    /**
+     * Set by {@link #stop()}, the journal is not reopened afterwards
+     */
+    private transient boolean stopped;
+
+    public CompactConsumerOffsetManager() {
+    }
+
+    public CompactConsumerOffsetManager(BrokerController brokerController) {
+        super(brokerController);
+    }
+
+    @Override
+    public void commitOffset(final String clientHost, final String group, final String topic, final int queueId,
+        final long offset) {
+        if (queueId < 0) {
+            LOG.warn("ignore consumer offset of negative queue. clientHost={}, key={}, queueId={}, requestOffset={}",
+                clientHost, topic + TOPIC_GROUP_SEPARATOR + group, queueId, offset);
+            return;
+        }
+        long storeOffset = compactOffsetTable.set(topic, group, queueId, offset);
+        if (storeOffset != CompactOffsetTable.NO_OFFSET && offset < storeOffset) {
+            LOG.warn("[NOTIFYME]update consumer offset less than store. clientHost={}, key={}, queueId={}, requestOffset={}, storeOffset={}",
+                clientHost, topic + TOPIC_GROUP_SEPARATOR + group, queueId, offset, storeOffset);
+        }
+        if (!MixAll.isLmq(group)) {
+            this.updateDataVersionOnCommit();
+        }
+    }
+
+    @Override
+    public long queryOffset(final String group, final String topic, final int queueId) {
+        if (this.brokerController.getBrokerConfig().isUseServerSideResetOffset() && hasOffsetReset(topic, group, queueId)) {
+            return super.queryOffset(group, topic, queueId);
+        }
+        long offset = compactOffsetTable.get(topic, group, queueId);
+        return offset != CompactOffsetTable.NO_OFFSET ? offset : -1L;
+    }
+
+    @Override
+    public Map<Integer, Long> queryOffset(final String group, final String topic) {
+        Row row = compactOffsetTable.getRow(topic, group);
+        return row != null ? row.toMap() : null;
+    }
+
+    @Override
+    public void assignResetOffset(String topic, String group, int queueId, long offset) {
+        super.assignResetOffset(topic, group, queueId, offset);
+        Row row = compactOffsetTable.getRow(topic, group);
+        if (row != null && queueId >= 0 && offset >= 0) {
+            row.set(queueId, offset);
+        }
+    }
+
+    @Override
+    public void cleanOffset(String group) {
+        for (Row row : compactOffsetTable.rows()) {
+            if (group.equals(row.getGroup()) && compactOffsetTable.removeRow(row.getTopic(), group)) {
+                LOG.warn("Clean group's offset, {}{}{}, {}", row.getTopic(), TOPIC_GROUP_SEPARATOR, group, row.toMap());
+            }
+        }
+    }
+
+    @Override
+    public void removeOffset(String group) {
+        cleanOffset(group);
+    }
+
+    @Override
+    public void cleanOffsetByTopic(String topic) {
+        for (Row row : compactOffsetTable.rowsOfTopic(topic)) {
+            if (compactOffsetTable.removeRow(topic, row.getGroup())) {
+                LOG.warn("Clean topic's offset, {}{}{}, {}", topic, TOPIC_GROUP_SEPARATOR, row.getGroup(), row.toMap());
+            }
+        }
+    }
+
+    @Override
+    public void scanUnsubscribedTopic() {
+        for (Row row : compactOffsetTable.rows()) {
+            if (null == brokerController.getConsumerManager().findSubscriptionData(row.getGroup(), row.getTopic())
+                && this.offsetBehindMuchThanData(row)) {
+                compactOffsetTable.removeRow(row.getTopic(), row.getGroup());
+                LOG.warn("remove topic offset, {}{}{}", row.getTopic(), TOPIC_GROUP_SEPARATOR, row.getGroup());
+            }
+        }
+    }
+
+    private boolean offsetBehindMuchThanData(Row row) {
+        long[] pairs = row.toArray();
+        for (int i = 0; i < pairs.length; i += 2) {
+            long minOffsetInStore = this.brokerController.getMessageStore().getMinOffsetInQueue(row.getTopic(), (int) pairs[i]);
+            if (pairs[i + 1] > minOffsetInStore) {
+                return false;
+            }
+        }
+        return pairs.length > 0;
+    }
+
+    @Override
+    public Set<String> whichTopicByConsumer(final String group) {
+        Set<String> topics = new HashSet<>();
+        for (Row row : compactOffsetTable.rows()) {
+            if (group.equals(row.getGroup())) {
+                topics.add(row.getTopic());
+            }
+        }
+        return topics;
+    }
+
+    @Override
+    public Set<String> whichGroupByTopic(final String topic) {
+        Set<String> groups = new HashSet<>();
+        for (Row row : compactOffsetTable.rowsOfTopic(topic)) {
+            groups.add(row.getGroup());
+        }
+        return groups;
+    }
+
+    @Override
+    public Map<String, Set<String>> getGroupTopicMap() {
+        Map<String, Set<String>> retMap = new HashMap<>(128);
+        for (Row row : compactOffsetTable.rows()) {
+            retMap.computeIfAbsent(row.getGroup(), k -> new HashSet<>(8)).add(row.getTopic());
+        }
+        return retMap;
+    }
+
+    @Override
+    public Map<Integer, Long> queryMinOffsetInAllGroup(final String topic, final String filterGroups) {
+        if (!UtilAll.isBlank(filterGroups)) {
+            // like ConsumerOffsetManager, the offsets of the filtered groups are removed on all topics
+            Set<String> filtered = new HashSet<>(Arrays.asList(filterGroups.split(",")));
+            for (Row row : compactOffsetTable.rows()) {
+                if (filtered.contains(row.getGroup())) {
+                    compactOffsetTable.removeRow(row.getTopic(), row.getGroup());
+                }
+            }
+        }
+
+        Map<Integer, Long> queueMinOffset = new HashMap<>();
+        for (Row row : compactOffsetTable.rowsOfTopic(topic)) {
+            long[] pairs = row.toArray();
+            for (int i = 0; i < pairs.length; i += 2) {
+                int queueId = (int) pairs[i];
+                long offset = pairs[i + 1];
+                if (offset >= this.brokerController.getMessageStore().getMinOffsetInQueue(topic, queueId)) {
+                    queueMinOffset.merge(queueId, offset, Math::min);
+                }
+            }
+        }
+        return queueMinOffset;
+    }
+
+    @Override
+    public void cloneOffset(final String srcGroup, final String destGroup, final String topic) {
+        Row src = compactOffsetTable.getRow(topic, srcGroup);
+        if (src != null) {
+            compactOffsetTable.removeRow(topic, destGroup);
+            Row dest = compactOffsetTable.getOrCreateRow(topic, destGroup);
+            long[] pairs = src.toArray();
+            for (int i = 0; i < pairs.length; i += 2) {
+                dest.set((int) pairs[i], pairs[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the offsets, changes to it are not reflected in this manager
+     */
+    @Override
+    public ConcurrentMap<String, ConcurrentMap<Integer, Long>> getOffsetTable() {
+        return compactOffsetTable.toMap();
+    }
+
+    @Override
+    public void setOffsetTable(ConcurrentMap<String, ConcurrentMap<Integer, Long>> offsetTable) {
+        compactOffsetTable.clear();
+        if (offsetTable != null) {
+            compactOffsetTable.putAll(offsetTable);
+        }
+    }
+
+    @Override
+    public void putOffsetTable(Map<String, ConcurrentMap<Integer, Long>> offsetTable) {
+        compactOffsetTable.putAll(offsetTable);
+    }
+
+    @Override
+    public String configFilePath() {
+        String rootDir = this.brokerController.getMessageStoreConfig().getStorePathRootDir();
+        return this.brokerController.getMessageStoreConfig().isEnableLmq()
+            ? BrokerPathConfigHelper.getLmqConsumerOffsetPath(rootDir) : BrokerPathConfigHelper.getConsumerOffsetPath(rootDir);
+    }
+
+    public String journalFilePath() {
+        return BrokerPathConfigHelper.getConsumerOffsetJournalPath(this.brokerController.getMessageStoreConfig().getStorePathRootDir());
+    }
+
+    /**
+     * @return the JSON of {@link LmqConsumerOffsetManager} in LMQ mode, else of {@link ConsumerOffsetManager}
+     */
+    @Override
+    public String encode(final boolean prettyFormat) {
+        boolean lmq = this.brokerController.getMessageStoreConfig().isEnableLmq();
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> offsetTable = new ConcurrentHashMap<>(512);
+        ConcurrentHashMap<String, Long> lmqOffsetTable = new ConcurrentHashMap<>(512);
+        for (Row row : compactOffsetTable.rows()) {
+            String key = row.getTopic() + TOPIC_GROUP_SEPARATOR + row.getGroup();
+            if (lmq && MixAll.isLmq(row.getGroup())) {
+                long offset = row.get(0);
+                if (offset != CompactOffsetTable.NO_OFFSET) {
+                    lmqOffsetTable.put(key, offset);
+                }
+            } else {
+                ConcurrentMap<Integer, Long> offsets = row.toMap();
+                if (!offsets.isEmpty()) {
+                    offsetTable.put(key, offsets);
+                }
+            }
+        }
+        ConsumerOffsetManager snapshot;
+        if (lmq) {
+            LmqConsumerOffsetManager lmqSnapshot = new LmqConsumerOffsetManager();
+            lmqSnapshot.setLmqOffsetTable(lmqOffsetTable);
+            snapshot = lmqSnapshot;
+        } else {
+            snapshot = new ConsumerOffsetManager();
+        }
+        snapshot.setOffsetTable(offsetTable);
+        snapshot.setDataVersion(this.getDataVersion());
+        return RemotingSerializable.toJson(snapshot, prettyFormat);
+    }
+
+    @Override
+    public void decode(String jsonString) {
+        if (jsonString != null) {
+            // a superset of the JSON of ConsumerOffsetManager
+            LmqConsumerOffsetManager obj = RemotingSerializable.fromJson(jsonString, LmqConsumerOffsetManager.class);
+            if (obj != null) {
+                this.setOffsetTable(obj.getOffsetTable());
+                if (obj.getLmqOffsetTable() != null) {
+                    for (Map.Entry<String, Long> entry : obj.getLmqOffsetTable().entrySet()) {
+                        String[] topicGroup = entry.getKey().split(TOPIC_GROUP_SEPARATOR);
+                        if (topicGroup.length == 2 && entry.getValue() != null) {
+                            compactOffsetTable.set(topicGroup[0], topicGroup[1], 0, entry.getValue());
+                        }
+                    }
+                }
+                if (obj.getDataVersion() != null) {
+                    this.setDataVersion(obj.getDataVersion());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean load() {
+        File journal = new File(journalFilePath());
+        if (!journal.exists()) {
+            return loadPrevious();
+        }
+        try {
+            loadJournal(journal.toPath());
+            LOG.info("load consumer offset journal {} OK, {} rows", journal, compactOffsetTable.size());
+            return true;
+        } catch (IOException e) {
+            LOG.error("load consumer offset journal {} failed", journal, e);
+            return false;
+        }
+    }
+
+    private boolean loadPrevious() {
+        if (!this.brokerController.getMessageStoreConfig().isEnableRocksDBStore()) {
+            LOG.info("consumer offset journal {} not found, load {}", journalFilePath(), configFilePath());
+            return super.load();
+        }
+        // the LMQ offsets are not kept in RocksDB
+        RocksDBConsumerOffsetManager previous = new RocksDBConsumerOffsetManager(this.brokerController);
+        LOG.info("consumer offset journal {} not found, load {}", journalFilePath(), previous.configFilePath());
+        try {
+            if (!previous.load()) {
+                return false;
+            }
+            this.setOffsetTable(previous.getOffsetTable());
+            this.setDataVersion(previous.getDataVersion());
+            return true;
+        } finally {
+            previous.stop();
+        }
+    }
+
+    private void loadJournal(Path path) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < HEADER_SIZE || buffer.getInt() != JOURNAL_MAGIC) {
+            throw new IOException("not a consumer offset journal");
+        }
+        byte version = buffer.get();
+        if (version > JOURNAL_VERSION) {
+            throw new IOException("unsupported consumer offset journal version " + version);
+        }
+
+        setOffsetTable(null);
+        compactOffsetTable.drainRemovedRowIds();
+        Map<Integer, Row> rowsById = new HashMap<>();
+        CRC32 crc32 = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            crc32.reset();
+            crc32.update(data, buffer.position(), length);
+            if ((int) crc32.getValue() != crc) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(data, buffer.position(), length).slice();
+            buffer.position(buffer.position() + length);
+            replayRecord(record, rowsById);
+        }
+        if (buffer.hasRemaining()) {
+            LOG.warn("drop torn record at {} of consumer offset journal {}, {} bytes", buffer.position(), path, buffer.remaining());
+        }
+        // the journal is rewritten by the first persist, which drops the torn tail
+        for (Row row : compactOffsetTable.drainDirtyRows()) {
+            if (row.isEmpty()) {
+                compactOffsetTable.removeRow(row.getTopic(), row.getGroup());
+            }
+        }
+        compactOffsetTable.drainRemovedRowIds();
+    }
+
+    private void replayRecord(ByteBuffer record, Map<Integer, Row> rowsById) {
+        byte type = record.get();
+        switch (type) {
+            case RECORD_ROW_NAME: {
+                int id = record.getInt();
+                String topic = readString(record);
+                String group = readString(record);
+                rowsById.put(id, compactOffsetTable.putRow(id, topic, group));
+                break;
+            }
+            case RECORD_ROW_OFFSETS: {
+                int id = record.getInt();
+                Row row = rowsById.get(id);
+                if (row != null) {
+                    // the record holds all offsets of the row
+                    row = compactOffsetTable.putRow(id, row.getTopic(), row.getGroup());
+                    rowsById.put(id, row);
+                    while (record.hasRemaining()) {
+                        row.set(record.getInt(), record.getLong());
+                    }
+                }
+                break;
+            }
+            case RECORD_ROW_REMOVED: {
+                Row row = rowsById.remove(record.getInt());
+                if (row != null) {
+                    compactOffsetTable.removeRow(row.getTopic(), row.getGroup());
+                }
+                break;
+            }
+            case RECORD_DATA_VERSION: {
+                DataVersion dataVersion = new DataVersion();
+                dataVersion.setStateVersion(record.getLong());
+                dataVersion.setTimestamp(record.getLong());
+                dataVersion.getCounter().set(record.getLong());
+                this.setDataVersion(dataVersion);
+                break;
+            }
+            default:
+                // written by a newer version, skip it
+                LOG.warn("skip unknown record type {} in consumer offset journal", type);
+        }
+    }
+
+    @Override
+    public synchronized void persist() {
+        if (stopped) {
+            LOG.warn("consumer offset journal {} is stopped, skip persisting", journalFilePath());
+            return;
+        }
+        try {
+            if (journalChannel == null) {
+                writeSnapshot();
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (Integer id : compactOffsetTable.drainRemovedRowIds()) {
+                if (journaledRowIds.remove(id)) {
+                    buffer = ensureRemaining(buffer, RECORD_HEADER_SIZE + 5);
+                    int start = beginRecord(buffer, RECORD_ROW_REMOVED);
+                    buffer.putInt(id);
+                    endRecord(buffer, start);
+                }
+            }
+            for (Row row : compactOffsetTable.drainDirtyRows()) {
+                buffer = writeRow(buffer, row);
+            }
+            buffer = writeDataVersion(buffer);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
+            }
+            journalChannel.force(false);
+
+            if (journalChannel.size() > Math.max(MIN_COMPACT_JOURNAL_SIZE, snapshotSize * 2)) {
+                writeSnapshot();
+            }
+        } catch (IOException e) {
+            LOG.error("persist consumer offset journal {} exception", journalFilePath(), e);
+            closeJournal();
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        closeJournal();
+        journaledRowIds.clear();
+        compactOffsetTable.drainRemovedRowIds();
+        compactOffsetTable.drainDirtyRows();
+
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        buffer.putInt(JOURNAL_MAGIC).put(JOURNAL_VERSION);
+        for (Row row : compactOffsetTable.rows()) {
+            buffer = writeRow(buffer, row);
+        }
+        buffer = writeDataVersion(buffer);
+        buffer.flip();
+
+        Path path = new File(journalFilePath()).toPath();
+        Path tmpPath = new File(journalFilePath() + ".tmp").toPath();
+        UtilAll.ensureDirOK(path.getParent().toString());
+        try (FileChannel channel = FileChannel.open(tmpPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journalChannel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        snapshotSize = journalChannel.size();
+        super.persist();
+    }
+
+    private ByteBuffer writeRow(ByteBuffer buffer, Row row) {
+        if (journaledRowIds.add(row.getId())) {
+            byte[] topic = row.getTopic().getBytes(StandardCharsets.UTF_8);
+            byte[] group = row.getGroup().getBytes(StandardCharsets.UTF_8);
+            buffer = ensureRemaining(buffer, RECORD_HEADER_SIZE + 13 + topic.length + group.length);
+            int start = beginRecord(buffer, RECORD_ROW_NAME);
+            buffer.putInt(row.getId()).putInt(topic.length).put(topic).putInt(group.length).put(group);
+            endRecord(buffer, start);
+        }
+        long[] pairs = row.toArray();
+        buffer = ensureRemaining(buffer, RECORD_HEADER_SIZE + 5 + pairs.length / 2 * 12);
+        int start = beginRecord(buffer, RECORD_ROW_OFFSETS);
+        buffer.putInt(row.getId());
+        for (int i = 0; i < pairs.length; i += 2) {
+            buffer.putInt((int) pairs[i]).putLong(pairs[i + 1]);
+        }
+        endRecord(buffer, start);
+        return buffer;
+    }
+
+    private ByteBuffer writeDataVersion(ByteBuffer buffer) {
+        DataVersion dataVersion = this.getDataVersion();
+        buffer = ensureRemaining(buffer, RECORD_HEADER_SIZE + 25);
+        int start = beginRecord(buffer, RECORD_DATA_VERSION);
+        buffer.putLong(dataVersion.getStateVersion()).putLong(dataVersion.getTimestamp()).putLong(dataVersion.getCounter().get());
+        endRecord(buffer, start);
+        return buffer;
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+        ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        return newBuffer.put(buffer);
+    }
+
+    /**
+     * @return the start of the record, length and CRC are filled in by {@link #endRecord(ByteBuffer, int)}
+     */
+    private static int beginRecord(ByteBuffer buffer, byte type) {
+        int start = buffer.position();
+        buffer.putInt(0).putInt(0).put(type);
+        return start;
+    }
+
+    private static void endRecord(ByteBuffer buffer, int start) {
+        int length = buffer.position() - start - RECORD_HEADER_SIZE;
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), start + RECORD_HEADER_SIZE, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc32.getValue());
+    }
+
+    private static String readString(ByteBuffer record) {
+        byte[] bytes = new byte[record.getInt()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void closeJournal() {
+        if (journalChannel != null) {
+            try {
+                journalChannel.close();
+            } catch (IOException e) {
+                LOG.warn("close consumer offset journal exception", e);
+            }
+            journalChannel = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean stop() {
+        if (!stopped) {
+            stopped = true;
+            closeJournal();
+            super.persist();
+        }
+        return true;
+    }
+}
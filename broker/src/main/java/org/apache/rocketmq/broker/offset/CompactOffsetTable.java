@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.offset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Consumer offsets of all topic@group pairs, kept in primitive arrays.
+ * <p>
+ * Each topic@group pair is interned once as a {@link Row} with an int id, and is looked up by topic and then group
+ * so committing an offset does not concatenate them. A row keeps the offsets of its queues in a long array indexed
+ * by queue id, LMQ pairs only use queue 0. Rows changed since the last {@link #drainDirtyRows()} are marked dirty,
+ * so a snapshot only needs to write those.
+ */
+public class CompactOffsetTable {
+    /**
+     * Value of the queues without a committed offset.
+     */
+    public static final long NO_OFFSET = Long.MIN_VALUE;
+
+    private final ConcurrentMap<String/* topic */, ConcurrentMap<String/* group */, Row>> rowTable =
+        new ConcurrentHashMap<>(512);
+    private final Queue<Integer> removedRowIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextRowId = new AtomicInteger();
+
+    public static final class Row {
+        private final int id;
+        private final String topic;
+        private final String group;
+        private volatile AtomicLongArray offsets;
+        private volatile boolean dirty;
+
+        Row(int id, String topic, String group) {
+            this.id = id;
+            this.topic = topic;
+            this.group = group;
+            this.offsets = newOffsets(0, 4);
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public long get(int queueId) {
+            AtomicLongArray array = this.offsets;
+            return queueId >= 0 && queueId < array.length() ? array.get(queueId) : NO_OFFSET;
+        }
+
+        /**
+         * @return the previous offset of the queue, or {@link #NO_OFFSET}
+         * @throws IllegalArgumentException if the queue id is negative
+         */
+        public synchronized long set(int queueId, long offset) {
+            if (queueId < 0) {
+                throw new IllegalArgumentException("negative queue id " + queueId + " of " + topic + "@" + group);
+            }
+            AtomicLongArray array = this.offsets;
+            if (queueId >= array.length()) {
+                AtomicLongArray newArray = newOffsets(array.length(), Math.max(queueId + 1, array.length() * 2));
+                for (int i = 0; i < array.length(); i++) {
+                    newArray.set(i, array.get(i));
+                }
+                this.offsets = array = newArray;
+            }
+            long prev = array.getAndSet(queueId, offset);
+            this.dirty = true;
+            return prev;
+        }
+
+        /**
+         * @return queue id and offset pairs of the queues with an offset
+         */
+        public long[] toArray() {
+            AtomicLongArray array = this.offsets;
+            long[] pairs = new long[array.length() * 2];
+            int size = 0;
+            for (int i = 0; i < array.length(); i++) {
+                long offset = array.get(i);
+                if (offset != NO_OFFSET) {
+                    pairs[size++] = i;
+                    pairs[size++] = offset;
+                }
+            }
+            return size == pairs.length ? pairs : Arrays.copyOf(pairs, size);
+        }
+
+        public ConcurrentMap<Integer, Long> toMap() {
+            ConcurrentMap<Integer, Long> map = new ConcurrentHashMap<>(32);
+            long[] pairs = toArray();
+            for (int i = 0; i < pairs.length; i += 2) {
+                map.put((int) pairs[i], pairs[i + 1]);
+            }
+            return map;
+        }
+
+        public boolean isEmpty() {
+            return toArray().length == 0;
+        }
+
+        private static AtomicLongArray newOffsets(int from, int length) {
+            AtomicLongArray array = new AtomicLongArray(length);
+            for (int i = from; i < length; i++) {
+                array.set(i, NO_OFFSET);
+            }
+            return array;
+        }
+    }
+
+    public Row getRow(String topic, String group) {
+        ConcurrentMap<String, Row> groupRows = rowTable.get(topic);
+        return groupRows != null ? groupRows.get(group) : null;
+    }
+
+    public Row getOrCreateRow(String topic, String group) {
+        Row row = getRow(topic, group);
+        if (row != null) {
+            return row;
+        }
+        return rowTable.computeIfAbsent(topic, k -> new ConcurrentHashMap<>(4))
+            .computeIfAbsent(group, k -> new Row(nextRowId.getAndIncrement(), topic, group));
+    }
+
+    /**
+     * Puts a row loaded from a snapshot, keeping its id.
+     */
+    public Row putRow(int id, String topic, String group) {
+        Row row = new Row(id, topic, group);
+        rowTable.computeIfAbsent(topic, k -> new ConcurrentHashMap<>(4)).put(group, row);
+        nextRowId.accumulateAndGet(id + 1, Math::max);
+        return row;
+    }
+
+    public long get(String topic, String group, int queueId) {
+        Row row = getRow(topic, group);
+        return row != null ? row.get(queueId) : NO_OFFSET;
+    }
+
+    public long set(String topic, String group, int queueId, long offset) {
+        return getOrCreateRow(topic, group).set(queueId, offset);
+    }
+
+    public boolean removeRow(String topic, String group) {
+        ConcurrentMap<String, Row> groupRows = rowTable.get(topic);
+        if (groupRows == null) {
+            return false;
+        }
+        Row row = groupRows.remove(group);
+        if (row == null) {
+            return false;
+        }
+        // the group map of the topic is kept, a concurrent commit may just be adding to it
+        removedRowIds.add(row.id);
+        return true;
+    }
+
+    public List<Row> rows() {
+        List<Row> rows = new ArrayList<>(rowTable.size());
+        for (ConcurrentMap<String, Row> groupRows : rowTable.values()) {
+            rows.addAll(groupRows.values());
+        }
+        return rows;
+    }
+
+    public Iterable<Row> rowsOfTopic(String topic) {
+        ConcurrentMap<String, Row> groupRows = rowTable.get(topic);
+        return groupRows != null ? new ArrayList<>(groupRows.values()) : new ArrayList<>();
+    }
+
+    /**
+     * Clears the dirty flags and returns the rows that had one, a row changed concurrently is returned again by the
+     * next call.
+     */
+    public List<Row> drainDirtyRows() {
+        List<Row> dirtyRows = new ArrayList<>();
+        for (ConcurrentMap<String, Row> groupRows : rowTable.values()) {
+            for (Row row : groupRows.values()) {
+                if (row.dirty) {
+                    row.dirty = false;
+                    dirtyRows.add(row);
+                }
+            }
+        }
+        return dirtyRows;
+    }
+
+    public List<Integer> drainRemovedRowIds() {
+        List<Integer> ids = new ArrayList<>();
+        Integer id;
+        while ((id = removedRowIds.poll()) != null) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public void clear() {
+        for (Row row : rows()) {
+            removeRow(row.topic, row.group);
+        }
+    }
+
+    /**
+     * Puts the offsets of a {@link ConsumerOffsetManager} table, offsets of negative queue ids are skipped.
+     */
+    public void putAll(Map<String, ? extends Map<Integer, Long>> offsetTable) {
+        for (Map.Entry<String, ? extends Map<Integer, Long>> entry : offsetTable.entrySet()) {
+            String[] topicGroup = entry.getKey().split(ConsumerOffsetManager.TOPIC_GROUP_SEPARATOR);
+            if (topicGroup.length != 2 || entry.getValue() == null) {
+                continue;
+            }
+            Row row = getOrCreateRow(topicGroup[0], topicGroup[1]);
+            for (Map.Entry<Integer, Long> offset : entry.getValue().entrySet()) {
+                if (offset.getKey() != null && offset.getKey() >= 0 && offset.getValue() != null) {
+                    row.set(offset.getKey(), offset.getValue());
+                }
+            }
+        }
+    }
+
+    public ConcurrentMap<String, ConcurrentMap<Integer, Long>> toMap() {
+        ConcurrentMap<String, ConcurrentMap<Integer, Long>> map = new ConcurrentHashMap<>(512);
+        for (Row row : rows()) {
+            map.put(row.topic + ConsumerOffsetManager.TOPIC_GROUP_SEPARATOR + row.group, row.toMap());
+        }
+        return map;
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentMap<String, Row> groupRows : rowTable.values()) {
+            size += groupRows.size();
+        }
+        return size;
+    }
+}
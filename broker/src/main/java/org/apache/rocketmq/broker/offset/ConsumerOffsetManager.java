@@ -211,6 +211,13 @@ public class ConsumerOffsetManager extends ConfigManager {
                 LOG.warn("[NOTIFYME]update consumer offset less than store. clientHost={}, key={}, queueId={}, requestOffset={}, storeOffset={}", clientHost, key, queueId, offset, storeOffset);
             }
         }
+        this.updateDataVersionOnCommit();
+    }
+
+    /**
+     * Moves the data version forward once every {@code consumerOffsetUpdateVersionStep} committed offsets.
+     */
+    protected void updateDataVersionOnCommit() {
         if (versionChangeCounter.incrementAndGet() % brokerController.getBrokerConfig().getConsumerOffsetUpdateVersionStep() == 0) {
             long stateMachineVersion = brokerController.getMessageStore() != null ? brokerController.getMessageStore().getStateMachineVersion() : 0;
             dataVersion.nextVersion(stateMachineVersion);
@@ -314,6 +321,13 @@ public class ConsumerOffsetManager extends ConfigManager {
         this.offsetTable = offsetTable;
     }
 
+    /**
+     * Puts the offsets synchronized from another broker into the offset table.
+     */
+    public void putOffsetTable(Map<String, ConcurrentMap<Integer, Long>> offsetTable) {
+        this.offsetTable.putAll(offsetTable);
+    }
+
     public Map<Integer, Long> queryMinOffsetInAllGroup(final String topic, final String filterGroups) {
 
         Map<Integer, Long> queueMinOffset = new HashMap<>();
@@ -421,6 +435,9 @@ public class ConsumerOffsetManager extends ConfigManager {
     }
 
     public boolean hasOffsetReset(String topic, String group, int queueId) {
+        if (resetOffsetTable.isEmpty()) {
+            return false;
+        }
         String key = topic + TOPIC_GROUP_SEPARATOR + group;
         ConcurrentMap<Integer, Long> map = resetOffsetTable.get(key);
         if (null == map) {
@@ -16,6 +16,8 @@
  */
 package org.apache.rocketmq.broker.out;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
@@ -483,17 +485,8 @@ public class BrokerOuterAPI {
         List<String> nameServerAddressList = this.remotingClient.getAvailableNameSrvList();
         if (nameServerAddressList != null && nameServerAddressList.size() > 0) {
 
-            final RegisterBrokerRequestHeader requestHeader = new RegisterBrokerRequestHeader();
-            requestHeader.setBrokerAddr(brokerAddr);
-            requestHeader.setBrokerId(brokerId);
-            requestHeader.setBrokerName(brokerName);
-            requestHeader.setClusterName(clusterName);
-            requestHeader.setHaServerAddr(haServerAddr);
-            requestHeader.setEnableActingMaster(enableActingMaster);
-            requestHeader.setCompressed(false);
-            if (heartbeatTimeoutMillis != null) {
-                requestHeader.setHeartbeatTimeoutMillis(heartbeatTimeoutMillis);
-            }
+            final RegisterBrokerRequestHeader requestHeader = createRegisterBrokerRequestHeader(clusterName, brokerAddr,
+                brokerName, brokerId, haServerAddr, enableActingMaster, heartbeatTimeoutMillis);
 
             RegisterBrokerBody requestBody = new RegisterBrokerBody();
             requestBody.setTopicConfigSerializeWrapper(TopicConfigAndMappingSerializeWrapper.from(topicConfigWrapper));
@@ -533,6 +526,118 @@ public class BrokerOuterAPI {
         return registerBrokerResultList;
     }
 
+    /**
+     * Registers only the topics added, changed or removed since the registration of baseDataVersion. Name servers
+     * which did not get that registration refuse the delta and get the full topicConfigWrapper instead.
+     *
+     * @param deltaTopicConfigWrapper the topics added or changed since the registration of baseDataVersion
+     * @param deletedTopicList the topics removed since the registration of baseDataVersion
+     */
+    public List<RegisterBrokerResult> registerBrokerDelta(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final TopicConfigSerializeWrapper topicConfigWrapper,
+        final TopicConfigSerializeWrapper deltaTopicConfigWrapper,
+        final DataVersion baseDataVersion,
+        final List<String> deletedTopicList,
+        final List<String> filterServerList,
+        final int timeoutMills,
+        final boolean enableActingMaster,
+        final Long heartbeatTimeoutMillis,
+        final BrokerIdentity brokerIdentity) {
+
+        final List<RegisterBrokerResult> registerBrokerResultList = new CopyOnWriteArrayList<>();
+        List<String> nameServerAddressList = this.remotingClient.getAvailableNameSrvList();
+        if (nameServerAddressList != null && nameServerAddressList.size() > 0) {
+
+            RegisterBrokerBody deltaBody = new RegisterBrokerBody();
+            deltaBody.setTopicConfigSerializeWrapper(TopicConfigAndMappingSerializeWrapper.from(deltaTopicConfigWrapper));
+            deltaBody.setBaseDataVersion(baseDataVersion);
+            deltaBody.setDeletedTopicList(deletedTopicList);
+            deltaBody.setFilterServerList(filterServerList);
+            final byte[] body = deltaBody.encode(false);
+            final RegisterBrokerRequestHeader requestHeader = createRegisterBrokerRequestHeader(clusterName, brokerAddr,
+                brokerName, brokerId, haServerAddr, enableActingMaster, heartbeatTimeoutMillis);
+            requestHeader.setBodyCrc32(UtilAll.crc32(body));
+
+            // Encoded only if some name server asks for it
+            final Supplier<byte[]> fullBody = Suppliers.memoize(() -> {
+                RegisterBrokerBody requestBody = new RegisterBrokerBody();
+                requestBody.setTopicConfigSerializeWrapper(TopicConfigAndMappingSerializeWrapper.from(topicConfigWrapper));
+                requestBody.setFilterServerList(filterServerList);
+                return requestBody.encode(false);
+            });
+
+            final CountDownLatch countDownLatch = new CountDownLatch(nameServerAddressList.size());
+            for (final String namesrvAddr : nameServerAddressList) {
+                brokerOuterExecutor.execute(new AbstractBrokerRunnable(brokerIdentity) {
+                    @Override
+                    public void run0() {
+                        try {
+                            RegisterBrokerResult result;
+                            try {
+                                result = registerBroker(namesrvAddr, false, timeoutMills, requestHeader, body);
+                            } catch (MQBrokerException e) {
+                                if (e.getResponseCode() != ResponseCode.BROKER_DATA_VERSION_MISMATCH) {
+                                    throw e;
+                                }
+                                LOGGER.info("Delta registration based on {} refused, registering all. TargetHost={}",
+                                    baseDataVersion, namesrvAddr);
+                                RegisterBrokerRequestHeader fullRequestHeader = createRegisterBrokerRequestHeader(clusterName,
+                                    brokerAddr, brokerName, brokerId, haServerAddr, enableActingMaster, heartbeatTimeoutMillis);
+                                fullRequestHeader.setBodyCrc32(UtilAll.crc32(fullBody.get()));
+                                result = registerBroker(namesrvAddr, false, timeoutMills, fullRequestHeader, fullBody.get());
+                            }
+                            if (result != null) {
+                                registerBrokerResultList.add(result);
+                            }
+
+                            LOGGER.info("Registering current broker delta to name server completed. TargetHost={}", namesrvAddr);
+                        } catch (Exception e) {
+                            LOGGER.error("Failed to register current broker delta to name server. TargetHost={}", namesrvAddr, e);
+                        } finally {
+                            countDownLatch.countDown();
+                        }
+                    }
+                });
+            }
+
+            try {
+                if (!countDownLatch.await(timeoutMills, TimeUnit.MILLISECONDS)) {
+                    LOGGER.warn("Registration to one or more name servers does NOT complete within deadline. Timeout threshold: {}ms", timeoutMills);
+                }
+            } catch (InterruptedException ignore) {
+            }
+        }
+
+        return registerBrokerResultList;
+    }
+
+    private RegisterBrokerRequestHeader createRegisterBrokerRequestHeader(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final boolean enableActingMaster,
+        final Long heartbeatTimeoutMillis) {
+        final RegisterBrokerRequestHeader requestHeader = new RegisterBrokerRequestHeader();
+        requestHeader.setBrokerAddr(brokerAddr);
+        requestHeader.setBrokerId(brokerId);
+        requestHeader.setBrokerName(brokerName);
+        requestHeader.setClusterName(clusterName);
+        requestHeader.setHaServerAddr(haServerAddr);
+        requestHeader.setEnableActingMaster(enableActingMaster);
+        requestHeader.setCompressed(false);
+        if (heartbeatTimeoutMillis != null) {
+            requestHeader.setHeartbeatTimeoutMillis(heartbeatTimeoutMillis);
+        }
+        return requestHeader;
+    }
+
     private RegisterBrokerResult registerBroker(
         final String namesrvAddr,
         final boolean oneway,
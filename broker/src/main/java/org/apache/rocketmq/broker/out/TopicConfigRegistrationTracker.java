@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.out;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.remoting.protocol.DataVersion;
+
+/**
+ * Topic configs as last registered to the name servers, from which delta registrations are computed. Name servers
+ * which missed a registration refuse the next delta, so the registered state moves on whether the registration
+ * succeeded or not.
+ */
+public class TopicConfigRegistrationTracker {
+
+    private final Map<String, TopicConfig> registeredTopicConfigTable = new HashMap<>();
+    private DataVersion registeredDataVersion;
+
+    /**
+     * @return the data version of the last registration, null if nothing was registered yet
+     */
+    public synchronized DataVersion getRegisteredDataVersion() {
+        return registeredDataVersion;
+    }
+
+    /**
+     * Records a full registration.
+     */
+    public synchronized void registered(Map<String, TopicConfig> topicConfigTable, DataVersion dataVersion) {
+        registeredTopicConfigTable.clear();
+        for (TopicConfig topicConfig : topicConfigTable.values()) {
+            registeredTopicConfigTable.put(topicConfig.getTopicName(), new TopicConfig(topicConfig));
+        }
+        registeredDataVersion = copyOf(dataVersion);
+    }
+
+    /**
+     * Computes the delta from the last registration to the given topic configs and records them as registered.
+     *
+     * @param deletedTopicList filled with the topics removed since the last registration
+     * @return the topics added or changed since the last registration
+     */
+    public synchronized ConcurrentMap<String, TopicConfig> delta(Map<String, TopicConfig> topicConfigTable,
+        DataVersion dataVersion, List<String> deletedTopicList) {
+        ConcurrentMap<String, TopicConfig> changedTopicConfigTable = new ConcurrentHashMap<>();
+        for (TopicConfig topicConfig : topicConfigTable.values()) {
+            TopicConfig registered = registeredTopicConfigTable.get(topicConfig.getTopicName());
+            if (!topicConfig.equals(registered)) {
+                TopicConfig copy = new TopicConfig(topicConfig);
+                changedTopicConfigTable.put(copy.getTopicName(), copy);
+                registeredTopicConfigTable.put(copy.getTopicName(), copy);
+            }
+        }
+        Iterator<String> iterator = registeredTopicConfigTable.keySet().iterator();
+        while (iterator.hasNext()) {
+            String topic = iterator.next();
+            if (!topicConfigTable.containsKey(topic)) {
+                deletedTopicList.add(topic);
+                iterator.remove();
+            }
+        }
+        registeredDataVersion = copyOf(dataVersion);
+        return changedTopicConfigTable;
+    }
+
+    private static DataVersion copyOf(DataVersion dataVersion) {
+        DataVersion copy = new DataVersion();
+        copy.assignNewOne(dataVersion);
+        return copy;
+    }
+}
@@ -21,12 +21,16 @@ import io.netty.util.AbstractReferenceCounted;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import org.apache.rocketmq.store.GetMessageResult;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
 
 public class ManyMessageTransfer extends AbstractReferenceCounted implements FileRegion {
     private final ByteBuffer byteBufferHeader;
     private final GetMessageResult getMessageResult;
+    private final List<ByteBuffer> messageBufferList;
 
     /**
      * Bytes which were transferred already.
@@ -36,13 +40,26 @@ public class ManyMessageTransfer extends AbstractReferenceCounted implements Fil
     public ManyMessageTransfer(ByteBuffer byteBufferHeader, GetMessageResult getMessageResult) {
         this.byteBufferHeader = byteBufferHeader;
         this.getMessageResult = getMessageResult;
+        this.messageBufferList = messageBufferList(getMessageResult);
+    }
+
+    private static List<ByteBuffer> messageBufferList(GetMessageResult getMessageResult) {
+        List<SelectMappedBufferResult> messageMapedList = getMessageResult.getMessageMapedList();
+        List<ByteBuffer> messageBufferList = new ArrayList<>(messageMapedList.size());
+        for (SelectMappedBufferResult mapedBuffer : messageMapedList) {
+            if (mapedBuffer instanceof SplicedMessageBuffer) {
+                Collections.addAll(messageBufferList, ((SplicedMessageBuffer) mapedBuffer).getSegments());
+            } else {
+                messageBufferList.add(mapedBuffer.getByteBuffer());
+            }
+        }
+        return messageBufferList;
     }
 
     @Override
     public long position() {
         int pos = byteBufferHeader.position();
-        List<ByteBuffer> messageBufferList = this.getMessageResult.getMessageBufferList();
-        for (ByteBuffer bb : messageBufferList) {
+        for (ByteBuffer bb : this.messageBufferList) {
             pos += bb.position();
         }
         return pos;
@@ -69,8 +86,7 @@ public class ManyMessageTransfer extends AbstractReferenceCounted implements Fil
             transferred += target.write(this.byteBufferHeader);
             return transferred;
         } else {
-            List<ByteBuffer> messageBufferList = this.getMessageResult.getMessageBufferList();
-            for (ByteBuffer bb : messageBufferList) {
+            for (ByteBuffer bb : this.messageBufferList) {
                 if (bb.hasRemaining()) {
                     transferred += target.write(bb);
                     return transferred;
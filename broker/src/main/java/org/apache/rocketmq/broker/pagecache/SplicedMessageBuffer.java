@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.pagecache;
+
+import java.nio.ByteBuffer;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageVersion;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
+
+/**
+ * A message rewritten for a response without copying its body. The fields in front of the body, the topic and the
+ * properties are encoded on heap while the body stays a slice of the buffer the message was read from, and
+ * {@link ManyMessageTransfer} sends the three segments one after another.
+ * <p>
+ * {@link #getByteBuffer()} only covers the fields in front of the body, use {@link #getSegments()} to read the whole
+ * message. Releasing it releases the buffer it was read from, which may be shared by the other messages of a batch.
+ */
+public class SplicedMessageBuffer extends SelectMappedBufferResult {
+
+    private final SelectMappedBufferResult origin;
+    private final ByteBuffer[] segments;
+
+    private SplicedMessageBuffer(SelectMappedBufferResult origin, ByteBuffer[] segments, int size) {
+        super(origin.getStartOffset(), segments[0], size, null);
+        this.origin = origin;
+        this.segments = segments;
+    }
+
+    /**
+     * @param origin the buffer the message was read from
+     * @param message the message, from its position to its limit
+     * @param messageExt the message decoded from it, carrying the topic and properties to write
+     */
+    public static SplicedMessageBuffer splice(SelectMappedBufferResult origin, ByteBuffer message,
+        MessageExt messageExt) {
+        int position = message.position();
+        int sysFlag = message.getInt(position + MessageDecoder.SYSFLAG_POSITION);
+        int bornHostLength = (sysFlag & MessageSysFlag.BORNHOST_V6_FLAG) == 0 ? 8 : 20;
+        int storeHostLength = (sysFlag & MessageSysFlag.STOREHOSTADDRESS_V6_FLAG) == 0 ? 8 : 20;
+        // from SYSFLAG to BODYLENGTH: sysFlag, bornTimestamp, bornHost, storeTimestamp, storeHost, reconsumeTimes, preparedTransactionOffset
+        int bodyPosition = MessageDecoder.SYSFLAG_POSITION + 4 + 8 + bornHostLength + 8 + storeHostLength + 4 + 8 + 4;
+        int bodyLength = message.getInt(position + bodyPosition - 4);
+        MessageVersion version = MessageVersion.valueOfMagicCode(
+            message.getInt(position + MessageDecoder.MESSAGE_MAGIC_CODE_POSITION));
+
+        byte[] topic = messageExt.getTopic().getBytes(MessageDecoder.CHARSET_UTF8);
+        byte[] properties = MessageDecoder.messageProperties2String(messageExt.getProperties())
+            .getBytes(MessageDecoder.CHARSET_UTF8);
+        if (properties.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("properties length " + properties.length + " exceeds the limit");
+        }
+
+        ByteBuffer body = message.duplicate();
+        body.position(position + bodyPosition);
+        body.limit(position + bodyPosition + bodyLength);
+        body = body.slice();
+
+        ByteBuffer suffix = ByteBuffer.allocate(version.getTopicLengthSize() + topic.length + 2 + properties.length);
+        version.putTopicLength(suffix, topic.length);
+        suffix.put(topic);
+        suffix.putShort((short) properties.length);
+        suffix.put(properties);
+        suffix.flip();
+
+        int size = bodyPosition + bodyLength + suffix.remaining();
+        ByteBuffer prefix = ByteBuffer.allocate(bodyPosition);
+        ByteBuffer head = message.duplicate();
+        head.limit(position + bodyPosition);
+        prefix.put(head);
+        prefix.putInt(0, size);
+        prefix.flip();
+
+        return new SplicedMessageBuffer(origin, new ByteBuffer[] {prefix, body, suffix}, size);
+    }
+
+    public ByteBuffer[] getSegments() {
+        return segments;
+    }
+
+    @Override
+    public synchronized void release() {
+        this.origin.release();
+    }
+
+    @Override
+    public synchronized boolean hasReleased() {
+        return this.origin.hasReleased();
+    }
+
+    @Override
+    public boolean isInMem() {
+        return this.origin.isInMem();
+    }
+}
@@ -53,6 +53,7 @@ public class AckMessageProcessor implements NettyRequestProcessor {
     private final BrokerController brokerController;
     private final String reviveTopic;
     private final PopReviveService[] popReviveServices;
+    private final PopAckMergeService popAckMergeService;
 
     public AckMessageProcessor(final BrokerController brokerController) {
         this.brokerController = brokerController;
@@ -62,22 +63,33 @@ public class AckMessageProcessor implements NettyRequestProcessor {
             this.popReviveServices[i] = new PopReviveService(brokerController, reviveTopic, i);
             this.popReviveServices[i].setShouldRunPopRevive(brokerController.getBrokerConfig().getBrokerId() == 0);
         }
+        this.popAckMergeService = new PopAckMergeService(brokerController, reviveTopic);
     }
 
     public PopReviveService[] getPopReviveServices() {
         return popReviveServices;
     }
 
+    public PopAckMergeService getPopAckMergeService() {
+        return popAckMergeService;
+    }
+
     public void startPopReviveService() {
         for (PopReviveService popReviveService : popReviveServices) {
             popReviveService.start();
         }
+        if (brokerController.getBrokerConfig().isEnableReviveAckMerge()) {
+            popAckMergeService.start();
+        }
     }
 
     public void shutdownPopReviveService() {
         for (PopReviveService popReviveService : popReviveServices) {
             popReviveService.shutdown();
         }
+        if (brokerController.getBrokerConfig().isEnableReviveAckMerge()) {
+            popAckMergeService.shutdown();
+        }
     }
 
     public void setPopReviveServiceStatus(boolean shouldStart) {
@@ -251,6 +263,12 @@ public class AckMessageProcessor implements NettyRequestProcessor {
             return;
         }
 
+        if (this.brokerController.getBrokerConfig().isEnableReviveAckMerge()
+            && this.popAckMergeService.addAck(rqId, ackMsg, popTime + invisibleTime)) {
+            brokerController.getPopInflightMessageCounter().decrementInFlightMessageNum(topic, consumeGroup, popTime, qId, ackCount);
+            return;
+        }
+
         MessageExtBrokerInner msgInner = new MessageExtBrokerInner();
         msgInner.setTopic(reviveTopic);
         msgInner.setBody(JSON.toJSONString(ackMsg).getBytes(DataConverter.CHARSET_UTF8));
@@ -275,7 +293,7 @@ public class AckMessageProcessor implements NettyRequestProcessor {
                 && putMessageResult.getPutMessageStatus() != PutMessageStatus.SLAVE_NOT_AVAILABLE) {
             POP_LOGGER.error("put ack msg error:" + putMessageResult);
         }
-        PopMetricsManager.incPopReviveAckPutCount(ackMsg, putMessageResult.getPutMessageStatus());
+        PopMetricsManager.recordPopReviveAckPut(ackMsg, msgInner.getBody().length, putMessageResult.getPutMessageStatus());
         brokerController.getPopInflightMessageCounter().decrementInFlightMessageNum(topic, consumeGroup, popTime, qId, ackCount);
     }
 
@@ -2567,7 +2567,7 @@ public class AdminBrokerProcessor implements NettyRequestProcessor {
                         one.setBitMap(BitsArray.create(cqExtUnit.getFilterBitMap()).toString());
                     }
                     if (messageFilter != null) {
-                        one.setEval(messageFilter.isMatchedByConsumeQueue(cqExtUnit.getTagsCode(), cqExtUnit));
+                        one.setEval(messageFilter.isMatchedByConsumeQueue(cqExtUnit.getTagsCode(), cqExtUnit, cqUnit.getPos()));
                     }
                 } else {
                     one.setMsg("Cq extend not exist!addr: " + one.getTagsCode());
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.metrics.PopMetricsManager;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.PopAckConstants;
+import org.apache.rocketmq.common.ServiceThread;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.message.MessageClientIDSetter;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+import org.apache.rocketmq.store.PutMessageResult;
+import org.apache.rocketmq.store.PutMessageStatus;
+import org.apache.rocketmq.store.pop.AckMsg;
+import org.apache.rocketmq.store.pop.MergedAckMsg;
+
+/**
+ * Collects the acks of many requests per revive queue and writes them to the revive topic as a single
+ * {@link MergedAckMsg}, instead of one revive message per ack.
+ */
+public class PopAckMergeService extends ServiceThread {
+    private static final Logger POP_LOGGER = LoggerFactory.getLogger(LoggerName.ROCKETMQ_POP_LOGGER_NAME);
+    private static final int MAX_MERGE_NUM = 4096;
+
+    private final BrokerController brokerController;
+    private final String reviveTopic;
+    private final ReviveQueueAcks[] reviveQueueAcks;
+
+    public PopAckMergeService(BrokerController brokerController, String reviveTopic) {
+        this.brokerController = brokerController;
+        this.reviveTopic = reviveTopic;
+        this.reviveQueueAcks = new ReviveQueueAcks[brokerController.getBrokerConfig().getReviveQueueNum()];
+        for (int i = 0; i < reviveQueueAcks.length; i++) {
+            reviveQueueAcks[i] = new ReviveQueueAcks(i);
+        }
+    }
+
+    @Override
+    public String getServiceName() {
+        if (this.brokerController != null && this.brokerController.getBrokerConfig().isInBrokerContainer()) {
+            return this.brokerController.getBrokerIdentity().getIdentifier() + PopAckMergeService.class.getSimpleName();
+        }
+        return PopAckMergeService.class.getSimpleName();
+    }
+
+    /**
+     * Queue an ack to be written with the next record of its revive queue.
+     *
+     * @return false if the ack can not be merged and should be written on its own
+     */
+    public boolean addAck(int reviveQid, AckMsg ackMsg, long deliverTimeMs) {
+        if (this.isStopped() || reviveQid < 0 || reviveQid >= reviveQueueAcks.length) {
+            return false;
+        }
+        BrokerConfig brokerConfig = brokerController.getBrokerConfig();
+        long maxSpread = brokerConfig.getReviveAckMergeMaxDeliverSpreadMs();
+        int maxNum = Math.min(brokerConfig.getReviveAckMergeMaxNum(), MAX_MERGE_NUM);
+
+        ReviveQueueAcks acks = reviveQueueAcks[reviveQid];
+        boolean full = false;
+        synchronized (acks) {
+            if (!acks.isEmpty() && (acks.minDeliverTimeMs < deliverTimeMs - maxSpread || acks.maxDeliverTimeMs > deliverTimeMs + maxSpread)) {
+                acks.seal();
+                full = true;
+            }
+            acks.add(ackMsg, deliverTimeMs);
+            if (acks.size() >= maxNum) {
+                acks.seal();
+                full = true;
+            }
+        }
+        if (full) {
+            // the record is written by the service thread, request threads only hand acks over
+            this.wakeup();
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        POP_LOGGER.info(this.getServiceName() + " service started");
+        while (!this.isStopped()) {
+            try {
+                this.waitForRunning(Math.max(1, brokerController.getBrokerConfig().getReviveAckMergeWindowMs()));
+                flush(false);
+            } catch (Throwable e) {
+                POP_LOGGER.error(this.getServiceName() + " service has exception. ", e);
+            }
+        }
+        flush(true);
+        POP_LOGGER.info(this.getServiceName() + " service end");
+    }
+
+    void flush(boolean force) {
+        long windowMs = brokerController.getBrokerConfig().getReviveAckMergeWindowMs();
+        long now = System.currentTimeMillis();
+        for (ReviveQueueAcks acks : reviveQueueAcks) {
+            List<PendingRecord> records;
+            synchronized (acks) {
+                if (!acks.isEmpty() && (force || now - acks.firstAddTimeMs >= windowMs)) {
+                    acks.seal();
+                }
+                if (acks.pendingList.isEmpty()) {
+                    continue;
+                }
+                records = new ArrayList<>(acks.pendingList);
+                acks.pendingList.clear();
+            }
+            for (PendingRecord record : records) {
+                putMergedAck(acks.reviveQueueId, record.mergedAckMsg, record.deliverTimeMs);
+            }
+        }
+    }
+
+    private void putMergedAck(int reviveQid, MergedAckMsg mergedAckMsg, long deliverTimeMs) {
+        byte[] body = mergedAckMsg.encode();
+        MessageExtBrokerInner msgInner = new MessageExtBrokerInner();
+        msgInner.setTopic(reviveTopic);
+        msgInner.setBody(body);
+        msgInner.setQueueId(reviveQid);
+        msgInner.setTags(PopAckConstants.MERGED_ACK_TAG);
+        msgInner.setBornTimestamp(System.currentTimeMillis());
+        msgInner.setBornHost(brokerController.getStoreHost());
+        msgInner.setStoreHost(brokerController.getStoreHost());
+        msgInner.setDeliverTimeMs(deliverTimeMs);
+        msgInner.getProperties().put(MessageConst.PROPERTY_UNIQ_CLIENT_MESSAGE_ID_KEYIDX, MessageClientIDSetter.createUniqID());
+        msgInner.setPropertiesString(MessageDecoder.messageProperties2String(msgInner.getProperties()));
+        PutMessageResult putMessageResult = brokerController.getEscapeBridge().putMessageToSpecificQueue(msgInner);
+        PutMessageStatus status = putMessageResult.getPutMessageStatus();
+        if (status != PutMessageStatus.PUT_OK
+            && status != PutMessageStatus.FLUSH_DISK_TIMEOUT
+            && status != PutMessageStatus.FLUSH_SLAVE_TIMEOUT
+            && status != PutMessageStatus.SLAVE_NOT_AVAILABLE) {
+            POP_LOGGER.error("put merged ack msg error, reviveQueueId={}, ackNum={}, {}", reviveQid, mergedAckMsg.getAckMsgList().size(), putMessageResult);
+        }
+        PopMetricsManager.recordPopReviveMergedAckPut(mergedAckMsg, body.length, status);
+    }
+
+    public int getBufferedAckSize() {
+        int size = 0;
+        for (ReviveQueueAcks acks : reviveQueueAcks) {
+            synchronized (acks) {
+                size += acks.size();
+                for (PendingRecord record : acks.pendingList) {
+                    size += record.mergedAckMsg.getAckMsgList().size();
+                }
+            }
+        }
+        return size;
+    }
+
+    static class PendingRecord {
+        private final MergedAckMsg mergedAckMsg;
+        private final long deliverTimeMs;
+
+        PendingRecord(MergedAckMsg mergedAckMsg, long deliverTimeMs) {
+            this.mergedAckMsg = mergedAckMsg;
+            this.deliverTimeMs = deliverTimeMs;
+        }
+    }
+
+    static class ReviveQueueAcks {
+        private final int reviveQueueId;
+        private final List<PendingRecord> pendingList = new ArrayList<>();
+        private List<AckMsg> ackMsgList = new ArrayList<>();
+        private long firstAddTimeMs;
+        private long minDeliverTimeMs;
+        private long maxDeliverTimeMs;
+
+        ReviveQueueAcks(int reviveQueueId) {
+            this.reviveQueueId = reviveQueueId;
+        }
+
+        boolean isEmpty() {
+            return ackMsgList.isEmpty();
+        }
+
+        int size() {
+            return ackMsgList.size();
+        }
+
+        void add(AckMsg ackMsg, long deliverTimeMs) {
+            if (ackMsgList.isEmpty()) {
+                firstAddTimeMs = System.currentTimeMillis();
+                minDeliverTimeMs = deliverTimeMs;
+                maxDeliverTimeMs = deliverTimeMs;
+            } else {
+                minDeliverTimeMs = Math.min(minDeliverTimeMs, deliverTimeMs);
+                maxDeliverTimeMs = Math.max(maxDeliverTimeMs, deliverTimeMs);
+            }
+            ackMsgList.add(ackMsg);
+        }
+
+        /**
+         * Close the collected acks into a record waiting to be written.
+         */
+        void seal() {
+            pendingList.add(new PendingRecord(new MergedAckMsg(ackMsgList), maxDeliverTimeMs));
+            ackMsgList = new ArrayList<>();
+        }
+    }
+}
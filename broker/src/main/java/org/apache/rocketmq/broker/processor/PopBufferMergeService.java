@@ -22,9 +22,13 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.broker.metrics.PopMetricsManager;
 import org.apache.rocketmq.common.KeyBuilder;
@@ -46,8 +50,21 @@ import org.apache.rocketmq.store.pop.PopCheckPoint;
 
 public class PopBufferMergeService extends ServiceThread {
     private static final Logger POP_LOGGER = LoggerFactory.getLogger(LoggerName.ROCKETMQ_POP_LOGGER_NAME);
-    ConcurrentHashMap<String/*mergeKey*/, PopCheckPointWrapper>
+    ConcurrentHashMap<CheckPointKey, PopCheckPointWrapper>
         buffer = new ConcurrentHashMap<>(1024 * 16);
+    /**
+     * Checkpoints added since the last scan, moved to {@link #dueQueue} by the scan thread.
+     */
+    private final ConcurrentLinkedQueue<PopCheckPointWrapper> addedQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * Checkpoints all acked in buffer, removed by the next scan.
+     */
+    private final ConcurrentLinkedQueue<PopCheckPointWrapper> doneQueue = new ConcurrentLinkedQueue<>();
+    /**
+     * Buffered checkpoints ordered by the time they have to be looked at again, only touched by the scan thread.
+     */
+    private final PriorityQueue<PopCheckPointWrapper> dueQueue = new PriorityQueue<>(1024,
+        (o1, o2) -> Long.compare(o1.dueTime, o2.dueTime));
     ConcurrentHashMap<String/*topic@cid@queueId*/, QueueWithTime<PopCheckPointWrapper>> commitOffsets =
         new ConcurrentHashMap<>();
     private volatile boolean serving = true;
@@ -98,6 +115,9 @@ public class PopBufferMergeService extends ServiceThread {
                     POP_LOGGER.info("Broker is {}, {}, clear all data",
                         brokerController.getMessageStoreConfig().getBrokerRole(), this.master);
                     this.buffer.clear();
+                    this.addedQueue.clear();
+                    this.doneQueue.clear();
+                    this.dueQueue.clear();
                     this.commitOffsets.clear();
                     continue;
                 }
@@ -216,129 +236,180 @@ public class PopBufferMergeService extends ServiceThread {
 
     private void scan() {
         long startTime = System.currentTimeMillis();
-        int count = 0, countCk = 0;
-        Iterator<Map.Entry<String, PopCheckPointWrapper>> iterator = buffer.entrySet().iterator();
-        while (iterator.hasNext()) {
-            Map.Entry<String, PopCheckPointWrapper> entry = iterator.next();
-            PopCheckPointWrapper pointWrapper = entry.getValue();
+        int[] count = new int[2];
+        if (this.serving) {
+            scanDue(startTime, count);
+        } else {
+            scanAll(startTime, count);
+        }
+
+        int offsetBufferSize = scanCommitOffset();
+
+        long eclipse = System.currentTimeMillis() - startTime;
+        if (eclipse > brokerController.getBrokerConfig().getPopCkStayBufferTimeOut() - 1000) {
+            POP_LOGGER.warn("[PopBuffer]scan stop, because eclipse too long, PopBufferEclipse={}, " +
+                    "PopBufferToStoreAck={}, PopBufferToStoreCk={}, PopBufferSize={}, PopBufferOffsetSize={}",
+                eclipse, count[0], count[1], counter.get(), offsetBufferSize);
+            this.serving = false;
+        } else {
+            if (scanTimes % countOfSecond1 == 0) {
+                POP_LOGGER.info("[PopBuffer]scan, PopBufferEclipse={}, " +
+                        "PopBufferToStoreAck={}, PopBufferToStoreCk={}, PopBufferSize={}, PopBufferOffsetSize={}",
+                    eclipse, count[0], count[1], counter.get(), offsetBufferSize);
+            }
+        }
+        PopMetricsManager.recordPopBufferScanTimeConsume(eclipse);
+        scanTimes++;
 
-            // just process offset(already stored at pull thread), or buffer ck(not stored and ack finish)
-            if (pointWrapper.isJustOffset() && pointWrapper.isCkStored() || isCkDone(pointWrapper)
-                || isCkDoneForFinish(pointWrapper) && pointWrapper.isCkStored()) {
+        if (scanTimes >= countOfMinute1) {
+            counter.set(this.buffer.size());
+            scanTimes = 0;
+        }
+    }
+
+    /**
+     * Only look at the checkpoints all acked since the last scan and those due to leave the buffer.
+     */
+    private void scanDue(long now, int[] count) {
+        PopCheckPointWrapper pointWrapper;
+        while ((pointWrapper = addedQueue.poll()) != null) {
+            dueQueue.offer(pointWrapper);
+        }
+        while ((pointWrapper = doneQueue.poll()) != null) {
+            if (isCkDone(pointWrapper) && this.buffer.remove(pointWrapper.getMergeKey(), pointWrapper)) {
                 if (brokerController.getBrokerConfig().isEnablePopLog()) {
                     POP_LOGGER.info("[PopBuffer]ck done, {}", pointWrapper);
                 }
-                iterator.remove();
                 counter.decrementAndGet();
+            }
+        }
+        while ((pointWrapper = dueQueue.peek()) != null && pointWrapper.dueTime <= now) {
+            dueQueue.poll();
+            if (this.buffer.get(pointWrapper.getMergeKey()) != pointWrapper) {
                 continue;
             }
+            long dueTime = scanCk(pointWrapper, now, count);
+            if (dueTime < 0) {
+                this.buffer.remove(pointWrapper.getMergeKey(), pointWrapper);
+                counter.decrementAndGet();
+            } else {
+                pointWrapper.dueTime = dueTime;
+                dueQueue.offer(pointWrapper);
+            }
+        }
+    }
 
-            PopCheckPoint point = pointWrapper.getCk();
-            long now = System.currentTimeMillis();
-
-            boolean removeCk = !this.serving;
-            // ck will be timeout
-            if (point.getReviveTime() - now < brokerController.getBrokerConfig().getPopCkStayBufferTimeOut()) {
-                removeCk = true;
+    /**
+     * Look at every buffered checkpoint, used to drain the buffer once it stops serving.
+     */
+    private void scanAll(long now, int[] count) {
+        Iterator<Map.Entry<CheckPointKey, PopCheckPointWrapper>> iterator = buffer.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PopCheckPointWrapper pointWrapper = iterator.next().getValue();
+            if (scanCk(pointWrapper, now, count) < 0) {
+                iterator.remove();
+                counter.decrementAndGet();
             }
+        }
+        this.addedQueue.clear();
+        this.doneQueue.clear();
+        this.dueQueue.clear();
+    }
 
-            // the time stayed is too long
-            if (now - point.getPopTime() > brokerController.getBrokerConfig().getPopCkStayBufferTime()) {
-                removeCk = true;
+    /**
+     * @return -1 if the checkpoint is done and should leave the buffer, otherwise the time to look at it again
+     */
+    private long scanCk(PopCheckPointWrapper pointWrapper, long now, int[] count) {
+        // just process offset(already stored at pull thread), or buffer ck(not stored and ack finish)
+        if (pointWrapper.isJustOffset() && pointWrapper.isCkStored() || isCkDone(pointWrapper)
+            || isCkDoneForFinish(pointWrapper) && pointWrapper.isCkStored()) {
+            if (brokerController.getBrokerConfig().isEnablePopLog()) {
+                POP_LOGGER.info("[PopBuffer]ck done, {}", pointWrapper);
             }
+            return -1;
+        }
 
-            if (now - point.getPopTime() > brokerController.getBrokerConfig().getPopCkStayBufferTime() * 2L) {
-                POP_LOGGER.warn("[PopBuffer]ck finish fail, stay too long, {}", pointWrapper);
+        PopCheckPoint point = pointWrapper.getCk();
+        long retryTime = now + interval * 20;
+
+        boolean removeCk = !this.serving;
+        // ck will be timeout, or the time stayed is too long
+        long dueTime = computeDueTime(point);
+        if (dueTime <= now) {
+            removeCk = true;
+        }
+
+        if (now - point.getPopTime() > brokerController.getBrokerConfig().getPopCkStayBufferTime() * 2L) {
+            POP_LOGGER.warn("[PopBuffer]ck finish fail, stay too long, {}", pointWrapper);
+        }
+
+        if (pointWrapper.isJustOffset()) {
+            // just offset should be in store.
+            if (pointWrapper.getReviveQueueOffset() < 0) {
+                putCkToStore(pointWrapper, false);
+                count[1]++;
             }
+            return pointWrapper.isCkStored() ? -1 : retryTime;
+        } else if (!removeCk) {
+            return dueTime;
+        }
 
-            // double check
-            if (isCkDone(pointWrapper)) {
-                continue;
-            } else if (pointWrapper.isJustOffset()) {
-                // just offset should be in store.
-                if (pointWrapper.getReviveQueueOffset() < 0) {
-                    putCkToStore(pointWrapper, false);
-                    countCk++;
-                }
-                continue;
-            } else if (removeCk) {
-                // put buffer ak to store
-                if (pointWrapper.getReviveQueueOffset() < 0) {
-                    putCkToStore(pointWrapper, false);
-                    countCk++;
-                }
+        // put buffer ak to store
+        if (pointWrapper.getReviveQueueOffset() < 0) {
+            putCkToStore(pointWrapper, false);
+            count[1]++;
+        }
 
-                if (!pointWrapper.isCkStored()) {
-                    continue;
-                }
+        if (!pointWrapper.isCkStored()) {
+            return retryTime;
+        }
 
-                if (brokerController.getBrokerConfig().isEnablePopBatchAck()) {
-                    List<Byte> indexList = this.batchAckIndexList;
-                    try {
-                        for (byte i = 0; i < point.getNum(); i++) {
-                            // reput buffer ak to store
-                            if (DataConverter.getBit(pointWrapper.getBits().get(), i)
-                                    && !DataConverter.getBit(pointWrapper.getToStoreBits().get(), i)) {
-                                indexList.add(i);
-                            }
-                        }
-                        if (indexList.size() > 0) {
-                            if (putBatchAckToStore(pointWrapper, indexList)) {
-                                count += indexList.size();
-                                for (Byte i : indexList) {
-                                    markBitCAS(pointWrapper.getToStoreBits(), i);
-                                }
-                            }
-                        }
-                    } finally {
-                        indexList.clear();
+        if (brokerController.getBrokerConfig().isEnablePopBatchAck()) {
+            List<Byte> indexList = this.batchAckIndexList;
+            try {
+                for (byte i = 0; i < point.getNum(); i++) {
+                    // reput buffer ak to store
+                    if (DataConverter.getBit(pointWrapper.getBits(), i)
+                            && !DataConverter.getBit(pointWrapper.getToStoreBits(), i)) {
+                        indexList.add(i);
                     }
-                } else {
-                    for (byte i = 0; i < point.getNum(); i++) {
-                        // reput buffer ak to store
-                        if (DataConverter.getBit(pointWrapper.getBits().get(), i)
-                                && !DataConverter.getBit(pointWrapper.getToStoreBits().get(), i)) {
-                            if (putAckToStore(pointWrapper, i)) {
-                                count++;
-                                markBitCAS(pointWrapper.getToStoreBits(), i);
-                            }
+                }
+                if (indexList.size() > 0) {
+                    if (putBatchAckToStore(pointWrapper, indexList)) {
+                        count[0] += indexList.size();
+                        for (Byte i : indexList) {
+                            pointWrapper.markToStoreBit(i);
                         }
                     }
                 }
-
-                if (isCkDoneForFinish(pointWrapper) && pointWrapper.isCkStored()) {
-                    if (brokerController.getBrokerConfig().isEnablePopLog()) {
-                        POP_LOGGER.info("[PopBuffer]ck finish, {}", pointWrapper);
+            } finally {
+                indexList.clear();
+            }
+        } else {
+            for (byte i = 0; i < point.getNum(); i++) {
+                // reput buffer ak to store
+                if (DataConverter.getBit(pointWrapper.getBits(), i)
+                        && !DataConverter.getBit(pointWrapper.getToStoreBits(), i)) {
+                    if (putAckToStore(pointWrapper, i)) {
+                        count[0]++;
+                        pointWrapper.markToStoreBit(i);
                     }
-                    iterator.remove();
-                    counter.decrementAndGet();
-                    continue;
                 }
             }
         }
 
-        int offsetBufferSize = scanCommitOffset();
-
-        long eclipse = System.currentTimeMillis() - startTime;
-        if (eclipse > brokerController.getBrokerConfig().getPopCkStayBufferTimeOut() - 1000) {
-            POP_LOGGER.warn("[PopBuffer]scan stop, because eclipse too long, PopBufferEclipse={}, " +
-                    "PopBufferToStoreAck={}, PopBufferToStoreCk={}, PopBufferSize={}, PopBufferOffsetSize={}",
-                eclipse, count, countCk, counter.get(), offsetBufferSize);
-            this.serving = false;
-        } else {
-            if (scanTimes % countOfSecond1 == 0) {
-                POP_LOGGER.info("[PopBuffer]scan, PopBufferEclipse={}, " +
-                        "PopBufferToStoreAck={}, PopBufferToStoreCk={}, PopBufferSize={}, PopBufferOffsetSize={}",
-                    eclipse, count, countCk, counter.get(), offsetBufferSize);
+        if (isCkDoneForFinish(pointWrapper) && pointWrapper.isCkStored()) {
+            if (brokerController.getBrokerConfig().isEnablePopLog()) {
+                POP_LOGGER.info("[PopBuffer]ck finish, {}", pointWrapper);
             }
+            return -1;
         }
-        PopMetricsManager.recordPopBufferScanTimeConsume(eclipse);
-        scanTimes++;
+        return retryTime;
+    }
 
-        if (scanTimes >= countOfMinute1) {
-            counter.set(this.buffer.size());
-            scanTimes = 0;
-        }
+    private long computeDueTime(PopCheckPoint point) {
+        return Math.min(point.getReviveTime() - brokerController.getBrokerConfig().getPopCkStayBufferTimeOut(),
+            point.getPopTime() + brokerController.getBrokerConfig().getPopCkStayBufferTime()) + 1;
     }
 
     public int getOffsetTotalSize() {
@@ -356,20 +427,6 @@ public class PopBufferMergeService extends ServiceThread {
         return this.counter.get();
     }
 
-    private void markBitCAS(AtomicInteger setBits, int index) {
-        while (true) {
-            int bits = setBits.get();
-            if (DataConverter.getBit(bits, index)) {
-                break;
-            }
-
-            int newBits = DataConverter.setBit(bits, index, true);
-            if (setBits.compareAndSet(bits, newBits)) {
-                break;
-            }
-        }
-    }
-
     private boolean commitOffset(final PopCheckPointWrapper wrapper) {
         if (wrapper.getNextBeginOffset() < 0) {
             return true;
@@ -444,6 +501,8 @@ public class PopBufferMergeService extends ServiceThread {
         putOffsetQueue(pointWrapper);
         this.buffer.put(pointWrapper.getMergeKey(), pointWrapper);
         this.counter.incrementAndGet();
+        pointWrapper.dueTime = System.currentTimeMillis();
+        this.addedQueue.offer(pointWrapper);
         if (brokerController.getBrokerConfig().isEnablePopLog()) {
             POP_LOGGER.info("[PopBuffer]add ck just offset, {}", pointWrapper);
         }
@@ -510,6 +569,8 @@ public class PopBufferMergeService extends ServiceThread {
         putOffsetQueue(pointWrapper);
         this.buffer.put(pointWrapper.getMergeKey(), pointWrapper);
         this.counter.incrementAndGet();
+        pointWrapper.dueTime = computeDueTime(point);
+        this.addedQueue.offer(pointWrapper);
         if (brokerController.getBrokerConfig().isEnablePopLog()) {
             POP_LOGGER.info("[PopBuffer]add ck, {}", pointWrapper);
         }
@@ -524,7 +585,8 @@ public class PopBufferMergeService extends ServiceThread {
             return false;
         }
         try {
-            PopCheckPointWrapper pointWrapper = this.buffer.get(ackMsg.getTopic() + ackMsg.getConsumerGroup() + ackMsg.getQueueId() + ackMsg.getStartOffset() + ackMsg.getPopTime() + ackMsg.getBrokerName());
+            PopCheckPointWrapper pointWrapper = this.buffer.get(new CheckPointKey(ackMsg.getTopic(), ackMsg.getConsumerGroup(),
+                ackMsg.getQueueId(), ackMsg.getStartOffset(), ackMsg.getPopTime(), ackMsg.getBrokerName()));
             if (pointWrapper == null) {
                 if (brokerController.getBrokerConfig().isEnablePopLog()) {
                     POP_LOGGER.warn("[PopBuffer]add ack fail, rqId={}, no ck, {}", reviveQid, ackMsg);
@@ -557,7 +619,7 @@ public class PopBufferMergeService extends ServiceThread {
                 for (Long ackOffset : ((BatchAckMsg) ackMsg).getAckOffsetList()) {
                     int indexOfAck = point.indexOfAck(ackOffset);
                     if (indexOfAck > -1) {
-                        markBitCAS(pointWrapper.getBits(), indexOfAck);
+                        pointWrapper.markBit(indexOfAck);
                     } else {
                         POP_LOGGER.error("[PopBuffer]Invalid index of ack, reviveQid={}, {}, {}", reviveQid, ackMsg, point);
                     }
@@ -565,13 +627,17 @@ public class PopBufferMergeService extends ServiceThread {
             } else {
                 int indexOfAck = point.indexOfAck(ackMsg.getAckOffset());
                 if (indexOfAck > -1) {
-                    markBitCAS(pointWrapper.getBits(), indexOfAck);
+                    pointWrapper.markBit(indexOfAck);
                 } else {
                     POP_LOGGER.error("[PopBuffer]Invalid index of ack, reviveQid={}, {}, {}", reviveQid, ackMsg, point);
                     return true;
                 }
             }
 
+            if (isCkDone(pointWrapper)) {
+                this.doneQueue.offer(pointWrapper);
+            }
+
             if (brokerController.getBrokerConfig().isEnablePopLog()) {
                 POP_LOGGER.info("[PopBuffer]add ack, rqId={}, {}, {}", reviveQid, pointWrapper, ackMsg);
             }
@@ -732,7 +798,7 @@ public class PopBufferMergeService extends ServiceThread {
     private boolean isCkDone(PopCheckPointWrapper pointWrapper) {
         byte num = pointWrapper.getCk().getNum();
         for (byte i = 0; i < num; i++) {
-            if (!DataConverter.getBit(pointWrapper.getBits().get(), i)) {
+            if (!DataConverter.getBit(pointWrapper.getBits(), i)) {
                 return false;
             }
         }
@@ -741,7 +807,7 @@ public class PopBufferMergeService extends ServiceThread {
 
     private boolean isCkDoneForFinish(PopCheckPointWrapper pointWrapper) {
         byte num = pointWrapper.getCk().getNum();
-        int bits = pointWrapper.getBits().get() ^ pointWrapper.getToStoreBits().get();
+        int bits = pointWrapper.getBits() ^ pointWrapper.getToStoreBits();
         for (byte i = 0; i < num; i++) {
             if (DataConverter.getBit(bits, i)) {
                 return false;
@@ -772,31 +838,103 @@ public class PopBufferMergeService extends ServiceThread {
         }
     }
 
+    private static final AtomicIntegerFieldUpdater<PopCheckPointWrapper> BITS_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(PopCheckPointWrapper.class, "bits");
+    private static final AtomicIntegerFieldUpdater<PopCheckPointWrapper> TO_STORE_BITS_UPDATER =
+        AtomicIntegerFieldUpdater.newUpdater(PopCheckPointWrapper.class, "toStoreBits");
+
+    private static void markBitCAS(AtomicIntegerFieldUpdater<PopCheckPointWrapper> updater,
+        PopCheckPointWrapper pointWrapper, int index) {
+        while (true) {
+            int bits = updater.get(pointWrapper);
+            if (DataConverter.getBit(bits, index)) {
+                break;
+            }
+
+            int newBits = DataConverter.setBit(bits, index, true);
+            if (updater.compareAndSet(pointWrapper, bits, newBits)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Identifies a buffered checkpoint without building a string for every ack.
+     */
+    public static class CheckPointKey {
+        private final String topic;
+        private final String cid;
+        private final int queueId;
+        private final long startOffset;
+        private final long popTime;
+        private final String brokerName;
+        private final int hash;
+
+        public CheckPointKey(String topic, String cid, int queueId, long startOffset, long popTime, String brokerName) {
+            this.topic = topic;
+            this.cid = cid;
+            this.queueId = queueId;
+            this.startOffset = startOffset;
+            this.popTime = popTime;
+            this.brokerName = brokerName;
+            int h = Objects.hashCode(topic);
+            h = 31 * h + Objects.hashCode(cid);
+            h = 31 * h + queueId;
+            h = 31 * h + Long.hashCode(startOffset);
+            h = 31 * h + Long.hashCode(popTime);
+            h = 31 * h + Objects.hashCode(brokerName);
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CheckPointKey)) {
+                return false;
+            }
+            CheckPointKey key = (CheckPointKey) o;
+            return hash == key.hash && queueId == key.queueId && startOffset == key.startOffset && popTime == key.popTime
+                && Objects.equals(topic, key.topic) && Objects.equals(cid, key.cid) && Objects.equals(brokerName, key.brokerName);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return topic + cid + queueId + startOffset + popTime + brokerName;
+        }
+    }
+
     public class PopCheckPointWrapper {
         private final int reviveQueueId;
         // -1: not stored, >=0: stored, Long.MAX: storing.
         private volatile long reviveQueueOffset;
         private final PopCheckPoint ck;
         // bit for concurrent
-        private final AtomicInteger bits;
+        volatile int bits;
         // bit for stored buffer ak
-        private final AtomicInteger toStoreBits;
+        volatile int toStoreBits;
         private final long nextBeginOffset;
         private final String lockKey;
-        private final String mergeKey;
+        private final CheckPointKey mergeKey;
         private final boolean justOffset;
         private volatile boolean ckStored = false;
+        // only used by the scan thread
+        private long dueTime;
 
         public PopCheckPointWrapper(int reviveQueueId, long reviveQueueOffset, PopCheckPoint point,
             long nextBeginOffset) {
             this.reviveQueueId = reviveQueueId;
             this.reviveQueueOffset = reviveQueueOffset;
             this.ck = point;
-            this.bits = new AtomicInteger(0);
-            this.toStoreBits = new AtomicInteger(0);
             this.nextBeginOffset = nextBeginOffset;
             this.lockKey = ck.getTopic() + PopAckConstants.SPLIT + ck.getCId() + PopAckConstants.SPLIT + ck.getQueueId();
-            this.mergeKey = point.getTopic() + point.getCId() + point.getQueueId() + point.getStartOffset() + point.getPopTime() + point.getBrokerName();
+            this.mergeKey = new CheckPointKey(point.getTopic(), point.getCId(), point.getQueueId(), point.getStartOffset(), point.getPopTime(), point.getBrokerName());
             this.justOffset = false;
         }
 
@@ -806,11 +944,9 @@ public class PopBufferMergeService extends ServiceThread {
             this.reviveQueueId = reviveQueueId;
             this.reviveQueueOffset = reviveQueueOffset;
             this.ck = point;
-            this.bits = new AtomicInteger(0);
-            this.toStoreBits = new AtomicInteger(0);
             this.nextBeginOffset = nextBeginOffset;
             this.lockKey = ck.getTopic() + PopAckConstants.SPLIT + ck.getCId() + PopAckConstants.SPLIT + ck.getQueueId();
-            this.mergeKey = point.getTopic() + point.getCId() + point.getQueueId() + point.getStartOffset() + point.getPopTime() + point.getBrokerName();
+            this.mergeKey = new CheckPointKey(point.getTopic(), point.getCId(), point.getQueueId(), point.getStartOffset(), point.getPopTime(), point.getBrokerName());
             this.justOffset = justOffset;
         }
 
@@ -834,14 +970,22 @@ public class PopBufferMergeService extends ServiceThread {
             return ck;
         }
 
-        public AtomicInteger getBits() {
+        public int getBits() {
             return bits;
         }
 
-        public AtomicInteger getToStoreBits() {
+        public int getToStoreBits() {
             return toStoreBits;
         }
 
+        public void markBit(int index) {
+            markBitCAS(BITS_UPDATER, this, index);
+        }
+
+        public void markToStoreBit(int index) {
+            markBitCAS(TO_STORE_BITS_UPDATER, this, index);
+        }
+
         public long getNextBeginOffset() {
             return nextBeginOffset;
         }
@@ -850,7 +994,7 @@ public class PopBufferMergeService extends ServiceThread {
             return lockKey;
         }
 
-        public String getMergeKey() {
+        public CheckPointKey getMergeKey() {
             return mergeKey;
         }
 
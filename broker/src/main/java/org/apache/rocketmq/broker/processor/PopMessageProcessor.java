@@ -25,7 +25,6 @@ import io.netty.channel.FileRegion;
 import io.opentelemetry.api.common.Attributes;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Random;
@@ -45,6 +44,7 @@ import org.apache.rocketmq.broker.longpolling.PopLongPollingService;
 import org.apache.rocketmq.broker.longpolling.PopRequest;
 import org.apache.rocketmq.broker.metrics.BrokerMetricsManager;
 import org.apache.rocketmq.broker.pagecache.ManyMessageTransfer;
+import org.apache.rocketmq.broker.pagecache.SplicedMessageBuffer;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.KeyBuilder;
 import org.apache.rocketmq.common.MixAll;
@@ -635,28 +635,37 @@ public class PopMessageProcessor implements NettyRequestProcessor {
                     if (brokerController.getBrokerConfig().isPopResponseReturnActualRetryTopic() || !isRetry) {
                         getMessageResult.addMessage(mapedBuffer);
                     } else {
-                        List<MessageExt> messageExtList = MessageDecoder.decodesBatch(mapedBuffer.getByteBuffer(),
-                            true, false, true);
-                        mapedBuffer.release();
-                        for (MessageExt messageExt : messageExtList) {
+                        // recode the header and properties only, the body is still sent from the mapped buffer
+                        boolean spliced = false;
+                        ByteBuffer byteBuffer = mapedBuffer.getByteBuffer();
+                        int position = byteBuffer.position();
+                        while (position < byteBuffer.limit()) {
+                            int storeSize = byteBuffer.getInt(position);
+                            if (storeSize <= 0 || position + storeSize > byteBuffer.limit()) {
+                                break;
+                            }
+                            ByteBuffer message = byteBuffer.duplicate();
+                            message.position(position);
+                            message.limit(position + storeSize);
+                            position += storeSize;
                             try {
+                                MessageExt messageExt = MessageDecoder.decode(message.duplicate(), false, false, true);
                                 String ckInfo = ExtraInfoUtil.buildExtraInfo(finalOffset, popTime, requestHeader.getInvisibleTime(),
                                     reviveQid, messageExt.getTopic(), brokerName, messageExt.getQueueId(), messageExt.getQueueOffset());
                                 messageExt.getProperties().putIfAbsent(MessageConst.PROPERTY_POP_CK, ckInfo);
 
-                                // Set retry message topic to origin topic and clear message store size to recode
+                                // Set retry message topic to origin topic
                                 messageExt.setTopic(requestHeader.getTopic());
-                                messageExt.setStoreSize(0);
 
-                                byte[] encode = MessageDecoder.encode(messageExt, false);
-                                ByteBuffer buffer = ByteBuffer.wrap(encode);
-                                SelectMappedBufferResult tmpResult =
-                                    new SelectMappedBufferResult(mapedBuffer.getStartOffset(), buffer, encode.length, null);
-                                getMessageResult.addMessage(tmpResult);
+                                getMessageResult.addMessage(SplicedMessageBuffer.splice(mapedBuffer, message, messageExt));
+                                spliced = true;
                             } catch (Exception e) {
                                 POP_LOGGER.error("Exception in recode retry message buffer, topic={}", topic, e);
                             }
                         }
+                        if (!spliced) {
+                            mapedBuffer.release();
+                        }
                     }
                 }
                 this.brokerController.getPopInflightMessageCounter().incrementInFlightMessageNum(
@@ -793,11 +802,16 @@ public class PopMessageProcessor implements NettyRequestProcessor {
 
         long storeTimestamp = 0;
         try {
-            List<ByteBuffer> messageBufferList = getMessageResult.getMessageBufferList();
-            for (ByteBuffer bb : messageBufferList) {
-
-                byteBuffer.put(bb);
+            for (SelectMappedBufferResult mapedBuffer : getMessageResult.getMessageMapedList()) {
+                ByteBuffer bb = mapedBuffer.getByteBuffer();
                 storeTimestamp = bb.getLong(MessageDecoder.MESSAGE_STORE_TIMESTAMP_POSITION);
+                if (mapedBuffer instanceof SplicedMessageBuffer) {
+                    for (ByteBuffer segment : ((SplicedMessageBuffer) mapedBuffer).getSegments()) {
+                        byteBuffer.put(segment);
+                    }
+                } else {
+                    byteBuffer.put(bb);
+                }
             }
         } finally {
             getMessageResult.release();
@@ -41,10 +41,12 @@ import org.apache.rocketmq.common.TopicConfig;
 import org.apache.rocketmq.common.TopicFilterType;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageBufferView;
 import org.apache.rocketmq.common.message.MessageConst;
 import org.apache.rocketmq.common.message.MessageDecoder;
 import org.apache.rocketmq.common.message.MessageExt;
 import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
 import org.apache.rocketmq.common.topic.TopicValidator;
 import org.apache.rocketmq.common.utils.DataConverter;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
@@ -55,6 +57,7 @@ import org.apache.rocketmq.store.GetMessageStatus;
 import org.apache.rocketmq.store.PutMessageResult;
 import org.apache.rocketmq.store.pop.AckMsg;
 import org.apache.rocketmq.store.pop.BatchAckMsg;
+import org.apache.rocketmq.store.pop.MergedAckMsg;
 import org.apache.rocketmq.store.pop.PopCheckPoint;
 
 import static org.apache.rocketmq.broker.metrics.BrokerMetricsConstant.LABEL_CONSUMER_GROUP;
@@ -172,7 +175,7 @@ public class PopReviveService extends ServiceThread {
     }
 
     protected List<MessageExt> getReviveMessage(long offset, int queueId) {
-        PullResult pullResult = getMessage(PopAckConstants.REVIVE_GROUP, reviveTopic, queueId, offset, 32, true);
+        PullResult pullResult = getMessage(PopAckConstants.REVIVE_GROUP, reviveTopic, queueId, offset, 32, true, true);
         if (pullResult == null) {
             return null;
         }
@@ -203,6 +206,15 @@ public class PopReviveService extends ServiceThread {
 
     public PullResult getMessage(String group, String topic, int queueId, long offset, int nums,
         boolean deCompressBody) {
+        return getMessage(group, topic, queueId, offset, nums, deCompressBody, false);
+    }
+
+    /**
+     * @param reviveRecord whether the messages are check points and acks of the revive topic, see
+     * {@link #decodeReviveRecord(MessageBufferView)}
+     */
+    private PullResult getMessage(String group, String topic, int queueId, long offset, int nums,
+        boolean deCompressBody, boolean reviveRecord) {
         GetMessageResult getMessageResult = this.brokerController.getMessageStore().getMessage(group, topic, queueId, offset, nums, null);
 
         if (getMessageResult != null) {
@@ -211,7 +223,7 @@ public class PopReviveService extends ServiceThread {
             switch (getMessageResult.getStatus()) {
                 case FOUND:
                     pullStatus = PullStatus.FOUND;
-                    foundList = decodeMsgList(getMessageResult, deCompressBody);
+                    foundList = decodeMsgList(getMessageResult, deCompressBody, reviveRecord);
                     brokerController.getBrokerStatsManager().incGroupGetNums(group, topic, getMessageResult.getMessageCount());
                     brokerController.getBrokerStatsManager().incGroupGetSize(group, topic, getMessageResult.getBufferTotalSize());
                     brokerController.getBrokerStatsManager().incBrokerGetNums(topic, getMessageResult.getMessageCount());
@@ -267,8 +279,10 @@ public class PopReviveService extends ServiceThread {
         }
     }
 
-    private List<MessageExt> decodeMsgList(GetMessageResult getMessageResult, boolean deCompressBody) {
+    private List<MessageExt> decodeMsgList(GetMessageResult getMessageResult, boolean deCompressBody,
+        boolean reviveRecord) {
         List<MessageExt> foundList = new ArrayList<>();
+        MessageBufferView messageView = reviveRecord ? new MessageBufferView() : null;
         try {
             List<ByteBuffer> messageBufferList = getMessageResult.getMessageBufferList();
             if (messageBufferList != null) {
@@ -278,7 +292,13 @@ public class PopReviveService extends ServiceThread {
                         POP_LOGGER.error("bb is null {}", getMessageResult);
                         continue;
                     }
-                    MessageExt msgExt = MessageDecoder.decode(bb, true, deCompressBody);
+                    MessageExt msgExt;
+                    if (messageView != null
+                        && (messageView.wrap(bb).getSysFlag() & MessageSysFlag.COMPRESSED_FLAG) == 0) {
+                        msgExt = decodeReviveRecord(messageView);
+                    } else {
+                        msgExt = MessageDecoder.decode(bb, true, deCompressBody);
+                    }
                     if (msgExt == null) {
                         POP_LOGGER.error("decode msgExt is null {}", getMessageResult);
                         continue;
@@ -295,6 +315,32 @@ public class PopReviveService extends ServiceThread {
         return foundList;
     }
 
+    /**
+     * The revive scan reads the tags, the deliver time and the body of a check point or ack only, so they are the
+     * only properties set, and the message id and the hosts are never built.
+     */
+    private static MessageExt decodeReviveRecord(MessageBufferView messageView) {
+        MessageExt msgExt = new MessageExt();
+        msgExt.setTopic(messageView.getTopic());
+        msgExt.setQueueId(messageView.getQueueId());
+        msgExt.setSysFlag(messageView.getSysFlag());
+        msgExt.setCommitLogOffset(messageView.getCommitLogOffset());
+        msgExt.setStoreTimestamp(messageView.getStoreTimestamp());
+        ByteBuffer body = messageView.getBody();
+        byte[] bodyBytes = new byte[body.remaining()];
+        body.get(bodyBytes);
+        msgExt.setBody(bodyBytes);
+        String tags = messageView.getTags();
+        if (tags != null) {
+            msgExt.setTags(tags);
+        }
+        String deliverMs = messageView.getProperty(MessageConst.PROPERTY_TIMER_DELIVER_MS);
+        if (deliverMs != null) {
+            MessageAccessor.putProperty(msgExt, MessageConst.PROPERTY_TIMER_DELIVER_MS, deliverMs);
+        }
+        return msgExt;
+    }
+
     protected void consumeReviveMessage(ConsumeReviveObj consumeReviveObj) {
         HashMap<String, PopCheckPoint> map = consumeReviveObj.map;
         HashMap<String, PopCheckPoint> mockPointMap = new HashMap<>();
@@ -368,22 +414,13 @@ public class PopReviveService extends ServiceThread {
                     }
                     AckMsg ackMsg = JSON.parseObject(raw, AckMsg.class);
                     PopMetricsManager.incPopReviveAckGetCount(ackMsg, queueId);
-                    String mergeKey = ackMsg.getTopic() + ackMsg.getConsumerGroup() + ackMsg.getQueueId() + ackMsg.getStartOffset() + ackMsg.getPopTime();
-                    PopCheckPoint point = map.get(mergeKey);
+                    PopCheckPoint point = reviveAck(messageExt, ackMsg, "ack", map, mockPointMap);
                     if (point == null) {
                         if (!brokerController.getBrokerConfig().isEnableSkipLongAwaitingAck()) {
                             continue;
                         }
-                        if (mockCkForAck(messageExt, ackMsg, mergeKey, mockPointMap) && firstRt == 0) {
-                            firstRt = mockPointMap.get(mergeKey).getReviveTime();
-                        }
-                    } else {
-                        int indexOfAck = point.indexOfAck(ackMsg.getAckOffset());
-                        if (indexOfAck > -1) {
-                            point.setBitMap(DataConverter.setBit(point.getBitMap(), indexOfAck, true));
-                        } else {
-                            POP_LOGGER.error("invalid ack index, {}, {}", ackMsg, point);
-                        }
+                    } else if (firstRt == 0) {
+                        firstRt = point.getReviveTime();
                     }
                 } else if (PopAckConstants.BATCH_ACK_TAG.equals(messageExt.getTags())) {
                     String raw = new String(messageExt.getBody(), DataConverter.CHARSET_UTF8);
@@ -393,24 +430,30 @@ public class PopReviveService extends ServiceThread {
 
                     BatchAckMsg bAckMsg = JSON.parseObject(raw, BatchAckMsg.class);
                     PopMetricsManager.incPopReviveAckGetCount(bAckMsg, queueId);
-                    String mergeKey = bAckMsg.getTopic() + bAckMsg.getConsumerGroup() + bAckMsg.getQueueId() + bAckMsg.getStartOffset() + bAckMsg.getPopTime();
-                    PopCheckPoint point = map.get(mergeKey);
+                    PopCheckPoint point = reviveAck(messageExt, bAckMsg, "batch ack", map, mockPointMap);
                     if (point == null) {
                         if (!brokerController.getBrokerConfig().isEnableSkipLongAwaitingAck()) {
                             continue;
                         }
-                        if (mockCkForAck(messageExt, bAckMsg, mergeKey, mockPointMap) && firstRt == 0) {
-                            firstRt = mockPointMap.get(mergeKey).getReviveTime();
-                        }
-                    } else {
-                        List<Long> ackOffsetList = bAckMsg.getAckOffsetList();
-                        for (Long ackOffset : ackOffsetList) {
-                            int indexOfAck = point.indexOfAck(ackOffset);
-                            if (indexOfAck > -1) {
-                                point.setBitMap(DataConverter.setBit(point.getBitMap(), indexOfAck, true));
-                            } else {
-                                POP_LOGGER.error("invalid batch ack index, {}, {}", bAckMsg, point);
-                            }
+                    } else if (firstRt == 0) {
+                        firstRt = point.getReviveTime();
+                    }
+                } else if (PopAckConstants.MERGED_ACK_TAG.equals(messageExt.getTags())) {
+                    MergedAckMsg mergedAckMsg;
+                    try {
+                        mergedAckMsg = MergedAckMsg.decode(messageExt.getBody());
+                    } catch (Exception e) {
+                        POP_LOGGER.error("reviveQueueId={}, invalid merged ack, offset:{}", messageExt.getQueueId(), messageExt.getQueueOffset(), e);
+                        continue;
+                    }
+                    if (brokerController.getBrokerConfig().isEnablePopLog()) {
+                        POP_LOGGER.info("reviveQueueId={}, find merged ack, offset:{}, {}", messageExt.getQueueId(), messageExt.getQueueOffset(), mergedAckMsg);
+                    }
+                    for (AckMsg ackMsg : mergedAckMsg.getAckMsgList()) {
+                        PopMetricsManager.incPopReviveAckGetCount(ackMsg, queueId);
+                        PopCheckPoint point = reviveAck(messageExt, ackMsg, "merged ack", map, mockPointMap);
+                        if (point != null && firstRt == 0) {
+                            firstRt = point.getReviveTime();
                         }
                     }
                 }
@@ -425,6 +468,37 @@ public class PopReviveService extends ServiceThread {
         consumeReviveObj.endTime = endTime;
     }
 
+    /**
+     * Set the bits of the acked offsets in the check point of the ack, a check point is mocked for the ack if there is
+     * none and the ack has been waiting too long.
+     *
+     * @param ackType the kind of the ack record, for logging
+     * @return the check point of the ack, null if there is none
+     */
+    private PopCheckPoint reviveAck(MessageExt messageExt, AckMsg ackMsg, String ackType,
+        HashMap<String, PopCheckPoint> map, HashMap<String, PopCheckPoint> mockPointMap) {
+        String mergeKey = ackMsg.getTopic() + ackMsg.getConsumerGroup() + ackMsg.getQueueId() + ackMsg.getStartOffset() + ackMsg.getPopTime();
+        PopCheckPoint point = map.get(mergeKey);
+        if (point == null) {
+            if (brokerController.getBrokerConfig().isEnableSkipLongAwaitingAck()
+                && mockCkForAck(messageExt, ackMsg, mergeKey, mockPointMap)) {
+                return mockPointMap.get(mergeKey);
+            }
+            return null;
+        }
+        List<Long> ackOffsetList = ackMsg instanceof BatchAckMsg
+            ? ((BatchAckMsg) ackMsg).getAckOffsetList() : Collections.singletonList(ackMsg.getAckOffset());
+        for (Long ackOffset : ackOffsetList) {
+            int indexOfAck = point.indexOfAck(ackOffset);
+            if (indexOfAck > -1) {
+                point.setBitMap(DataConverter.setBit(point.getBitMap(), indexOfAck, true));
+            } else {
+                POP_LOGGER.error("invalid {} index, {}, {}", ackType, ackMsg, point);
+            }
+        }
+        return point;
+    }
+
     private boolean mockCkForAck(MessageExt messageExt, AckMsg ackMsg, String mergeKey, HashMap<String, PopCheckPoint> mockPointMap) {
         long ackWaitTime = System.currentTimeMillis() - messageExt.getDeliverTimeMs();
         long reviveAckWaitMs = brokerController.getBrokerConfig().getReviveAckWaitMs();
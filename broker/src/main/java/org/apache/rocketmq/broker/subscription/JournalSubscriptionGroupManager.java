@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.subscription;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
+import org.apache.rocketmq.common.config.ConfigJournal;
+import org.apache.rocketmq.remoting.protocol.DataVersion;
+import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
+import org.apache.rocketmq.remoting.protocol.subscription.SubscriptionGroupConfig;
+
+/**
+ * Persists the subscription group configs and the forbidden table to a {@link ConfigJournal}: {@link #persist()} only
+ * appends the groups changed since the previous one, instead of rewriting subscriptionGroup.json.
+ * subscriptionGroup.json is taken over when no journal exists yet.
+ */
+public class JournalSubscriptionGroupManager extends SubscriptionGroupManager {
+    private static final byte GROUP_TABLE = 0;
+    private static final byte FORBIDDEN_TABLE = 1;
+    private static final TypeReference<ConcurrentHashMap<String, Integer>> FORBIDDEN_TYPE =
+        new TypeReference<ConcurrentHashMap<String, Integer>>() {
+        };
+
+    private final Set<String> changedGroups = ConcurrentHashMap.newKeySet();
+    private final Set<String> changedForbiddens = ConcurrentHashMap.newKeySet();
+    private final ConfigJournal configJournal;
+
+    public JournalSubscriptionGroupManager(BrokerController brokerController) {
+        super(brokerController, false);
+        this.configJournal = new ConfigJournal(journalDirPath(), ConfigJournal.DEFAULT_MIN_COMPACT_SIZE, this::writeSnapshot);
+        this.init();
+    }
+
+    @Override
+    public boolean load() {
+        if (!this.configJournal.exists()) {
+            log.info("subscription group journal {} not found, load {}", journalDirPath(), configFilePath());
+            if (!super.load()) {
+                return false;
+            }
+            this.changedGroups.addAll(this.subscriptionGroupTable.keySet());
+            this.changedForbiddens.addAll(getForbiddenTable().keySet());
+            return true;
+        }
+        try {
+            this.configJournal.load(new ConfigJournal.Handler() {
+                @Override
+                public void put(byte table, String key, byte[] value) {
+                    if (table == FORBIDDEN_TABLE) {
+                        getForbiddenTable().put(key, JSON.parseObject(value, FORBIDDEN_TYPE.getType()));
+                    } else {
+                        subscriptionGroupTable.put(key, JSON.parseObject(value, SubscriptionGroupConfig.class));
+                    }
+                }
+
+                @Override
+                public void delete(byte table, String key) {
+                    if (table == FORBIDDEN_TABLE) {
+                        getForbiddenTable().remove(key);
+                    } else {
+                        subscriptionGroupTable.remove(key);
+                    }
+                }
+
+                @Override
+                public void meta(byte[] value) {
+                    getDataVersion().assignNewOne(RemotingSerializable.decode(value, DataVersion.class));
+                }
+            });
+            log.info("load subscription group journal {} OK, {} groups", journalDirPath(), this.subscriptionGroupTable.size());
+            return true;
+        } catch (IOException e) {
+            log.error("load subscription group journal {} failed", journalDirPath(), e);
+            return false;
+        }
+    }
+
+    @Override
+    protected SubscriptionGroupConfig putSubscriptionGroupConfig(SubscriptionGroupConfig subscriptionGroupConfig) {
+        SubscriptionGroupConfig oldConfig = super.putSubscriptionGroupConfig(subscriptionGroupConfig);
+        this.changedGroups.add(subscriptionGroupConfig.getGroupName());
+        return oldConfig;
+    }
+
+    @Override
+    protected SubscriptionGroupConfig putSubscriptionGroupConfigIfAbsent(SubscriptionGroupConfig subscriptionGroupConfig) {
+        SubscriptionGroupConfig oldConfig = super.putSubscriptionGroupConfigIfAbsent(subscriptionGroupConfig);
+        if (oldConfig == null) {
+            this.changedGroups.add(subscriptionGroupConfig.getGroupName());
+        }
+        return oldConfig;
+    }
+
+    @Override
+    protected SubscriptionGroupConfig removeSubscriptionGroupConfig(String groupName) {
+        SubscriptionGroupConfig subscriptionGroupConfig = super.removeSubscriptionGroupConfig(groupName);
+        this.changedGroups.add(groupName);
+        return subscriptionGroupConfig;
+    }
+
+    @Override
+    protected void updateForbiddenValue(String group, String topic, Integer forbidden) {
+        // marked before for the persist of the update, and after in case a concurrent persist took the mark
+        this.changedForbiddens.add(group);
+        super.updateForbiddenValue(group, topic, forbidden);
+        this.changedForbiddens.add(group);
+    }
+
+    @Override
+    public void deleteSubscriptionGroupConfig(final String groupName) {
+        this.changedForbiddens.add(groupName);
+        super.deleteSubscriptionGroupConfig(groupName);
+        this.changedForbiddens.add(groupName);
+    }
+
+    @Override
+    public void disableConsume(final String groupName) {
+        super.disableConsume(groupName);
+        // the consume flag is cleared in place
+        this.changedGroups.add(groupName);
+    }
+
+    @Override
+    public synchronized void persist() {
+        try {
+            for (Iterator<String> it = this.changedGroups.iterator(); it.hasNext(); ) {
+                String group = it.next();
+                // removed before the config is read, a change made meanwhile is written by the next persist
+                it.remove();
+                SubscriptionGroupConfig config = this.subscriptionGroupTable.get(group);
+                if (config != null) {
+                    this.configJournal.put(GROUP_TABLE, group, JSON.toJSONBytes(config, SerializerFeature.BrowserCompatible));
+                } else {
+                    this.configJournal.delete(GROUP_TABLE, group);
+                }
+            }
+            for (Iterator<String> it = this.changedForbiddens.iterator(); it.hasNext(); ) {
+                String group = it.next();
+                it.remove();
+                ConcurrentMap<String, Integer> forbidden = getForbiddenTable().get(group);
+                if (forbidden != null) {
+                    this.configJournal.put(FORBIDDEN_TABLE, group, JSON.toJSONBytes(forbidden));
+                } else {
+                    this.configJournal.delete(FORBIDDEN_TABLE, group);
+                }
+            }
+            this.configJournal.meta(getDataVersion().encode());
+            this.configJournal.flush();
+        } catch (IOException e) {
+            log.error("persist subscription group journal {} exception", journalDirPath(), e);
+        }
+    }
+
+    private void writeSnapshot(ConfigJournal.SnapshotWriter writer) {
+        for (Map.Entry<String, SubscriptionGroupConfig> entry : this.subscriptionGroupTable.entrySet()) {
+            writer.put(GROUP_TABLE, entry.getKey(), JSON.toJSONBytes(entry.getValue(), SerializerFeature.BrowserCompatible));
+        }
+        for (Map.Entry<String, ConcurrentMap<String, Integer>> entry : getForbiddenTable().entrySet()) {
+            writer.put(FORBIDDEN_TABLE, entry.getKey(), JSON.toJSONBytes(entry.getValue()));
+        }
+        writer.meta(getDataVersion().encode());
+    }
+
+    @Override
+    public boolean stop() {
+        this.configJournal.shutdown();
+        return true;
+    }
+
+    public String journalDirPath() {
+        return BrokerPathConfigHelper.getSubscriptionGroupJournalPath(this.brokerController.getMessageStoreConfig().getStorePathRootDir());
+    }
+}
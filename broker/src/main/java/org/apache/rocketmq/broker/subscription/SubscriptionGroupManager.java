@@ -214,7 +214,7 @@ public class SubscriptionGroupManager extends ConfigManager {
         return topicForbidden;
     }
 
-    private void updateForbiddenValue(String group, String topic, Integer forbidden) {
+    protected void updateForbiddenValue(String group, String topic, Integer forbidden) {
         if (forbidden == null || forbidden <= 0) {
             this.forbiddenTable.remove(group);
             log.info("clear group forbidden, {}@{} ", group, topic);
@@ -313,6 +313,22 @@ public class SubscriptionGroupManager extends ConfigManager {
         return subscriptionGroupTable;
     }
 
+    /**
+     * Replaces the subscription group configs with the ones synchronized from another broker.
+     */
+    public void updateSubscriptionGroupTable(final Map<String, SubscriptionGroupConfig> newSubscriptionGroupTable) {
+        for (String group : this.subscriptionGroupTable.keySet()) {
+            if (!newSubscriptionGroupTable.containsKey(group)) {
+                removeSubscriptionGroupConfig(group);
+            }
+        }
+        for (SubscriptionGroupConfig config : newSubscriptionGroupTable.values()) {
+            if (!config.equals(getSubscriptionGroupConfig(config.getGroupName()))) {
+                putSubscriptionGroupConfig(config);
+            }
+        }
+    }
+
     public ConcurrentMap<String, ConcurrentMap<String, Integer>> getForbiddenTable() {
         return forbiddenTable;
     }
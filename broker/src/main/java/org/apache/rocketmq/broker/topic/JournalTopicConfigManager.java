@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.topic;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.broker.BrokerPathConfigHelper;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.config.ConfigJournal;
+import org.apache.rocketmq.remoting.protocol.DataVersion;
+import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
+import org.apache.rocketmq.remoting.protocol.body.KVTable;
+
+/**
+ * Persists the topic configs to a {@link ConfigJournal}: {@link #persist()} only appends the topics changed since the
+ * previous one, instead of rewriting topics.json. topics.json is taken over when no journal exists yet.
+ */
+public class JournalTopicConfigManager extends TopicConfigManager {
+    private static final byte TOPIC_TABLE = 0;
+
+    private final Set<String> changedTopics = ConcurrentHashMap.newKeySet();
+    private final ConfigJournal configJournal;
+
+    public JournalTopicConfigManager(BrokerController brokerController) {
+        super(brokerController, false);
+        this.configJournal = new ConfigJournal(journalDirPath(), ConfigJournal.DEFAULT_MIN_COMPACT_SIZE, this::writeSnapshot);
+        this.init();
+    }
+
+    @Override
+    public boolean load() {
+        if (!this.configJournal.exists()) {
+            log.info("topic config journal {} not found, load {}", journalDirPath(), configFilePath());
+            if (!super.load()) {
+                return false;
+            }
+            this.changedTopics.addAll(this.topicConfigTable.keySet());
+            return true;
+        }
+        try {
+            this.configJournal.load(new ConfigJournal.Handler() {
+                @Override
+                public void put(byte table, String key, byte[] value) {
+                    topicConfigTable.put(key, JSON.parseObject(value, TopicConfig.class));
+                }
+
+                @Override
+                public void delete(byte table, String key) {
+                    topicConfigTable.remove(key);
+                }
+
+                @Override
+                public void meta(byte[] value) {
+                    getDataVersion().assignNewOne(RemotingSerializable.decode(value, DataVersion.class));
+                }
+            });
+            log.info("load topic config journal {} OK, {} topics", journalDirPath(), this.topicConfigTable.size());
+            return true;
+        } catch (IOException e) {
+            log.error("load topic config journal {} failed", journalDirPath(), e);
+            return false;
+        }
+    }
+
+    @Override
+    protected TopicConfig putTopicConfig(TopicConfig topicConfig) {
+        TopicConfig oldTopicConfig = super.putTopicConfig(topicConfig);
+        this.changedTopics.add(topicConfig.getTopicName());
+        return oldTopicConfig;
+    }
+
+    @Override
+    protected TopicConfig removeTopicConfig(String topicName) {
+        TopicConfig topicConfig = super.removeTopicConfig(topicName);
+        this.changedTopics.add(topicName);
+        return topicConfig;
+    }
+
+    @Override
+    public void updateOrderTopicConfig(final KVTable orderKVTableFromNs) {
+        super.updateOrderTopicConfig(orderKVTableFromNs);
+        // the order flag is set in place
+        if (orderKVTableFromNs != null && orderKVTableFromNs.getTable() != null) {
+            this.changedTopics.addAll(orderKVTableFromNs.getTable().keySet());
+        }
+    }
+
+    @Override
+    public synchronized void persist() {
+        try {
+            for (Iterator<String> it = this.changedTopics.iterator(); it.hasNext(); ) {
+                String topic = it.next();
+                // removed before the config is read, a change made meanwhile is written by the next persist
+                it.remove();
+                TopicConfig topicConfig = this.topicConfigTable.get(topic);
+                if (topicConfig != null) {
+                    this.configJournal.put(TOPIC_TABLE, topic, JSON.toJSONBytes(topicConfig, SerializerFeature.BrowserCompatible));
+                } else {
+                    this.configJournal.delete(TOPIC_TABLE, topic);
+                }
+            }
+            this.configJournal.meta(getDataVersion().encode());
+            this.configJournal.flush();
+        } catch (IOException e) {
+            log.error("persist topic config journal {} exception", journalDirPath(), e);
+        }
+    }
+
+    private void writeSnapshot(ConfigJournal.SnapshotWriter writer) {
+        for (Map.Entry<String, TopicConfig> entry : this.topicConfigTable.entrySet()) {
+            writer.put(TOPIC_TABLE, entry.getKey(), JSON.toJSONBytes(entry.getValue(), SerializerFeature.BrowserCompatible));
+        }
+        writer.meta(getDataVersion().encode());
+    }
+
+    @Override
+    public boolean stop() {
+        this.configJournal.shutdown();
+        return true;
+    }
+
+    public String journalDirPath() {
+        return BrokerPathConfigHelper.getTopicConfigJournalPath(this.brokerController.getMessageStoreConfig().getStorePathRootDir());
+    }
+}
@@ -657,6 +657,22 @@ public class TopicConfigManager extends ConfigManager {
         return topicConfigTable;
     }
 
+    /**
+     * Replaces the topic configs with the ones synchronized from another broker.
+     */
+    public void updateTopicConfigTable(final Map<String, TopicConfig> newTopicConfigTable) {
+        for (String topic : this.topicConfigTable.keySet()) {
+            if (!newTopicConfigTable.containsKey(topic)) {
+                removeTopicConfig(topic);
+            }
+        }
+        for (TopicConfig topicConfig : newTopicConfigTable.values()) {
+            if (!topicConfig.equals(getTopicConfig(topicConfig.getTopicName()))) {
+                putTopicConfig(topicConfig);
+            }
+        }
+    }
+
     private Map<String, String> request(TopicConfig topicConfig) {
         return topicConfig.getAttributes() == null ? new HashMap<>() : topicConfig.getAttributes();
     }
@@ -26,21 +26,26 @@ import java.lang.reflect.Method;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.rocketmq.broker.out.BrokerOuterAPI;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.BrokerIdentity;
+import org.apache.rocketmq.common.MQVersion;
 import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.TopicConfig;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.remoting.netty.NettyClientConfig;
 import org.apache.rocketmq.remoting.netty.NettyRemotingClient;
 import org.apache.rocketmq.remoting.netty.NettyServerConfig;
+import org.apache.rocketmq.remoting.protocol.DataVersion;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 import org.apache.rocketmq.remoting.protocol.RemotingSerializable;
 import org.apache.rocketmq.remoting.protocol.RequestCode;
 import org.apache.rocketmq.remoting.protocol.ResponseCode;
 import org.apache.rocketmq.remoting.protocol.body.ClusterInfo;
+import org.apache.rocketmq.remoting.protocol.body.RegisterBrokerBody;
 import org.apache.rocketmq.remoting.protocol.body.TopicConfigSerializeWrapper;
 import org.apache.rocketmq.remoting.protocol.header.namesrv.QueryDataVersionResponseHeader;
 import org.apache.rocketmq.remoting.protocol.header.namesrv.RegisterBrokerResponseHeader;
@@ -206,6 +211,52 @@ public class BrokerOuterAPITest {
         assertEquals(2, registerBrokerResultList.size());
     }
 
+    @Test
+    public void test_registerDelta_fullRegisterOnMismatch() throws Exception {
+        init();
+        brokerOuterAPI.start();
+
+        DataVersion baseDataVersion = new DataVersion();
+        DataVersion dataVersion = new DataVersion();
+        dataVersion.assignNewOne(baseDataVersion);
+        dataVersion.nextVersion();
+        TopicConfigSerializeWrapper topicConfigSerializeWrapper = new TopicConfigSerializeWrapper();
+        topicConfigSerializeWrapper.setDataVersion(dataVersion);
+        topicConfigSerializeWrapper.getTopicConfigTable().put("TopicA", new TopicConfig("TopicA"));
+        topicConfigSerializeWrapper.getTopicConfigTable().put("TopicB", new TopicConfig("TopicB"));
+        TopicConfigSerializeWrapper deltaTopicConfigSerializeWrapper = new TopicConfigSerializeWrapper();
+        deltaTopicConfigSerializeWrapper.setDataVersion(dataVersion);
+        deltaTopicConfigSerializeWrapper.getTopicConfigTable().put("TopicB", new TopicConfig("TopicB"));
+
+        List<RegisterBrokerBody> fullBodies = new CopyOnWriteArrayList<>();
+        when(nettyRemotingClient.getAvailableNameSrvList()).thenReturn(Lists.asList(nameserver1, nameserver2, new String[] {nameserver3}));
+        when(nettyRemotingClient.invokeSync(anyString(), any(RemotingCommand.class), anyLong())).then(mock -> {
+            RemotingCommand request = mock.getArgument(1);
+            RegisterBrokerBody body = RegisterBrokerBody.decode(request.getBody(), false, MQVersion.Version.V5_2_0);
+            RemotingCommand response = RemotingCommand.createResponseCommand(RegisterBrokerResponseHeader.class);
+            response.setCode(ResponseCode.SUCCESS);
+            if (body.getBaseDataVersion() == null) {
+                fullBodies.add(body);
+            } else if (nameserver3.equals(mock.getArgument(0))) {
+                response.setCode(ResponseCode.BROKER_DATA_VERSION_MISMATCH);
+            } else {
+                assertEquals(baseDataVersion, body.getBaseDataVersion());
+                assertEquals(Collections.singleton("TopicB"), body.getTopicConfigSerializeWrapper().getTopicConfigTable().keySet());
+                assertEquals(Collections.singletonList("TopicC"), body.getDeletedTopicList());
+            }
+            return response;
+        });
+        List<RegisterBrokerResult> registerBrokerResultList = brokerOuterAPI.registerBrokerDelta(clusterName, brokerAddr,
+            brokerName, brokerId, "hasServerAddr", topicConfigSerializeWrapper, deltaTopicConfigSerializeWrapper,
+            baseDataVersion, Collections.singletonList("TopicC"), Lists.newArrayList(), timeOut, false, null,
+            new BrokerIdentity());
+
+        assertEquals(3, registerBrokerResultList.size());
+        assertEquals(1, fullBodies.size());
+        assertEquals(topicConfigSerializeWrapper.getTopicConfigTable().keySet(),
+            fullBodies.get(0).getTopicConfigSerializeWrapper().getTopicConfigTable().keySet());
+    }
+
     @Test
     public void testGetBrokerClusterInfo() throws Exception {
         init();
@@ -17,18 +17,29 @@
 
 package org.apache.rocketmq.broker.filter;
 
+import org.apache.rocketmq.broker.BrokerController;
 import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.filter.ExpressionType;
 import org.apache.rocketmq.filter.util.BitsArray;
+import org.apache.rocketmq.filter.util.BlockedBloomFilter;
+import org.apache.rocketmq.remoting.protocol.filter.FilterAPI;
+import org.apache.rocketmq.remoting.protocol.heartbeat.SubscriptionData;
+import org.apache.rocketmq.store.ConsumeQueueExt;
 import org.apache.rocketmq.store.DispatchRequest;
+import org.apache.rocketmq.store.MessageStore;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
 import org.junit.Test;
 
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class CommitLogDispatcherCalcBitMapTest {
 
@@ -188,4 +199,146 @@ public class CommitLogDispatcherCalcBitMapTest {
             }
         }
     }
+
+    @Test
+    public void testDispatch_matchSet() throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setEnableCalcFilterBitMap(true);
+        brokerConfig.setEnableFilterMatchSet(true);
+        brokerConfig.setFilterMatchSetSlotNum(16);
+        BrokerController brokerController = mock(BrokerController.class);
+        when(brokerController.getBrokerConfig()).thenReturn(brokerConfig);
+        when(brokerController.getMessageStoreConfig()).thenReturn(new MessageStoreConfig());
+        MessageStore messageStore = mock(MessageStore.class);
+        when(messageStore.getMaxPhyOffset()).thenReturn(100L);
+        when(brokerController.getMessageStore()).thenReturn(messageStore);
+
+        ConsumerFilterManager filterManager = new ConsumerFilterManager(brokerController);
+        for (int j = 0; j < 10; j++) {
+            filterManager.register("topic0", "CID_" + j, ConsumerFilterManagerTest.expr(j), ExpressionType.SQL92, 1);
+        }
+        // the replaced filter data gives its slot back
+        filterManager.register("topic0", "CID_0", ConsumerFilterManagerTest.expr(1), ExpressionType.SQL92, 2);
+
+        Set<Integer> slots = new HashSet<>();
+        for (ConsumerFilterData filterData : filterManager.get("topic0")) {
+            assertThat(filterData.getMatchSetSlot()).isBetween(0, 9);
+            slots.add(filterData.getMatchSetSlot());
+        }
+        assertThat(slots).hasSize(10);
+
+        CommitLogDispatcherCalcBitMap calcBitMap = new CommitLogDispatcherCalcBitMap(brokerConfig, filterManager);
+        long storeTime = System.currentTimeMillis() + 1000;
+        for (int i = 0; i < 10; i++) {
+            Map<String, String> properties = new HashMap<>(4);
+            properties.put("a", String.valueOf(i * 10 + 5));
+
+            DispatchRequest dispatchRequest = new DispatchRequest("topic0", 0, i * 100 + 123, 100,
+                (long) ("tags" + i).hashCode(), storeTime, i, null, UUID.randomUUID().toString(), 0, 0, properties);
+            calcBitMap.dispatch(dispatchRequest);
+
+            byte[] matchSet = dispatchRequest.getBitMap();
+            assertThat(filterManager.getFilterMatchSet().isMatchSet(matchSet)).isTrue();
+
+            ConsumeQueueExt.CqExtUnit cqExtUnit = new ConsumeQueueExt.CqExtUnit(0L, storeTime, matchSet);
+            for (ConsumerFilterData filterData : filterManager.get("topic0")) {
+                boolean expect = (Boolean) filterData.getCompiledExpression().evaluate(new MessageEvaluationContext(properties));
+                assertThat(FilterMatchSet.contains(matchSet, filterData.getMatchSetSlot())).isEqualTo(expect);
+
+                SubscriptionData subscriptionData = FilterAPI.build("topic0", filterData.getExpression(), ExpressionType.SQL92);
+                ExpressionMessageFilter messageFilter = new ExpressionMessageFilter(subscriptionData, filterData, filterManager);
+                assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, dispatchRequest.getCommitLogOffset())).isEqualTo(expect);
+                if (expect) {
+                    // not evaluated again
+                    assertThat(messageFilter.isMatchedByCommitLog(null, new HashMap<>())).isTrue();
+                }
+            }
+        }
+
+        // messages written before the slot was assigned, or of unknown offset, are evaluated by commit log
+        ConsumerFilterData filterData = filterManager.get("topic0", "CID_9");
+        assertThat(filterData.getMatchSetSinceOffset()).isEqualTo(100L);
+        byte[] matchSet = filterManager.getFilterMatchSet().create();
+        ConsumeQueueExt.CqExtUnit cqExtUnit = new ConsumeQueueExt.CqExtUnit(0L, storeTime, matchSet);
+        SubscriptionData subscriptionData = FilterAPI.build("topic0", filterData.getExpression(), ExpressionType.SQL92);
+        ExpressionMessageFilter messageFilter = new ExpressionMessageFilter(subscriptionData, filterData, filterManager);
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, 99L)).isTrue();
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit)).isTrue();
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, 100L)).isFalse();
+        assertThat(messageFilter.isMatchedByCommitLog(null, new HashMap<>())).isFalse();
+    }
+
+    @Test
+    public void testDispatch_matchSetLoadedBeforeStore() throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setEnableCalcFilterBitMap(true);
+        brokerConfig.setEnableFilterMatchSet(true);
+        brokerConfig.setFilterMatchSetSlotNum(16);
+        BrokerController brokerController = mock(BrokerController.class);
+        when(brokerController.getBrokerConfig()).thenReturn(brokerConfig);
+        when(brokerController.getMessageStoreConfig()).thenReturn(new MessageStoreConfig());
+
+        // loaded before the message store is created, the match sets stored before are not trusted
+        ConsumerFilterManager filterManager = new ConsumerFilterManager(brokerController);
+        filterManager.register("topic0", "CID_0", ConsumerFilterManagerTest.expr(0), ExpressionType.SQL92, 1);
+        ConsumerFilterData filterData = filterManager.get("topic0", "CID_0");
+        assertThat(filterData.getMatchSetSlot()).isEqualTo(0);
+        assertThat(filterData.getMatchSetSinceOffset()).isEqualTo(Long.MAX_VALUE);
+
+        byte[] matchSet = filterManager.getFilterMatchSet().create();
+        ConsumeQueueExt.CqExtUnit cqExtUnit = new ConsumeQueueExt.CqExtUnit(0L, System.currentTimeMillis() + 1000, matchSet);
+        SubscriptionData subscriptionData = FilterAPI.build("topic0", filterData.getExpression(), ExpressionType.SQL92);
+        ExpressionMessageFilter messageFilter = new ExpressionMessageFilter(subscriptionData, filterData, filterManager);
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, 1000L)).isTrue();
+
+        // trusted for the messages written after the store is recovered
+        filterManager.initMatchSetSinceOffset(1000L);
+        assertThat(filterData.getMatchSetSinceOffset()).isEqualTo(1000L);
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, 999L)).isTrue();
+        assertThat(messageFilter.isMatchedByConsumeQueue(0L, cqExtUnit, 1000L)).isFalse();
+
+        // not moved once set
+        filterManager.initMatchSetSinceOffset(2000L);
+        assertThat(filterData.getMatchSetSinceOffset()).isEqualTo(1000L);
+    }
+
+    @Test
+    public void testDispatch_blockedBloomFilter() throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        brokerConfig.setEnableCalcFilterBitMap(true);
+        brokerConfig.setEnableBlockedBloomFilter(true);
+        BrokerController brokerController = mock(BrokerController.class);
+        when(brokerController.getBrokerConfig()).thenReturn(brokerConfig);
+        when(brokerController.getMessageStoreConfig()).thenReturn(new MessageStoreConfig());
+
+        ConsumerFilterManager filterManager = new ConsumerFilterManager(brokerController);
+        assertThat(filterManager.getBloomFilter()).isInstanceOf(BlockedBloomFilter.class);
+        for (int j = 0; j < 10; j++) {
+            filterManager.register("topic0", "CID_" + j, ConsumerFilterManagerTest.expr(j), ExpressionType.SQL92, 1);
+        }
+
+        CommitLogDispatcherCalcBitMap calcBitMap = new CommitLogDispatcherCalcBitMap(brokerConfig, filterManager);
+        Map<String, String> properties = new HashMap<>(4);
+        properties.put("a", "15");
+        long storeTime = System.currentTimeMillis() + 1000;
+        DispatchRequest dispatchRequest = new DispatchRequest("topic0", 0, 123, 100, 0L, storeTime, 0, null,
+            UUID.randomUUID().toString(), 0, 0, properties);
+        calcBitMap.dispatch(dispatchRequest);
+        assertThat(filterManager.getBloomFilter().isBitMap(dispatchRequest.getBitMap())).isTrue();
+
+        // bit map calculated by the classic bloom filter before the switch, nobody matched
+        byte[] legacyBitMap = filterManager.getLegacyBloomFilter().createBits().bytes();
+
+        for (ConsumerFilterData filterData : filterManager.get("topic0")) {
+            boolean expect = (Boolean) filterData.getCompiledExpression().evaluate(new MessageEvaluationContext(properties));
+            SubscriptionData subscriptionData = FilterAPI.build("topic0", filterData.getExpression(), ExpressionType.SQL92);
+            ExpressionMessageFilter messageFilter = new ExpressionMessageFilter(subscriptionData, filterData, filterManager);
+            if (expect) {
+                assertThat(messageFilter.isMatchedByConsumeQueue(0L,
+                    new ConsumeQueueExt.CqExtUnit(0L, storeTime, dispatchRequest.getBitMap()))).isTrue();
+            }
+            assertThat(messageFilter.isMatchedByConsumeQueue(0L,
+                new ConsumeQueueExt.CqExtUnit(0L, storeTime, legacyBitMap))).isFalse();
+        }
+    }
 }
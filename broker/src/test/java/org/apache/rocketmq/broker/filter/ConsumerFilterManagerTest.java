@@ -22,13 +22,19 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.filter.ExpressionType;
+import org.apache.rocketmq.filter.expression.CompiledExpression;
 import org.apache.rocketmq.remoting.protocol.filter.FilterAPI;
 import org.apache.rocketmq.remoting.protocol.heartbeat.SubscriptionData;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ConsumerFilterManagerTest {
 
@@ -192,6 +198,22 @@ public class ConsumerFilterManagerTest {
         assertThat(filterDatas).isNullOrEmpty();
     }
 
+    @Test
+    public void testRegister_compiled() {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        BrokerController brokerController = mock(BrokerController.class);
+        when(brokerController.getBrokerConfig()).thenReturn(brokerConfig);
+        when(brokerController.getMessageStoreConfig()).thenReturn(new MessageStoreConfig());
+        ConsumerFilterManager filterManager = new ConsumerFilterManager(brokerController);
+
+        assertThat(filterManager.register("topic0", "CID_0", expr(1), ExpressionType.SQL92, 1)).isTrue();
+        assertThat(filterManager.get("topic0", "CID_0").getCompiledExpression()).isNotInstanceOf(CompiledExpression.class);
+
+        brokerConfig.setEnableCompiledSqlFilter(true);
+        assertThat(filterManager.register("topic0", "CID_0", expr(2), ExpressionType.SQL92, 2)).isTrue();
+        assertThat(filterManager.get("topic0", "CID_0").getCompiledExpression()).isInstanceOf(CompiledExpression.class);
+    }
+
     @Test
     public void testUnregister() {
         ConsumerFilterManager filterManager = gen(10, 10);
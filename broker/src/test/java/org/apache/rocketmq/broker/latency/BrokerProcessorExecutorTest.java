@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.latency;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
+import org.apache.rocketmq.remoting.netty.RequestTask;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.RequestCode;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class BrokerProcessorExecutorTest {
+
+    @Test
+    public void testNewExecutor() throws Exception {
+        BrokerConfig brokerConfig = new BrokerConfig();
+        BrokerProcessorExecutor executor = BrokerProcessorExecutor.newExecutor(brokerConfig, "send", 2,
+            new LinkedBlockingQueue<>(), new ThreadFactoryImpl("SendMessageThread_"));
+        assertThat(executor.getCorePoolSize()).isEqualTo(2);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(2);
+        executor.shutdown();
+
+        brokerConfig.setProcessorExecutorType(BrokerProcessorExecutor.TYPE_ADAPTIVE);
+        brokerConfig.setAdaptiveThreadPoolMaxFactor(4);
+        executor = BrokerProcessorExecutor.newExecutor(brokerConfig, "send", 2,
+            new LinkedBlockingQueue<>(), new ThreadFactoryImpl("SendMessageThread_"));
+        assertThat(executor.getCorePoolSize()).isEqualTo(2);
+        assertThat(executor.getMaximumPoolSize()).isEqualTo(8);
+        executor.shutdown();
+
+        brokerConfig.setProcessorExecutorType(BrokerProcessorExecutor.TYPE_VIRTUAL);
+        brokerConfig.setVirtualThreadPoolNums(64);
+        executor = BrokerProcessorExecutor.newExecutor(brokerConfig, "send", 2,
+            new LinkedBlockingQueue<>(), new ThreadFactoryImpl("SendMessageThread_"));
+        if (BrokerProcessorExecutor.newVirtualThreadFactory("test") != null) {
+            assertThat(executor.getMaximumPoolSize()).isEqualTo(64);
+        } else {
+            assertThat(executor.getMaximumPoolSize()).isEqualTo(2);
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(done::countDown);
+        assertThat(done.await(3, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+    }
+
+    @Test
+    public void testAdjustPoolSize() throws Exception {
+        BrokerProcessorExecutor executor = new BrokerProcessorExecutor("pull", 2, 8,
+            new LinkedBlockingQueue<>(), new ThreadFactoryImpl("PullMessageThread_"));
+        CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 4; i++) {
+                executor.submit(new RequestTask(() -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException ignored) {
+                    }
+                }, null, RemotingCommand.createRequestCommand(RequestCode.PULL_MESSAGE, null)));
+            }
+            TimeUnit.MILLISECONDS.sleep(50);
+            executor.adjustPoolSize(10);
+            assertThat(executor.getCorePoolSize()).isEqualTo(3);
+            executor.adjustPoolSize(10);
+            assertThat(executor.getCorePoolSize()).isEqualTo(4);
+
+            blocked.countDown();
+            await().atMost(3, TimeUnit.SECONDS).until(() -> executor.getActiveCount() == 0);
+            // the first adjustment may still see the wait of the requests run after the last one
+            for (int i = 0; i < 8; i++) {
+                executor.adjustPoolSize(10);
+            }
+            assertThat(executor.getCorePoolSize()).isEqualTo(2);
+
+            BrokerProcessorExecutor fixed = new BrokerProcessorExecutor("ack", 2, 2,
+                new LinkedBlockingQueue<>(), new ThreadFactoryImpl("AckMessageThread_"));
+            fixed.adjustPoolSize(0);
+            assertThat(fixed.getCorePoolSize()).isEqualTo(2);
+            fixed.shutdown();
+        } finally {
+            blocked.countDown();
+            executor.shutdown();
+        }
+    }
+}
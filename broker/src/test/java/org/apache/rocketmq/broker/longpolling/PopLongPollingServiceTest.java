@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.broker.longpolling;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.KeyBuilder;
+import org.apache.rocketmq.remoting.netty.NettyRequestProcessor;
+import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.RequestCode;
+import org.apache.rocketmq.remoting.protocol.header.PopMessageRequestHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PopLongPollingServiceTest {
+
+    private static final String TEST_TOPIC = "TEST_TOPIC";
+
+    private static final String TEST_GROUP = "TEST_GROUP";
+
+    private static final int DEFAULT_QUEUE_ID = 0;
+
+    @Mock
+    private BrokerController brokerController;
+
+    @Mock
+    private NettyRequestProcessor processor;
+
+    @Mock
+    private ChannelHandlerContext ctx;
+
+    @Mock
+    private Channel channel;
+
+    private final BrokerConfig brokerConfig = new BrokerConfig();
+
+    private final ExecutorService pullMessageExecutor = Executors.newSingleThreadExecutor();
+
+    private PopLongPollingService popLongPollingService;
+
+    @Before
+    public void before() {
+        brokerConfig.setEnableLongPollingTimerWheel(true);
+        when(brokerController.getBrokerConfig()).thenReturn(brokerConfig);
+        popLongPollingService = new PopLongPollingService(brokerController, processor, false);
+        popLongPollingService.start();
+    }
+
+    @After
+    public void after() {
+        popLongPollingService.shutdown();
+        pullMessageExecutor.shutdown();
+    }
+
+    @Test
+    public void testTimerWheelTimeout() throws Exception {
+        when(brokerController.getPullMessageExecutor()).thenReturn(pullMessageExecutor);
+        when(ctx.channel()).thenReturn(channel);
+        when(channel.isActive()).thenReturn(true);
+
+        PopMessageRequestHeader requestHeader = new PopMessageRequestHeader();
+        requestHeader.setConsumerGroup(TEST_GROUP);
+        requestHeader.setTopic(TEST_TOPIC);
+        requestHeader.setQueueId(DEFAULT_QUEUE_ID);
+        requestHeader.setBornTime(System.currentTimeMillis());
+        requestHeader.setPollTime(50);
+        RemotingCommand request = RemotingCommand.createRequestCommand(RequestCode.POP_MESSAGE, requestHeader);
+
+        PollingResult result = popLongPollingService.polling(ctx, request, new PollingHeader(requestHeader));
+        assertThat(result).isEqualTo(PollingResult.POLLING_SUC);
+        assertThat(request.isSuspended()).isTrue();
+
+        // woken by the timer wheel only, the service thread does no periodic scan with it
+        verify(processor, timeout(3000)).processRequest(ctx, request);
+        String key = KeyBuilder.buildPollingKey(TEST_TOPIC, TEST_GROUP, DEFAULT_QUEUE_ID);
+        assertThat(popLongPollingService.getPollingMap().get(key)).isEmpty();
+    }
+}
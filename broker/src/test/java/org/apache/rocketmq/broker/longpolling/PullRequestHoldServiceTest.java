@@ -120,4 +120,26 @@ public class PullRequestHoldServiceTest {
         Assertions.assertThatCode(() -> pullRequestHoldService.notifyMasterOnline()).doesNotThrowAnyException();
     }
 
+    @Test
+    public void timerWheelTimeoutTest() throws InterruptedException {
+        brokerConfig.setEnableLongPollingTimerWheel(true);
+        when(brokerController.getMessageStore()).thenReturn(defaultMessageStore);
+        when(defaultMessageStore.getMaxOffsetInQueue(TEST_TOPIC, DEFAULT_QUEUE_ID)).thenReturn(0L);
+        PullRequestHoldService timerWheelHoldService = new PullRequestHoldService(brokerController);
+        timerWheelHoldService.start();
+        try {
+            PullRequest request = new PullRequest(remotingCommand, channel, 50, System.currentTimeMillis(), 0L,
+                subscriptionData, defaultMessageFilter);
+            timerWheelHoldService.suspendPullRequest(TEST_TOPIC, DEFAULT_QUEUE_ID, request);
+            Assertions.assertThat(request.isComplete()).isFalse();
+            long deadline = System.currentTimeMillis() + 3000;
+            while (!request.isComplete() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertThat(request.isComplete()).isTrue();
+            Assertions.assertThat(timerWheelHoldService.pullRequestTable.get(TEST_TOPIC + "@" + DEFAULT_QUEUE_ID).isEmpty()).isTrue();
+        } finally {
+            timerWheelHoldService.shutdown();
+        }
+    }
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.broker.offset;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.MixAll;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.store.MessageStore;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactConsumerOffsetManagerTest {
+
+    private static final String TOPIC = "FooBar";
+    private static final String GROUP = "FooBarGroup";
+
+    private String storePath;
+    private BrokerController brokerController;
+    private CompactConsumerOffsetManager offsetManager;
+
+    @Before
+    public void init() {
+        storePath = System.getProperty("java.io.tmpdir") + File.separator + "compact-offset-" + UUID.randomUUID();
+        brokerController = Mockito.mock(BrokerController.class);
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        Mockito.when(brokerController.getMessageStoreConfig()).thenReturn(messageStoreConfig);
+        Mockito.when(brokerController.getBrokerConfig()).thenReturn(new BrokerConfig());
+        offsetManager = new CompactConsumerOffsetManager(brokerController);
+    }
+
+    @After
+    public void destroy() {
+        offsetManager.stop();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testCommitAndQuery() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 1, 2L);
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 9, 3L);
+
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, 1)).isEqualTo(2L);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, 9)).isEqualTo(3L);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, 0)).isEqualTo(-1L);
+        assertThat(offsetManager.queryOffset(GROUP, "InvalidTopic", 1)).isEqualTo(-1L);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC)).containsEntry(1, 2L).containsEntry(9, 3L).hasSize(2);
+        assertThat(offsetManager.getOffsetTable()).containsOnlyKeys(TOPIC + "@" + GROUP);
+        assertThat(offsetManager.whichGroupByTopic(TOPIC)).containsExactly(GROUP);
+    }
+
+    @Test
+    public void testPersistAndLoad() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.commitOffset("127.0.0.1", "OtherGroup", TOPIC, 0, 20L);
+        offsetManager.persist();
+        // appended to the journal written by the first persist
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 11L);
+        offsetManager.commitOffset("127.0.0.1", GROUP, "OtherTopic", 3, 30L);
+        offsetManager.removeOffset("OtherGroup");
+        offsetManager.persist();
+        long counter = offsetManager.getDataVersion().getCounter().get();
+        offsetManager.stop();
+
+        CompactConsumerOffsetManager loaded = new CompactConsumerOffsetManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.queryOffset(GROUP, TOPIC, 0)).isEqualTo(11L);
+        assertThat(loaded.queryOffset(GROUP, "OtherTopic", 3)).isEqualTo(30L);
+        assertThat(loaded.queryOffset("OtherGroup", TOPIC, 0)).isEqualTo(-1L);
+        assertThat(loaded.getDataVersion().getCounter().get()).isEqualTo(counter);
+        loaded.stop();
+    }
+
+    @Test
+    public void testLoadTornJournal() throws Exception {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.persist();
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 11L);
+        offsetManager.persist();
+        offsetManager.stop();
+
+        File journal = new File(offsetManager.journalFilePath());
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            // cut into the last data version record
+            file.setLength(file.length() - 3);
+        }
+
+        CompactConsumerOffsetManager loaded = new CompactConsumerOffsetManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.queryOffset(GROUP, TOPIC, 0)).isEqualTo(11L);
+
+        // the first persist rewrites the journal without the torn record
+        loaded.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 12L);
+        loaded.persist();
+        loaded.stop();
+        CompactConsumerOffsetManager reloaded = new CompactConsumerOffsetManager(brokerController);
+        assertThat(reloaded.load()).isTrue();
+        assertThat(reloaded.queryOffset(GROUP, TOPIC, 0)).isEqualTo(12L);
+        reloaded.stop();
+    }
+
+    @Test
+    public void testTakeOverJsonFile() {
+        ConsumerOffsetManager jsonManager = new ConsumerOffsetManager(brokerController);
+        ConcurrentMap<Integer, Long> offsets = new ConcurrentHashMap<>();
+        offsets.put(0, 1L);
+        offsets.put(1, 3L);
+        jsonManager.getOffsetTable().put(TOPIC + "@" + GROUP, offsets);
+        jsonManager.persist();
+
+        assertThat(offsetManager.load()).isTrue();
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC)).containsEntry(0, 1L).containsEntry(1, 3L);
+        offsetManager.persist();
+        assertThat(new File(offsetManager.journalFilePath()).exists()).isTrue();
+    }
+
+    @Test
+    public void testTakeOverRocksDB() {
+        if (MixAll.isMac()) {
+            return;
+        }
+        brokerController.getMessageStoreConfig().setEnableRocksDBStore(true);
+        RocksDBConsumerOffsetManager rocksDBManager = new RocksDBConsumerOffsetManager(brokerController);
+        assertThat(rocksDBManager.load()).isTrue();
+        rocksDBManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 5L);
+        rocksDBManager.persist();
+        rocksDBManager.stop();
+
+        assertThat(offsetManager.load()).isTrue();
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, 0)).isEqualTo(5L);
+    }
+
+    @Test
+    public void testWriteJsonOnStop() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.persist();
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 11L);
+        offsetManager.persist();
+        offsetManager.stop();
+
+        // switched back to the JSON manager
+        ConsumerOffsetManager jsonManager = new ConsumerOffsetManager(brokerController);
+        assertThat(jsonManager.load()).isTrue();
+        assertThat(jsonManager.queryOffset(GROUP, TOPIC, 0)).isEqualTo(11L);
+    }
+
+    @Test
+    public void testPersistAfterStop() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.persist();
+        offsetManager.stop();
+        File journal = new File(offsetManager.journalFilePath());
+        assertThat(journal.delete()).isTrue();
+
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 11L);
+        offsetManager.persist();
+        assertThat(journal.exists()).isFalse();
+    }
+
+    @Test
+    public void testCommitNegativeQueueId() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, -1, 10L);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, -1)).isEqualTo(-1L);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC)).isNull();
+    }
+
+    @Test
+    public void testQueryMinOffsetInAllGroup() {
+        MessageStore messageStore = Mockito.mock(MessageStore.class);
+        Mockito.when(brokerController.getMessageStore()).thenReturn(messageStore);
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.commitOffset("127.0.0.1", GROUP, "OtherTopic", 0, 10L);
+        offsetManager.commitOffset("127.0.0.1", "OtherGroup", TOPIC, 0, 20L);
+
+        assertThat(offsetManager.queryMinOffsetInAllGroup(TOPIC, null)).containsEntry(0, 10L);
+        assertThat(offsetManager.queryMinOffsetInAllGroup(TOPIC, GROUP)).containsEntry(0, 20L);
+        // the offsets of the filtered groups are removed on all topics
+        assertThat(offsetManager.queryOffset(GROUP, "OtherTopic")).isNull();
+    }
+
+    @Test
+    public void testCleanOffsetByTopic() {
+        offsetManager.commitOffset("127.0.0.1", GROUP, TOPIC, 0, 10L);
+        offsetManager.cleanOffsetByTopic("InvalidTopic");
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC, 0)).isEqualTo(10L);
+        offsetManager.cleanOffsetByTopic(TOPIC);
+        assertThat(offsetManager.queryOffset(GROUP, TOPIC)).isNull();
+    }
+}
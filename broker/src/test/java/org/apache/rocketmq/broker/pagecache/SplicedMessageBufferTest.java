@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.pagecache;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.store.GetMessageResult;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SplicedMessageBufferTest {
+
+    private static final String RETRY_TOPIC = "%RETRY%group_topic";
+    private static final String TOPIC = "topic";
+
+    @Test
+    public void testSplice() throws Exception {
+        byte[] encoded = encode(buildMessage("body-0"));
+        SelectMappedBufferResult origin = new SelectMappedBufferResult(100, ByteBuffer.wrap(encoded), encoded.length, null);
+
+        SplicedMessageBuffer spliced = splice(origin, origin.getByteBuffer());
+        ByteBuffer whole = concat(spliced);
+        assertThat(whole.remaining()).isEqualTo(spliced.getSize());
+        assertThat(spliced.getStartOffset()).isEqualTo(100);
+
+        MessageExt decoded = MessageDecoder.decode(whole, true, false, true);
+        assertThat(decoded.getStoreSize()).isEqualTo(spliced.getSize());
+        assertThat(decoded.getTopic()).isEqualTo(TOPIC);
+        assertThat(new String(decoded.getBody(), MessageDecoder.CHARSET_UTF8)).isEqualTo("body-0");
+        assertThat(decoded.getProperty(MessageConst.PROPERTY_POP_CK)).isEqualTo("ck");
+        assertThat(decoded.getProperty("key")).isEqualTo("value");
+        assertThat(decoded.getQueueOffset()).isEqualTo(7);
+        assertThat(decoded.getStoreTimestamp()).isEqualTo(2000);
+        assertThat(spliced.getByteBuffer().getLong(MessageDecoder.MESSAGE_STORE_TIMESTAMP_POSITION)).isEqualTo(2000);
+
+        // the body is not copied
+        assertThat(spliced.getSegments()[1].hasArray()).isTrue();
+        assertThat(spliced.getSegments()[1].array()).isSameAs(encoded);
+    }
+
+    @Test
+    public void testTransferSplicedMessages() throws Exception {
+        byte[] batch = concat(encode(buildMessage("body-0")), encode(buildMessage("body-1")));
+        SelectMappedBufferResult origin = new SelectMappedBufferResult(0, ByteBuffer.wrap(batch), batch.length, null);
+        byte[] plain = encode(buildMessage("body-2"));
+
+        GetMessageResult getMessageResult = new GetMessageResult();
+        ByteBuffer first = origin.getByteBuffer().duplicate();
+        first.limit(first.getInt(0));
+        ByteBuffer second = origin.getByteBuffer().duplicate();
+        second.position(first.limit());
+        getMessageResult.addMessage(splice(origin, first));
+        getMessageResult.addMessage(splice(origin, second));
+        getMessageResult.addMessage(new SelectMappedBufferResult(0, ByteBuffer.wrap(plain), plain.length, null));
+
+        ByteBuffer header = ByteBuffer.allocate(4);
+        header.putInt(getMessageResult.getBufferTotalSize());
+        header.flip();
+        ManyMessageTransfer transfer = new ManyMessageTransfer(header, getMessageResult);
+        assertThat(transfer.count()).isEqualTo(4 + getMessageResult.getBufferTotalSize());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        while (transfer.transferred() < transfer.count()) {
+            transfer.transferTo(channel, transfer.transferred());
+        }
+        assertThat(transfer.position()).isEqualTo(transfer.count());
+
+        ByteBuffer body = ByteBuffer.wrap(out.toByteArray());
+        assertThat(body.getInt()).isEqualTo(getMessageResult.getBufferTotalSize());
+        List<MessageExt> messages = MessageDecoder.decodesBatch(body, true, false, true);
+        assertThat(messages).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            assertThat(new String(messages.get(i).getBody(), MessageDecoder.CHARSET_UTF8)).isEqualTo("body-" + i);
+        }
+        assertThat(messages.get(0).getTopic()).isEqualTo(TOPIC);
+        assertThat(messages.get(1).getProperty(MessageConst.PROPERTY_POP_CK)).isEqualTo("ck");
+        assertThat(messages.get(2).getTopic()).isEqualTo(RETRY_TOPIC);
+    }
+
+    private static SplicedMessageBuffer splice(SelectMappedBufferResult origin, ByteBuffer message) {
+        MessageExt messageExt = MessageDecoder.decode(message.duplicate(), false, false, true);
+        messageExt.getProperties().putIfAbsent(MessageConst.PROPERTY_POP_CK, "ck");
+        messageExt.setTopic(TOPIC);
+        return SplicedMessageBuffer.splice(origin, message, messageExt);
+    }
+
+    private static MessageExt buildMessage(String body) {
+        MessageExt messageExt = new MessageExt();
+        messageExt.setTopic(RETRY_TOPIC);
+        messageExt.setBody(body.getBytes(MessageDecoder.CHARSET_UTF8));
+        messageExt.setQueueId(1);
+        messageExt.setQueueOffset(7);
+        messageExt.setBornTimestamp(1000);
+        messageExt.setStoreTimestamp(2000);
+        messageExt.setBornHost(new InetSocketAddress("127.0.0.1", 8000));
+        messageExt.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        MessageAccessor.putProperty(messageExt, "key", "value");
+        return messageExt;
+    }
+
+    private static byte[] encode(MessageExt messageExt) throws Exception {
+        return MessageDecoder.encode(messageExt, false);
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        return ByteBuffer.allocate(first.length + second.length).put(first).put(second).array();
+    }
+
+    private static ByteBuffer concat(SplicedMessageBuffer spliced) {
+        ByteBuffer whole = ByteBuffer.allocate(spliced.getSize());
+        for (ByteBuffer segment : spliced.getSegments()) {
+            whole.put(segment.duplicate());
+        }
+        whole.flip();
+        return whole;
+    }
+}
@@ -122,4 +122,50 @@ public class PopBufferMergeServiceTest {
             popBufferMergeService.shutdown(true);
         }
     }
+
+    @Test(timeout = 10_000)
+    public void testAckedCkLeavesBuffer() throws Exception {
+        Assume.assumeFalse(MixAll.isWindows());
+        PopBufferMergeService popBufferMergeService = new PopBufferMergeService(brokerController, popMessageProcessor);
+        popBufferMergeService.start();
+        long popTime = System.currentTimeMillis();
+        PopCheckPoint ck = new PopCheckPoint();
+        ck.setBitMap(0);
+        ck.setNum((byte) 2);
+        ck.setPopTime(popTime);
+        ck.setInvisibleTime(30_000);
+        ck.setStartOffset(100);
+        ck.setCId(group);
+        ck.setTopic(topic);
+        ck.setQueueId(0);
+        try {
+            assertThat(popBufferMergeService.addCk(ck, 0, 100, 102L)).isTrue();
+            assertThat(popBufferMergeService.getBufferedCKSize()).isEqualTo(1);
+            for (long offset = 100; offset < 102; offset++) {
+                AckMsg ackMsg = new AckMsg();
+                ackMsg.setAckOffset(offset);
+                ackMsg.setStartOffset(100);
+                ackMsg.setConsumerGroup(group);
+                ackMsg.setTopic(topic);
+                ackMsg.setQueueId(0);
+                ackMsg.setPopTime(popTime);
+                assertThat(popBufferMergeService.addAk(0, ackMsg)).isTrue();
+            }
+            while (popBufferMergeService.getBufferedCKSize() > 0) {
+                Thread.sleep(10);
+            }
+            assertThat(popBufferMergeService.buffer).isEmpty();
+        } finally {
+            popBufferMergeService.shutdown(true);
+        }
+    }
+
+    @Test
+    public void testCheckPointKey() {
+        PopBufferMergeService.CheckPointKey key = new PopBufferMergeService.CheckPointKey(topic, group, 1, 100L, 1000L, null);
+        assertThat(key).isEqualTo(new PopBufferMergeService.CheckPointKey(topic, group, 1, 100L, 1000L, null));
+        assertThat(key.hashCode()).isEqualTo(new PopBufferMergeService.CheckPointKey(topic, group, 1, 100L, 1000L, null).hashCode());
+        assertThat(key).isNotEqualTo(new PopBufferMergeService.CheckPointKey(topic, group, 1, 100L, 1001L, null));
+        assertThat(key).isNotEqualTo(new PopBufferMergeService.CheckPointKey(topic, group, 1, 100L, 1000L, "broker-a"));
+    }
 }
@@ -37,6 +37,7 @@ import org.apache.rocketmq.common.utils.NetworkUtil;
 import org.apache.rocketmq.remoting.protocol.subscription.SubscriptionGroupConfig;
 import org.apache.rocketmq.store.MessageStore;
 import org.apache.rocketmq.store.pop.AckMsg;
+import org.apache.rocketmq.store.pop.MergedAckMsg;
 import org.apache.rocketmq.store.pop.PopCheckPoint;
 import org.apache.rocketmq.store.timer.TimerMessageStore;
 import org.junit.Before;
@@ -47,6 +48,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -204,6 +206,56 @@ public class PopReviveServiceTest {
         assertEquals(maxReviveOffset, commitOffsetCaptor.getValue().longValue());
     }
 
+    @Test
+    public void testAckWithoutCkNotMoveEndTime() throws Throwable {
+        brokerConfig.setEnableSkipLongAwaitingAck(false);
+        when(consumerOffsetManager.queryOffset(PopAckConstants.REVIVE_GROUP, REVIVE_TOPIC, REVIVE_QUEUE_ID))
+            .thenReturn(0L);
+        List<MessageExt> reviveMessageExtList = new ArrayList<>();
+        long basePopTime = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1);
+        PopCheckPoint ck = buildPopCheckPoint(1, basePopTime, 1);
+        reviveMessageExtList.add(buildCkMsg(ck));
+        // the ack of a check point not read yet, to be delivered later
+        long ackDeliverMs = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        reviveMessageExtList.add(buildAckMsg(buildAckMsg(2, basePopTime), ackDeliverMs, 2, basePopTime));
+        doReturn(reviveMessageExtList, new ArrayList<>()).when(popReviveService).getReviveMessage(anyLong(), anyInt());
+
+        PopReviveService.ConsumeReviveObj consumeReviveObj = new PopReviveService.ConsumeReviveObj();
+        popReviveService.consumeReviveMessage(consumeReviveObj);
+
+        assertEquals(1, consumeReviveObj.map.size());
+        assertTrue(consumeReviveObj.endTime < ackDeliverMs);
+    }
+
+    @Test
+    public void testMergedAck() throws Throwable {
+        when(consumerOffsetManager.queryOffset(PopAckConstants.REVIVE_GROUP, REVIVE_TOPIC, REVIVE_QUEUE_ID))
+            .thenReturn(0L);
+        List<MessageExt> reviveMessageExtList = new ArrayList<>();
+        long basePopTime = System.currentTimeMillis();
+        PopCheckPoint ck1 = buildPopCheckPoint(1, basePopTime, 1);
+        PopCheckPoint ck2 = buildPopCheckPoint(2, basePopTime, 2);
+        reviveMessageExtList.add(buildCkMsg(ck1));
+        reviveMessageExtList.add(buildCkMsg(ck2));
+
+        MergedAckMsg mergedAckMsg = new MergedAckMsg();
+        mergedAckMsg.getAckMsgList().add(buildAckMsg(1, basePopTime));
+        mergedAckMsg.getAckMsgList().add(buildAckMsg(2, basePopTime));
+        MessageExtBrokerInner mergedAckMessage = buildAckMsg(buildAckMsg(1, basePopTime), ck1.getReviveTime(), 3, basePopTime);
+        mergedAckMessage.setTags(PopAckConstants.MERGED_ACK_TAG);
+        mergedAckMessage.setBody(mergedAckMsg.encode());
+        reviveMessageExtList.add(mergedAckMessage);
+        doReturn(reviveMessageExtList, new ArrayList<>()).when(popReviveService).getReviveMessage(anyLong(), anyInt());
+
+        PopReviveService.ConsumeReviveObj consumeReviveObj = new PopReviveService.ConsumeReviveObj();
+        popReviveService.consumeReviveMessage(consumeReviveObj);
+
+        assertEquals(2, consumeReviveObj.map.size());
+        for (PopCheckPoint point : consumeReviveObj.map.values()) {
+            assertEquals(1, point.getBitMap());
+        }
+    }
+
     public static PopCheckPoint buildPopCheckPoint(long startOffset, long popTime, long reviveOffset) {
         PopCheckPoint ck = new PopCheckPoint();
         ck.setStartOffset(startOffset);
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.subscription;
+
+import java.io.File;
+import java.util.UUID;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.remoting.protocol.subscription.SubscriptionGroupConfig;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JournalSubscriptionGroupManagerTest {
+    private String storePath;
+    private BrokerController brokerController;
+    private JournalSubscriptionGroupManager subscriptionGroupManager;
+
+    @Before
+    public void init() {
+        storePath = System.getProperty("java.io.tmpdir") + File.separator + "journal-group-" + UUID.randomUUID();
+        brokerController = Mockito.mock(BrokerController.class);
+        Mockito.when(brokerController.getBrokerConfig()).thenReturn(new BrokerConfig());
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        Mockito.when(brokerController.getMessageStoreConfig()).thenReturn(messageStoreConfig);
+        subscriptionGroupManager = new JournalSubscriptionGroupManager(brokerController);
+        subscriptionGroupManager.load();
+    }
+
+    @After
+    public void destroy() {
+        subscriptionGroupManager.stop();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testPersistAndLoad() {
+        SubscriptionGroupConfig groupA = new SubscriptionGroupConfig();
+        groupA.setGroupName("GroupA");
+        subscriptionGroupManager.updateSubscriptionGroupConfig(groupA);
+        SubscriptionGroupConfig groupB = new SubscriptionGroupConfig();
+        groupB.setGroupName("GroupB");
+        subscriptionGroupManager.updateSubscriptionGroupConfig(groupB);
+        subscriptionGroupManager.setForbidden("GroupB", "TopicB", 1);
+        subscriptionGroupManager.deleteSubscriptionGroupConfig("GroupA");
+        subscriptionGroupManager.disableConsume("GroupB");
+        subscriptionGroupManager.persist();
+        subscriptionGroupManager.stop();
+
+        JournalSubscriptionGroupManager loaded = new JournalSubscriptionGroupManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.containsSubscriptionGroup("GroupA")).isFalse();
+        assertThat(loaded.getSubscriptionGroupTable().get("GroupB").isConsumeEnable()).isFalse();
+        assertThat(loaded.getForbidden("GroupB", "TopicB", 1)).isTrue();
+        assertThat(loaded.getDataVersion()).isEqualTo(subscriptionGroupManager.getDataVersion());
+        loaded.stop();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.broker.topic;
+
+import java.io.File;
+import java.util.UUID;
+import org.apache.rocketmq.broker.BrokerController;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.TopicConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JournalTopicConfigManagerTest {
+    private String storePath;
+    private JournalTopicConfigManager topicConfigManager;
+    @Mock
+    private BrokerController brokerController;
+
+    @Mock
+    private DefaultMessageStore defaultMessageStore;
+
+    @Before
+    public void init() {
+        storePath = System.getProperty("java.io.tmpdir") + File.separator + "journal-topic-" + UUID.randomUUID();
+        when(brokerController.getBrokerConfig()).thenReturn(new BrokerConfig());
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        when(brokerController.getMessageStoreConfig()).thenReturn(messageStoreConfig);
+        when(brokerController.getMessageStore()).thenReturn(defaultMessageStore);
+        topicConfigManager = new JournalTopicConfigManager(brokerController);
+        topicConfigManager.load();
+    }
+
+    @After
+    public void destroy() {
+        topicConfigManager.stop();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testPersistAndLoad() {
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicA", 4, 4));
+        topicConfigManager.updateTopicConfig(new TopicConfig("TopicB", 8, 8));
+        topicConfigManager.deleteTopicConfig("TopicA");
+        topicConfigManager.updateTopicUnitFlag("TopicB", true);
+        long counter = topicConfigManager.getDataVersion().getCounter().get();
+        topicConfigManager.stop();
+
+        JournalTopicConfigManager loaded = new JournalTopicConfigManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.selectTopicConfig("TopicA")).isNull();
+        assertThat(loaded.selectTopicConfig("TopicB")).isEqualTo(topicConfigManager.selectTopicConfig("TopicB"));
+        assertThat(loaded.getDataVersion().getCounter().get()).isEqualTo(counter);
+        loaded.stop();
+    }
+
+    @Test
+    public void testTakeOverJsonFile() {
+        TopicConfigManager jsonManager = new TopicConfigManager(brokerController);
+        jsonManager.updateTopicConfig(new TopicConfig("TopicA", 4, 4));
+
+        JournalTopicConfigManager loaded = new JournalTopicConfigManager(brokerController);
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.selectTopicConfig("TopicA")).isEqualTo(jsonManager.selectTopicConfig("TopicA"));
+        loaded.persist();
+        loaded.stop();
+
+        loaded = new JournalTopicConfigManager(brokerController);
+        assertThat(new File(loaded.journalDirPath()).exists()).isTrue();
+        assertThat(loaded.load()).isTrue();
+        assertThat(loaded.selectTopicConfig("TopicA")).isEqualTo(jsonManager.selectTopicConfig("TopicA"));
+        loaded.stop();
+    }
+}
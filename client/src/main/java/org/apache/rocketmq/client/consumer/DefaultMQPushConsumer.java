@@ -293,6 +293,12 @@ public class DefaultMQPushConsumer extends ClientConfig implements MQPushConsume
     // force to use client rebalance
     private boolean clientRebalance = true;
 
+    /**
+     * Whether to cache the pulled messages of each queue in an offset indexed ring instead of a tree map, consume
+     * threads then remove consumed messages without contending on the process queue lock.
+     */
+    private boolean enableOffsetRingProcessQueue = false;
+
     /**
      * Default constructor.
      */
@@ -1013,6 +1019,14 @@ public class DefaultMQPushConsumer extends ClientConfig implements MQPushConsume
         this.clientRebalance = clientRebalance;
     }
 
+    public boolean isEnableOffsetRingProcessQueue() {
+        return enableOffsetRingProcessQueue;
+    }
+
+    public void setEnableOffsetRingProcessQueue(boolean enableOffsetRingProcessQueue) {
+        this.enableOffsetRingProcessQueue = enableOffsetRingProcessQueue;
+    }
+
     public MessageQueueListener getMessageQueueListener() {
         return messageQueueListener;
     }
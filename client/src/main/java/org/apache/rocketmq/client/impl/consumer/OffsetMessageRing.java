@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.client.impl.consumer;
+
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.rocketmq.common.message.MessageExt;
+
+/**
+ * Cached messages of a {@link ProcessQueue} indexed by queue offset in a ring of slots.
+ * <p>
+ * Removing a message only clears its slot with a CAS, so the consume threads of one queue do not serialize on a lock
+ * and no map entries are allocated or offsets boxed. The lowest offset still cached is kept as a low-water mark,
+ * which is advanced by the thread that removes the message at the mark. Adding messages, advancing the mark and
+ * growing the ring are serialized by a lock; messages are added once per pulled batch.
+ */
+class OffsetMessageRing {
+    /**
+     * Put into the slots of a ring being copied to a larger one, removers then retry on the new ring.
+     */
+    private static final MessageExt MOVED = new MessageExt();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicInteger size = new AtomicInteger();
+    private volatile AtomicReferenceArray<MessageExt> slots;
+    /**
+     * Low-water mark, every cached offset is in [minOffset, maxOffset]. {@code maxOffset + 1} when empty.
+     */
+    private volatile long minOffset = 0;
+    /**
+     * Highest offset added since the ring was last empty, it is not lowered when that message is removed.
+     */
+    private volatile long maxOffset = -1;
+
+    OffsetMessageRing(int initialCapacity) {
+        this.slots = new AtomicReferenceArray<>(tableSizeFor(initialCapacity));
+    }
+
+    /**
+     * @return the message previously cached at the same offset, or null
+     */
+    MessageExt put(MessageExt msg) {
+        final long offset = msg.getQueueOffset();
+        lock.lock();
+        try {
+            boolean empty = minOffset > maxOffset;
+            long low = empty ? offset : Math.min(minOffset, offset);
+            long high = empty ? offset : Math.max(maxOffset, offset);
+            AtomicReferenceArray<MessageExt> ring = slots;
+            if (high - low >= ring.length()) {
+                ring = grow(high - low + 1);
+            }
+            MessageExt prev = ring.getAndSet(index(ring, offset), msg);
+            if (prev == null) {
+                size.incrementAndGet();
+            }
+            maxOffset = high;
+            minOffset = low;
+            return prev;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the removed message, or null if no message with this offset is cached
+     */
+    MessageExt remove(final long offset) {
+        MessageExt removed;
+        for (;;) {
+            AtomicReferenceArray<MessageExt> ring = slots;
+            int index = index(ring, offset);
+            MessageExt cur = ring.get(index);
+            if (cur == MOVED) {
+                continue;
+            }
+            if (cur == null || cur.getQueueOffset() != offset) {
+                return null;
+            }
+            if (ring.compareAndSet(index, cur, null)) {
+                removed = cur;
+                break;
+            }
+        }
+        size.decrementAndGet();
+        // the slot is cleared before the mark is read and the mark is written before its slot is read again in
+        // advance(), so either this thread or the one holding the lock sees that the mark has to move on
+        if (offset == minOffset) {
+            advance();
+        }
+        return removed;
+    }
+
+    MessageExt get(final long offset) {
+        for (;;) {
+            AtomicReferenceArray<MessageExt> ring = slots;
+            MessageExt cur = ring.get(index(ring, offset));
+            if (cur == MOVED) {
+                continue;
+            }
+            return cur != null && cur.getQueueOffset() == offset ? cur : null;
+        }
+    }
+
+    /**
+     * @return the message with the lowest offset, or null if empty
+     */
+    MessageExt first() {
+        for (;;) {
+            long low = minOffset;
+            if (low > maxOffset) {
+                return null;
+            }
+            MessageExt msg = get(low);
+            if (msg != null) {
+                return msg;
+            }
+            // the remover of the message at the mark has not advanced it yet
+            advance();
+        }
+    }
+
+    MessageExt pollFirst() {
+        for (;;) {
+            MessageExt msg = first();
+            if (msg == null || remove(msg.getQueueOffset()) != null) {
+                return msg;
+            }
+        }
+    }
+
+    /**
+     * @return the lowest cached offset, or one past the highest offset ever added if empty
+     */
+    long getMinOffset() {
+        return minOffset;
+    }
+
+    /**
+     * @return the highest cached offset, or {@link #getMinOffset()} - 1 if empty
+     */
+    long getMaxOffset() {
+        long low = minOffset;
+        long high = maxOffset;
+        while (high >= low && get(high) == null) {
+            high--;
+        }
+        return high;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            AtomicReferenceArray<MessageExt> ring = slots;
+            for (int i = 0; i < ring.length(); i++) {
+                if (ring.getAndSet(i, null) != null) {
+                    size.decrementAndGet();
+                }
+            }
+            minOffset = maxOffset + 1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return a copy of the cached messages, changes to the ring are not reflected
+     */
+    TreeMap<Long, MessageExt> snapshot() {
+        TreeMap<Long, MessageExt> map = new TreeMap<>();
+        long high = maxOffset;
+        for (long offset = minOffset; offset <= high; offset++) {
+            MessageExt msg = get(offset);
+            if (msg != null) {
+                map.put(offset, msg);
+            }
+        }
+        return map;
+    }
+
+    private void advance() {
+        lock.lock();
+        try {
+            AtomicReferenceArray<MessageExt> ring = slots;
+            long low = minOffset;
+            long high = maxOffset;
+            for (;;) {
+                while (low <= high && ring.get(index(ring, low)) == null) {
+                    low++;
+                }
+                minOffset = low;
+                // read the slot again, its remover may have missed the new mark
+                if (low > high || ring.get(index(ring, low)) != null) {
+                    break;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AtomicReferenceArray<MessageExt> grow(long span) {
+        if (span > 1 << 29) {
+            throw new IllegalStateException("offset span too large for the ring: " + span);
+        }
+        AtomicReferenceArray<MessageExt> ring = slots;
+        AtomicReferenceArray<MessageExt> newRing = new AtomicReferenceArray<>(tableSizeFor((int) span * 2));
+        for (int i = 0; i < ring.length(); i++) {
+            MessageExt msg = ring.getAndSet(i, MOVED);
+            if (msg != null) {
+                newRing.set(index(newRing, msg.getQueueOffset()), msg);
+            }
+        }
+        slots = newRing;
+        return newRing;
+    }
+
+    private static int index(AtomicReferenceArray<MessageExt> ring, long offset) {
+        return (int) (offset & (ring.length() - 1));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+        return n < 0 ? 1 << 30 : n;
+    }
+}
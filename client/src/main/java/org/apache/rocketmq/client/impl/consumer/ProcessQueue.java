@@ -41,9 +41,14 @@ public class ProcessQueue {
         Long.parseLong(System.getProperty("rocketmq.client.rebalance.lockMaxLiveTime", "30000"));
     public final static long REBALANCE_LOCK_INTERVAL = Long.parseLong(System.getProperty("rocketmq.client.rebalance.lockInterval", "20000"));
     private final static long PULL_MAX_IDLE_TIME = Long.parseLong(System.getProperty("rocketmq.client.pull.pullMaxIdleTime", "120000"));
+    private final static int OFFSET_RING_INITIAL_CAPACITY = Integer.parseInt(System.getProperty("rocketmq.client.processQueue.offsetRingInitialCapacity", "2048"));
     private final Logger log = LoggerFactory.getLogger(ProcessQueue.class);
     private final ReadWriteLock treeMapLock = new ReentrantReadWriteLock();
     private final TreeMap<Long, MessageExt> msgTreeMap = new TreeMap<>();
+    /**
+     * Replaces msgTreeMap if not null, messages are removed from it without holding treeMapLock
+     */
+    private final OffsetMessageRing msgRing;
     private final AtomicLong msgCount = new AtomicLong();
     private final AtomicLong msgSize = new AtomicLong();
     private final ReadWriteLock consumeLock = new ReentrantReadWriteLock();
@@ -61,6 +66,18 @@ public class ProcessQueue {
     private volatile boolean consuming = false;
     private volatile long msgAccCnt = 0;
 
+    public ProcessQueue() {
+        this(false);
+    }
+
+    /**
+     * @param offsetRing whether to cache the messages in an {@link OffsetMessageRing}, so that the consume threads
+     * remove consumed messages concurrently instead of one by one under the tree map lock
+     */
+    public ProcessQueue(boolean offsetRing) {
+        this.msgRing = offsetRing ? new OffsetMessageRing(OFFSET_RING_INITIAL_CAPACITY) : null;
+    }
+
     public boolean isLockExpired() {
         return (System.currentTimeMillis() - this.lastLockTimestamp) > REBALANCE_LOCK_MAX_LIVE_TIME;
     }
@@ -77,6 +94,11 @@ public class ProcessQueue {
             return;
         }
 
+        if (msgRing != null) {
+            cleanExpiredMsgInRing(pushConsumer);
+            return;
+        }
+
         int loop = Math.min(msgTreeMap.size(), 16);
         for (int i = 0; i < loop; i++) {
             MessageExt msg = null;
@@ -126,6 +148,29 @@ public class ProcessQueue {
         }
     }
 
+    private void cleanExpiredMsgInRing(DefaultMQPushConsumer pushConsumer) {
+        int loop = Math.min(msgRing.size(), 16);
+        for (int i = 0; i < loop; i++) {
+            MessageExt msg = msgRing.first();
+            if (msg == null) {
+                break;
+            }
+            String consumeStartTimeStamp = MessageAccessor.getConsumeStartTimeStamp(msg);
+            if (StringUtils.isEmpty(consumeStartTimeStamp) || System.currentTimeMillis() - Long.parseLong(consumeStartTimeStamp) <= pushConsumer.getConsumeTimeout() * 60 * 1000) {
+                break;
+            }
+
+            try {
+                pushConsumer.sendMessageBack(msg, 3);
+                log.info("send expire msg back. topic={}, msgId={}, storeHost={}, queueId={}, queueOffset={}", msg.getTopic(), msg.getMsgId(), msg.getStoreHost(), msg.getQueueId(), msg.getQueueOffset());
+                // does nothing if the consume thread has removed it meanwhile
+                removeMessage(Collections.singletonList(msg));
+            } catch (Exception e) {
+                log.error("send expired msg exception", e);
+            }
+        }
+    }
+
     public boolean putMessage(final List<MessageExt> msgs) {
         boolean dispatchToConsume = false;
         try {
@@ -133,7 +178,7 @@ public class ProcessQueue {
             try {
                 int validMsgCnt = 0;
                 for (MessageExt msg : msgs) {
-                    MessageExt old = msgTreeMap.put(msg.getQueueOffset(), msg);
+                    MessageExt old = msgRing != null ? msgRing.put(msg) : msgTreeMap.put(msg.getQueueOffset(), msg);
                     if (null == old) {
                         validMsgCnt++;
                         this.queueOffsetMax = msg.getQueueOffset();
@@ -142,7 +187,7 @@ public class ProcessQueue {
                 }
                 msgCount.addAndGet(validMsgCnt);
 
-                if (!msgTreeMap.isEmpty() && !this.consuming) {
+                if (!isMsgCacheEmpty() && !this.consuming) {
                     dispatchToConsume = true;
                     this.consuming = true;
                 }
@@ -168,6 +213,12 @@ public class ProcessQueue {
     }
 
     public long getMaxSpan() {
+        if (msgRing != null) {
+            long minOffset = msgRing.getMinOffset();
+            long maxOffset = msgRing.getMaxOffset();
+            return maxOffset > minOffset ? maxOffset - minOffset : 0;
+        }
+
         try {
             this.treeMapLock.readLock().lockInterruptibly();
             try {
@@ -184,7 +235,59 @@ public class ProcessQueue {
         return 0;
     }
 
+    /**
+     * @return the lowest cached offset, or -1 if no message is cached
+     */
+    public long getMinOffset() {
+        if (msgRing != null) {
+            return msgRing.isEmpty() ? -1 : msgRing.getMinOffset();
+        }
+
+        try {
+            this.treeMapLock.readLock().lockInterruptibly();
+            try {
+                if (!this.msgTreeMap.isEmpty()) {
+                    return this.msgTreeMap.firstKey();
+                }
+            } finally {
+                this.treeMapLock.readLock().unlock();
+            }
+        } catch (InterruptedException e) {
+            log.error("getMinOffset exception", e);
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the highest cached offset, or -1 if no message is cached
+     */
+    public long getMaxOffset() {
+        if (msgRing != null) {
+            return msgRing.isEmpty() ? -1 : msgRing.getMaxOffset();
+        }
+
+        try {
+            this.treeMapLock.readLock().lockInterruptibly();
+            try {
+                if (!this.msgTreeMap.isEmpty()) {
+                    return this.msgTreeMap.lastKey();
+                }
+            } finally {
+                this.treeMapLock.readLock().unlock();
+            }
+        } catch (InterruptedException e) {
+            log.error("getMaxOffset exception", e);
+        }
+
+        return -1;
+    }
+
     public long removeMessage(final List<MessageExt> msgs) {
+        if (msgRing != null) {
+            return removeMessageFromRing(msgs);
+        }
+
         long result = -1;
         final long now = System.currentTimeMillis();
         try {
@@ -219,8 +322,36 @@ public class ProcessQueue {
         return result;
     }
 
+    private long removeMessageFromRing(final List<MessageExt> msgs) {
+        this.lastConsumeTimestamp = System.currentTimeMillis();
+        if (msgRing.isEmpty()) {
+            return -1;
+        }
+
+        int removedCnt = 0;
+        for (MessageExt msg : msgs) {
+            if (msgRing.remove(msg.getQueueOffset()) != null) {
+                removedCnt--;
+                msgSize.addAndGet(-msg.getBody().length);
+            }
+        }
+        // msgSize is not reset when the count drops to zero like under the lock, a concurrent putMessage may have
+        // added the size of its messages but not yet their count
+        msgCount.addAndGet(removedCnt);
+
+        // one past the last pulled message if all are consumed
+        return msgRing.getMinOffset();
+    }
+
+    /**
+     * @return the cached messages, a copy if the process queue uses an {@link OffsetMessageRing}
+     */
     public TreeMap<Long, MessageExt> getMsgTreeMap() {
-        return msgTreeMap;
+        return msgRing != null ? msgRing.snapshot() : msgTreeMap;
+    }
+
+    private boolean isMsgCacheEmpty() {
+        return msgRing != null ? msgRing.isEmpty() : msgTreeMap.isEmpty();
     }
 
     public AtomicLong getMsgCount() {
@@ -251,7 +382,13 @@ public class ProcessQueue {
         try {
             this.treeMapLock.writeLock().lockInterruptibly();
             try {
-                this.msgTreeMap.putAll(this.consumingMsgOrderlyTreeMap);
+                if (msgRing != null) {
+                    for (MessageExt msg : this.consumingMsgOrderlyTreeMap.values()) {
+                        msgRing.put(msg);
+                    }
+                } else {
+                    this.msgTreeMap.putAll(this.consumingMsgOrderlyTreeMap);
+                }
                 this.consumingMsgOrderlyTreeMap.clear();
             } finally {
                 this.treeMapLock.writeLock().unlock();
@@ -293,7 +430,11 @@ public class ProcessQueue {
             try {
                 for (MessageExt msg : msgs) {
                     this.consumingMsgOrderlyTreeMap.remove(msg.getQueueOffset());
-                    this.msgTreeMap.put(msg.getQueueOffset(), msg);
+                    if (msgRing != null) {
+                        msgRing.put(msg);
+                    } else {
+                        this.msgTreeMap.put(msg.getQueueOffset(), msg);
+                    }
                 }
             } finally {
                 this.treeMapLock.writeLock().unlock();
@@ -310,7 +451,16 @@ public class ProcessQueue {
             this.treeMapLock.writeLock().lockInterruptibly();
             this.lastConsumeTimestamp = now;
             try {
-                if (!this.msgTreeMap.isEmpty()) {
+                if (msgRing != null) {
+                    for (int i = 0; i < batchSize; i++) {
+                        MessageExt msg = msgRing.pollFirst();
+                        if (msg == null) {
+                            break;
+                        }
+                        result.add(msg);
+                        consumingMsgOrderlyTreeMap.put(msg.getQueueOffset(), msg);
+                    }
+                } else if (!this.msgTreeMap.isEmpty()) {
                     for (int i = 0; i < batchSize; i++) {
                         Map.Entry<Long, MessageExt> entry = this.msgTreeMap.pollFirstEntry();
                         if (entry != null) {
@@ -343,6 +493,9 @@ public class ProcessQueue {
             // should never reach here.
             return false;
         }
+        if (msgRing != null) {
+            return msgRing.get(message.getQueueOffset()) != null;
+        }
         try {
             this.treeMapLock.readLock().lockInterruptibly();
             try {
@@ -357,6 +510,9 @@ public class ProcessQueue {
     }
 
     public boolean hasTempMessage() {
+        if (msgRing != null) {
+            return !msgRing.isEmpty();
+        }
         try {
             this.treeMapLock.readLock().lockInterruptibly();
             try {
@@ -375,6 +531,9 @@ public class ProcessQueue {
             this.treeMapLock.writeLock().lockInterruptibly();
             try {
                 this.msgTreeMap.clear();
+                if (msgRing != null) {
+                    msgRing.clear();
+                }
                 this.consumingMsgOrderlyTreeMap.clear();
                 this.msgCount.set(0);
                 this.msgSize.set(0);
@@ -427,7 +586,13 @@ public class ProcessQueue {
         try {
             this.treeMapLock.readLock().lockInterruptibly();
 
-            if (!this.msgTreeMap.isEmpty()) {
+            if (msgRing != null) {
+                if (!msgRing.isEmpty()) {
+                    info.setCachedMsgMinOffset(msgRing.getMinOffset());
+                    info.setCachedMsgMaxOffset(msgRing.getMaxOffset());
+                    info.setCachedMsgCount(msgRing.size());
+                }
+            } else if (!this.msgTreeMap.isEmpty()) {
                 info.setCachedMsgMinOffset(this.msgTreeMap.firstKey());
                 info.setCachedMsgMaxOffset(this.msgTreeMap.lastKey());
                 info.setCachedMsgCount(this.msgTreeMap.size());
@@ -285,7 +285,7 @@ public class RebalancePushImpl extends RebalanceImpl {
 
     @Override
     public ProcessQueue createProcessQueue() {
-        return new ProcessQueue();
+        return new ProcessQueue(this.defaultMQPushConsumerImpl.getDefaultMQPushConsumer().isEnableOffsetRingProcessQueue());
     }
 
     @Override
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.client.impl.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffsetMessageRingTest {
+
+    @Test
+    public void testPutRemoveAndMinOffset() {
+        OffsetMessageRing ring = new OffsetMessageRing(16);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.first()).isNull();
+
+        for (long offset = 100; offset < 110; offset++) {
+            assertThat(ring.put(createMessage(offset))).isNull();
+        }
+        assertThat(ring.size()).isEqualTo(10);
+        assertThat(ring.getMinOffset()).isEqualTo(100);
+        assertThat(ring.getMaxOffset()).isEqualTo(109);
+
+        assertThat(ring.remove(109)).isNotNull();
+        assertThat(ring.remove(109)).isNull();
+        assertThat(ring.getMaxOffset()).isEqualTo(108);
+
+        assertThat(ring.remove(101)).isNotNull();
+        assertThat(ring.getMinOffset()).isEqualTo(100);
+        assertThat(ring.remove(100)).isNotNull();
+        assertThat(ring.getMinOffset()).isEqualTo(102);
+        assertThat(ring.pollFirst().getQueueOffset()).isEqualTo(102);
+        assertThat(ring.first().getQueueOffset()).isEqualTo(103);
+
+        for (long offset = 103; offset < 109; offset++) {
+            ring.remove(offset);
+        }
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.getMinOffset()).isEqualTo(110);
+
+        // adding below the mark again, like an orderly consumer rolling back
+        ring.put(createMessage(105));
+        assertThat(ring.getMinOffset()).isEqualTo(105);
+        assertThat(ring.first().getQueueOffset()).isEqualTo(105);
+    }
+
+    @Test
+    public void testGrow() {
+        OffsetMessageRing ring = new OffsetMessageRing(16);
+        for (long offset = 0; offset < 1000; offset += 3) {
+            ring.put(createMessage(offset));
+        }
+        assertThat(ring.size()).isEqualTo(334);
+        assertThat(ring.getMinOffset()).isEqualTo(0);
+        assertThat(ring.getMaxOffset()).isEqualTo(999);
+        assertThat(ring.get(999).getQueueOffset()).isEqualTo(999);
+        assertThat(ring.get(998)).isNull();
+        assertThat(ring.snapshot()).hasSize(334).containsKey(0L).containsKey(999L);
+
+        ring.remove(0);
+        assertThat(ring.getMinOffset()).isEqualTo(3);
+        ring.clear();
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.first()).isNull();
+    }
+
+    @Test
+    public void testConcurrentRemove() throws InterruptedException {
+        final int threads = 8;
+        final int count = 20000;
+        final OffsetMessageRing ring = new OffsetMessageRing(16);
+        final List<MessageExt> messages = new ArrayList<>();
+        for (long offset = 0; offset < count; offset++) {
+            messages.add(createMessage(offset));
+        }
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    int index;
+                    while ((index = next.getAndIncrement()) < count) {
+                        // keep adding ahead of the removers so that the ring grows while it is used
+                        if (index % 100 == 0) {
+                            for (int j = index; j < Math.min(index + 100, count); j++) {
+                                ring.put(messages.get(j));
+                            }
+                        }
+                        while (ring.get(index) == null) {
+                            Thread.yield();
+                        }
+                        if (ring.remove(index) != null) {
+                            removed.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(removed.get()).isEqualTo(count);
+        assertThat(ring.isEmpty()).isTrue();
+        assertThat(ring.getMinOffset()).isEqualTo(count);
+    }
+
+    private static MessageExt createMessage(long offset) {
+        MessageExt msg = new MessageExt();
+        msg.setQueueOffset(offset);
+        msg.setBody(new byte[0]);
+        return msg;
+    }
+}
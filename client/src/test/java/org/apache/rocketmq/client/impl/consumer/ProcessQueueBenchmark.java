@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.client.impl.consumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 64 consume threads removing consumed messages from one {@link ProcessQueue} holding {@code cachedMessages}
+ * messages, with the tree map and with the {@link OffsetMessageRing}. Every consumed message is pulled again
+ * {@code cachedMessages} offsets later, so the queue keeps its size.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProcessQueueBenchmark {
+
+    @Param({"TREE_MAP", "OFFSET_RING"})
+    private String cache;
+
+    @Param({"10000"})
+    private int cachedMessages;
+
+    private ProcessQueue processQueue;
+    private MessageExt[] messages;
+    /**
+     * Offset each message was last put with, the message is not consumed before it is in the process queue
+     */
+    private AtomicLongArray putOffsets;
+    private final AtomicLong nextOffset = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        processQueue = new ProcessQueue("OFFSET_RING".equals(cache));
+        messages = new MessageExt[cachedMessages];
+        putOffsets = new AtomicLongArray(cachedMessages);
+        List<MessageExt> msgs = new ArrayList<>(cachedMessages);
+        for (int i = 0; i < cachedMessages; i++) {
+            MessageExt msg = new MessageExt();
+            msg.setQueueOffset(i);
+            msg.setBody(new byte[128]);
+            messages[i] = msg;
+            putOffsets.set(i, i);
+            msgs.add(msg);
+        }
+        processQueue.putMessage(msgs);
+    }
+
+    @Benchmark
+    public long consume() {
+        long offset = nextOffset.getAndIncrement();
+        int index = (int) (offset % cachedMessages);
+        while (putOffsets.get(index) != offset) {
+            Thread.yield();
+        }
+        MessageExt msg = messages[index];
+        List<MessageExt> consumed = Collections.singletonList(msg);
+        long commitOffset = processQueue.removeMessage(consumed);
+
+        msg.setQueueOffset(offset + cachedMessages);
+        processQueue.putMessage(consumed);
+        putOffsets.set(index, offset + cachedMessages);
+        return commitOffset;
+    }
+}
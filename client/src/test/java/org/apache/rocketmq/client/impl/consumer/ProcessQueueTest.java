@@ -103,6 +103,62 @@ public class ProcessQueueTest {
         assertThat(processQueueInfo.getCachedMsgSizeInMiB()).isEqualTo(0);
     }
 
+    @Test
+    public void testOffsetRingCachedMessageCountAndSize() {
+        ProcessQueue pq = new ProcessQueue(true);
+
+        pq.putMessage(createMessageList());
+        assertThat(pq.getMsgCount().get()).isEqualTo(100);
+        assertThat(pq.getMsgSize().get()).isEqualTo(100 * 123);
+        assertThat(pq.getMaxSpan()).isEqualTo(99);
+
+        pq.takeMessages(10);
+        assertThat(pq.commit()).isEqualTo(10);
+        assertThat(pq.getMsgCount().get()).isEqualTo(90);
+
+        assertThat(pq.removeMessage(Collections.singletonList(pq.getMsgTreeMap().lastEntry().getValue()))).isEqualTo(10);
+        assertThat(pq.getMsgCount().get()).isEqualTo(89);
+        assertThat(pq.getMsgSize().get()).isEqualTo(89 * 123);
+        assertThat(pq.getMaxSpan()).isEqualTo(88);
+    }
+
+    @Test
+    public void testOffsetRingRemoveMessage() {
+        ProcessQueue pq = new ProcessQueue(true);
+        List<MessageExt> messageList = createMessageList(3);
+        pq.putMessage(messageList);
+
+        // the min offset stays until the first message is consumed
+        assertThat(pq.removeMessage(Collections.singletonList(messageList.get(1)))).isEqualTo(0);
+        assertThat(pq.removeMessage(Collections.singletonList(messageList.get(0)))).isEqualTo(2);
+        assertThat(pq.containsMessage(messageList.get(0))).isFalse();
+        assertThat(pq.containsMessage(messageList.get(2))).isTrue();
+        assertThat(pq.removeMessage(Collections.singletonList(messageList.get(2)))).isEqualTo(3);
+        assertThat(pq.hasTempMessage()).isFalse();
+        assertThat(pq.removeMessage(Collections.singletonList(messageList.get(2)))).isEqualTo(-1);
+    }
+
+    @Test
+    public void testMinAndMaxOffset() {
+        for (ProcessQueue pq : new ProcessQueue[] {new ProcessQueue(), new ProcessQueue(true)}) {
+            assertThat(pq.getMinOffset()).isEqualTo(-1);
+            assertThat(pq.getMaxOffset()).isEqualTo(-1);
+
+            List<MessageExt> messageList = createMessageList();
+            pq.putMessage(messageList);
+            assertThat(pq.getMinOffset()).isEqualTo(0);
+            assertThat(pq.getMaxOffset()).isEqualTo(99);
+
+            pq.removeMessage(Lists.list(messageList.get(0), messageList.get(99)));
+            assertThat(pq.getMinOffset()).isEqualTo(1);
+            assertThat(pq.getMaxOffset()).isEqualTo(98);
+
+            pq.removeMessage(messageList.subList(1, 99));
+            assertThat(pq.getMinOffset()).isEqualTo(-1);
+            assertThat(pq.getMaxOffset()).isEqualTo(-1);
+        }
+    }
+
     private List<MessageExt> createMessageList() {
         return createMessageList(100);
     }
@@ -87,6 +87,19 @@ public class BrokerConfig extends BrokerIdentity {
     private int endTransactionThreadPoolNums = Math.max(8 + PROCESSOR_NUMBER * 2,
             sendMessageThreadPoolNums * 4);
 
+    /**
+     * How the request processors are run:
+     * FIXED: thread pools of the configured sizes,
+     * ADAPTIVE: thread pools from the configured sizes up to adaptiveThreadPoolMaxFactor times them, resized by how
+     * long requests wait in queue,
+     * VIRTUAL: up to virtualThreadPoolNums virtual threads per processor, on JDK 21 and later.
+     */
+    private String processorExecutorType = "FIXED";
+    private int adaptiveThreadPoolMaxFactor = 4;
+    private long adaptiveThreadPoolTargetQueueingTimeMills = 100;
+    private int adaptiveThreadPoolAdjustInterval = 1000;
+    private int virtualThreadPoolNums = 256;
+
     private int flushConsumerOffsetInterval = 1000 * 5;
 
     private int flushConsumerOffsetHistoryInterval = 1000 * 60;
@@ -118,6 +131,14 @@ public class BrokerConfig extends BrokerIdentity {
 
     private long shortPollingTimeMills = 1000;
 
+    /**
+     * Time out suspended pull and pop requests from a hashed timing wheel, and only wake them on message arrival for
+     * their own queue, instead of periodically checking every suspended request.
+     */
+    private boolean enableLongPollingTimerWheel = false;
+
+    private long longPollingTimerWheelTickMs = 10;
+
     private boolean notifyConsumerIdsChangedEnable = true;
 
     private boolean highSpeedMode = false;
@@ -168,6 +189,10 @@ public class BrokerConfig extends BrokerIdentity {
     // Error rate of bloom filter, 1~100.
     private int maxErrorRateOfBloomFilter = 20;
 
+    // Whether to calculate filter bit map by blocked bloom filter, all the bits of a consumer are in one cache line.
+    // The bit maps calculated before the switch are still read.
+    private boolean enableBlockedBloomFilter = false;
+
     //how long to clean filter data after dead.Default: 24h
     private long filterDataCleanTimeSpan = 24 * 3600 * 1000;
 
@@ -175,6 +200,17 @@ public class BrokerConfig extends BrokerIdentity {
     private boolean filterSupportRetry = false;
     private boolean enablePropertyFilter = false;
 
+    // Whether to compile the registered SQL92 filters, so that properties are read once and cheap conditions go first.
+    private boolean enableCompiledSqlFilter = false;
+
+    // Switch of the shared filter scan, requires enableCalcFilterBitMap.
+    // If switch on, the exact match set of all the filters of the topic is calculated once when a message is dispatched
+    // and saved to consume queue ext instead of the bloom filter bit map, pulls only test the bit of their filter.
+    private boolean enableFilterMatchSet = false;
+
+    // Max num of filters of a topic in the match set, the others are evaluated when pulled.
+    private int filterMatchSetSlotNum = 256;
+
     private boolean compressedRegister = false;
 
     private boolean forceRegister = true;
@@ -221,6 +257,18 @@ public class BrokerConfig extends BrokerIdentity {
     private int popCkMaxBufferSize = 200000;
     private int popCkOffsetMaxQueueSize = 20000;
     private boolean enablePopBatchAck = false;
+    /**
+     * Acks not merged in the pop buffer are collected per revive queue for up to reviveAckMergeWindowMs and written
+     * to the revive topic as one binary record. Brokers reading the revive topic must understand merged acks.
+     */
+    private boolean enableReviveAckMerge = false;
+    private long reviveAckMergeWindowMs = 5;
+    private int reviveAckMergeMaxNum = 256;
+    /**
+     * Acks whose deliver times are further apart than this go to different records, so no ack reaches the revive
+     * service much later than its checkpoint.
+     */
+    private long reviveAckMergeMaxDeliverSpreadMs = 200;
     private boolean enableNotifyAfterPopOrderLockRelease = true;
     private boolean initPopOffsetByCheckMsgInMem = true;
     // read message from pop retry topic v1, for the compatibility, will be removed in the future version
@@ -412,6 +460,27 @@ public class BrokerConfig extends BrokerIdentity {
 
     private int splitRegistrationSize = 800;
 
+    /**
+     * Periodic registrations only carry the topics added, changed or removed since the previous one, name servers
+     * missing the previous one ask for a full registration. Requires name servers supporting delta registrations,
+     * and is ignored when split or compressed registration is enabled.
+     */
+    private boolean enableDeltaRegistration = false;
+
+    /**
+     * Keep consumer offsets in a compact table persisted to an append-only binary journal, instead of rewriting the
+     * whole consumerOffset.json on every flush. The offsets of the manager used before, the JSON file or RocksDB, are
+     * taken over when no journal exists yet. The JSON file is still written on journal snapshots and on shutdown, so
+     * this can be turned off again after a clean shutdown, but not for the RocksDB offsets, which are not written back.
+     */
+    private boolean enableCompactConsumerOffset = false;
+
+    /**
+     * Persist topic and subscription group configs to an append-only journal compacted in the background, instead of
+     * rewriting topics.json and subscriptionGroup.json on every change. Not used with the RocksDB config store or LMQ.
+     */
+    private boolean enableConfigJournal = false;
+
     /**
      * Config in this black list will be not allowed to update by command.
      * Try to update this config black list by restart process.
@@ -587,6 +656,46 @@ public class BrokerConfig extends BrokerIdentity {
         this.consumerFallbehindThreshold = consumerFallbehindThreshold;
     }
 
+    public String getProcessorExecutorType() {
+        return processorExecutorType;
+    }
+
+    public void setProcessorExecutorType(String processorExecutorType) {
+        this.processorExecutorType = processorExecutorType;
+    }
+
+    public int getAdaptiveThreadPoolMaxFactor() {
+        return adaptiveThreadPoolMaxFactor;
+    }
+
+    public void setAdaptiveThreadPoolMaxFactor(int adaptiveThreadPoolMaxFactor) {
+        this.adaptiveThreadPoolMaxFactor = adaptiveThreadPoolMaxFactor;
+    }
+
+    public long getAdaptiveThreadPoolTargetQueueingTimeMills() {
+        return adaptiveThreadPoolTargetQueueingTimeMills;
+    }
+
+    public void setAdaptiveThreadPoolTargetQueueingTimeMills(long adaptiveThreadPoolTargetQueueingTimeMills) {
+        this.adaptiveThreadPoolTargetQueueingTimeMills = adaptiveThreadPoolTargetQueueingTimeMills;
+    }
+
+    public int getAdaptiveThreadPoolAdjustInterval() {
+        return adaptiveThreadPoolAdjustInterval;
+    }
+
+    public void setAdaptiveThreadPoolAdjustInterval(int adaptiveThreadPoolAdjustInterval) {
+        this.adaptiveThreadPoolAdjustInterval = adaptiveThreadPoolAdjustInterval;
+    }
+
+    public int getVirtualThreadPoolNums() {
+        return virtualThreadPoolNums;
+    }
+
+    public void setVirtualThreadPoolNums(int virtualThreadPoolNums) {
+        this.virtualThreadPoolNums = virtualThreadPoolNums;
+    }
+
     public boolean isBrokerFastFailureEnable() {
         return brokerFastFailureEnable;
     }
@@ -963,6 +1072,22 @@ public class BrokerConfig extends BrokerIdentity {
         this.longPollingEnable = longPollingEnable;
     }
 
+    public boolean isEnableLongPollingTimerWheel() {
+        return enableLongPollingTimerWheel;
+    }
+
+    public void setEnableLongPollingTimerWheel(boolean enableLongPollingTimerWheel) {
+        this.enableLongPollingTimerWheel = enableLongPollingTimerWheel;
+    }
+
+    public long getLongPollingTimerWheelTickMs() {
+        return longPollingTimerWheelTickMs;
+    }
+
+    public void setLongPollingTimerWheelTickMs(long longPollingTimerWheelTickMs) {
+        this.longPollingTimerWheelTickMs = longPollingTimerWheelTickMs;
+    }
+
     public boolean isNotifyConsumerIdsChangedEnable() {
         return notifyConsumerIdsChangedEnable;
     }
@@ -1035,6 +1160,14 @@ public class BrokerConfig extends BrokerIdentity {
         this.expectConsumerNumUseFilter = expectConsumerNumUseFilter;
     }
 
+    public boolean isEnableBlockedBloomFilter() {
+        return enableBlockedBloomFilter;
+    }
+
+    public void setEnableBlockedBloomFilter(boolean enableBlockedBloomFilter) {
+        this.enableBlockedBloomFilter = enableBlockedBloomFilter;
+    }
+
     public int getMaxErrorRateOfBloomFilter() {
         return maxErrorRateOfBloomFilter;
     }
@@ -1059,6 +1192,30 @@ public class BrokerConfig extends BrokerIdentity {
         this.filterSupportRetry = filterSupportRetry;
     }
 
+    public boolean isEnableFilterMatchSet() {
+        return enableFilterMatchSet;
+    }
+
+    public void setEnableFilterMatchSet(boolean enableFilterMatchSet) {
+        this.enableFilterMatchSet = enableFilterMatchSet;
+    }
+
+    public int getFilterMatchSetSlotNum() {
+        return filterMatchSetSlotNum;
+    }
+
+    public void setFilterMatchSetSlotNum(int filterMatchSetSlotNum) {
+        this.filterMatchSetSlotNum = filterMatchSetSlotNum;
+    }
+
+    public boolean isEnableCompiledSqlFilter() {
+        return enableCompiledSqlFilter;
+    }
+
+    public void setEnableCompiledSqlFilter(boolean enableCompiledSqlFilter) {
+        this.enableCompiledSqlFilter = enableCompiledSqlFilter;
+    }
+
     public boolean isEnablePropertyFilter() {
         return enablePropertyFilter;
     }
@@ -1795,6 +1952,46 @@ public class BrokerConfig extends BrokerIdentity {
         this.splitRegistrationSize = splitRegistrationSize;
     }
 
+    public boolean isEnableReviveAckMerge() {
+        return enableReviveAckMerge;
+    }
+
+    public void setEnableReviveAckMerge(boolean enableReviveAckMerge) {
+        this.enableReviveAckMerge = enableReviveAckMerge;
+    }
+
+    public long getReviveAckMergeWindowMs() {
+        return reviveAckMergeWindowMs;
+    }
+
+    public void setReviveAckMergeWindowMs(long reviveAckMergeWindowMs) {
+        this.reviveAckMergeWindowMs = reviveAckMergeWindowMs;
+    }
+
+    public int getReviveAckMergeMaxNum() {
+        return reviveAckMergeMaxNum;
+    }
+
+    public void setReviveAckMergeMaxNum(int reviveAckMergeMaxNum) {
+        this.reviveAckMergeMaxNum = reviveAckMergeMaxNum;
+    }
+
+    public long getReviveAckMergeMaxDeliverSpreadMs() {
+        return reviveAckMergeMaxDeliverSpreadMs;
+    }
+
+    public void setReviveAckMergeMaxDeliverSpreadMs(long reviveAckMergeMaxDeliverSpreadMs) {
+        this.reviveAckMergeMaxDeliverSpreadMs = reviveAckMergeMaxDeliverSpreadMs;
+    }
+
+    public boolean isEnableDeltaRegistration() {
+        return enableDeltaRegistration;
+    }
+
+    public void setEnableDeltaRegistration(boolean enableDeltaRegistration) {
+        this.enableDeltaRegistration = enableDeltaRegistration;
+    }
+
     public long getTransactionMetricFlushInterval() {
         return transactionMetricFlushInterval;
     }
@@ -1818,4 +2015,20 @@ public class BrokerConfig extends BrokerIdentity {
     public void setEnablePopMessageThreshold(boolean enablePopMessageThreshold) {
         this.enablePopMessageThreshold = enablePopMessageThreshold;
     }
+
+    public boolean isEnableCompactConsumerOffset() {
+        return enableCompactConsumerOffset;
+    }
+
+    public void setEnableCompactConsumerOffset(boolean enableCompactConsumerOffset) {
+        this.enableCompactConsumerOffset = enableCompactConsumerOffset;
+    }
+
+    public boolean isEnableConfigJournal() {
+        return enableConfigJournal;
+    }
+
+    public void setEnableConfigJournal(boolean enableConfigJournal) {
+        this.enableConfigJournal = enableConfigJournal;
+    }
 }
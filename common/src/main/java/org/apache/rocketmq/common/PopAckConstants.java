@@ -31,6 +31,7 @@ public class PopAckConstants {
     public static final String CK_TAG = "ck";
     public static final String ACK_TAG = "ack";
     public static final String BATCH_ACK_TAG = "bAck";
+    public static final String MERGED_ACK_TAG = "mAck";
     public static final String SPLIT = "@";
 
     /**
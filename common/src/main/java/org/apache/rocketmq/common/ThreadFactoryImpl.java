@@ -53,6 +53,10 @@ public class ThreadFactoryImpl implements ThreadFactory {
         }
     }
 
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
     @Override
     public Thread newThread(Runnable r) {
         Thread thread = new Thread(r, threadNamePrefix + this.threadIndex.incrementAndGet());
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+
+/**
+ * Append-only change log of the tables of a config manager, compacted into a snapshot in the background.
+ * <p>
+ * Changes are buffered as put, delete and meta records and appended to the current log by {@link #flush()}, every
+ * record is framed with its length and CRC. Once the log has outgrown the last snapshot a new log is started, and a
+ * snapshot of the whole config is taken from the owner in the background, after which the older files are deleted.
+ * {@link #load(Handler)} replays the latest snapshot and the logs started since, a torn record at the end of a log is
+ * dropped.
+ */
+public class ConfigJournal {
+    private static final Logger log = LoggerFactory.getLogger(LoggerName.COMMON_LOGGER_NAME);
+
+    public static final long DEFAULT_MIN_COMPACT_SIZE = 4 * 1024 * 1024;
+
+    private static final int FILE_MAGIC = 0x524D434A;
+    private static final byte FILE_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    private static final byte RECORD_META = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot.";
+    private static final String LOG_PREFIX = "log.";
+
+    /**
+     * Receives the records of a snapshot from the owner, a snapshot holds the whole config so it has no deletes.
+     */
+    public interface SnapshotWriter {
+        void put(byte table, String key, byte[] value);
+
+        void meta(byte[] value);
+    }
+
+    /**
+     * Receives the records replayed by {@link #load(Handler)}.
+     */
+    public interface Handler extends SnapshotWriter {
+        void delete(byte table, String key);
+    }
+
+    private final File dir;
+    private final long minCompactSize;
+    private final Consumer<SnapshotWriter> snapshotSource;
+    private final ExecutorService compactExecutor;
+
+    private final RecordBuffer pending = new RecordBuffer(16 * 1024);
+    private FileChannel logChannel;
+    private long logSeq;
+    private volatile long snapshotSize;
+    private volatile boolean compacting;
+
+    /**
+     * @param dir directory of the snapshot and log files
+     * @param minCompactSize size a log has to reach before it is compacted, even if the snapshot is smaller
+     * @param snapshotSource writes the whole config of the owner to the given handler, called from the background
+     */
+    public ConfigJournal(String dir, long minCompactSize, Consumer<SnapshotWriter> snapshotSource) {
+        this.dir = new File(dir);
+        this.minCompactSize = minCompactSize;
+        this.snapshotSource = snapshotSource;
+        this.compactExecutor = ThreadUtils.newSingleThreadExecutor(new ThreadFactoryImpl("ConfigJournalCompactThread_" + this.dir.getName()));
+    }
+
+    /**
+     * @return true if a snapshot or log has been written to the directory
+     */
+    public boolean exists() {
+        return !listSeqs(SNAPSHOT_PREFIX).isEmpty() || !listSeqs(LOG_PREFIX).isEmpty();
+    }
+
+    public synchronized void load(Handler handler) throws IOException {
+        List<Long> snapshotSeqs = listSeqs(SNAPSHOT_PREFIX);
+        long snapshotSeq = snapshotSeqs.isEmpty() ? 0 : snapshotSeqs.get(snapshotSeqs.size() - 1);
+        long maxSeq = snapshotSeq - 1;
+        if (!snapshotSeqs.isEmpty()) {
+            File snapshot = file(SNAPSHOT_PREFIX, snapshotSeq);
+            replay(snapshot, handler);
+            snapshotSize = snapshot.length();
+        }
+        for (long seq : listSeqs(LOG_PREFIX)) {
+            if (seq >= snapshotSeq) {
+                replay(file(LOG_PREFIX, seq), handler);
+                maxSeq = seq;
+            }
+        }
+        // never append after a torn record, the next log is started instead
+        openLog(maxSeq + 1);
+    }
+
+    public synchronized void put(byte table, String key, byte[] value) {
+        pending.append(RECORD_PUT, table, key, value);
+    }
+
+    public synchronized void delete(byte table, String key) {
+        pending.append(RECORD_DELETE, table, key, null);
+    }
+
+    public synchronized void meta(byte[] value) {
+        pending.append(RECORD_META, (byte) 0, "", value);
+    }
+
+    /**
+     * Appends the buffered records to the log and forces it to disk, and starts a compaction if the log has grown
+     * large enough.
+     */
+    public synchronized void flush() throws IOException {
+        if (logChannel == null) {
+            openLog(logSeq + 1);
+        }
+        ByteBuffer buffer = pending.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                logChannel.write(buffer);
+            }
+            logChannel.force(false);
+        } catch (IOException e) {
+            // the log may end with a torn record now, the records are written again to the next one
+            pending.unflip();
+            closeLog();
+            throw e;
+        }
+        pending.clear();
+
+        if (!compacting && logChannel.size() > Math.max(minCompactSize, snapshotSize)) {
+            compact();
+        }
+    }
+
+    /**
+     * Starts a new log and takes a snapshot in the background, changes made meanwhile are in the new log, which is
+     * replayed after the snapshot.
+     */
+    private void compact() throws IOException {
+        closeLog();
+        openLog(logSeq + 1);
+        final long seq = logSeq;
+        compacting = true;
+        compactExecutor.submit(() -> {
+            try {
+                writeSnapshot(seq);
+                deleteFilesBefore(seq);
+            } catch (Throwable e) {
+                log.error("compact config journal {} exception", dir, e);
+            } finally {
+                compacting = false;
+            }
+        });
+    }
+
+    private void writeSnapshot(long seq) throws IOException {
+        final RecordBuffer snapshot = new RecordBuffer(64 * 1024);
+        snapshotSource.accept(new SnapshotWriter() {
+            @Override
+            public void put(byte table, String key, byte[] value) {
+                snapshot.append(RECORD_PUT, table, key, value);
+            }
+
+            @Override
+            public void meta(byte[] value) {
+                snapshot.append(RECORD_META, (byte) 0, "", value);
+            }
+        });
+
+        File file = file(SNAPSHOT_PREFIX, seq);
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(channel);
+            ByteBuffer buffer = snapshot.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotSize = file.length();
+        log.info("write config journal snapshot {}, {} bytes", file, snapshotSize);
+    }
+
+    private void deleteFilesBefore(long seq) {
+        for (String prefix : new String[] {SNAPSHOT_PREFIX, LOG_PREFIX}) {
+            for (long oldSeq : listSeqs(prefix)) {
+                if (oldSeq < seq && !file(prefix, oldSeq).delete()) {
+                    log.warn("delete config journal file {} failed", file(prefix, oldSeq));
+                }
+            }
+        }
+    }
+
+    private void replay(File file, Handler handler) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length < FILE_HEADER_SIZE || buffer.getInt() != FILE_MAGIC) {
+            throw new IOException("not a config journal file " + file);
+        }
+        byte version = buffer.get();
+        if (version > FILE_VERSION) {
+            throw new IOException("unsupported config journal version " + version + " of " + file);
+        }
+
+        CRC32 crc32 = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int crc = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            crc32.reset();
+            crc32.update(data, buffer.position(), length);
+            if ((int) crc32.getValue() != crc) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer record = ByteBuffer.wrap(data, buffer.position(), length).slice();
+            buffer.position(buffer.position() + length);
+
+            byte type = record.get();
+            byte table = record.get();
+            byte[] key = new byte[record.getInt()];
+            record.get(key);
+            byte[] value = new byte[record.remaining()];
+            record.get(value);
+            switch (type) {
+                case RECORD_PUT:
+                    handler.put(table, new String(key, StandardCharsets.UTF_8), value);
+                    break;
+                case RECORD_DELETE:
+                    handler.delete(table, new String(key, StandardCharsets.UTF_8));
+                    break;
+                case RECORD_META:
+                    handler.meta(value);
+                    break;
+                default:
+                    log.warn("skip unknown record type {} in config journal {}", type, file);
+            }
+        }
+        if (buffer.hasRemaining()) {
+            log.warn("drop torn record at {} of config journal {}, {} bytes", buffer.position(), file, buffer.remaining());
+        }
+    }
+
+    private void openLog(long seq) throws IOException {
+        UtilAll.ensureDirOK(dir.getPath());
+        logSeq = seq;
+        logChannel = FileChannel.open(file(LOG_PREFIX, seq).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        writeHeader(logChannel);
+    }
+
+    private void closeLog() {
+        if (logChannel != null) {
+            try {
+                logChannel.close();
+            } catch (IOException e) {
+                log.warn("close config journal {} exception", dir, e);
+            }
+            logChannel = null;
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(FILE_MAGIC).put(FILE_VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private File file(String prefix, long seq) {
+        return new File(dir, prefix + UtilAll.offset2FileName(seq));
+    }
+
+    private List<Long> listSeqs(String prefix) {
+        List<Long> seqs = new ArrayList<>();
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix) && !name.endsWith(".tmp")) {
+                    try {
+                        seqs.add(Long.parseLong(name.substring(prefix.length())));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    public boolean isCompacting() {
+        return compacting;
+    }
+
+    public synchronized void shutdown() {
+        compactExecutor.shutdown();
+        try {
+            compactExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeLog();
+    }
+
+    /**
+     * Growable buffer of framed records.
+     */
+    private static final class RecordBuffer {
+        private ByteBuffer buffer;
+
+        RecordBuffer(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        void append(byte type, byte table, String key, byte[] value) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            int length = 6 + keyBytes.length + (value != null ? value.length : 0);
+            if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + RECORD_HEADER_SIZE + length));
+                buffer.flip();
+                buffer = newBuffer.put(buffer);
+            }
+            int start = buffer.position();
+            buffer.putInt(length).putInt(0).put(type).put(table).putInt(keyBytes.length).put(keyBytes);
+            if (value != null) {
+                buffer.put(value);
+            }
+            CRC32 crc32 = new CRC32();
+            crc32.update(buffer.array(), start + RECORD_HEADER_SIZE, length);
+            buffer.putInt(start + 4, (int) crc32.getValue());
+        }
+
+        ByteBuffer flip() {
+            buffer.flip();
+            return buffer;
+        }
+
+        void unflip() {
+            buffer.position(buffer.limit()).limit(buffer.capacity());
+        }
+
+        void clear() {
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.message;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
+
+/**
+ * A read-only view over a message encoded in the commit log format, for callers that only look at a few fields of
+ * the messages they go through. Unlike {@link MessageDecoder#decode(ByteBuffer)} nothing is copied when wrapping:
+ * fixed fields are read from the buffer on each call, the topic and properties are located on first access, and a
+ * property is looked up by scanning the raw separators so that only the value found becomes a {@code String}.
+ * <p>
+ * The view does not change the position of the buffer. It is not thread safe and can be reused for another message
+ * by {@link #wrap(ByteBuffer)}.
+ */
+public class MessageBufferView {
+
+    private static final int MAX_CACHED_KEYS = 1024;
+    private static final ConcurrentMap<String, byte[]> KEY_BYTES = new ConcurrentHashMap<>();
+
+    private ByteBuffer buffer;
+    private int base;
+
+    // located on first access to the body, topic or properties
+    private int bodyLengthPosition = -1;
+    private int topicPosition;
+    private int topicLength;
+    private int propertiesPosition;
+    private int propertiesLength;
+    private String topic;
+
+    public MessageBufferView() {
+    }
+
+    public MessageBufferView(ByteBuffer buffer) {
+        wrap(buffer);
+    }
+
+    /**
+     * @param buffer the message starts at the position of the buffer
+     */
+    public MessageBufferView wrap(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.base = buffer.position();
+        this.bodyLengthPosition = -1;
+        this.topic = null;
+        return this;
+    }
+
+    public int getStoreSize() {
+        return buffer.getInt(base);
+    }
+
+    public MessageVersion getVersion() {
+        return MessageVersion.valueOfMagicCode(buffer.getInt(base + MessageDecoder.MESSAGE_MAGIC_CODE_POSITION));
+    }
+
+    public int getBodyCRC() {
+        return buffer.getInt(base + 8);
+    }
+
+    public int getQueueId() {
+        return buffer.getInt(base + 12);
+    }
+
+    public int getFlag() {
+        return buffer.getInt(base + MessageDecoder.MESSAGE_FLAG_POSITION);
+    }
+
+    public long getQueueOffset() {
+        return buffer.getLong(base + MessageDecoder.QUEUE_OFFSET_POSITION);
+    }
+
+    public long getCommitLogOffset() {
+        return buffer.getLong(base + MessageDecoder.MESSAGE_PHYSIC_OFFSET_POSITION);
+    }
+
+    public int getSysFlag() {
+        return buffer.getInt(base + MessageDecoder.SYSFLAG_POSITION);
+    }
+
+    public long getBornTimestamp() {
+        return buffer.getLong(base + MessageDecoder.SYSFLAG_POSITION + 4);
+    }
+
+    public long getStoreTimestamp() {
+        return buffer.getLong(base + storeTimestampPosition());
+    }
+
+    public int getReconsumeTimes() {
+        return buffer.getInt(base + storeTimestampPosition() + 8 + storeHostLength());
+    }
+
+    public long getPreparedTransactionOffset() {
+        return buffer.getLong(base + storeTimestampPosition() + 8 + storeHostLength() + 4);
+    }
+
+    public int getBodyLength() {
+        locate();
+        return buffer.getInt(bodyLengthPosition);
+    }
+
+    /**
+     * @return the body as stored, sharing the content of the wrapped buffer
+     */
+    public ByteBuffer getBody() {
+        locate();
+        ByteBuffer body = buffer.duplicate();
+        body.position(bodyLengthPosition + 4);
+        body.limit(bodyLengthPosition + 4 + buffer.getInt(bodyLengthPosition));
+        return body.slice();
+    }
+
+    public String getTopic() {
+        if (topic == null) {
+            locate();
+            topic = string(topicPosition, topicLength);
+        }
+        return topic;
+    }
+
+    public String getTags() {
+        return getProperty(MessageConst.PROPERTY_TAGS);
+    }
+
+    public String getKeys() {
+        return getProperty(MessageConst.PROPERTY_KEYS);
+    }
+
+    /**
+     * Looks the property up in the raw properties, with the same result as the map of
+     * {@link MessageDecoder#string2messageProperties(String)}.
+     */
+    public String getProperty(String name) {
+        locate();
+        byte[] key = keyBytes(name);
+        if (key.length == 0) {
+            return null;
+        }
+        int end = propertiesPosition + propertiesLength;
+        int entry = propertiesPosition;
+        int valuePosition = -1;
+        int valueLength = 0;
+        while (entry < end) {
+            int entryEnd = indexOf(MessageDecoder.PROPERTY_SEPARATOR, entry, end);
+            int separator = entry + key.length;
+            // the last one wins if the key is repeated, as in the decoded map
+            if (separator < entryEnd - 1
+                && buffer.get(separator) == MessageDecoder.NAME_VALUE_SEPARATOR && matches(entry, key)) {
+                valuePosition = separator + 1;
+                valueLength = entryEnd - valuePosition;
+            }
+            entry = entryEnd + 1;
+        }
+        return valuePosition < 0 ? null : string(valuePosition, valueLength);
+    }
+
+    public String getPropertiesString() {
+        locate();
+        return propertiesLength > 0 ? string(propertiesPosition, propertiesLength) : null;
+    }
+
+    /**
+     * Decodes all the properties, for callers that need more than a few of them.
+     */
+    public Map<String, String> getProperties() {
+        return MessageDecoder.string2messageProperties(getPropertiesString());
+    }
+
+    private int bornHostLength() {
+        return (getSysFlag() & MessageSysFlag.BORNHOST_V6_FLAG) == 0 ? 8 : 20;
+    }
+
+    private int storeHostLength() {
+        return (getSysFlag() & MessageSysFlag.STOREHOSTADDRESS_V6_FLAG) == 0 ? 8 : 20;
+    }
+
+    private int storeTimestampPosition() {
+        return MessageDecoder.SYSFLAG_POSITION + 4 + 8 + bornHostLength();
+    }
+
+    private void locate() {
+        if (bodyLengthPosition >= 0) {
+            return;
+        }
+        int bodyLengthPosition = base + storeTimestampPosition() + 8 + storeHostLength() + 4 + 8;
+        MessageVersion version = getVersion();
+        int topicLengthPosition = bodyLengthPosition + 4 + buffer.getInt(bodyLengthPosition);
+        this.topicLength = version.getTopicLength(buffer, topicLengthPosition);
+        this.topicPosition = topicLengthPosition + version.getTopicLengthSize();
+        this.propertiesLength = Math.max(0, buffer.getShort(topicPosition + topicLength));
+        this.propertiesPosition = topicPosition + topicLength + 2;
+        this.bodyLengthPosition = bodyLengthPosition;
+    }
+
+    private int indexOf(char separator, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == separator) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private boolean matches(int position, byte[] key) {
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String string(int position, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + position, length, MessageDecoder.CHARSET_UTF8);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.get(bytes);
+        return new String(bytes, MessageDecoder.CHARSET_UTF8);
+    }
+
+    private static byte[] keyBytes(String name) {
+        byte[] key = KEY_BYTES.get(name);
+        if (key == null) {
+            key = name.getBytes(MessageDecoder.CHARSET_UTF8);
+            if (KEY_BYTES.size() < MAX_CACHED_KEYS) {
+                byte[] prev = KEY_BYTES.putIfAbsent(name, key);
+                if (prev != null) {
+                    key = prev;
+                }
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return "MessageBufferView{topic=" + getTopic() + ", queueId=" + getQueueId()
+            + ", queueOffset=" + getQueueOffset() + ", properties=" + getProperties() + "}";
+    }
+}
@@ -90,6 +90,11 @@ public class NamesrvConfig {
      * 2. This flag does not support static topic currently.
      */
     private boolean deleteTopicWithBrokerRegistration = false;
+
+    /**
+     * Max number of topics whose encoded route is cached for route queries, 0 to disable the cache.
+     */
+    private int topicRouteCacheMaxTopics = 100000;
     /**
      * Config in this black list will be not allowed to update by command.
      * Try to update this config black list by restart process.
@@ -272,4 +277,12 @@ public class NamesrvConfig {
     public void setDeleteTopicWithBrokerRegistration(boolean deleteTopicWithBrokerRegistration) {
         this.deleteTopicWithBrokerRegistration = deleteTopicWithBrokerRegistration;
     }
+
+    public int getTopicRouteCacheMaxTopics() {
+        return topicRouteCacheMaxTopics;
+    }
+
+    public void setTopicRouteCacheMaxTopics(int topicRouteCacheMaxTopics) {
+        this.topicRouteCacheMaxTopics = topicRouteCacheMaxTopics;
+    }
 }
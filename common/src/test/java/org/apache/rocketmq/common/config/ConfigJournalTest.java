@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.UtilAll;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.awaitility.Awaitility.await;
+
+public class ConfigJournalTest {
+
+    private String dir;
+    private final Map<String, String> table = new ConcurrentHashMap<>();
+    private ConfigJournal journal;
+
+    @Before
+    public void init() throws IOException {
+        dir = System.getProperty("java.io.tmpdir") + File.separator + "config-journal-" + UUID.randomUUID();
+        journal = newJournal(1024);
+        journal.load(new MapHandler(new ConcurrentHashMap<>()));
+    }
+
+    @After
+    public void destroy() {
+        journal.shutdown();
+        UtilAll.deleteFile(new File(dir));
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        put("a", "1");
+        put("b", "2");
+        journal.flush();
+        put("a", "3");
+        table.remove("b");
+        journal.delete((byte) 0, "b");
+        journal.meta("v2".getBytes(StandardCharsets.UTF_8));
+        journal.flush();
+        journal.shutdown();
+
+        MapHandler handler = new MapHandler(new ConcurrentHashMap<>());
+        journal = newJournal(1024);
+        journal.load(handler);
+        assertThat(handler.map).containsOnly(entry("a", "3"));
+        assertThat(handler.meta).isEqualTo("v2");
+    }
+
+    @Test
+    public void testCompact() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            put("key" + i % 10, "value" + i);
+            journal.flush();
+        }
+        await().atMost(5, TimeUnit.SECONDS).until(() -> !journal.isCompacting());
+        put("key0", "last");
+        journal.flush();
+        journal.shutdown();
+
+        String[] names = new File(dir).list();
+        assertThat(names).anyMatch(name -> name.startsWith("snapshot."));
+        assertThat(names.length).isLessThan(5);
+
+        MapHandler handler = new MapHandler(new ConcurrentHashMap<>());
+        journal = newJournal(1024);
+        journal.load(handler);
+        assertThat(handler.map).hasSize(10).containsEntry("key0", "last").containsEntry("key9", "value199");
+    }
+
+    @Test
+    public void testDropTornRecord() throws IOException {
+        put("a", "1");
+        journal.flush();
+        put("a", "2");
+        journal.flush();
+        journal.shutdown();
+
+        File log = new File(dir).listFiles((d, name) -> name.startsWith("log."))[0];
+        try (RandomAccessFile file = new RandomAccessFile(log, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        MapHandler handler = new MapHandler(new ConcurrentHashMap<>());
+        journal = newJournal(1024);
+        journal.load(handler);
+        assertThat(handler.map).containsOnly(entry("a", "1"));
+
+        // appended to a new log, not after the torn record
+        put("b", "3");
+        journal.flush();
+        journal.shutdown();
+        handler = new MapHandler(new ConcurrentHashMap<>());
+        journal = newJournal(1024);
+        journal.load(handler);
+        assertThat(handler.map).containsOnly(entry("a", "1"), entry("b", "3"));
+    }
+
+    private ConfigJournal newJournal(long minCompactSize) {
+        return new ConfigJournal(dir, minCompactSize, handler -> {
+            for (Map.Entry<String, String> entry : table.entrySet()) {
+                handler.put((byte) 0, entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    private void put(String key, String value) {
+        table.put(key, value);
+        journal.put((byte) 0, key, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static class MapHandler implements ConfigJournal.Handler {
+        private final Map<String, String> map;
+        private String meta;
+
+        MapHandler(Map<String, String> map) {
+            this.map = map;
+        }
+
+        @Override
+        public void put(byte table, String key, byte[] value) {
+            map.put(key, new String(value, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void delete(byte table, String key) {
+            map.remove(key);
+        }
+
+        @Override
+        public void meta(byte[] value) {
+            meta = new String(value, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.common.message;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageBufferViewTest {
+
+    @Test
+    public void testReadFields() throws Exception {
+        MessageExt messageExt = buildMessage();
+        byte[] encoded = MessageDecoder.encode(messageExt, false);
+
+        MessageBufferView view = new MessageBufferView(ByteBuffer.wrap(encoded));
+        assertThat(view.getStoreSize()).isEqualTo(encoded.length);
+        assertThat(view.getVersion()).isEqualTo(MessageVersion.MESSAGE_VERSION_V1);
+        assertThat(view.getQueueId()).isEqualTo(3);
+        assertThat(view.getFlag()).isEqualTo(7);
+        assertThat(view.getQueueOffset()).isEqualTo(123L);
+        assertThat(view.getCommitLogOffset()).isEqualTo(456789L);
+        assertThat(view.getBornTimestamp()).isEqualTo(1000L);
+        assertThat(view.getStoreTimestamp()).isEqualTo(2000L);
+        assertThat(view.getReconsumeTimes()).isEqualTo(2);
+        assertThat(view.getPreparedTransactionOffset()).isEqualTo(99L);
+        assertThat(view.getBodyLength()).isEqualTo(5);
+        assertThat(StandardCharsets.UTF_8.decode(view.getBody()).toString()).isEqualTo("hello");
+        assertThat(view.getTopic()).isEqualTo("MessageBufferViewTest");
+        assertThat(view.getTags()).isEqualTo("TagA");
+        assertThat(view.getKeys()).isEqualTo("KeyA");
+        assertThat(view.getProperties()).isEqualTo(messageExt.getProperties());
+    }
+
+    @Test
+    public void testGetProperty() throws Exception {
+        MessageExt messageExt = buildMessage();
+        messageExt.putUserProperty("k", "short");
+        MessageAccessor.putProperty(messageExt, "key", "");
+        messageExt.putUserProperty("keyLonger", "long");
+        messageExt.putUserProperty("unicode", "\u00e9t\u00e9");
+        byte[] encoded = MessageDecoder.encode(messageExt, false);
+
+        // not at the beginning of a direct buffer
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length + 16);
+        buffer.position(16);
+        buffer.put(encoded);
+        buffer.position(16);
+        MessageBufferView view = new MessageBufferView(buffer);
+
+        assertThat(view.getProperty("k")).isEqualTo("short");
+        assertThat(view.getProperty("key")).isNull();
+        assertThat(view.getProperty("keyLonger")).isEqualTo("long");
+        assertThat(view.getProperty("keyL")).isNull();
+        assertThat(view.getProperty("unicode")).isEqualTo("\u00e9t\u00e9");
+        assertThat(view.getProperty("absent")).isNull();
+        assertThat(view.getProperty("")).isNull();
+        assertThat(view.getQueueOffset()).isEqualTo(123L);
+        assertThat(buffer.position()).isEqualTo(16);
+        for (String name : MessageDecoder.decodeProperties(ByteBuffer.wrap(encoded)).keySet()) {
+            assertThat(view.getProperty(name)).isEqualTo(messageExt.getProperty(name));
+        }
+    }
+
+    @Test
+    public void testWrapAnotherMessage() throws Exception {
+        MessageExt first = buildMessage();
+        MessageExt second = buildMessage();
+        second.setTopic("Another");
+        second.setTags("TagB");
+        second.setBody(new byte[1024]);
+
+        MessageBufferView view = new MessageBufferView(ByteBuffer.wrap(MessageDecoder.encode(first, false)));
+        assertThat(view.getTopic()).isEqualTo("MessageBufferViewTest");
+        view.wrap(ByteBuffer.wrap(MessageDecoder.encode(second, false)));
+        assertThat(view.getTopic()).isEqualTo("Another");
+        assertThat(view.getTags()).isEqualTo("TagB");
+        assertThat(view.getBodyLength()).isEqualTo(1024);
+    }
+
+    private static MessageExt buildMessage() {
+        MessageExt messageExt = new MessageExt();
+        messageExt.setTopic("MessageBufferViewTest");
+        messageExt.setQueueId(3);
+        messageExt.setFlag(7);
+        messageExt.setQueueOffset(123L);
+        messageExt.setCommitLogOffset(456789L);
+        messageExt.setBornTimestamp(1000L);
+        messageExt.setStoreTimestamp(2000L);
+        messageExt.setReconsumeTimes(2);
+        messageExt.setPreparedTransactionOffset(99L);
+        messageExt.setBornHost(new InetSocketAddress("127.0.0.1", 8123));
+        messageExt.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        messageExt.setBody("hello".getBytes(StandardCharsets.UTF_8));
+        messageExt.setTags("TagA");
+        messageExt.setKeys("KeyA");
+        messageExt.putUserProperty("a", "1");
+        return messageExt;
+    }
+}
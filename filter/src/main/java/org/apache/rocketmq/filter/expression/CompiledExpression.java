@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.filter.expression;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A boolean expression compiled by {@link ExpressionCompiler}.
+ * <p>
+ * Each property referred by the expression is read from the context at most once per evaluation. The result is the
+ * same as the source expression, except that the conditions of a top level AND may be evaluated in another order:
+ * a message not matching it may then get FALSE where the source expression gives null or throws.
+ * </p>
+ */
+public class CompiledExpression implements BooleanExpression {
+
+    private final BooleanExpression source;
+    private final ExpressionCompiler.Node root;
+    private final String[] propertyNames;
+
+    CompiledExpression(BooleanExpression source, ExpressionCompiler.Node root, List<String> propertyNames) {
+        this.source = source;
+        this.root = root;
+        this.propertyNames = propertyNames.toArray(new String[0]);
+    }
+
+    @Override
+    public Object evaluate(EvaluationContext context) throws Exception {
+        switch (root.eval(new Frame(context, propertyNames))) {
+            case ExpressionCompiler.TRUE:
+                return Boolean.TRUE;
+            case ExpressionCompiler.FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public boolean matches(EvaluationContext context) throws Exception {
+        return root.eval(new Frame(context, propertyNames)) == ExpressionCompiler.TRUE;
+    }
+
+    public BooleanExpression getSource() {
+        return source;
+    }
+
+    public List<String> getPropertyNames() {
+        return Arrays.asList(propertyNames);
+    }
+
+    /**
+     * @return the compiled tree, for debugging
+     */
+    public String explain() {
+        return root.toString();
+    }
+
+    @Override
+    public String toString() {
+        return source.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || !this.getClass().equals(o.getClass())) {
+            return false;
+        }
+        return source.equals(((CompiledExpression) o).source);
+    }
+
+    /**
+     * Context of one evaluation, caches the properties by their slot.
+     */
+    static final class Frame implements EvaluationContext {
+        private final EvaluationContext context;
+        private final String[] names;
+        private final Object[] values;
+        private long loaded;
+
+        Frame(EvaluationContext context, String[] names) {
+            this.context = context;
+            this.names = names;
+            this.values = new Object[Math.min(names.length, 64)];
+        }
+
+        Object property(int slot) {
+            if (slot >= 64) {
+                return context.get(names[slot]);
+            }
+            long bit = 1L << slot;
+            if ((loaded & bit) != 0) {
+                return values[slot];
+            }
+            Object value = context.get(names[slot]);
+            values[slot] = value;
+            loaded |= bit;
+            return value;
+        }
+
+        @Override
+        public Object get(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return property(i);
+                }
+            }
+            return context.get(name);
+        }
+
+        @Override
+        public Map<String, Object> keyValues() {
+            return context.keyValues();
+        }
+    }
+}
@@ -0,0 +1,933 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.filter.expression;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.filter.constant.UnaryType;
+
+/**
+ * Compiles a parsed SQL92 expression into a tree of nodes specialised on the shape of each condition.
+ * <p>
+ * Comparisons between a property and a constant are evaluated on the raw property value: no boxing of the results,
+ * the constant converted once, and each property looked up once per evaluation. Constant sub expressions are folded,
+ * AND/OR chains are flattened and their cheapest conditions evaluated first where this can not change the result.
+ * Conditions of other shapes, and property values of unexpected types, are evaluated by the source expression.
+ * </p>
+ */
+public final class ExpressionCompiler {
+
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
+
+    private static final String AND = "&&";
+    private static final String OR = "||";
+
+    private static final Object NOT_CONSTANT = new Object();
+    private static final EvaluationContext EMPTY_CONTEXT = new EmptyEvaluationContext();
+    private static final Comparator<Node> COST_COMPARATOR = Comparator.comparingInt(Node::cost);
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> propertyNames = new ArrayList<>();
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * @return the compiled expression, or the expression itself if it is not a boolean expression
+     */
+    public static Expression compile(Expression expression) {
+        if (!(expression instanceof BooleanExpression) || expression instanceof CompiledExpression) {
+            return expression;
+        }
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        Node root = compiler.compileRoot((BooleanExpression) expression);
+        return new CompiledExpression((BooleanExpression) expression, root, compiler.propertyNames);
+    }
+
+    private Node compileRoot(BooleanExpression expression) {
+        if (!isLogic(expression, AND)) {
+            return compileBoolean(expression);
+        }
+        // only TRUE matches a message, so a top level AND may evaluate its conditions in any order
+        return and(compileChain(expression, AND), true);
+    }
+
+    private Node compileBoolean(Expression expression) {
+        if (isConstant(expression)) {
+            try {
+                Object value = expression.evaluate(EMPTY_CONTEXT);
+                if (value == null) {
+                    return ConstantNode.NULL;
+                }
+                if (value instanceof Boolean) {
+                    return (Boolean) value ? ConstantNode.TRUE : ConstantNode.FALSE;
+                }
+            } catch (Throwable ignored) {
+                // fails for every message, keep the error
+            }
+            return interpreted(expression);
+        }
+        if (isLogic(expression, AND)) {
+            return and(compileChain(expression, AND), false);
+        }
+        if (isLogic(expression, OR)) {
+            return or(compileChain(expression, OR));
+        }
+        if (expression instanceof UnaryInExpression) {
+            UnaryInExpression in = (UnaryInExpression) expression;
+            if (in.getRight() instanceof PropertyExpression) {
+                return new InNode(in, slot(in.getRight()), in.getInList(), in.isNot());
+            }
+        } else if (expression instanceof UnaryExpression) {
+            return compileUnary((UnaryExpression) expression);
+        } else if (expression instanceof ComparisonExpression) {
+            return compileComparison((ComparisonExpression) expression);
+        }
+        return interpreted(expression);
+    }
+
+    private Node compileUnary(UnaryExpression expression) {
+        Expression right = expression.getRight();
+        if (expression.getUnaryType() == UnaryType.NOT) {
+            return not(compileBoolean(right));
+        }
+        if (!(right instanceof PropertyExpression)) {
+            return interpreted(expression);
+        }
+        if (expression.getUnaryType() == UnaryType.BOOLEANCAST) {
+            return new BooleanCastNode(expression, slot(right));
+        }
+        if (expression instanceof ComparisonExpression.ContainsExpression) {
+            return stringMatch(expression, StringMatchNode.CONTAINS, ((ComparisonExpression.ContainsExpression) expression).search, false);
+        }
+        if (expression instanceof ComparisonExpression.NotContainsExpression) {
+            return stringMatch(expression, StringMatchNode.CONTAINS, ((ComparisonExpression.NotContainsExpression) expression).search, true);
+        }
+        if (expression instanceof ComparisonExpression.StartsWithExpression) {
+            return stringMatch(expression, StringMatchNode.STARTS_WITH, ((ComparisonExpression.StartsWithExpression) expression).search, false);
+        }
+        if (expression instanceof ComparisonExpression.NotStartsWithExpression) {
+            return stringMatch(expression, StringMatchNode.STARTS_WITH, ((ComparisonExpression.NotStartsWithExpression) expression).search, true);
+        }
+        if (expression instanceof ComparisonExpression.EndsWithExpression) {
+            return stringMatch(expression, StringMatchNode.ENDS_WITH, ((ComparisonExpression.EndsWithExpression) expression).search, false);
+        }
+        if (expression instanceof ComparisonExpression.NotEndsWithExpression) {
+            return stringMatch(expression, StringMatchNode.ENDS_WITH, ((ComparisonExpression.NotEndsWithExpression) expression).search, true);
+        }
+        return interpreted(expression);
+    }
+
+    private Node stringMatch(UnaryExpression expression, int type, String search, boolean not) {
+        if (search == null || search.isEmpty()) {
+            return ConstantNode.FALSE;
+        }
+        return new StringMatchNode(expression, slot(expression.getRight()), type, search, not);
+    }
+
+    private Node compileComparison(ComparisonExpression expression) {
+        if (!expression.convertStringExpressions) {
+            return interpreted(expression);
+        }
+        boolean propertyOnLeft;
+        Expression property;
+        Object constant;
+        if (expression.getLeft() instanceof PropertyExpression
+            && (constant = constantOf(expression.getRight())) != NOT_CONSTANT) {
+            propertyOnLeft = true;
+            property = expression.getLeft();
+        } else if (expression.getRight() instanceof PropertyExpression
+            && (constant = constantOf(expression.getLeft())) != NOT_CONSTANT) {
+            propertyOnLeft = false;
+            property = expression.getRight();
+        } else {
+            return interpreted(expression);
+        }
+
+        int op = NumberCompareNode.opOf(expression.getExpressionSymbol());
+        boolean isNumber = constant instanceof Integer || constant instanceof Long || constant instanceof Double;
+        if (op == NumberCompareNode.EQ) {
+            if (constant == null && propertyOnLeft) {
+                return new IsNullNode(expression, slot(property), true);
+            }
+            if (constant instanceof String) {
+                return new StringEqualNode(expression, slot(property), (String) constant, propertyOnLeft);
+            }
+            if (constant instanceof Boolean && propertyOnLeft) {
+                return new BooleanEqualNode(expression, slot(property), (Boolean) constant);
+            }
+        }
+        if (op >= 0 && isNumber) {
+            return new NumberCompareNode(expression, slot(property), op, (Number) constant, propertyOnLeft);
+        }
+        return interpreted(expression);
+    }
+
+    private List<Node> compileChain(Expression expression, String symbol) {
+        List<Expression> chain = new ArrayList<>();
+        collectChain(expression, symbol, chain);
+        List<Node> nodes = new ArrayList<>(chain.size());
+        for (Expression child : chain) {
+            nodes.add(compileBoolean(child));
+        }
+        return nodes;
+    }
+
+    private static void collectChain(Expression expression, String symbol, List<Expression> chain) {
+        if (isLogic(expression, symbol)) {
+            collectChain(((LogicExpression) expression).getLeft(), symbol, chain);
+            collectChain(((LogicExpression) expression).getRight(), symbol, chain);
+        } else {
+            chain.add(expression);
+        }
+    }
+
+    private static Node and(List<Node> children, boolean matchOnly) {
+        List<Node> nodes = new ArrayList<>(children.size());
+        for (Node child : children) {
+            if (child instanceof AndNode) {
+                for (Node grandChild : ((AndNode) child).children) {
+                    nodes.add(grandChild);
+                }
+            } else {
+                nodes.add(child);
+            }
+        }
+        List<Node> folded = new ArrayList<>(nodes.size());
+        boolean mayThrow = false;
+        for (Node node : nodes) {
+            if (node == ConstantNode.TRUE) {
+                continue;
+            }
+            if (node == ConstantNode.FALSE || matchOnly && node == ConstantNode.NULL) {
+                // nothing after it is evaluated
+                if (matchOnly || !mayThrow) {
+                    return ConstantNode.FALSE;
+                }
+                folded.add(ConstantNode.FALSE);
+                break;
+            }
+            mayThrow |= node.mayThrow();
+            folded.add(node);
+        }
+        if (folded.isEmpty()) {
+            return ConstantNode.TRUE;
+        }
+        if (folded.size() == 1) {
+            return folded.get(0);
+        }
+        if (matchOnly) {
+            folded.sort(COST_COMPARATOR);
+        } else {
+            sortSafeRuns(folded);
+        }
+        return new AndNode(folded.toArray(new Node[0]));
+    }
+
+    private static Node or(List<Node> children) {
+        List<Node> nodes = new ArrayList<>(children.size());
+        for (Node child : children) {
+            if (child instanceof OrNode) {
+                for (Node grandChild : ((OrNode) child).children) {
+                    nodes.add(grandChild);
+                }
+            } else {
+                nodes.add(child);
+            }
+        }
+        List<Node> folded = new ArrayList<>(nodes.size());
+        boolean mayThrow = false;
+        for (Node node : nodes) {
+            if (node == ConstantNode.FALSE) {
+                continue;
+            }
+            if (node == ConstantNode.TRUE) {
+                if (!mayThrow) {
+                    return ConstantNode.TRUE;
+                }
+                folded.add(ConstantNode.TRUE);
+                break;
+            }
+            mayThrow |= node.mayThrow();
+            folded.add(node);
+        }
+        if (folded.isEmpty()) {
+            return ConstantNode.FALSE;
+        }
+        if (folded.size() == 1) {
+            return folded.get(0);
+        }
+        sortSafeRuns(folded);
+        return new OrNode(folded.toArray(new Node[0]));
+    }
+
+    /**
+     * Sort the conditions between two that may throw, the ones that may throw keep their place so the same errors
+     * are raised.
+     */
+    private static void sortSafeRuns(List<Node> nodes) {
+        int start = 0;
+        while (start < nodes.size()) {
+            if (nodes.get(start).mayThrow()) {
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while (end < nodes.size() && !nodes.get(end).mayThrow()) {
+                end++;
+            }
+            nodes.subList(start, end).sort(COST_COMPARATOR);
+            start = end;
+        }
+    }
+
+    private static Node not(Node child) {
+        if (child == ConstantNode.TRUE) {
+            return ConstantNode.FALSE;
+        }
+        if (child == ConstantNode.FALSE) {
+            return ConstantNode.TRUE;
+        }
+        if (child == ConstantNode.NULL) {
+            return ConstantNode.NULL;
+        }
+        if (child instanceof NotNode) {
+            return ((NotNode) child).child;
+        }
+        if (child instanceof IsNullNode) {
+            IsNullNode isNull = (IsNullNode) child;
+            return new IsNullNode(isNull.source, isNull.slot, !isNull.expectNull);
+        }
+        return new NotNode(child);
+    }
+
+    private Node interpreted(Expression expression) {
+        registerProperties(expression);
+        return new InterpretedNode(expression);
+    }
+
+    private void registerProperties(Expression expression) {
+        if (expression instanceof PropertyExpression) {
+            slot(expression);
+        } else if (expression instanceof BinaryExpression) {
+            registerProperties(((BinaryExpression) expression).getLeft());
+            registerProperties(((BinaryExpression) expression).getRight());
+        } else if (expression instanceof UnaryExpression) {
+            registerProperties(((UnaryExpression) expression).getRight());
+        }
+    }
+
+    private int slot(Expression property) {
+        String name = ((PropertyExpression) property).getName();
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = propertyNames.size();
+            slots.put(name, slot);
+            propertyNames.add(name);
+        }
+        return slot;
+    }
+
+    private static boolean isLogic(Expression expression, String symbol) {
+        return expression instanceof LogicExpression && symbol.equals(((LogicExpression) expression).getExpressionSymbol());
+    }
+
+    private static boolean isConstant(Expression expression) {
+        if (expression instanceof NowExpression) {
+            return false;
+        }
+        if (expression instanceof ConstantExpression) {
+            return true;
+        }
+        if (expression instanceof BinaryExpression) {
+            return isConstant(((BinaryExpression) expression).getLeft()) && isConstant(((BinaryExpression) expression).getRight());
+        }
+        if (expression instanceof UnaryExpression) {
+            return isConstant(((UnaryExpression) expression).getRight());
+        }
+        return false;
+    }
+
+    private static Object constantOf(Expression expression) {
+        if (!isConstant(expression)) {
+            return NOT_CONSTANT;
+        }
+        try {
+            return expression.evaluate(EMPTY_CONTEXT);
+        } catch (Throwable e) {
+            return NOT_CONSTANT;
+        }
+    }
+
+    private static int evaluate(Expression expression, EvaluationContext context) throws Exception {
+        Boolean value = (Boolean) expression.evaluate(context);
+        if (value == null) {
+            return UNKNOWN;
+        }
+        return value ? TRUE : FALSE;
+    }
+
+    abstract static class Node {
+        /**
+         * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN} for null
+         */
+        abstract int eval(CompiledExpression.Frame frame) throws Exception;
+
+        /**
+         * Rough cost of an evaluation, used to order the conditions of a chain.
+         */
+        abstract int cost();
+
+        boolean mayThrow() {
+            return false;
+        }
+    }
+
+    static final class ConstantNode extends Node {
+        static final ConstantNode TRUE = new ConstantNode(ExpressionCompiler.TRUE);
+        static final ConstantNode FALSE = new ConstantNode(ExpressionCompiler.FALSE);
+        static final ConstantNode NULL = new ConstantNode(ExpressionCompiler.UNKNOWN);
+
+        private final int value;
+
+        private ConstantNode(int value) {
+            this.value = value;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) {
+            return value;
+        }
+
+        @Override
+        int cost() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return value == ExpressionCompiler.TRUE ? "TRUE" : value == ExpressionCompiler.FALSE ? "FALSE" : "NULL";
+        }
+    }
+
+    static final class InterpretedNode extends Node {
+        private final Expression expression;
+
+        InterpretedNode(Expression expression) {
+            this.expression = expression;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            return evaluate(expression, frame);
+        }
+
+        @Override
+        int cost() {
+            return 20;
+        }
+
+        @Override
+        boolean mayThrow() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "interpreted" + expression;
+        }
+    }
+
+    static final class IsNullNode extends Node {
+        private final Expression source;
+        private final int slot;
+        private final boolean expectNull;
+
+        IsNullNode(Expression source, int slot, boolean expectNull) {
+            this.source = source;
+            this.slot = slot;
+            this.expectNull = expectNull;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) {
+            return (frame.property(slot) == null) == expectNull ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return expectNull ? source.toString() : "(NOT " + source + ")";
+        }
+    }
+
+    static final class BooleanCastNode extends Node {
+        private final Expression source;
+        private final int slot;
+
+        BooleanCastNode(Expression source, int slot) {
+            this.source = source;
+            this.slot = slot;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) {
+            Object value = frame.property(slot);
+            if (value == null) {
+                return UNKNOWN;
+            }
+            if (value.getClass() != Boolean.class) {
+                return FALSE;
+            }
+            return (Boolean) value ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    static final class StringEqualNode extends Node {
+        private final Expression source;
+        private final int slot;
+        private final String constant;
+        private final boolean propertyOnLeft;
+
+        StringEqualNode(Expression source, int slot, String constant, boolean propertyOnLeft) {
+            this.source = source;
+            this.slot = slot;
+            this.constant = constant;
+            this.propertyOnLeft = propertyOnLeft;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            Object value = frame.property(slot);
+            if (value == null) {
+                return propertyOnLeft ? UNKNOWN : FALSE;
+            }
+            if (value.getClass() != String.class) {
+                return evaluate(source, frame);
+            }
+            return constant.equals(value) ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return 2;
+        }
+
+        @Override
+        boolean mayThrow() {
+            // only for values which are not strings
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    static final class BooleanEqualNode extends Node {
+        private final Expression source;
+        private final int slot;
+        private final boolean constant;
+
+        BooleanEqualNode(Expression source, int slot, boolean constant) {
+            this.source = source;
+            this.slot = slot;
+            this.constant = constant;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            Object value = frame.property(slot);
+            if (value == null) {
+                return UNKNOWN;
+            }
+            if (value.getClass() != String.class) {
+                return evaluate(source, frame);
+            }
+            return Boolean.parseBoolean((String) value) == constant ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return 2;
+        }
+
+        @Override
+        boolean mayThrow() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    /**
+     * A property compared with a number, the property is converted to the type of the number as
+     * {@link ComparisonExpression} does.
+     */
+    static final class NumberCompareNode extends Node {
+        static final int EQ = 0;
+        static final int GT = 1;
+        static final int GE = 2;
+        static final int LT = 3;
+        static final int LE = 4;
+
+        private static final int INT = 0;
+        private static final int LONG = 1;
+        private static final int DOUBLE = 2;
+
+        private final Expression source;
+        private final int slot;
+        private final int op;
+        private final boolean propertyOnLeft;
+        private final int type;
+        private final long longConstant;
+        private final double doubleConstant;
+
+        NumberCompareNode(Expression source, int slot, int op, Number constant, boolean propertyOnLeft) {
+            this.source = source;
+            this.slot = slot;
+            this.op = op;
+            this.propertyOnLeft = propertyOnLeft;
+            this.type = constant instanceof Integer ? INT : constant instanceof Long ? LONG : DOUBLE;
+            this.longConstant = constant.longValue();
+            this.doubleConstant = constant.doubleValue();
+        }
+
+        static int opOf(String symbol) {
+            switch (symbol) {
+                case "==":
+                    return EQ;
+                case ">":
+                    return GT;
+                case ">=":
+                    return GE;
+                case "<":
+                    return LT;
+                case "<=":
+                    return LE;
+                default:
+                    return -1;
+            }
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            Object value = frame.property(slot);
+            if (value == null) {
+                return op == EQ && !propertyOnLeft ? FALSE : UNKNOWN;
+            }
+            if (value.getClass() != String.class) {
+                return evaluate(source, frame);
+            }
+            int compare;
+            try {
+                switch (type) {
+                    case INT:
+                        compare = Integer.compare(Integer.parseInt((String) value), (int) longConstant);
+                        break;
+                    case LONG:
+                        compare = Long.compare(Long.parseLong((String) value), longConstant);
+                        break;
+                    default:
+                        compare = Double.compare(Double.parseDouble((String) value), doubleConstant);
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                throw new RuntimeException(e);
+            }
+            if (!propertyOnLeft) {
+                compare = -compare;
+            }
+            switch (op) {
+                case EQ:
+                    return compare == 0 ? TRUE : FALSE;
+                case GT:
+                    return compare > 0 ? TRUE : FALSE;
+                case GE:
+                    return compare >= 0 ? TRUE : FALSE;
+                case LT:
+                    return compare < 0 ? TRUE : FALSE;
+                default:
+                    return compare <= 0 ? TRUE : FALSE;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 4;
+        }
+
+        @Override
+        boolean mayThrow() {
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    static final class InNode extends Node {
+        private final Expression source;
+        private final int slot;
+        private final Collection<?> inList;
+        private final boolean not;
+
+        InNode(Expression source, int slot, Collection<?> inList, boolean not) {
+            this.source = source;
+            this.slot = slot;
+            this.inList = inList;
+            this.not = not;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) {
+            Object value = frame.property(slot);
+            if (value == null || value.getClass() != String.class) {
+                return UNKNOWN;
+            }
+            return (inList != null && inList.contains(value)) ^ not ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return inList == null || inList.size() < 5 ? 3 : 4;
+        }
+
+        @Override
+        public String toString() {
+            return source.toString();
+        }
+    }
+
+    static final class StringMatchNode extends Node {
+        static final int CONTAINS = 0;
+        static final int STARTS_WITH = 1;
+        static final int ENDS_WITH = 2;
+
+        private final Expression source;
+        private final int slot;
+        private final int type;
+        private final String search;
+        private final boolean not;
+
+        StringMatchNode(Expression source, int slot, int type, String search, boolean not) {
+            this.source = source;
+            this.slot = slot;
+            this.type = type;
+            this.search = search;
+            this.not = not;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) {
+            Object value = frame.property(slot);
+            if (!(value instanceof String)) {
+                return FALSE;
+            }
+            boolean matched;
+            switch (type) {
+                case CONTAINS:
+                    matched = ((String) value).contains(search);
+                    break;
+                case STARTS_WITH:
+                    matched = ((String) value).startsWith(search);
+                    break;
+                default:
+                    matched = ((String) value).endsWith(search);
+                    break;
+            }
+            return matched ^ not ? TRUE : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return type == CONTAINS ? 6 : 5;
+        }
+
+        @Override
+        public String toString() {
+            String symbol = type == CONTAINS ? "CONTAINS" : type == STARTS_WITH ? "STARTSWITH" : "ENDSWITH";
+            return ((UnaryExpression) source).getRight() + (not ? " NOT " : " ") + symbol + " '" + search + "'";
+        }
+    }
+
+    static final class NotNode extends Node {
+        private final Node child;
+
+        NotNode(Node child) {
+            this.child = child;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            int value = child.eval(frame);
+            if (value == UNKNOWN) {
+                return UNKNOWN;
+            }
+            return value == TRUE ? FALSE : TRUE;
+        }
+
+        @Override
+        int cost() {
+            return child.cost();
+        }
+
+        @Override
+        boolean mayThrow() {
+            return child.mayThrow();
+        }
+
+        @Override
+        public String toString() {
+            return "(NOT " + child + ")";
+        }
+    }
+
+    static final class AndNode extends Node {
+        private final Node[] children;
+        private final int cost;
+        private final boolean mayThrow;
+
+        AndNode(Node[] children) {
+            this.children = children;
+            int cost = 0;
+            boolean mayThrow = false;
+            for (Node child : children) {
+                cost += child.cost();
+                mayThrow |= child.mayThrow();
+            }
+            this.cost = cost;
+            this.mayThrow = mayThrow;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            boolean unknown = false;
+            for (Node child : children) {
+                int value = child.eval(frame);
+                if (value == FALSE) {
+                    return FALSE;
+                }
+                if (value == UNKNOWN) {
+                    unknown = true;
+                }
+            }
+            return unknown ? UNKNOWN : TRUE;
+        }
+
+        @Override
+        int cost() {
+            return cost;
+        }
+
+        @Override
+        boolean mayThrow() {
+            return mayThrow;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " AND ");
+        }
+    }
+
+    static final class OrNode extends Node {
+        private final Node[] children;
+        private final int cost;
+        private final boolean mayThrow;
+
+        OrNode(Node[] children) {
+            this.children = children;
+            int cost = 0;
+            boolean mayThrow = false;
+            for (Node child : children) {
+                cost += child.cost();
+                mayThrow |= child.mayThrow();
+            }
+            this.cost = cost;
+            this.mayThrow = mayThrow;
+        }
+
+        @Override
+        int eval(CompiledExpression.Frame frame) throws Exception {
+            boolean unknown = false;
+            for (Node child : children) {
+                int value = child.eval(frame);
+                if (value == TRUE) {
+                    return TRUE;
+                }
+                if (value == UNKNOWN) {
+                    unknown = true;
+                }
+            }
+            return unknown ? UNKNOWN : FALSE;
+        }
+
+        @Override
+        int cost() {
+            return cost;
+        }
+
+        @Override
+        boolean mayThrow() {
+            return mayThrow;
+        }
+
+        @Override
+        public String toString() {
+            return join(children, " OR ");
+        }
+    }
+
+    private static String join(Node[] children, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < children.length; i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(children[i]);
+        }
+        return builder.append(')').toString();
+    }
+}
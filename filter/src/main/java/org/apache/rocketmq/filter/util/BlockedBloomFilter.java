@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.filter.util;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+
+/**
+ * Blocked bloom filter: the bits are split into blocks of one cache line, all the positions of one requester are in
+ * the same block, so testing it reads one block only.
+ * <p>
+ * The first byte of the bits is {@link #FORMAT_VERSION}, followed by the blocks. The bit num never equals the one
+ * of {@link BloomFilter} created with the same error rate and mapping num, so that bit maps of the two formats can
+ * not be mistaken for each other.
+ * </p>
+ */
+public class BlockedBloomFilter extends BloomFilter {
+
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final int BLOCK_BITS = 512;
+
+    private static final int HEADER_BITS = Byte.SIZE;
+
+    private final int blockNum;
+
+    /**
+     * Create blocked bloom filter by error rate and mapping num.
+     *
+     * @param f error rate
+     * @param n num will mapping to bit
+     */
+    public static BlockedBloomFilter createByFn(int f, int n) {
+        return new BlockedBloomFilter(f, n);
+    }
+
+    private BlockedBloomFilter(int f, int n) {
+        super(f, n);
+        // at least the bit num of the classic bloom filter, as positions in one block collide more
+        this.blockNum = (this.m + BLOCK_BITS - 1) / BLOCK_BITS;
+        int byteNum = (HEADER_BITS + this.blockNum * BLOCK_BITS) / Byte.SIZE;
+        if (byteNum * Byte.SIZE == this.m) {
+            byteNum++;
+        }
+        this.m = byteNum * Byte.SIZE;
+    }
+
+    /**
+     * Calculate bit positions of {@code str}, the block is chosen by the lower 64 bits of the hash, and the positions
+     * in the block by the higher 64 bits.
+     */
+    @Override
+    public int[] calcBitPositions(String str) {
+        int[] bitPositions = new int[this.k];
+
+        HashCode hashCode = Hashing.murmur3_128().hashString(str, UTF_8);
+        byte[] hashBytes = hashCode.asBytes();
+        long low = hashCode.asLong();
+        long high = 0;
+        for (int i = 15; i >= 8; i--) {
+            high = (high << 8) | (hashBytes[i] & 0xFF);
+        }
+
+        int blockStart = HEADER_BITS + (int) ((low >>> 1) % this.blockNum) * BLOCK_BITS;
+        int hash1 = (int) high;
+        // odd, so the positions in the block are all different
+        int hash2 = (int) (high >>> 32) | 1;
+
+        for (int i = 1; i <= this.k; i++) {
+            bitPositions[i - 1] = blockStart + ((hash1 + i * hash2) & (BLOCK_BITS - 1));
+        }
+
+        return bitPositions;
+    }
+
+    @Override
+    public BitsArray createBits() {
+        BitsArray bits = super.createBits();
+        bits.setByte(0, FORMAT_VERSION);
+        return bits;
+    }
+
+    @Override
+    public boolean isBitMap(byte[] bitMap) {
+        return super.isBitMap(bitMap) && bitMap[0] == FORMAT_VERSION;
+    }
+
+    /**
+     * block num.
+     */
+    public int getBlockNum() {
+        return blockNum;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("blocked, %s, blocks: %d", super.toString(), blockNum);
+    }
+}
@@ -34,9 +34,9 @@ public class BloomFilter {
     private int n = 128;
 
     // hash function num, by calculation.
-    private int k;
+    protected int k;
     // bit count, by calculation.
-    private int m;
+    protected int m;
 
     /**
      * Create bloom filter by error rate and mapping num.
@@ -54,7 +54,7 @@ public class BloomFilter {
      * @param f error rate
      * @param n num will mapping to bit
      */
-    private BloomFilter(int f, int n) {
+    protected BloomFilter(int f, int n) {
         if (f < 1 || f >= 100) {
             throw new IllegalArgumentException("f must be greater or equal than 1 and less than 100");
         }
@@ -108,6 +108,20 @@ public class BloomFilter {
         return bitPositions;
     }
 
+    /**
+     * Create empty bits of this bloom filter.
+     */
+    public BitsArray createBits() {
+        return BitsArray.create(this.m);
+    }
+
+    /**
+     * Check whether {@code bitMap} is the bytes of bits created by this bloom filter.
+     */
+    public boolean isBitMap(byte[] bitMap) {
+        return bitMap != null && bitMap.length * Byte.SIZE == this.m;
+    }
+
     /**
      * Calculate bit positions of {@code str} to construct {@code BloomFilterData}
      */
@@ -175,6 +189,21 @@ public class BloomFilter {
         return ret;
     }
 
+    /**
+     * Check all the related positions of {@code bitMap} is 1, the bytes are read in place. Be care, the caller
+     * should check {@code bitMap} by {@link #isBitMap(byte[])} first.
+     *
+     * @return true: all the related positions is 1
+     */
+    public boolean isHit(int[] bitPositions, byte[] bitMap) {
+        for (int pos : bitPositions) {
+            if ((bitMap[pos >>> 3] & (1 << (pos & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Check all the related {@code bits} positions is 1.
      *
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.filter;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.rocketmq.filter.util.BitsArray;
+import org.apache.rocketmq.filter.util.BlockedBloomFilter;
+import org.apache.rocketmq.filter.util.BloomFilter;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BlockedBloomFilterTest {
+
+    @Test
+    public void testPositionsInOneBlock() {
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.createByFn(10, 300);
+        assertThat(bloomFilter.getBlockNum()).isGreaterThan(1);
+
+        for (int i = 0; i < 1000; i++) {
+            int[] bitPos = bloomFilter.calcBitPositions("CID_" + i + "#topic");
+            assertThat(bitPos.length).isEqualTo(bloomFilter.getK());
+
+            int block = (bitPos[0] - Byte.SIZE) / BlockedBloomFilter.BLOCK_BITS;
+            Set<Integer> distinct = new HashSet<>();
+            for (int pos : bitPos) {
+                assertThat(pos).isLessThan(bloomFilter.getM());
+                assertThat((pos - Byte.SIZE) / BlockedBloomFilter.BLOCK_BITS).isEqualTo(block);
+                distinct.add(pos);
+            }
+            assertThat(distinct).hasSize(bitPos.length);
+        }
+    }
+
+    @Test
+    public void testBitMapFormat() {
+        for (int f = 1; f < 100; f += 7) {
+            for (int n = 1; n <= 1024; n *= 2) {
+                BloomFilter classic = BloomFilter.createByFn(f, n);
+                BlockedBloomFilter blocked = BlockedBloomFilter.createByFn(f, n);
+                assertThat(blocked.getM()).isGreaterThan(classic.getM());
+
+                byte[] blockedBitMap = blocked.createBits().bytes();
+                byte[] classicBitMap = classic.createBits().bytes();
+                classicBitMap[0] = BlockedBloomFilter.FORMAT_VERSION;
+                assertThat(blocked.isBitMap(blockedBitMap)).isTrue();
+                assertThat(blocked.isBitMap(classicBitMap)).isFalse();
+                assertThat(classic.isBitMap(classicBitMap)).isTrue();
+                assertThat(classic.isBitMap(blockedBitMap)).isFalse();
+            }
+        }
+    }
+
+    @Test
+    public void testIsHit() {
+        BlockedBloomFilter bloomFilter = BlockedBloomFilter.createByFn(20, 64);
+        BitsArray bits = bloomFilter.createBits();
+        for (int i = 0; i < 64; i += 2) {
+            bloomFilter.hashTo("CID_" + i, bits);
+        }
+
+        for (int i = 0; i < 64; i++) {
+            int[] bitPos = bloomFilter.calcBitPositions("CID_" + i);
+            boolean hit = bloomFilter.isHit(bitPos, bits.bytes());
+            assertThat(hit).isEqualTo(bloomFilter.isHit(bitPos, bits));
+            if (i % 2 == 0) {
+                assertThat(hit).isTrue();
+            }
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRate() {
+        for (int n : new int[] {32, 200}) {
+            BlockedBloomFilter bloomFilter = BlockedBloomFilter.createByFn(20, n);
+            BitsArray bits = bloomFilter.createBits();
+            for (int i = 0; i < n; i++) {
+                bloomFilter.hashTo("CID_" + i + "#topic", bits);
+            }
+
+            int falseHit = 0;
+            int testNum = 10000;
+            for (int i = n; i < n + testNum; i++) {
+                if (bloomFilter.isHit(bloomFilter.calcBitPositions("CID_" + i + "#topic"), bits.bytes())) {
+                    falseHit++;
+                }
+            }
+            assertThat(falseHit).isLessThanOrEqualTo(bloomFilter.getF() * testNum / 100);
+        }
+    }
+}
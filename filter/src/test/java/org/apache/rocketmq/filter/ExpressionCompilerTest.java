@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.rocketmq.filter.expression.BooleanExpression;
+import org.apache.rocketmq.filter.expression.CompiledExpression;
+import org.apache.rocketmq.filter.expression.EvaluationContext;
+import org.apache.rocketmq.filter.expression.Expression;
+import org.apache.rocketmq.filter.expression.ExpressionCompiler;
+import org.apache.rocketmq.filter.expression.LogicExpression;
+import org.apache.rocketmq.filter.parser.SelectorParser;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExpressionCompilerTest {
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+        "a = 3",
+        "3 = a",
+        "a <> 3",
+        "a = 3.5",
+        "a = 3000000000",
+        "a > 3 OR b < 4",
+        "5 > a",
+        "a >= -2",
+        "a BETWEEN 1 AND 10",
+        "a NOT BETWEEN 1 AND 10",
+        "b = 'abc'",
+        "'abc' = b",
+        "b <> 'abc' OR a = 1",
+        "b IN ('abc', 'x', 'y')",
+        "b NOT IN ('a', 'b', 'c', 'd', 'e', 'abc')",
+        "b IS NULL",
+        "b IS NOT NULL",
+        "NOT (b IS NULL)",
+        "b CONTAINS 'bc'",
+        "b NOT STARTSWITH 'ab'",
+        "b ENDSWITH 'c' OR b ENDSWITH ''",
+        "e = TRUE",
+        "e = FALSE OR a = 3",
+        "e",
+        "NOT e",
+        "1 = 1 AND b = 'abc'",
+        "1 = 2 OR b = 'abc'",
+        "(a > 1 OR b = 'abc') AND NOT (c IN ('x') OR c IS NULL)",
+        "NOT (a > 5 AND b = 'abc')",
+        "NOT (a > 5 OR b = 'abc' OR c = 'x')",
+        "a = 3 AND b = 'abc' AND c IS NOT NULL AND d STARTSWITH 'pre'",
+        "a > 1 AND a < 10 AND a <> 5"
+    );
+
+    private static final List<Map<String, Object>> PROPERTIES = new ArrayList<>();
+
+    static {
+        PROPERTIES.add(properties());
+        PROPERTIES.add(properties("a", "3", "b", "abc", "c", "x", "d", "prefix", "e", "true"));
+        PROPERTIES.add(properties("a", "7", "b", "xbc", "e", "false"));
+        PROPERTIES.add(properties("a", "3.5", "b", "ab", "c", "y", "d", "1.5"));
+        PROPERTIES.add(properties("a", "not a number", "b", "abc", "c", "x"));
+        PROPERTIES.add(properties("a", "-2", "c", ""));
+        PROPERTIES.add(properties("a", 3, "b", 1, "e", Boolean.TRUE));
+        PROPERTIES.add(properties("a", 3000000000L, "b", "3", "e", "yes"));
+    }
+
+    @Test
+    public void testSameResultAsInterpreter() throws Exception {
+        for (String sql : EXPRESSIONS) {
+            BooleanExpression expression = SelectorParser.parse(sql);
+            Expression compiled = ExpressionCompiler.compile(expression);
+            assertThat(compiled).isInstanceOf(CompiledExpression.class);
+            for (Map<String, Object> properties : PROPERTIES) {
+                Object expect = evaluate(expression, properties);
+                Object actual = evaluate(compiled, properties);
+                String message = sql + " with " + properties + " compiled to " + ((CompiledExpression) compiled).explain();
+                if (expression instanceof LogicExpression && "&&".equals(((LogicExpression) expression).getExpressionSymbol())) {
+                    // the conditions of a top level AND may be reordered, only TRUE must be the same
+                    assertThat(Boolean.TRUE.equals(actual)).as(message).isEqualTo(Boolean.TRUE.equals(expect));
+                } else {
+                    assertThat(actual).as(message).isEqualTo(expect);
+                }
+                assertThat(matches((CompiledExpression) compiled, properties)).as(message).isEqualTo(Boolean.TRUE.equals(expect));
+            }
+        }
+    }
+
+    @Test
+    public void testPropertyReadOnce() throws Exception {
+        Expression compiled = ExpressionCompiler.compile(SelectorParser.parse("a BETWEEN 1 AND 10 AND a <> 5 AND b = 'x'"));
+        assertThat(((CompiledExpression) compiled).getPropertyNames()).containsExactly("a", "b");
+
+        PropertyContext context = new PropertyContext(properties("a", "3", "b", "x"));
+        assertThat(compiled.evaluate(context)).isEqualTo(Boolean.TRUE);
+        assertThat(context.reads).isEqualTo(2);
+    }
+
+    @Test
+    public void testConstantFolding() throws Exception {
+        assertThat(explain("1 = 1 AND b = 'abc'")).isEqualTo("(b == 'abc')");
+        assertThat(explain("1 = 2 AND b = 'abc'")).isEqualTo("FALSE");
+        assertThat(explain("b CONTAINS '' OR b = 'abc'")).isEqualTo("(b == 'abc')");
+        assertThat(explain("a > -5")).isEqualTo("(a > (- 5))");
+        assertThat(explain("NOT (b IS NULL)")).isEqualTo("(NOT (b == NULL))");
+    }
+
+    @Test
+    public void testCheapConditionsFirst() throws Exception {
+        assertThat(explain("d STARTSWITH 'pre' AND a > 3 AND b = 'abc' AND c IS NULL"))
+            .isEqualTo("((c == NULL) AND (b == 'abc') AND (a > 3) AND d STARTSWITH 'pre')");
+        // the conditions of a nested chain keep their order around the ones which may throw
+        assertThat(explain("NOT (d STARTSWITH 'pre' AND c IS NULL AND a > 3)"))
+            .isEqualTo("(NOT ((c == NULL) AND d STARTSWITH 'pre' AND (a > 3)))");
+    }
+
+    private static String explain(String sql) throws Exception {
+        return ((CompiledExpression) ExpressionCompiler.compile(SelectorParser.parse(sql))).explain();
+    }
+
+    private static Object evaluate(Expression expression, Map<String, Object> properties) {
+        try {
+            return expression.evaluate(new PropertyContext(properties));
+        } catch (Throwable e) {
+            return "ERROR";
+        }
+    }
+
+    private static boolean matches(CompiledExpression expression, Map<String, Object> properties) {
+        try {
+            return expression.matches(new PropertyContext(properties));
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static Map<String, Object> properties(Object... keyValues) {
+        Map<String, Object> properties = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return properties;
+    }
+
+    static class PropertyContext implements EvaluationContext {
+        private final Map<String, Object> properties;
+        private int reads = 0;
+
+        PropertyContext(Map<String, Object> properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public Object get(String name) {
+            reads++;
+            return properties.get(name);
+        }
+
+        @Override
+        public Map<String, Object> keyValues() {
+            return properties;
+        }
+    }
+}
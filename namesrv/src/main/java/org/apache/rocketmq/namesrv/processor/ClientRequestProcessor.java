@@ -17,7 +17,6 @@
 
 package org.apache.rocketmq.namesrv.processor;
 
-import com.alibaba.fastjson.serializer.SerializerFeature;
 import io.netty.channel.ChannelHandlerContext;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +28,7 @@ import org.apache.rocketmq.common.namesrv.NamesrvUtil;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.namesrv.NamesrvController;
+import org.apache.rocketmq.namesrv.routeinfo.TopicRouteCache;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 import org.apache.rocketmq.remoting.netty.NettyRequestProcessor;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
@@ -71,29 +71,28 @@ public class ClientRequestProcessor implements NettyRequestProcessor {
             return response;
         }
 
-        TopicRouteData topicRouteData = this.namesrvController.getRouteInfoManager().pickupTopicRouteData(requestHeader.getTopic());
+        Boolean standardJsonOnly = Optional.ofNullable(requestHeader.getAcceptStandardJsonOnly()).orElse(false);
+        boolean standardJson = request.getVersion() >= MQVersion.Version.V4_9_4.ordinal() || standardJsonOnly;
 
-        if (topicRouteData != null) {
-            //topic route info register success ,so disable namesrvReady check
-            if (needCheckNamesrvReady.get()) {
-                needCheckNamesrvReady.set(false);
-            }
-
-            if (this.namesrvController.getNamesrvConfig().isOrderMessageEnable()) {
+        byte[] content = null;
+        if (this.namesrvController.getNamesrvConfig().isOrderMessageEnable()) {
+            // The order topic conf is kept in the kv config, which the route cache knows nothing about
+            TopicRouteData topicRouteData = this.namesrvController.getRouteInfoManager().pickupTopicRouteData(requestHeader.getTopic());
+            if (topicRouteData != null) {
                 String orderTopicConf =
                     this.namesrvController.getKvConfigManager().getKVConfig(NamesrvUtil.NAMESPACE_ORDER_TOPIC_CONFIG,
                         requestHeader.getTopic());
                 topicRouteData.setOrderTopicConf(orderTopicConf);
+                content = TopicRouteCache.encode(topicRouteData, standardJson);
             }
+        } else {
+            content = this.namesrvController.getRouteInfoManager().pickupTopicRouteContent(requestHeader.getTopic(), standardJson);
+        }
 
-            byte[] content;
-            Boolean standardJsonOnly = Optional.ofNullable(requestHeader.getAcceptStandardJsonOnly()).orElse(false);
-            if (request.getVersion() >= MQVersion.Version.V4_9_4.ordinal() || standardJsonOnly) {
-                content = topicRouteData.encode(SerializerFeature.BrowserCompatible,
-                    SerializerFeature.QuoteFieldNames, SerializerFeature.SkipTransientField,
-                    SerializerFeature.MapSortField);
-            } else {
-                content = topicRouteData.encode();
+        if (content != null) {
+            //topic route info register success ,so disable namesrvReady check
+            if (needCheckNamesrvReady.get()) {
+                needCheckNamesrvReady.set(false);
             }
 
             response.setBody(content);
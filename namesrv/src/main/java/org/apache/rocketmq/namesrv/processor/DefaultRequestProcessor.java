@@ -235,12 +235,16 @@ public class DefaultRequestProcessor implements NettyRequestProcessor {
 
         TopicConfigSerializeWrapper topicConfigWrapper = null;
         List<String> filterServerList = null;
+        DataVersion baseDataVersion = null;
+        List<String> deletedTopicList = null;
 
         Version brokerVersion = MQVersion.value2Version(request.getVersion());
         if (brokerVersion.ordinal() >= MQVersion.Version.V3_0_11.ordinal()) {
             final RegisterBrokerBody registerBrokerBody = extractRegisterBrokerBodyFromRequest(request, requestHeader);
             topicConfigWrapper = registerBrokerBody.getTopicConfigSerializeWrapper();
             filterServerList = registerBrokerBody.getFilterServerList();
+            baseDataVersion = registerBrokerBody.getBaseDataVersion();
+            deletedTopicList = registerBrokerBody.getDeletedTopicList();
         } else {
             // RegisterBrokerBody of old version only contains TopicConfig.
             topicConfigWrapper = extractRegisterTopicConfigFromRequest(request);
@@ -256,6 +260,8 @@ public class DefaultRequestProcessor implements NettyRequestProcessor {
             requestHeader.getHeartbeatTimeoutMillis(),
             requestHeader.getEnableActingMaster(),
             topicConfigWrapper,
+            baseDataVersion,
+            deletedTopicList,
             filterServerList,
             ctx.channel()
         );
@@ -267,6 +273,12 @@ public class DefaultRequestProcessor implements NettyRequestProcessor {
             return response;
         }
 
+        if (result.isDataVersionMismatch()) {
+            response.setCode(ResponseCode.BROKER_DATA_VERSION_MISMATCH);
+            response.setRemark("base data version of the delta registration mismatch, full registration required");
+            return response;
+        }
+
         responseHeader.setHaServerAddr(result.getHaServerAddr());
         responseHeader.setMasterAddr(result.getMasterAddr());
 
@@ -75,6 +75,8 @@ public class RouteInfoManager {
     private final Map<BrokerAddrInfo/* brokerAddr */, BrokerLiveInfo> brokerLiveTable;
     private final Map<BrokerAddrInfo/* brokerAddr */, List<String>/* Filter Server */> filterServerTable;
     private final Map<String/* topic */, Map<String/*brokerName*/, TopicQueueMappingInfo>> topicQueueMappingInfoTable;
+    private final TopicRouteCache topicRouteCache;
+    private volatile boolean supportActingMaster;
 
     private final BatchUnregistrationService unRegisterService;
 
@@ -88,6 +90,8 @@ public class RouteInfoManager {
         this.brokerLiveTable = new ConcurrentHashMap<>(256);
         this.filterServerTable = new ConcurrentHashMap<>(256);
         this.topicQueueMappingInfoTable = new ConcurrentHashMap<>(1024);
+        this.topicRouteCache = new TopicRouteCache(namesrvConfig.getTopicRouteCacheMaxTopics());
+        this.supportActingMaster = namesrvConfig.isSupportActingMaster();
         this.unRegisterService = new BatchUnregistrationService(this, namesrvConfig);
         this.namesrvConfig = namesrvConfig;
         this.namesrvController = namesrvController;
@@ -151,6 +155,7 @@ public class RouteInfoManager {
         } catch (Exception e) {
             log.error("registerTopic Exception", e);
         } finally {
+            this.topicRouteCache.onTopicChanged(topic);
             this.lock.writeLock().unlock();
         }
     }
@@ -158,7 +163,9 @@ public class RouteInfoManager {
     public void deleteTopic(final String topic) {
         try {
             this.lock.writeLock().lockInterruptibly();
-            this.topicQueueTable.remove(topic);
+            if (this.topicQueueTable.remove(topic) != null) {
+                this.topicRouteCache.onTopicDeleted(topic);
+            }
         } catch (Exception e) {
             log.error("deleteTopic Exception", e);
         } finally {
@@ -181,11 +188,13 @@ public class RouteInfoManager {
                     final QueueData removedQD = queueDataMap.remove(brokerName);
                     if (removedQD != null) {
                         log.info("deleteTopic, remove one broker's topic {} {} {}", brokerName, topic, removedQD);
+                        this.topicRouteCache.onTopicChanged(topic);
                     }
                 }
                 if (queueDataMap.isEmpty()) {
                     log.info("deleteTopic, remove the topic all queue {} {}", clusterName, topic);
                     this.topicQueueTable.remove(topic);
+                    this.topicRouteCache.onTopicDeleted(topic);
                 }
             }
         } catch (Exception e) {
@@ -235,13 +244,46 @@ public class RouteInfoManager {
         final TopicConfigSerializeWrapper topicConfigWrapper,
         final List<String> filterServerList,
         final Channel channel) {
+        return registerBroker(clusterName, brokerAddr, brokerName, brokerId, haServerAddr, zoneName, timeoutMillis,
+            enableActingMaster, topicConfigWrapper, null, null, filterServerList, channel);
+    }
+
+    /**
+     * @param baseDataVersion set for delta registrations, in which topicConfigWrapper only holds the topics added or
+     * changed since the registration of this data version, refused unless it is the registered one
+     * @param deletedTopicList the topics removed since the registration of baseDataVersion
+     */
+    public RegisterBrokerResult registerBroker(
+        final String clusterName,
+        final String brokerAddr,
+        final String brokerName,
+        final long brokerId,
+        final String haServerAddr,
+        final String zoneName,
+        final Long timeoutMillis,
+        final Boolean enableActingMaster,
+        final TopicConfigSerializeWrapper topicConfigWrapper,
+        final DataVersion baseDataVersion,
+        final List<String> deletedTopicList,
+        final List<String> filterServerList,
+        final Channel channel) {
         RegisterBrokerResult result = new RegisterBrokerResult();
+        final boolean isDelta = baseDataVersion != null;
+        // Most registrations are heartbeats changing nothing in the routes, keep the cached routes for them
+        boolean brokerChanged = false;
         try {
             this.lock.writeLock().lockInterruptibly();
 
+            if (isDelta && !baseDataVersion.equals(queryBrokerTopicConfig(clusterName, brokerAddr))) {
+                log.info("Delta registration of broker {} based on {} refused, registered {}", brokerAddr,
+                    baseDataVersion, queryBrokerTopicConfig(clusterName, brokerAddr));
+                result.setDataVersionMismatch(true);
+                return result;
+            }
+
             //init or update the cluster info
             Set<String> brokerNames = ConcurrentHashMapUtils.computeIfAbsent((ConcurrentHashMap<String, Set<String>>) this.clusterAddrTable, clusterName, k -> new HashSet<>());
-            brokerNames.add(brokerName);
+            brokerChanged = brokerNames.add(brokerName);
 
             boolean registerFirst = false;
 
@@ -253,7 +295,12 @@ public class RouteInfoManager {
             }
 
             boolean isOldVersionBroker = enableActingMaster == null;
-            brokerData.setEnableActingMaster(!isOldVersionBroker && enableActingMaster);
+            boolean newEnableActingMaster = !isOldVersionBroker && enableActingMaster;
+            if (brokerData.isEnableActingMaster() != newEnableActingMaster
+                || !StringUtils.equals(brokerData.getZoneName(), zoneName)) {
+                brokerChanged = true;
+            }
+            brokerData.setEnableActingMaster(newEnableActingMaster);
             brokerData.setZoneName(zoneName);
 
             Map<Long, String> brokerAddrsMap = brokerData.getBrokerAddrs();
@@ -270,7 +317,9 @@ public class RouteInfoManager {
 
             //Switch slave to master: first remove <1, IP:PORT> in namesrv, then add <0, IP:PORT>
             //The same IP:PORT must only have one record in brokerAddrTable
-            brokerAddrsMap.entrySet().removeIf(item -> null != brokerAddr && brokerAddr.equals(item.getValue()) && brokerId != item.getKey());
+            if (brokerAddrsMap.entrySet().removeIf(item -> null != brokerAddr && brokerAddr.equals(item.getValue()) && brokerId != item.getKey())) {
+                brokerChanged = true;
+            }
 
             //If Local brokerId stateVersion bigger than the registering one,
             String oldBrokerAddr = brokerAddrsMap.get(brokerId);
@@ -299,6 +348,7 @@ public class RouteInfoManager {
 
             String oldAddr = brokerAddrsMap.put(brokerId, brokerAddr);
             registerFirst = registerFirst || (StringUtils.isEmpty(oldAddr));
+            brokerChanged = brokerChanged || registerFirst || !StringUtils.equals(oldAddr, brokerAddr);
 
             boolean isMaster = MixAll.MASTER_ID == brokerId;
 
@@ -318,25 +368,36 @@ public class RouteInfoManager {
                     // Delete the topics that don't exist in tcTable from the current broker
                     // Static topic is not supported currently
                     if (namesrvConfig.isDeleteTopicWithBrokerRegistration() && topicQueueMappingInfoMap.isEmpty()) {
-                        final Set<String> oldTopicSet = topicSetOfBrokerName(brokerName);
-                        final Set<String> newTopicSet = tcTable.keySet();
-                        final Sets.SetView<String> toDeleteTopics = Sets.difference(oldTopicSet, newTopicSet);
+                        final Set<String> toDeleteTopics;
+                        if (isDelta) {
+                            toDeleteTopics = deletedTopicList == null ? Collections.emptySet() : new HashSet<>(deletedTopicList);
+                        } else {
+                            final Set<String> oldTopicSet = topicSetOfBrokerName(brokerName);
+                            final Set<String> newTopicSet = tcTable.keySet();
+                            toDeleteTopics = Sets.difference(oldTopicSet, newTopicSet);
+                        }
                         for (final String toDeleteTopic : toDeleteTopics) {
                             Map<String, QueueData> queueDataMap = topicQueueTable.get(toDeleteTopic);
+                            if (queueDataMap == null) {
+                                continue;
+                            }
                             final QueueData removedQD = queueDataMap.remove(brokerName);
                             if (removedQD != null) {
                                 log.info("deleteTopic, remove one broker's topic {} {} {}", brokerName, toDeleteTopic, removedQD);
+                                topicRouteCache.onTopicChanged(toDeleteTopic);
                             }
 
                             if (queueDataMap.isEmpty()) {
                                 log.info("deleteTopic, remove the topic all queue {}", toDeleteTopic);
                                 topicQueueTable.remove(toDeleteTopic);
+                                topicRouteCache.onTopicDeleted(toDeleteTopic);
                             }
                         }
                     }
 
                     for (Map.Entry<String, TopicConfig> entry : tcTable.entrySet()) {
-                        if (registerFirst || this.isTopicConfigChanged(clusterName, brokerAddr,
+                        // Topics of a delta registration are all changed ones
+                        if (registerFirst || isDelta || this.isTopicConfigChanged(clusterName, brokerAddr,
                             topicConfigWrapper.getDataVersion(), brokerName,
                             entry.getValue().getTopicName())) {
                             final TopicConfig topicConfig = entry.getValue();
@@ -345,11 +406,13 @@ public class RouteInfoManager {
                                 // Wipe write perm for prime slave
                                 topicConfig.setPerm(topicConfig.getPerm() & (~PermName.PERM_WRITE));
                             }
-                            this.createAndUpdateQueueData(brokerName, topicConfig);
+                            if (this.createAndUpdateQueueData(brokerName, topicConfig)) {
+                                this.topicRouteCache.onTopicChanged(topicConfig.getTopicName());
+                            }
                         }
                     }
 
-                    if (this.isBrokerTopicConfigChanged(clusterName, brokerAddr, topicConfigWrapper.getDataVersion()) || registerFirst) {
+                    if (this.isBrokerTopicConfigChanged(clusterName, brokerAddr, topicConfigWrapper.getDataVersion()) || registerFirst || isDelta) {
                         //the topicQueueMappingInfoMap should never be null, but can be empty
                         for (Map.Entry<String, TopicQueueMappingInfo> entry : topicQueueMappingInfoMap.entrySet()) {
                             if (!topicQueueMappingInfoTable.containsKey(entry.getKey())) {
@@ -358,6 +421,7 @@ public class RouteInfoManager {
                             //Note asset brokerName equal entry.getValue().getBname()
                             //here use the mappingDetail.bname
                             topicQueueMappingInfoTable.get(entry.getKey()).put(entry.getValue().getBname(), entry.getValue());
+                            topicRouteCache.onTopicChanged(entry.getKey());
                         }
                     }
                 }
@@ -376,10 +440,13 @@ public class RouteInfoManager {
             }
 
             if (filterServerList != null) {
+                List<String> prevFilterServerList;
                 if (filterServerList.isEmpty()) {
-                    this.filterServerTable.remove(brokerAddrInfo);
+                    prevFilterServerList = this.filterServerTable.remove(brokerAddrInfo);
+                    brokerChanged = brokerChanged || prevFilterServerList != null;
                 } else {
-                    this.filterServerTable.put(brokerAddrInfo, filterServerList);
+                    prevFilterServerList = this.filterServerTable.put(brokerAddrInfo, filterServerList);
+                    brokerChanged = brokerChanged || !filterServerList.equals(prevFilterServerList);
                 }
             }
 
@@ -402,6 +469,9 @@ public class RouteInfoManager {
         } catch (Exception e) {
             log.error("registerBroker Exception", e);
         } finally {
+            if (brokerChanged) {
+                this.topicRouteCache.onBrokerChanged();
+            }
             this.lock.writeLock().unlock();
         }
 
@@ -474,7 +544,10 @@ public class RouteInfoManager {
         }
     }
 
-    private void createAndUpdateQueueData(final String brokerName, final TopicConfig topicConfig) {
+    /**
+     * @return whether the queue data of the topic changed
+     */
+    private boolean createAndUpdateQueueData(final String brokerName, final TopicConfig topicConfig) {
         QueueData queueData = new QueueData();
         queueData.setBrokerName(brokerName);
         queueData.setWriteQueueNums(topicConfig.getWriteQueueNums());
@@ -488,16 +561,20 @@ public class RouteInfoManager {
             queueDataMap.put(brokerName, queueData);
             this.topicQueueTable.put(topicConfig.getTopicName(), queueDataMap);
             log.info("new topic registered, {} {}", topicConfig.getTopicName(), queueData);
+            return true;
         } else {
             final QueueData existedQD = queueDataMap.get(brokerName);
             if (existedQD == null) {
                 queueDataMap.put(brokerName, queueData);
+                return true;
             } else if (!existedQD.equals(queueData)) {
                 log.info("topic changed, {} OLD: {} NEW: {}", topicConfig.getTopicName(), existedQD,
                     queueData);
                 queueDataMap.put(brokerName, queueData);
+                return true;
             }
         }
+        return false;
     }
 
     public int wipeWritePermOfBrokerByLock(final String brokerName) {
@@ -506,6 +583,7 @@ public class RouteInfoManager {
                 this.lock.writeLock().lockInterruptibly();
                 return operateWritePermOfBroker(brokerName, RequestCode.WIPE_WRITE_PERM_OF_BROKER);
             } finally {
+                this.topicRouteCache.onBrokerChanged();
                 this.lock.writeLock().unlock();
             }
         } catch (Exception e) {
@@ -521,6 +599,7 @@ public class RouteInfoManager {
                 this.lock.writeLock().lockInterruptibly();
                 return operateWritePermOfBroker(brokerName, RequestCode.ADD_WRITE_PERM_OF_BROKER);
             } finally {
+                this.topicRouteCache.onBrokerChanged();
                 this.lock.writeLock().unlock();
             }
         } catch (Exception e) {
@@ -645,6 +724,7 @@ public class RouteInfoManager {
         } catch (Exception e) {
             log.error("unregisterBroker Exception", e);
         } finally {
+            this.topicRouteCache.onBrokerChanged();
             this.lock.writeLock().unlock();
         }
     }
@@ -667,6 +747,7 @@ public class RouteInfoManager {
             if (queueDataMap.isEmpty()) {
                 log.debug("removeTopicByBrokerName, remove the topic all queue {}", topic);
                 itMap.remove();
+                this.topicRouteCache.onTopicDeleted(topic);
             }
 
             for (final String brokerName : reducedBroker) {
@@ -800,6 +881,45 @@ public class RouteInfoManager {
         return null;
     }
 
+    /**
+     * Same as {@link #pickupTopicRouteData(String)} but returns the route already encoded, served from the
+     * {@link TopicRouteCache} without taking the lock as long as the route does not change.
+     *
+     * @return the encoded route, or null if the topic has no route
+     */
+    public byte[] pickupTopicRouteContent(final String topic, final boolean standardJson) {
+        if (namesrvConfig.getTopicRouteCacheMaxTopics() <= 0) {
+            TopicRouteData topicRouteData = pickupTopicRouteData(topic);
+            return topicRouteData == null ? null : TopicRouteCache.encode(topicRouteData, standardJson);
+        }
+
+        // Acting master switching is applied when picking up routes, so cached routes depend on it too
+        if (supportActingMaster != namesrvConfig.isSupportActingMaster()) {
+            supportActingMaster = namesrvConfig.isSupportActingMaster();
+            this.topicRouteCache.onBrokerChanged();
+        }
+
+        byte[] content = this.topicRouteCache.get(topic, standardJson);
+        if (content != null) {
+            return content;
+        }
+
+        long brokerVersion = this.topicRouteCache.getBrokerVersion();
+        long topicVersion = this.topicRouteCache.getTopicVersion(topic);
+        TopicRouteData topicRouteData = pickupTopicRouteData(topic);
+        if (topicRouteData == null) {
+            return null;
+        }
+        content = TopicRouteCache.encode(topicRouteData, standardJson);
+        this.topicRouteCache.put(topic, brokerVersion, topicVersion, standardJson, content);
+        return content;
+    }
+
+    // For test only
+    TopicRouteCache getTopicRouteCache() {
+        return topicRouteCache;
+    }
+
     public void scanNotActiveBroker() {
         try {
             log.info("start scanNotActiveBroker");
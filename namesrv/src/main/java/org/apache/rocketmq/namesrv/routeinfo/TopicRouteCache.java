@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.namesrv.routeinfo;
+
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.rocketmq.remoting.protocol.route.TopicRouteData;
+
+/**
+ * Encoded routes of topics, valid until the route of the topic changes. A route depends on the queues of the topic
+ * and on the brokers serving them, so an entry is stale once either the version of its topic or the version of all
+ * brokers has moved since it was encoded. Versions are moved by {@link RouteInfoManager} under its write lock, while
+ * lookups take no lock at all.
+ * <p>
+ * Topic versions are taken from one sequence, so the version of a deleted topic can be dropped, a topic created
+ * again gets a version above those of the entries cached for it before. Beyond the max number of topics, entries are
+ * evicted in clock order, those read since the hand passed them are given a second chance.
+ */
+public class TopicRouteCache {
+
+    private final int maxTopics;
+    private final AtomicLong brokerVersion = new AtomicLong(0);
+    private final AtomicLong topicVersionSequence = new AtomicLong(0);
+    private final ConcurrentMap<String/* topic */, Long> topicVersionTable = new ConcurrentHashMap<>(1024);
+    private final ConcurrentMap<String/* topic */, Entry> entryTable = new ConcurrentHashMap<>(1024);
+    /**
+     * Guarded by this
+     */
+    private Iterator<Map.Entry<String, Entry>> clockHand;
+
+    public TopicRouteCache(int maxTopics) {
+        this.maxTopics = maxTopics;
+    }
+
+    public static byte[] encode(TopicRouteData topicRouteData, boolean standardJson) {
+        if (standardJson) {
+            return topicRouteData.encode(SerializerFeature.BrowserCompatible,
+                SerializerFeature.QuoteFieldNames, SerializerFeature.SkipTransientField,
+                SerializerFeature.MapSortField);
+        }
+        return topicRouteData.encode();
+    }
+
+    /**
+     * Called when brokers join, leave or change in a way visible in the routes of their topics.
+     */
+    public void onBrokerChanged() {
+        brokerVersion.incrementAndGet();
+    }
+
+    public void onTopicChanged(String topic) {
+        topicVersionTable.put(topic, topicVersionSequence.incrementAndGet());
+    }
+
+    public void onTopicDeleted(String topic) {
+        topicVersionTable.remove(topic);
+        entryTable.remove(topic);
+    }
+
+    public long getBrokerVersion() {
+        return brokerVersion.get();
+    }
+
+    /**
+     * @return the version of the topic, 0 if it is not in the route tables
+     */
+    public long getTopicVersion(String topic) {
+        return topicVersionTable.getOrDefault(topic, 0L);
+    }
+
+    /**
+     * @return the encoded route, or null if it is not cached or stale
+     */
+    public byte[] get(String topic, boolean standardJson) {
+        Entry entry = entryTable.get(topic);
+        if (entry == null || entry.brokerVersion != getBrokerVersion() || entry.topicVersion != getTopicVersion(topic)) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return standardJson ? entry.standardJson : entry.json;
+    }
+
+    /**
+     * Caches a route encoded from the tables as they were at the given versions, which must be read before the
+     * route is picked up, so that a route picked up while it changed is never taken as up to date. A topic without a
+     * version was not in the tables then, its route is not cached as it may be deleted again without a version move.
+     */
+    public void put(String topic, long brokerVersion, long topicVersion, boolean standardJson, byte[] content) {
+        if (topicVersion == 0) {
+            return;
+        }
+        Entry entry = entryTable.get(topic);
+        if (entry == null || entry.brokerVersion != brokerVersion || entry.topicVersion != topicVersion) {
+            if (entry == null && entryTable.size() >= maxTopics) {
+                evict();
+            }
+            entry = new Entry(brokerVersion, topicVersion);
+            entryTable.put(topic, entry);
+        }
+        if (standardJson) {
+            entry.standardJson = content;
+        } else {
+            entry.json = content;
+        }
+    }
+
+    /**
+     * Evicts entries until there is room for one more, scanning each entry at most twice.
+     */
+    private synchronized void evict() {
+        int limit = 2 * entryTable.size() + 1;
+        for (int i = 0; i < limit && entryTable.size() >= maxTopics; i++) {
+            if (clockHand == null || !clockHand.hasNext()) {
+                clockHand = entryTable.entrySet().iterator();
+                if (!clockHand.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<String, Entry> next = clockHand.next();
+            if (next.getValue().referenced) {
+                next.getValue().referenced = false;
+            } else {
+                entryTable.remove(next.getKey(), next.getValue());
+            }
+        }
+    }
+
+    public int size() {
+        return entryTable.size();
+    }
+
+    // For test only
+    int topicVersionSize() {
+        return topicVersionTable.size();
+    }
+
+    private static class Entry {
+        private final long brokerVersion;
+        private final long topicVersion;
+        /**
+         * Read since the clock hand passed the entry last
+         */
+        private volatile boolean referenced;
+        private volatile byte[] standardJson;
+        private volatile byte[] json;
+
+        Entry(long brokerVersion, long topicVersion) {
+            this.brokerVersion = brokerVersion;
+            this.topicVersion = topicVersion;
+        }
+    }
+}
@@ -49,6 +49,7 @@ import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
@@ -197,6 +198,7 @@ public class ClusterTestRequestProcessorTest {
         RouteInfoManager routeInfoManager = mock(RouteInfoManager.class);
         TopicRouteData topicRouteData = mock(TopicRouteData.class);
         when(routeInfoManager.pickupTopicRouteData(any())).thenReturn(topicRouteData);
+        when(routeInfoManager.pickupTopicRouteContent(any(), anyBoolean())).thenReturn(new byte[0]);
         return routeInfoManager;
     }
 
@@ -34,6 +34,8 @@ import org.apache.rocketmq.remoting.protocol.body.TopicConfigSerializeWrapper;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
@@ -162,6 +164,26 @@ public class RegisterBrokerBenchmark {
             topicConfigSerializeWrapper, new ArrayList<>(), channel);
     }
 
+    @Benchmark
+    @Fork(value = 2)
+    @Measurement(iterations = 10, time = 10)
+    @Warmup(iterations = 10, time = 1)
+    @Group("registerStorm")
+    @GroupThreads(4) // Brokers keep registering while the clients below read the routes
+    public void registerStorm_registerBroker() {
+        registerBroker();
+    }
+
+    @Benchmark
+    @Fork(value = 2)
+    @Measurement(iterations = 10, time = 10)
+    @Warmup(iterations = 10, time = 1)
+    @Group("registerStorm")
+    @GroupThreads(28)
+    public void registerStorm_pickupTopicRouteContent() {
+        routeInfoManager.pickupTopicRouteContent(topicList[new Random().nextInt(40000)], true);
+    }
+
     public static void main(String[] args) throws Exception {
         org.openjdk.jmh.Main.main(args);
     }
@@ -711,6 +711,95 @@ public class RouteInfoManagerNewTest {
 
     }
 
+    @Test
+    public void pickupTopicRouteContent() {
+        BrokerBasicInfo master = BrokerBasicInfo.defaultBroker();
+        registerBrokerWithNormalTopic(master, "TestTopic");
+
+        byte[] content = routeInfoManager.pickupTopicRouteContent("TestTopic", true);
+        assertThat(TopicRouteData.decode(content, TopicRouteData.class))
+            .isEqualTo(routeInfoManager.pickupTopicRouteData("TestTopic"));
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", true)).isSameAs(content);
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", false)).isNotSameAs(content);
+        assertThat(routeInfoManager.pickupTopicRouteContent("NotExistTopic", true)).isNull();
+
+        // Heartbeats changing nothing keep the cached route
+        master.dataVersion.nextVersion();
+        registerBrokerWithNormalTopic(master, "TestTopic");
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", true)).isSameAs(content);
+
+        // Queue changes of the topic invalidate it
+        registerSingleTopicWithBrokerName(master.brokerName, "TestTopic");
+        byte[] updated = routeInfoManager.pickupTopicRouteContent("TestTopic", true);
+        assertThat(updated).isNotSameAs(content);
+        assertThat(TopicRouteData.decode(updated, TopicRouteData.class).getQueueDatas().get(0).getPerm()).isEqualTo(6);
+
+        // So do broker changes
+        BrokerBasicInfo slave = BrokerBasicInfo.slaveBroker();
+        registerBrokerWithNormalTopic(slave, "TestTopic");
+        content = routeInfoManager.pickupTopicRouteContent("TestTopic", true);
+        assertThat(content).isNotSameAs(updated);
+        assertThat(TopicRouteData.decode(content, TopicRouteData.class).getBrokerDatas().get(0).getBrokerAddrs())
+            .containsValues(master.brokerAddr, slave.brokerAddr);
+
+        routeInfoManager.wipeWritePermOfBrokerByLock(master.brokerName);
+        updated = routeInfoManager.pickupTopicRouteContent("TestTopic", true);
+        assertThat(TopicRouteData.decode(updated, TopicRouteData.class).getQueueDatas().get(0).getPerm()).isEqualTo(PermName.PERM_READ);
+
+        routeInfoManager.deleteTopic("TestTopic");
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", true)).isNull();
+        assertThat(routeInfoManager.getTopicRouteCache().size()).isEqualTo(0);
+    }
+
+    @Test
+    public void pickupTopicRouteContentAfterUnregister() {
+        BrokerBasicInfo master = BrokerBasicInfo.defaultBroker();
+        registerBrokerWithNormalTopic(master, "TestTopic");
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", true)).isNotNull();
+
+        routeInfoManager.unregisterBroker(master.clusterName, master.brokerAddr, master.brokerName, 0);
+        assertThat(routeInfoManager.pickupTopicRouteContent("TestTopic", true)).isNull();
+    }
+
+    @Test
+    public void registerBrokerDelta() {
+        config.setDeleteTopicWithBrokerRegistration(true);
+        try {
+            BrokerBasicInfo master = BrokerBasicInfo.defaultBroker();
+            registerBrokerWithNormalTopic(master, "TestTopic", "TestTopic1");
+            DataVersion baseDataVersion = master.dataVersion;
+            DataVersion dataVersion = new DataVersion();
+            dataVersion.assignNewOne(baseDataVersion);
+            dataVersion.nextVersion();
+
+            TopicConfig changedTopic = new TopicConfig("TestTopic", 4, 4, PermName.PERM_READ);
+            TopicConfigSerializeWrapper delta = new TopicConfigSerializeWrapper();
+            delta.setDataVersion(dataVersion);
+            delta.getTopicConfigTable().put(changedTopic.getTopicName(), changedTopic);
+            delta.getTopicConfigTable().put("TestTopic2", new TopicConfig("TestTopic2"));
+
+            // Refused unless based on the registered data version
+            RegisterBrokerResult result = routeInfoManager.registerBroker(master.clusterName, master.brokerAddr,
+                master.brokerName, master.brokerId, master.haAddr, "", null, master.enableActingMaster, delta,
+                dataVersion, Collections.singletonList("TestTopic1"), new ArrayList<>(), mock(Channel.class));
+            assertThat(result.isDataVersionMismatch()).isTrue();
+            assertThat(routeInfoManager.pickupTopicRouteData("TestTopic2")).isNull();
+
+            result = routeInfoManager.registerBroker(master.clusterName, master.brokerAddr,
+                master.brokerName, master.brokerId, master.haAddr, "", null, master.enableActingMaster, delta,
+                baseDataVersion, Collections.singletonList("TestTopic1"), new ArrayList<>(), mock(Channel.class));
+            assertThat(result.isDataVersionMismatch()).isFalse();
+            assertThat(routeInfoManager.queryBrokerTopicConfig(master.clusterName, master.brokerAddr)).isEqualTo(dataVersion);
+            assertThat(routeInfoManager.pickupTopicRouteData("TestTopic").getQueueDatas().get(0).getPerm()).isEqualTo(PermName.PERM_READ);
+            assertThat(routeInfoManager.pickupTopicRouteData("TestTopic1")).isNull();
+            assertThat(routeInfoManager.pickupTopicRouteData("TestTopic2")).isNotNull();
+            // Topics the delta does not mention are kept
+            assertThat(routeInfoManager.pickupTopicRouteData("baseTopic")).isNotNull();
+        } finally {
+            config.setDeleteTopicWithBrokerRegistration(false);
+        }
+    }
+
     private RegisterBrokerResult registerBrokerWithNormalTopic(BrokerBasicInfo brokerInfo, String... topics) {
         ConcurrentHashMap<String, TopicConfig> topicConfigConcurrentHashMap = new ConcurrentHashMap<>();
         TopicConfig baseTopic = new TopicConfig("baseTopic");
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.namesrv.routeinfo;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TopicRouteCacheTest {
+
+    private static final byte[] CONTENT = new byte[] {1};
+
+    @Test
+    public void testDeletedTopicDropsVersion() {
+        TopicRouteCache cache = new TopicRouteCache(16);
+        cache.onTopicChanged("TestTopic");
+        long version = cache.getTopicVersion("TestTopic");
+        cache.put("TestTopic", cache.getBrokerVersion(), version, true, CONTENT);
+        assertThat(cache.get("TestTopic", true)).isSameAs(CONTENT);
+
+        cache.onTopicDeleted("TestTopic");
+        assertThat(cache.size()).isZero();
+        assertThat(cache.topicVersionSize()).isZero();
+
+        // a route picked up before the delete is not cached
+        cache.put("TestTopic", cache.getBrokerVersion(), version, true, CONTENT);
+        assertThat(cache.get("TestTopic", true)).isNull();
+
+        // nor taken as up to date once the topic is created again
+        cache.onTopicChanged("TestTopic");
+        assertThat(cache.getTopicVersion("TestTopic")).isGreaterThan(version);
+        assertThat(cache.get("TestTopic", true)).isNull();
+    }
+
+    @Test
+    public void testEvictWhenFull() {
+        TopicRouteCache cache = new TopicRouteCache(2);
+        for (String topic : new String[] {"TopicA", "TopicB", "TopicC"}) {
+            cache.onTopicChanged(topic);
+        }
+        cache.put("TopicA", cache.getBrokerVersion(), cache.getTopicVersion("TopicA"), true, CONTENT);
+        cache.put("TopicB", cache.getBrokerVersion(), cache.getTopicVersion("TopicB"), true, CONTENT);
+        assertThat(cache.get("TopicA", true)).isSameAs(CONTENT);
+
+        cache.put("TopicC", cache.getBrokerVersion(), cache.getTopicVersion("TopicC"), true, CONTENT);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("TopicC", true)).isSameAs(CONTENT);
+        // the one read recently is kept
+        assertThat(cache.get("TopicA", true)).isSameAs(CONTENT);
+        assertThat(cache.get("TopicB", true)).isNull();
+    }
+}
@@ -18,11 +18,13 @@ package org.apache.rocketmq.remoting.metrics;
 
 public class RemotingMetricsConstant {
     public static final String HISTOGRAM_RPC_LATENCY = "rocketmq_rpc_latency";
+    public static final String HISTOGRAM_RPC_STAGE_LATENCY = "rocketmq_rpc_stage_latency";
     public static final String LABEL_PROTOCOL_TYPE = "protocol_type";
     public static final String LABEL_REQUEST_CODE = "request_code";
     public static final String LABEL_RESPONSE_CODE = "response_code";
     public static final String LABEL_IS_LONG_POLLING = "is_long_polling";
     public static final String LABEL_RESULT = "result";
+    public static final String LABEL_STAGE = "stage";
 
     public static final String PROTOCOL_TYPE_REMOTING = "remoting";
 
@@ -32,4 +34,9 @@ public class RemotingMetricsConstant {
     public static final String RESULT_PROCESS_REQUEST_FAILED = "process_request_failed";
     public static final String RESULT_WRITE_CHANNEL_FAILED = "write_channel_failed";
 
+    public static final String STAGE_DECODE = "decode";
+    public static final String STAGE_QUEUE = "queue";
+    public static final String STAGE_PROCESS = "process";
+    public static final String STAGE_WRITE = "write";
+
 }
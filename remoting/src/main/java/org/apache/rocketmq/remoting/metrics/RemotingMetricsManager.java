@@ -29,22 +29,49 @@ import io.opentelemetry.sdk.metrics.View;
 import io.opentelemetry.sdk.metrics.ViewBuilder;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import org.apache.rocketmq.common.Pair;
 import org.apache.rocketmq.common.metrics.NopLongHistogram;
+import org.apache.rocketmq.remoting.common.RemotingHelper;
 
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.HISTOGRAM_RPC_LATENCY;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.HISTOGRAM_RPC_STAGE_LATENCY;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_PROTOCOL_TYPE;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_REQUEST_CODE;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_STAGE;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.PROTOCOL_TYPE_REMOTING;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_CANCELED;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_SUCCESS;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_WRITE_CHANNEL_FAILED;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_DECODE;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_PROCESS;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_QUEUE;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_WRITE;
 
 public class RemotingMetricsManager {
     public static LongHistogram rpcLatency = new NopLongHistogram();
+    public static LongHistogram rpcStageLatency = new NopLongHistogram();
     public static Supplier<AttributesBuilder> attributesBuilderSupplier;
 
+    /**
+     * Attributes of the stage latency by stage and request code, so recording a stage does not build them again.
+     * Bounded, requests of unknown codes beyond it build their attributes each time.
+     */
+    private static final int MAX_CACHED_STAGE_ATTRIBUTES = 1024;
+    private static final Map<String, ConcurrentMap<Integer, Attributes>> STAGE_ATTRIBUTES = new HashMap<>();
+
+    static {
+        for (String stage : Arrays.asList(STAGE_DECODE, STAGE_QUEUE, STAGE_PROCESS, STAGE_WRITE)) {
+            STAGE_ATTRIBUTES.put(stage, new ConcurrentHashMap<>());
+        }
+    }
+
     public static AttributesBuilder newAttributesBuilder() {
         if (attributesBuilderSupplier == null) {
             return Attributes.builder();
@@ -60,6 +87,35 @@ public class RemotingMetricsManager {
             .setUnit("milliseconds")
             .ofLongs()
             .build();
+        rpcStageLatency = meter.histogramBuilder(HISTOGRAM_RPC_STAGE_LATENCY)
+            .setDescription("Rpc latency of each stage of serving a request")
+            .setUnit("microseconds")
+            .ofLongs()
+            .build();
+        for (ConcurrentMap<Integer, Attributes> attributes : STAGE_ATTRIBUTES.values()) {
+            attributes.clear();
+        }
+    }
+
+    /**
+     * Records the time a request spent in one of the stages of being served, which are decoding the request,
+     * waiting in the queue of its processor, being processed and writing the response.
+     *
+     * @param stage one of the stages in {@link RemotingMetricsConstant}
+     */
+    public static void recordStageLatency(String stage, int requestCode, long costNanos) {
+        ConcurrentMap<Integer, Attributes> cache = STAGE_ATTRIBUTES.get(stage);
+        Attributes attributes = cache.get(requestCode);
+        if (attributes == null) {
+            attributes = newAttributesBuilder()
+                .put(LABEL_STAGE, stage)
+                .put(LABEL_REQUEST_CODE, RemotingHelper.getRequestCodeDesc(requestCode))
+                .build();
+            if (cache.size() < MAX_CACHED_STAGE_ATTRIBUTES) {
+                cache.putIfAbsent(requestCode, attributes);
+            }
+        }
+        rpcStageLatency.record(TimeUnit.NANOSECONDS.toMicros(costNanos), attributes);
     }
 
     public static List<Pair<InstrumentSelector, ViewBuilder>> getMetricsView() {
@@ -80,7 +136,23 @@ public class RemotingMetricsManager {
             .build();
         ViewBuilder viewBuilder = View.builder()
             .setAggregation(Aggregation.explicitBucketHistogram(rpcCostTimeBuckets));
-        return Lists.newArrayList(new Pair<>(selector, viewBuilder));
+
+        // 1-2-5 series from 10us to 5s, for a roughly constant relative error over the whole range
+        List<Double> stageCostTimeBuckets = Arrays.asList(
+            10d, 20d, 50d,
+            100d, 200d, 500d,
+            1d * 1000, 2d * 1000, 5d * 1000,
+            10d * 1000, 20d * 1000, 50d * 1000,
+            100d * 1000, 200d * 1000, 500d * 1000,
+            1d * 1000 * 1000, 2d * 1000 * 1000, 5d * 1000 * 1000
+        );
+        InstrumentSelector stageSelector = InstrumentSelector.builder()
+            .setType(InstrumentType.HISTOGRAM)
+            .setName(HISTOGRAM_RPC_STAGE_LATENCY)
+            .build();
+        ViewBuilder stageViewBuilder = View.builder()
+            .setAggregation(Aggregation.explicitBucketHistogram(stageCostTimeBuckets));
+        return Lists.newArrayList(new Pair<>(selector, viewBuilder), new Pair<>(stageSelector, stageViewBuilder));
     }
 
     public static String getWriteAndFlushResult(Future<?> future) {
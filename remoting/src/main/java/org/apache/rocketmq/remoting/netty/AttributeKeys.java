@@ -34,6 +34,8 @@ public class AttributeKeys {
 
     public static final AttributeKey<LanguageCode> LANGUAGE_CODE_KEY = AttributeKey.valueOf("LanguageCode");
 
+    public static final AttributeKey<Boolean> BINARY_SERIALIZE_KEY = AttributeKey.valueOf("BinarySerialize");
+
     public static final AttributeKey<String> PROXY_PROTOCOL_ADDR =
             AttributeKey.valueOf(HAProxyConstants.PROXY_PROTOCOL_ADDR);
 
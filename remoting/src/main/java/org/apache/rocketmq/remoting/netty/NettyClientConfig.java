@@ -59,6 +59,11 @@ public class NettyClientConfig {
 
     private boolean enableTransparentRetry = true;
 
+    /**
+     * Announce ROCKETMQ_BINARY support in requests and switch a connection to it once the server announced support too
+     */
+    private boolean enableBinarySerialize = NettySystemConfig.clientBinarySerializeEnable;
+
     public boolean isClientCloseSocketIfTimeout() {
         return clientCloseSocketIfTimeout;
     }
@@ -218,4 +223,12 @@ public class NettyClientConfig {
     public void setSocksProxyConfig(String socksProxyConfig) {
         this.socksProxyConfig = socksProxyConfig;
     }
+
+    public boolean isEnableBinarySerialize() {
+        return enableBinarySerialize;
+    }
+
+    public void setEnableBinarySerialize(boolean enableBinarySerialize) {
+        this.enableBinarySerialize = enableBinarySerialize;
+    }
 }
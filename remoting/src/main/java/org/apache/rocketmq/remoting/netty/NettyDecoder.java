@@ -20,10 +20,13 @@ import com.google.common.base.Stopwatch;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import java.util.concurrent.TimeUnit;
 import org.apache.rocketmq.common.constant.LoggerName;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.remoting.common.RemotingHelper;
+import org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant;
+import org.apache.rocketmq.remoting.metrics.RemotingMetricsManager;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 
 public class NettyDecoder extends LengthFieldBasedFrameDecoder {
@@ -47,6 +50,10 @@ public class NettyDecoder extends LengthFieldBasedFrameDecoder {
             }
             RemotingCommand cmd = RemotingCommand.decode(frame);
             cmd.setProcessTimer(timer);
+            if (!cmd.isResponseType()) {
+                RemotingMetricsManager.recordStageLatency(RemotingMetricsConstant.STAGE_DECODE, cmd.getCode(),
+                    timer.elapsed(TimeUnit.NANOSECONDS));
+            }
             return cmd;
         } catch (Exception e) {
             log.error("decode exception, " + RemotingHelper.parseChannelRemoteAddr(ctx.channel()), e);
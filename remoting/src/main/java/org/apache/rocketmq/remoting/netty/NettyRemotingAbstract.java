@@ -21,6 +21,7 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
+import io.netty.util.Attribute;
 import io.netty.util.concurrent.Future;
 import io.opentelemetry.api.common.AttributesBuilder;
 import java.util.ArrayList;
@@ -63,6 +64,7 @@ import org.apache.rocketmq.remoting.metrics.RemotingMetricsManager;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
 import org.apache.rocketmq.remoting.protocol.RemotingSysResponseCode;
 import org.apache.rocketmq.remoting.protocol.ResponseCode;
+import org.apache.rocketmq.remoting.protocol.SerializeType;
 
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_IS_LONG_POLLING;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL_REQUEST_CODE;
@@ -71,6 +73,9 @@ import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.LABEL
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_ONEWAY;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_PROCESS_REQUEST_FAILED;
 import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.RESULT_WRITE_CHANNEL_FAILED;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_PROCESS;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_QUEUE;
+import static org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant.STAGE_WRITE;
 
 public abstract class NettyRemotingAbstract {
 
@@ -173,6 +178,12 @@ public abstract class NettyRemotingAbstract {
      */
     public void processMessageReceived(ChannelHandlerContext ctx, RemotingCommand msg) {
         if (msg != null) {
+            if (msg.isBinarySerializeSupported()) {
+                Attribute<Boolean> binarySerialize = ctx.channel().attr(AttributeKeys.BINARY_SERIALIZE_KEY);
+                if (binarySerialize.get() == null) {
+                    binarySerialize.set(Boolean.TRUE);
+                }
+            }
             switch (msg.getType()) {
                 case REQUEST_COMMAND:
                     processRequestCommand(ctx, msg);
@@ -222,8 +233,14 @@ public abstract class NettyRemotingAbstract {
         }
         response.setOpaque(request.getOpaque());
         response.markResponseType();
+        if (request.isBinarySerializeSupported()) {
+            response.markBinarySerializeSupported();
+            response.setSerializeTypeCurrentRPC(SerializeType.ROCKETMQ_BINARY);
+        }
+        final long writeStartNanos = System.nanoTime();
         try {
             channel.writeAndFlush(response).addListener((ChannelFutureListener) future -> {
+                RemotingMetricsManager.recordStageLatency(STAGE_WRITE, request.getCode(), System.nanoTime() - writeStartNanos);
                 if (future.isSuccess()) {
                     log.debug("Response[request code: {}, response code: {}, opaque: {}] is written to channel{}",
                         request.getCode(), response.getCode(), response.getOpaque(), channel);
@@ -313,36 +330,44 @@ public abstract class NettyRemotingAbstract {
 
     private Runnable buildProcessRequestHandler(ChannelHandlerContext ctx, RemotingCommand cmd,
         Pair<NettyRequestProcessor, ExecutorService> pair, int opaque) {
+        final long enqueueNanos = System.nanoTime();
         return () -> {
             Exception exception = null;
             RemotingCommand response;
+            final long processStartNanos = System.nanoTime();
+            RemotingMetricsManager.recordStageLatency(STAGE_QUEUE, cmd.getCode(), processStartNanos - enqueueNanos);
 
             try {
                 String remoteAddr = RemotingHelper.parseChannelRemoteAddr(ctx.channel());
                 try {
-                    doBeforeRpcHooks(remoteAddr, cmd);
-                } catch (AbortProcessException e) {
-                    throw e;
-                } catch (Exception e) {
-                    exception = e;
-                }
+                    try {
+                        doBeforeRpcHooks(remoteAddr, cmd);
+                    } catch (AbortProcessException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        exception = e;
+                    }
 
-                if (exception == null) {
-                    response = pair.getObject1().processRequest(ctx, cmd);
-                } else {
-                    response = RemotingCommand.createResponseCommand(RemotingSysResponseCode.SYSTEM_ERROR, null);
-                }
+                    if (exception == null) {
+                        response = pair.getObject1().processRequest(ctx, cmd);
+                    } else {
+                        response = RemotingCommand.createResponseCommand(RemotingSysResponseCode.SYSTEM_ERROR, null);
+                    }
 
-                try {
-                    doAfterRpcHooks(remoteAddr, cmd, response);
-                } catch (AbortProcessException e) {
-                    throw e;
-                } catch (Exception e) {
-                    exception = e;
-                }
+                    try {
+                        doAfterRpcHooks(remoteAddr, cmd, response);
+                    } catch (AbortProcessException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        exception = e;
+                    }
 
-                if (exception != null) {
-                    throw exception;
+                    if (exception != null) {
+                        throw exception;
+                    }
+                } finally {
+                    // aborted and failed requests included, the response is written after
+                    RemotingMetricsManager.recordStageLatency(STAGE_PROCESS, cmd.getCode(), System.nanoTime() - processStartNanos);
                 }
 
                 writeResponse(ctx.channel(), cmd, response);
@@ -542,6 +567,7 @@ public abstract class NettyRemotingAbstract {
             responseFutureReference.set(responseFuture);
             this.responseTable.put(opaque, responseFuture);
             try {
+                prepareSerializeType(channel, request);
                 channel.writeAndFlush(request).addListener((ChannelFutureListener) f -> {
                     if (f.isSuccess()) {
                         responseFuture.setSendRequestOK(true);
@@ -575,6 +601,28 @@ public abstract class NettyRemotingAbstract {
         }
     }
 
+    /**
+     * Whether requests sent by this endpoint announce {@link SerializeType#ROCKETMQ_BINARY} support to the peer.
+     */
+    protected boolean isBinarySerializeEnabled() {
+        return false;
+    }
+
+    /**
+     * Sends the request as {@link SerializeType#ROCKETMQ_BINARY} once the peer announced support on the channel, the
+     * same request may be sent again through another channel, e.g. on retry.
+     */
+    protected void prepareSerializeType(final Channel channel, final RemotingCommand request) {
+        if (isBinarySerializeEnabled()) {
+            request.markBinarySerializeSupported();
+        }
+        if (Boolean.TRUE.equals(channel.attr(AttributeKeys.BINARY_SERIALIZE_KEY).get())) {
+            request.setSerializeTypeCurrentRPC(SerializeType.ROCKETMQ_BINARY);
+        } else if (request.getSerializeTypeCurrentRPC() == SerializeType.ROCKETMQ_BINARY) {
+            request.setSerializeTypeCurrentRPC(RemotingCommand.getSerializeTypeConfigInThisServer());
+        }
+    }
+
     public void invokeAsyncImpl(final Channel channel, final RemotingCommand request, final long timeoutMillis,
         final InvokeCallback invokeCallback) {
         invokeImpl(channel, request, timeoutMillis)
@@ -632,6 +680,7 @@ public abstract class NettyRemotingAbstract {
         if (acquired) {
             final SemaphoreReleaseOnlyOnce once = new SemaphoreReleaseOnlyOnce(this.semaphoreOneway);
             try {
+                prepareSerializeType(channel, request);
                 channel.writeAndFlush(request).addListener((ChannelFutureListener) f -> {
                     once.release();
                     if (!f.isSuccess()) {
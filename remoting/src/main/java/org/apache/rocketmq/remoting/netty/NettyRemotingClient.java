@@ -923,6 +923,11 @@ public class NettyRemotingClient extends NettyRemotingAbstract implements Remoti
         return channelEventListener;
     }
 
+    @Override
+    protected boolean isBinarySerializeEnabled() {
+        return nettyClientConfig.isEnableBinarySerialize();
+    }
+
     @Override
     public ExecutorService getCallbackExecutor() {
         if (nettyClientConfig.isDisableCallbackExecutor()) {
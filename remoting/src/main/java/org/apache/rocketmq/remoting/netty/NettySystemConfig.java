@@ -42,6 +42,8 @@ public class NettySystemConfig {
         "com.rocketmq.remoting.write.buffer.high.water.mark";
     public static final String COM_ROCKETMQ_REMOTING_WRITE_BUFFER_LOW_WATER_MARK =
         "com.rocketmq.remoting.write.buffer.low.water.mark";
+    public static final String COM_ROCKETMQ_REMOTING_CLIENT_BINARY_SERIALIZE_ENABLE =
+        "com.rocketmq.remoting.client.binarySerializeEnable";
 
     public static final boolean NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE = //
         Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_NETTY_POOLED_BYTE_BUF_ALLOCATOR_ENABLE, "false"));
@@ -67,5 +69,7 @@ public class NettySystemConfig {
         Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_WRITE_BUFFER_HIGH_WATER_MARK_VALUE, "0"));
     public static int writeBufferLowWaterMark =
         Integer.parseInt(System.getProperty(COM_ROCKETMQ_REMOTING_WRITE_BUFFER_LOW_WATER_MARK, "0"));
+    public static boolean clientBinarySerializeEnable =
+        Boolean.parseBoolean(System.getProperty(COM_ROCKETMQ_REMOTING_CLIENT_BINARY_SERIALIZE_ENABLE, "false"));
 
 }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.remoting.protocol;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+
+/**
+ * The ext fields of a {@link SerializeType#ROCKETMQ_BINARY} command.
+ * <p>
+ * Integer, long and boolean header fields keep their type on the wire as zigzag varints or a single type byte, so
+ * neither side formats or parses them as decimal strings, and the keys of the common header fields are sent as a one
+ * byte index into {@link #KEYS}. Every field is laid out as:
+ * <pre>
+ * key index (1 byte, 0 means a literal key: short length + UTF-8 bytes)
+ * value type (1 byte)
+ * value (string: varint length + UTF-8 bytes; int, long: zigzag varint; true, false: none)
+ * </pre>
+ */
+public class BinaryExtFields {
+    /**
+     * Version of the field layout and of {@link #KEYS}, written in front of the fields.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    static final byte TYPE_STRING = 0;
+    static final byte TYPE_INT = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_TRUE = 3;
+    static final byte TYPE_FALSE = 4;
+
+    /**
+     * Interned keys, the index + 1 is sent instead of the key. Append only, the order is part of the wire format.
+     */
+    private static final String[] KEYS = {
+        // SendMessageRequestHeaderV2
+        "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n",
+        // RpcRequestHeader, TopicQueueRequestHeader
+        "ns", "nsd", "bname", "oway", "lo",
+        // common request fields
+        "topic", "queueId", "queueOffset", "consumerGroup", "producerGroup", "brokerName", "offset", "commitOffset",
+        "maxMsgNums", "sysFlag", "subscription", "subVersion", "expressionType", "expType", "exp", "maxMsgBytes",
+        "requestSource", "proxyFrowardClientId", "suspendTimeoutMillis", "bornTime", "bornTimestamp", "pollTime",
+        "invisibleTime", "initMode", "order", "attemptId", "extraInfo", "clientID", "clientId", "timestamp",
+        "msgId", "key", "beginTimestamp", "endTimestamp", "tranStateTableOffset", "commitLogOffset",
+        "commitOrRollback", "fromTransactionCheck", "transactionId", "originMsgId", "originTopic", "delayLevel",
+        "maxReconsumeTimes", "unitMode", "batch", "flag", "properties", "reconsumeTimes", "defaultTopic",
+        "defaultTopicQueueNums", "group", "setZeroIfNotFound",
+        // common response fields
+        "batchUniqId", "suggestWhichBrokerId", "nextBeginOffset", "minOffset", "maxOffset", "offsetDelta",
+        "topicSysFlag", "groupSysFlag", "forbiddenType", "popTime", "reviveQid", "restNum", "startOffsetInfo",
+        "msgOffsetInfo", "orderCountInfo",
+        // acl
+        "AccessKey", "Signature", "SecurityToken"
+    };
+
+    private static final Map<String, Integer> KEY_INDEX = new HashMap<>(KEYS.length * 2);
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEY_INDEX.put(KEYS[i], i + 1);
+        }
+    }
+
+    private String[] keys;
+    private byte[] types;
+    private long[] numbers;
+    private String[] strings;
+    private int size;
+
+    private BinaryExtFields(int capacity) {
+        this.keys = new String[capacity];
+        this.types = new byte[capacity];
+        this.numbers = new long[capacity];
+        this.strings = new String[capacity];
+    }
+
+    public static void writeString(ByteBuf out, String key, String value) {
+        writeKey(out, key);
+        out.writeByte(TYPE_STRING);
+        int lenIndex = out.writerIndex();
+        if (value.length() < 32) {
+            // at most 3 bytes per char, the length fits in one varint byte
+            out.writeByte(0);
+            int len = out.writeCharSequence(value, StandardCharsets.UTF_8);
+            out.setByte(lenIndex, len);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.writeBytes(bytes);
+        }
+    }
+
+    public static void writeInt(ByteBuf out, String key, int value) {
+        writeKey(out, key);
+        out.writeByte(TYPE_INT);
+        writeVarint(out, (value << 1) ^ (value >> 31));
+    }
+
+    public static void writeLong(ByteBuf out, String key, long value) {
+        writeKey(out, key);
+        out.writeByte(TYPE_LONG);
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    public static void writeBoolean(ByteBuf out, String key, boolean value) {
+        writeKey(out, key);
+        out.writeByte(value ? TYPE_TRUE : TYPE_FALSE);
+    }
+
+    private static void writeKey(ByteBuf out, String key) {
+        Integer index = KEY_INDEX.get(key);
+        if (index != null) {
+            out.writeByte(index);
+        } else {
+            out.writeByte(0);
+            RocketMQSerializable.writeStr(out, true, key);
+        }
+    }
+
+    private static void writeVarint(ByteBuf out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(ByteBuf in) throws RemotingCommandException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new RemotingCommandException("malformed varint in binary ext fields");
+    }
+
+    public static BinaryExtFields read(ByteBuf in, int length) throws RemotingCommandException {
+        int endIndex = in.readerIndex() + length;
+        // the smallest field takes two bytes
+        BinaryExtFields fields = new BinaryExtFields(Math.min(length / 2, 16));
+        while (in.readerIndex() < endIndex) {
+            String key;
+            int index = in.readUnsignedByte();
+            if (index == 0) {
+                int keyLength = in.readShort();
+                if (keyLength <= 0 || keyLength > length) {
+                    throw new RemotingCommandException("bad key length in binary ext fields: " + keyLength);
+                }
+                key = in.readCharSequence(keyLength, StandardCharsets.UTF_8).toString();
+            } else if (index <= KEYS.length) {
+                key = KEYS[index - 1];
+            } else {
+                throw new RemotingCommandException("unknown key index in binary ext fields: " + index);
+            }
+
+            byte type = in.readByte();
+            long number = 0;
+            String string = null;
+            switch (type) {
+                case TYPE_STRING:
+                    long stringLength = readVarint(in);
+                    if (stringLength > length) {
+                        throw new RemotingCommandException("bad value length in binary ext fields: " + stringLength);
+                    }
+                    string = in.readCharSequence((int) stringLength, StandardCharsets.UTF_8).toString();
+                    break;
+                case TYPE_INT:
+                case TYPE_LONG:
+                    long zigzag = readVarint(in);
+                    number = (zigzag >>> 1) ^ -(zigzag & 1);
+                    break;
+                case TYPE_TRUE:
+                case TYPE_FALSE:
+                    break;
+                default:
+                    throw new RemotingCommandException("unknown value type in binary ext fields: " + type);
+            }
+            fields.add(key, type, number, string);
+        }
+        if (in.readerIndex() != endIndex) {
+            throw new RemotingCommandException("binary ext fields overrun their length: " + length);
+        }
+        return fields;
+    }
+
+    private void add(String key, byte type, long number, String string) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                // the later value wins, like in the map of the other serialize types
+                types[i] = type;
+                numbers[i] = number;
+                strings[i] = string;
+                return;
+            }
+        }
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            types = Arrays.copyOf(types, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        keys[size] = key;
+        types[size] = type;
+        numbers[size] = number;
+        strings[size] = string;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    String key(int index) {
+        return keys[index];
+    }
+
+    byte type(int index) {
+        return types[index];
+    }
+
+    long number(int index) {
+        return numbers[index];
+    }
+
+    /**
+     * @return the value as it would have been sent by the string based serialize types
+     */
+    String string(int index) {
+        switch (types[index]) {
+            case TYPE_STRING:
+                return strings[index];
+            case TYPE_INT:
+                return Integer.toString((int) numbers[index]);
+            case TYPE_LONG:
+                return Long.toString(numbers[index]);
+            case TYPE_TRUE:
+                return Boolean.TRUE.toString();
+            default:
+                return Boolean.FALSE.toString();
+        }
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public String get(String key) {
+        int index = indexOf(key);
+        return index < 0 ? null : string(index);
+    }
+
+    private int indexOf(String key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public HashMap<String, String> toMap() {
+        HashMap<String, String> map = new HashMap<>(Math.max(16, size * 2));
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], string(i));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
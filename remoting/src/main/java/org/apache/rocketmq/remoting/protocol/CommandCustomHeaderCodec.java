@@ -0,0 +1,461 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.remoting.protocol;
+
+import io.netty.buffer.ByteBuf;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.rocketmq.common.BoundaryType;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
+import org.apache.rocketmq.remoting.annotation.CFNotNull;
+import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+
+/**
+ * Encodes and decodes the fields of a {@link CommandCustomHeader} that does not implement {@link FastCodesHeader}, and
+ * of every header sent as {@link SerializeType#ROCKETMQ_BINARY}, where the fields are written as typed
+ * {@link BinaryExtFields} under their field names.
+ * <p>
+ * A codec is built once per header class: the no-arg constructor and setters are bound to functional interfaces
+ * through {@link LambdaMetafactory}, fields are read through cached {@link MethodHandle}s and the field types are
+ * resolved up front, so decoding and encoding a header afterwards neither uses reflection nor looks anything up by
+ * class or field. Fields without a matching public setter, or classes that cannot be linked from this class loader,
+ * fall back to {@link Field} access. Headers with a field of a type the codec cannot parse are not decoded by it, see
+ * {@link #isDecodable()}.
+ */
+public class CommandCustomHeaderCodec {
+    private static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_REMOTING_NAME);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ConcurrentMap<Class<? extends CommandCustomHeader>, CommandCustomHeaderCodec> CODEC_TABLE =
+        new ConcurrentHashMap<>();
+
+    private final Supplier<Object> constructor;
+    private final FieldCodec[] fieldCodecs;
+    private final Map<String, FieldCodec> fieldCodecMap = new HashMap<>();
+    private final boolean decodable;
+
+    private CommandCustomHeaderCodec(Class<? extends CommandCustomHeader> headerClass) {
+        boolean linkable = isLinkable(headerClass);
+        this.constructor = bindConstructor(headerClass, linkable);
+
+        List<FieldCodec> fieldCodecList = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
+        for (Class<?> clazz = headerClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                String name = field.getName();
+                if (Modifier.isStatic(field.getModifiers()) || name.startsWith("this") || !fieldNames.add(name)) {
+                    continue;
+                }
+                fieldCodecList.add(new FieldCodec(name, FieldType.of(field.getType()),
+                    field.getAnnotation(CFNotNull.class) == null,
+                    bindGetter(headerClass, field), bindSetter(headerClass, field, linkable)));
+            }
+        }
+        this.fieldCodecs = fieldCodecList.toArray(new FieldCodec[0]);
+        boolean decodable = true;
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            fieldCodecMap.put(fieldCodec.name, fieldCodec);
+            decodable &= fieldCodec.type != null;
+        }
+        this.decodable = decodable;
+    }
+
+    public static CommandCustomHeaderCodec getCodec(Class<? extends CommandCustomHeader> headerClass) {
+        CommandCustomHeaderCodec codec = CODEC_TABLE.get(headerClass);
+        if (codec == null) {
+            codec = CODEC_TABLE.computeIfAbsent(headerClass, CommandCustomHeaderCodec::new);
+        }
+        return codec;
+    }
+
+    /**
+     * @return a new header instance, or null if the header class cannot be instantiated
+     */
+    public CommandCustomHeader newInstance() {
+        try {
+            return (CommandCustomHeader) constructor.get();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return false if a field of the header has a type the codec cannot parse, such headers are decoded reflectively
+     */
+    public boolean isDecodable() {
+        return decodable;
+    }
+
+    /**
+     * Fills the header from the ext fields, the header must be {@link #isDecodable() decodable}. Like the reflective decoding, failures of a single field are logged and do
+     * not abort decoding the other fields.
+     */
+    public void decode(CommandCustomHeader header, Map<String, String> extFields) {
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            try {
+                String value = extFields.get(fieldCodec.name);
+                if (null == value) {
+                    if (!fieldCodec.nullable) {
+                        throw new RemotingCommandException("the custom field <" + fieldCodec.name + "> is null");
+                    }
+                    continue;
+                }
+                fieldCodec.setter.accept(header, fieldCodec.type.parse(value));
+            } catch (Throwable e) {
+                log.error("Failed field [{}] decoding", fieldCodec.name, e);
+            }
+        }
+    }
+
+    /**
+     * Fills the header from typed ext fields, values that were sent as strings are parsed like in
+     * {@link #decode(CommandCustomHeader, Map)}. The header must be {@link #isDecodable() decodable}.
+     */
+    public void decode(CommandCustomHeader header, BinaryExtFields extFields) {
+        for (int i = 0; i < extFields.size(); i++) {
+            FieldCodec fieldCodec = fieldCodecMap.get(extFields.key(i));
+            if (fieldCodec == null) {
+                continue;
+            }
+            try {
+                fieldCodec.setter.accept(header, fieldCodec.type.read(extFields, i));
+            } catch (Throwable e) {
+                log.error("Failed field [{}] decoding", fieldCodec.name, e);
+            }
+        }
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            if (!fieldCodec.nullable && !extFields.containsKey(fieldCodec.name)) {
+                log.error("Failed field [{}] decoding", fieldCodec.name,
+                    new RemotingCommandException("the custom field <" + fieldCodec.name + "> is null"));
+            }
+        }
+    }
+
+    public void encode(CommandCustomHeader header, Map<String, String> extFields) {
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            Object value = null;
+            try {
+                value = fieldCodec.getter.apply(header);
+            } catch (Throwable e) {
+                log.error("Failed to access field [{}]", fieldCodec.name, e);
+            }
+            if (value != null) {
+                extFields.put(fieldCodec.name, value.toString());
+            }
+        }
+    }
+
+    /**
+     * Writes the non-null fields of the header as typed {@link BinaryExtFields}.
+     */
+    public void encode(CommandCustomHeader header, ByteBuf out) {
+        for (FieldCodec fieldCodec : fieldCodecs) {
+            Object value = null;
+            try {
+                value = fieldCodec.getter.apply(header);
+            } catch (Throwable e) {
+                log.error("Failed to access field [{}]", fieldCodec.name, e);
+            }
+            if (value == null) {
+                continue;
+            }
+            if (fieldCodec.type != null) {
+                fieldCodec.type.write(out, fieldCodec.name, value);
+            } else {
+                BinaryExtFields.writeString(out, fieldCodec.name, value.toString());
+            }
+        }
+    }
+
+    /**
+     * @return whether {@link #encode(CommandCustomHeader, ByteBuf)} writes the field of the given name
+     */
+    public boolean encodes(CommandCustomHeader header, String name) {
+        FieldCodec fieldCodec = fieldCodecMap.get(name);
+        try {
+            return fieldCodec != null && fieldCodec.getter.apply(header) != null;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generated classes resolve the header class through the class loader of this class, so they can only be used for
+     * header classes that loader can see.
+     */
+    private static boolean isLinkable(Class<?> headerClass) {
+        try {
+            return Class.forName(headerClass.getName(), false, CommandCustomHeaderCodec.class.getClassLoader()) == headerClass;
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    private static boolean isPublic(Class<?> clazz, int modifiers) {
+        return Modifier.isPublic(modifiers) && Modifier.isPublic(clazz.getModifiers());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Object> bindConstructor(Class<? extends CommandCustomHeader> headerClass, boolean linkable) {
+        try {
+            if (linkable && !Modifier.isAbstract(headerClass.getModifiers())) {
+                Constructor<?> ctor = headerClass.getDeclaredConstructor();
+                if (isPublic(headerClass, ctor.getModifiers())) {
+                    MethodHandle handle = LOOKUP.unreflectConstructor(ctor);
+                    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), handle, handle.type());
+                    return (Supplier<Object>) site.getTarget().invoke();
+                }
+            }
+        } catch (Throwable e) {
+            log.debug("Bind constructor of {} failed, fall back to reflection", headerClass.getName(), e);
+        }
+        return () -> {
+            try {
+                return headerClass.getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Getters are not used for encoding: some of them normalize the value, e.g. {@code getQueueId()} or
+     * {@code getBoundaryType()}, while the wire format carries the raw field.
+     */
+    private static Function<Object, Object> bindGetter(Class<?> headerClass, Field field) {
+        field.setAccessible(true);
+        try {
+            MethodHandle handle = LOOKUP.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+            return header -> {
+                try {
+                    return handle.invokeExact(header);
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (Throwable e) {
+            log.debug("Bind getter of {}.{} failed, fall back to reflection", headerClass.getName(), field.getName(), e);
+        }
+        return header -> {
+            try {
+                return field.get(header);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    /**
+     * Setters of headers are plain assignments, so a bound setter is equivalent to setting the field.
+     */
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> bindSetter(Class<?> headerClass, Field field, boolean linkable) {
+        if (linkable) {
+            Method method = findMethod(headerClass, "set" + capitalize(field.getName()), field.getType());
+            if (method != null && isPublic(method.getDeclaringClass(), method.getModifiers())) {
+                try {
+                    MethodHandle handle = LOOKUP.unreflect(method);
+                    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class), handle,
+                        handle.type().changeParameterType(1, wrap(field.getType())));
+                    return (BiConsumer<Object, Object>) site.getTarget().invoke();
+                } catch (Throwable e) {
+                    log.debug("Bind setter of {}.{} failed, fall back to reflection", headerClass.getName(), field.getName(), e);
+                }
+            }
+        }
+        field.setAccessible(true);
+        return (header, value) -> {
+            try {
+                field.set(header, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+
+    private enum FieldType {
+        STRING {
+            @Override
+            Object parse(String value) {
+                return value;
+            }
+        },
+        INTEGER {
+            @Override
+            Object parse(String value) {
+                return Integer.parseInt(value);
+            }
+
+            @Override
+            void write(ByteBuf out, String key, Object value) {
+                BinaryExtFields.writeInt(out, key, (Integer) value);
+            }
+
+            @Override
+            Object read(BinaryExtFields fields, int index) {
+                byte type = fields.type(index);
+                if (type == BinaryExtFields.TYPE_INT || type == BinaryExtFields.TYPE_LONG) {
+                    return (int) fields.number(index);
+                }
+                return parse(fields.string(index));
+            }
+        },
+        LONG {
+            @Override
+            Object parse(String value) {
+                return Long.parseLong(value);
+            }
+
+            @Override
+            void write(ByteBuf out, String key, Object value) {
+                BinaryExtFields.writeLong(out, key, (Long) value);
+            }
+
+            @Override
+            Object read(BinaryExtFields fields, int index) {
+                byte type = fields.type(index);
+                if (type == BinaryExtFields.TYPE_INT || type == BinaryExtFields.TYPE_LONG) {
+                    return fields.number(index);
+                }
+                return parse(fields.string(index));
+            }
+        },
+        BOOLEAN {
+            @Override
+            Object parse(String value) {
+                return Boolean.parseBoolean(value);
+            }
+
+            @Override
+            void write(ByteBuf out, String key, Object value) {
+                BinaryExtFields.writeBoolean(out, key, (Boolean) value);
+            }
+
+            @Override
+            Object read(BinaryExtFields fields, int index) {
+                byte type = fields.type(index);
+                if (type == BinaryExtFields.TYPE_TRUE || type == BinaryExtFields.TYPE_FALSE) {
+                    return type == BinaryExtFields.TYPE_TRUE;
+                }
+                return parse(fields.string(index));
+            }
+        },
+        DOUBLE {
+            @Override
+            Object parse(String value) {
+                return Double.parseDouble(value);
+            }
+        },
+        BOUNDARY_TYPE {
+            @Override
+            Object parse(String value) {
+                return BoundaryType.getType(value);
+            }
+        };
+
+        abstract Object parse(String value);
+
+        void write(ByteBuf out, String key, Object value) {
+            BinaryExtFields.writeString(out, key, value.toString());
+        }
+
+        Object read(BinaryExtFields fields, int index) {
+            return parse(fields.string(index));
+        }
+
+        /**
+         * @return the type of the field, or null if the field cannot be parsed from a string
+         */
+        static FieldType of(Class<?> type) {
+            if (type == String.class) {
+                return STRING;
+            } else if (type == Integer.class || type == int.class) {
+                return INTEGER;
+            } else if (type == Long.class || type == long.class) {
+                return LONG;
+            } else if (type == Boolean.class || type == boolean.class) {
+                return BOOLEAN;
+            } else if (type == Double.class || type == double.class) {
+                return DOUBLE;
+            } else if (type == BoundaryType.class) {
+                return BOUNDARY_TYPE;
+            }
+            return null;
+        }
+    }
+
+    private static class FieldCodec {
+        private final String name;
+        private final FieldType type;
+        private final boolean nullable;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        FieldCodec(String name, FieldType type, boolean nullable, Function<Object, Object> getter,
+            BiConsumer<Object, Object> setter) {
+            this.name = name;
+            this.type = type;
+            this.nullable = nullable;
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
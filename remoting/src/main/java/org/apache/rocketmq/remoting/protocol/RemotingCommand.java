@@ -49,6 +49,7 @@ public class RemotingCommand {
     static final Logger log = LoggerFactory.getLogger(LoggerName.ROCKETMQ_REMOTING_NAME);
     private static final int RPC_TYPE = 0; // 0, REQUEST_COMMAND
     private static final int RPC_ONEWAY = 1; // 0, RPC
+    private static final int RPC_BINARY_SERIALIZE = 2; // 1, the sender can decode ROCKETMQ_BINARY
     private static final Map<Class<? extends CommandCustomHeader>, Field[]> CLASS_HASH_MAP =
         new HashMap<>();
     private static final Map<Class, String> CANONICAL_NAME_CACHE = new HashMap<>();
@@ -78,6 +79,9 @@ public class RemotingCommand {
             } catch (IllegalArgumentException e) {
                 throw new RuntimeException("parser specified protocol error. protocol=" + protocol, e);
             }
+            if (serializeTypeConfigInThisServer == SerializeType.ROCKETMQ_BINARY) {
+                throw new RuntimeException("protocol " + protocol + " is negotiated per connection and cannot be the default");
+            }
         }
     }
 
@@ -88,6 +92,10 @@ public class RemotingCommand {
     private int flag = 0;
     private String remark;
     private HashMap<String, String> extFields;
+    /**
+     * Ext fields decoded from {@link SerializeType#ROCKETMQ_BINARY}, turned into {@link #extFields} on first access.
+     */
+    private transient BinaryExtFields binaryExtFields;
     private transient CommandCustomHeader customHeader;
     private transient CommandCustomHeader cachedHeader;
 
@@ -223,6 +231,10 @@ public class RemotingCommand {
                 RemotingCommand resultRMQ = RocketMQSerializable.rocketMQProtocolDecode(byteBuffer, len);
                 resultRMQ.setSerializeTypeCurrentRPC(type);
                 return resultRMQ;
+            case ROCKETMQ_BINARY:
+                RemotingCommand resultBinary = RocketMQSerializable.rocketMQBinaryProtocolDecode(byteBuffer, len);
+                resultBinary.setSerializeTypeCurrentRPC(type);
+                return resultBinary;
             default:
                 break;
         }
@@ -275,6 +287,26 @@ public class RemotingCommand {
 
     public CommandCustomHeader decodeCommandCustomHeaderDirectly(Class<? extends CommandCustomHeader> classHeader,
         boolean useFastEncode) throws RemotingCommandException {
+        CommandCustomHeaderCodec codec = useFastEncode ? CommandCustomHeaderCodec.getCodec(classHeader) : null;
+        if (codec != null && (codec.isDecodable()
+            || this.binaryExtFields == null && FastCodesHeader.class.isAssignableFrom(classHeader))) {
+            CommandCustomHeader objectHeader = codec.newInstance();
+            if (objectHeader != null && this.binaryExtFields != null) {
+                codec.decode(objectHeader, this.binaryExtFields);
+                objectHeader.checkFields();
+            } else if (objectHeader != null && this.extFields != null) {
+                if (objectHeader instanceof FastCodesHeader) {
+                    ((FastCodesHeader) objectHeader).decode(this.extFields);
+                } else {
+                    codec.decode(objectHeader, this.extFields);
+                }
+                objectHeader.checkFields();
+            }
+            return objectHeader;
+        }
+
+        // reflective decoding, kept as the reference implementation of the header codecs and used for the headers
+        // they cannot decode
         CommandCustomHeader objectHeader;
         try {
             objectHeader = classHeader.getDeclaredConstructor().newInstance();
@@ -288,20 +320,15 @@ public class RemotingCommand {
             return null;
         }
 
-        if (this.extFields != null) {
-            if (objectHeader instanceof FastCodesHeader && useFastEncode) {
-                ((FastCodesHeader) objectHeader).decode(this.extFields);
-                objectHeader.checkFields();
-                return objectHeader;
-            }
-
+        HashMap<String, String> extFields = getExtFields();
+        if (extFields != null) {
             Field[] fields = getClazzFields(classHeader);
             for (Field field : fields) {
                 if (!Modifier.isStatic(field.getModifiers())) {
                     String fieldName = field.getName();
                     if (!fieldName.startsWith("this")) {
                         try {
-                            String value = this.extFields.get(fieldName);
+                            String value = extFields.get(fieldName);
                             if (null == value) {
                                 if (!isFieldNullable(field)) {
                                     throw new RemotingCommandException("the custom field <" + fieldName + "> is null");
@@ -419,6 +446,13 @@ public class RemotingCommand {
     }
 
     private byte[] headerEncode() {
+        if (SerializeType.ROCKETMQ_BINARY == serializeTypeCurrentRPC) {
+            ByteBuf out = Unpooled.buffer();
+            RocketMQSerializable.rocketMQBinaryProtocolEncode(this, out);
+            byte[] header = new byte[out.readableBytes()];
+            out.readBytes(header);
+            return header;
+        }
         this.makeCustomHeaderToNet();
         if (SerializeType.ROCKETMQ == serializeTypeCurrentRPC) {
             return RocketMQSerializable.rocketMQProtocolEncode(this);
@@ -429,29 +463,10 @@ public class RemotingCommand {
 
     public void makeCustomHeaderToNet() {
         if (this.customHeader != null) {
-            Field[] fields = getClazzFields(customHeader.getClass());
-            if (null == this.extFields) {
+            if (null == getExtFields()) {
                 this.extFields = new HashMap<>();
             }
-
-            for (Field field : fields) {
-                if (!Modifier.isStatic(field.getModifiers())) {
-                    String name = field.getName();
-                    if (!name.startsWith("this")) {
-                        Object value = null;
-                        try {
-                            field.setAccessible(true);
-                            value = field.get(this.customHeader);
-                        } catch (Exception e) {
-                            log.error("Failed to access field [{}]", name, e);
-                        }
-
-                        if (value != null) {
-                            this.extFields.put(name, value.toString());
-                        }
-                    }
-                }
-            }
+            CommandCustomHeaderCodec.getCodec(customHeader.getClass()).encode(customHeader, this.extFields);
         }
     }
 
@@ -466,6 +481,8 @@ public class RemotingCommand {
                 this.makeCustomHeaderToNet();
             }
             headerSize = RocketMQSerializable.rocketMQProtocolEncode(this, out);
+        } else if (SerializeType.ROCKETMQ_BINARY == serializeTypeCurrentRPC) {
+            headerSize = RocketMQSerializable.rocketMQBinaryProtocolEncode(this, out);
         } else {
             this.makeCustomHeaderToNet();
             byte[] header = RemotingSerializable.encode(this);
@@ -520,6 +537,21 @@ public class RemotingCommand {
         return (this.flag & bits) == bits;
     }
 
+    /**
+     * Announces that the sender of this command can decode {@link SerializeType#ROCKETMQ_BINARY}, so the peer may use
+     * it on this connection.
+     */
+    public void markBinarySerializeSupported() {
+        int bits = 1 << RPC_BINARY_SERIALIZE;
+        this.flag |= bits;
+    }
+
+    @JSONField(serialize = false)
+    public boolean isBinarySerializeSupported() {
+        int bits = 1 << RPC_BINARY_SERIALIZE;
+        return (this.flag & bits) == bits;
+    }
+
     public int getCode() {
         return code;
     }
@@ -602,28 +634,38 @@ public class RemotingCommand {
     }
 
     public HashMap<String, String> getExtFields() {
+        if (binaryExtFields != null) {
+            extFields = binaryExtFields.toMap();
+            binaryExtFields = null;
+        }
         return extFields;
     }
 
     public void setExtFields(HashMap<String, String> extFields) {
         this.extFields = extFields;
+        this.binaryExtFields = null;
+    }
+
+    void setBinaryExtFields(BinaryExtFields binaryExtFields) {
+        this.extFields = null;
+        this.binaryExtFields = binaryExtFields;
     }
 
     public void addExtField(String key, String value) {
-        if (null == extFields) {
+        if (null == getExtFields()) {
             extFields = new HashMap<>(256);
         }
         extFields.put(key, value);
     }
 
     public void addExtFieldIfNotExist(String key, String value) {
-        extFields.putIfAbsent(key, value);
+        getExtFields().putIfAbsent(key, value);
     }
 
     @Override
     public String toString() {
         return "RemotingCommand [code=" + code + ", language=" + language + ", version=" + version + ", opaque=" + opaque + ", flag(B)="
-            + Integer.toBinaryString(flag) + ", remark=" + remark + ", extFields=" + extFields + ", serializeTypeCurrentRPC="
+            + Integer.toBinaryString(flag) + ", remark=" + remark + ", extFields=" + (binaryExtFields != null ? binaryExtFields : extFields) + ", serializeTypeCurrentRPC="
             + serializeTypeCurrentRPC + "]";
     }
 
@@ -90,6 +90,8 @@ public class ResponseCode extends RemotingSysResponseCode {
 
     public static final int FLOW_CONTROL = 215;
 
+    public static final int BROKER_DATA_VERSION_MISMATCH = 216;
+
     public static final int NOT_LEADER_FOR_QUEUE = 501;
 
     public static final int ILLEGAL_OPERATION = 604;
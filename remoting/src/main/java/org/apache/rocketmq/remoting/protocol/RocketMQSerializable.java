@@ -22,6 +22,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 
 import io.netty.buffer.ByteBuf;
@@ -58,23 +59,7 @@ public class RocketMQSerializable {
 
     public static int rocketMQProtocolEncode(RemotingCommand cmd, ByteBuf out) {
         int beginIndex = out.writerIndex();
-        // int code(~32767)
-        out.writeShort(cmd.getCode());
-        // LanguageCode language
-        out.writeByte(cmd.getLanguage().getCode());
-        // int version(~32767)
-        out.writeShort(cmd.getVersion());
-        // int opaque
-        out.writeInt(cmd.getOpaque());
-        // int flag
-        out.writeInt(cmd.getFlag());
-        // String remark
-        String remark = cmd.getRemark();
-        if (remark != null && !remark.isEmpty()) {
-            writeStr(out, false, remark);
-        } else {
-            out.writeInt(0);
-        }
+        writeFixedFields(cmd, out);
 
         int mapLenIndex = out.writerIndex();
         out.writeInt(0);
@@ -94,6 +79,59 @@ public class RocketMQSerializable {
         return out.writerIndex() - beginIndex;
     }
 
+    /**
+     * Same layout as {@link #rocketMQProtocolEncode(RemotingCommand, ByteBuf)}, except that the ext fields are preceded
+     * by {@link BinaryExtFields#FORMAT_VERSION} and written as {@link BinaryExtFields}, with the custom header fields
+     * typed.
+     */
+    public static int rocketMQBinaryProtocolEncode(RemotingCommand cmd, ByteBuf out) {
+        int beginIndex = out.writerIndex();
+        writeFixedFields(cmd, out);
+        out.writeByte(BinaryExtFields.FORMAT_VERSION);
+
+        int fieldsLenIndex = out.writerIndex();
+        out.writeInt(0);
+        CommandCustomHeader customHeader = cmd.readCustomHeader();
+        CommandCustomHeaderCodec codec = null;
+        if (customHeader != null) {
+            codec = CommandCustomHeaderCodec.getCodec(customHeader.getClass());
+            codec.encode(customHeader, out);
+        }
+        HashMap<String, String> map = cmd.getExtFields();
+        if (map != null && !map.isEmpty()) {
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                String k = entry.getKey();
+                String v = entry.getValue();
+                // the header fields are already in the map if makeCustomHeaderToNet was called, e.g. for signing
+                if (k != null && v != null && (codec == null || !codec.encodes(customHeader, k))) {
+                    BinaryExtFields.writeString(out, k, v);
+                }
+            }
+        }
+        out.setInt(fieldsLenIndex, out.writerIndex() - fieldsLenIndex - 4);
+        return out.writerIndex() - beginIndex;
+    }
+
+    private static void writeFixedFields(RemotingCommand cmd, ByteBuf out) {
+        // int code(~32767)
+        out.writeShort(cmd.getCode());
+        // LanguageCode language
+        out.writeByte(cmd.getLanguage().getCode());
+        // int version(~32767)
+        out.writeShort(cmd.getVersion());
+        // int opaque
+        out.writeInt(cmd.getOpaque());
+        // int flag
+        out.writeInt(cmd.getFlag());
+        // String remark
+        String remark = cmd.getRemark();
+        if (remark != null && !remark.isEmpty()) {
+            writeStr(out, false, remark);
+        } else {
+            out.writeInt(0);
+        }
+    }
+
     public static byte[] rocketMQProtocolEncode(RemotingCommand cmd) {
         // String remark
         byte[] remarkBytes = null;
@@ -203,6 +241,39 @@ public class RocketMQSerializable {
     }
 
     public static RemotingCommand rocketMQProtocolDecode(final ByteBuf headerBuffer,
+        int headerLen) throws RemotingCommandException {
+        RemotingCommand cmd = readFixedFields(headerBuffer, headerLen);
+
+        // HashMap<String, String> extFields
+        int extFieldsLength = headerBuffer.readInt();
+        if (extFieldsLength > 0) {
+            if (extFieldsLength > headerLen) {
+                throw new RemotingCommandException("RocketMQ protocol decoding failed, extFields length: " + extFieldsLength + ", but header length: " + headerLen);
+            }
+            cmd.setExtFields(mapDeserialize(headerBuffer, extFieldsLength));
+        }
+        return cmd;
+    }
+
+    public static RemotingCommand rocketMQBinaryProtocolDecode(final ByteBuf headerBuffer,
+        int headerLen) throws RemotingCommandException {
+        RemotingCommand cmd = readFixedFields(headerBuffer, headerLen);
+
+        byte formatVersion = headerBuffer.readByte();
+        if (formatVersion > BinaryExtFields.FORMAT_VERSION) {
+            throw new RemotingCommandException("RocketMQ binary protocol decoding failed, unsupported format version: " + formatVersion);
+        }
+        int extFieldsLength = headerBuffer.readInt();
+        if (extFieldsLength > 0) {
+            if (extFieldsLength > headerLen) {
+                throw new RemotingCommandException("RocketMQ binary protocol decoding failed, extFields length: " + extFieldsLength + ", but header length: " + headerLen);
+            }
+            cmd.setBinaryExtFields(BinaryExtFields.read(headerBuffer, extFieldsLength));
+        }
+        return cmd;
+    }
+
+    private static RemotingCommand readFixedFields(final ByteBuf headerBuffer,
         int headerLen) throws RemotingCommandException {
         RemotingCommand cmd = new RemotingCommand();
         // int code(~32767)
@@ -217,15 +288,6 @@ public class RocketMQSerializable {
         cmd.setFlag(headerBuffer.readInt());
         // String remark
         cmd.setRemark(readStr(headerBuffer, false, headerLen));
-
-        // HashMap<String, String> extFields
-        int extFieldsLength = headerBuffer.readInt();
-        if (extFieldsLength > 0) {
-            if (extFieldsLength > headerLen) {
-                throw new RemotingCommandException("RocketMQ protocol decoding failed, extFields length: " + extFieldsLength + ", but header length: " + headerLen);
-            }
-            cmd.setExtFields(mapDeserialize(headerBuffer, extFieldsLength));
-        }
         return cmd;
     }
 
@@ -19,7 +19,12 @@ package org.apache.rocketmq.remoting.protocol;
 
 public enum SerializeType {
     JSON((byte) 0),
-    ROCKETMQ((byte) 1);
+    ROCKETMQ((byte) 1),
+    /**
+     * {@link #ROCKETMQ} with typed {@link BinaryExtFields}, only used on connections where the peer announced support
+     * through {@link RemotingCommand#markBinarySerializeSupported()}.
+     */
+    ROCKETMQ_BINARY((byte) 2);
 
     private byte code;
 
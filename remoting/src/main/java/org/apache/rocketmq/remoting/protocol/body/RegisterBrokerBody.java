@@ -45,6 +45,13 @@ public class RegisterBrokerBody extends RemotingSerializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.COMMON_LOGGER_NAME);
     private TopicConfigAndMappingSerializeWrapper topicConfigSerializeWrapper = new TopicConfigAndMappingSerializeWrapper();
     private List<String> filterServerList = new ArrayList<>();
+    /**
+     * Set for delta registrations only: the data version of the last registration the topic configs are relative to.
+     * The topic config table then only holds the topics added or changed since, and deletedTopicList the topics
+     * removed since. Not supported by the compressed encoding.
+     */
+    private DataVersion baseDataVersion;
+    private List<String> deletedTopicList;
     private static final long MINIMUM_TAKE_TIME_MILLISECOND = 50;
 
     public byte[] encode(boolean compress) {
@@ -213,6 +220,22 @@ public class RegisterBrokerBody extends RemotingSerializable {
         this.filterServerList = filterServerList;
     }
 
+    public DataVersion getBaseDataVersion() {
+        return baseDataVersion;
+    }
+
+    public void setBaseDataVersion(DataVersion baseDataVersion) {
+        this.baseDataVersion = baseDataVersion;
+    }
+
+    public List<String> getDeletedTopicList() {
+        return deletedTopicList;
+    }
+
+    public void setDeletedTopicList(List<String> deletedTopicList) {
+        this.deletedTopicList = deletedTopicList;
+    }
+
     private ConcurrentMap<String, TopicConfig> cloneTopicConfigTable(
         ConcurrentMap<String, TopicConfig> topicConfigConcurrentMap) {
         if (topicConfigConcurrentMap == null) {
@@ -23,6 +23,7 @@ public class RegisterBrokerResult {
     private String haServerAddr;
     private String masterAddr;
     private KVTable kvTable;
+    private boolean dataVersionMismatch;
 
     public String getHaServerAddr() {
         return haServerAddr;
@@ -47,4 +48,15 @@ public class RegisterBrokerResult {
     public void setKvTable(KVTable kvTable) {
         this.kvTable = kvTable;
     }
+
+    /**
+     * @return whether a delta registration was refused as its base data version is not the registered one
+     */
+    public boolean isDataVersionMismatch() {
+        return dataVersionMismatch;
+    }
+
+    public void setDataVersionMismatch(boolean dataVersionMismatch) {
+        this.dataVersionMismatch = dataVersionMismatch;
+    }
 }
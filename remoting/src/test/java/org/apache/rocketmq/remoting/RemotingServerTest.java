@@ -18,14 +18,21 @@
 package org.apache.rocketmq.remoting;
 
 import io.netty.channel.ChannelHandlerContext;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongHistogram;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import org.apache.rocketmq.remoting.annotation.CFNullable;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
 import org.apache.rocketmq.remoting.exception.RemotingConnectException;
 import org.apache.rocketmq.remoting.exception.RemotingSendRequestException;
 import org.apache.rocketmq.remoting.exception.RemotingTimeoutException;
 import org.apache.rocketmq.remoting.exception.RemotingTooMuchRequestException;
+import org.apache.rocketmq.remoting.metrics.RemotingMetricsConstant;
+import org.apache.rocketmq.remoting.metrics.RemotingMetricsManager;
 import org.apache.rocketmq.remoting.netty.NettyClientConfig;
 import org.apache.rocketmq.remoting.netty.NettyRemotingClient;
 import org.apache.rocketmq.remoting.netty.NettyRemotingServer;
@@ -34,12 +41,19 @@ import org.apache.rocketmq.remoting.netty.NettyServerConfig;
 import org.apache.rocketmq.remoting.netty.ResponseFuture;
 import org.apache.rocketmq.remoting.protocol.LanguageCode;
 import org.apache.rocketmq.remoting.protocol.RemotingCommand;
+import org.apache.rocketmq.remoting.protocol.RemotingSysResponseCode;
+import org.apache.rocketmq.remoting.protocol.SerializeType;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
 
 public class RemotingServerTest {
     private static RemotingServer remotingServer;
@@ -102,6 +116,85 @@ public class RemotingServerTest {
 
     }
 
+    @Test
+    public void testStageLatency() throws Exception {
+        LongHistogram rpcStageLatency = RemotingMetricsManager.rpcStageLatency;
+        LongHistogram histogram = mock(LongHistogram.class);
+        RemotingMetricsManager.rpcStageLatency = histogram;
+        try {
+            RemotingCommand request = RemotingCommand.createRequestCommand(0, new RequestHeader());
+            assertNotNull(remotingClient.invokeSync("localhost:" + remotingServer.localListenPort(), request, 1000 * 3));
+
+            ArgumentCaptor<Attributes> attributes = ArgumentCaptor.forClass(Attributes.class);
+            verify(histogram, timeout(3000).times(4)).record(anyLong(), attributes.capture());
+            List<String> stages = attributes.getAllValues().stream()
+                .map(value -> value.get(AttributeKey.stringKey(RemotingMetricsConstant.LABEL_STAGE)))
+                .collect(Collectors.toList());
+            assertThat(stages).containsExactly(RemotingMetricsConstant.STAGE_DECODE, RemotingMetricsConstant.STAGE_QUEUE,
+                RemotingMetricsConstant.STAGE_PROCESS, RemotingMetricsConstant.STAGE_WRITE);
+        } finally {
+            RemotingMetricsManager.rpcStageLatency = rpcStageLatency;
+        }
+    }
+
+    @Test
+    public void testStageLatencyOfFailedRequest() throws Exception {
+        remotingServer.registerProcessor(1, new NettyRequestProcessor() {
+            @Override
+            public RemotingCommand processRequest(ChannelHandlerContext ctx, RemotingCommand request) {
+                throw new IllegalStateException("mock process failure");
+            }
+
+            @Override
+            public boolean rejectRequest() {
+                return false;
+            }
+        }, Executors.newCachedThreadPool());
+        LongHistogram rpcStageLatency = RemotingMetricsManager.rpcStageLatency;
+        LongHistogram histogram = mock(LongHistogram.class);
+        RemotingMetricsManager.rpcStageLatency = histogram;
+        try {
+            RemotingCommand request = RemotingCommand.createRequestCommand(1, new RequestHeader());
+            RemotingCommand response = remotingClient.invokeSync("localhost:" + remotingServer.localListenPort(), request, 1000 * 3);
+            assertThat(response.getCode()).isEqualTo(RemotingSysResponseCode.SYSTEM_ERROR);
+
+            ArgumentCaptor<Attributes> attributes = ArgumentCaptor.forClass(Attributes.class);
+            verify(histogram, timeout(3000).times(4)).record(anyLong(), attributes.capture());
+            List<String> stages = attributes.getAllValues().stream()
+                .map(value -> value.get(AttributeKey.stringKey(RemotingMetricsConstant.LABEL_STAGE)))
+                .collect(Collectors.toList());
+            assertThat(stages).contains(RemotingMetricsConstant.STAGE_PROCESS);
+        } finally {
+            RemotingMetricsManager.rpcStageLatency = rpcStageLatency;
+        }
+    }
+
+    @Test
+    public void testInvokeSyncWithBinarySerialize() throws Exception {
+        NettyClientConfig nettyClientConfig = new NettyClientConfig();
+        nettyClientConfig.setEnableBinarySerialize(true);
+        RemotingClient binaryClient = createRemotingClient(nettyClientConfig);
+        try {
+            String addr = "localhost:" + remotingServer.localListenPort();
+            for (int i = 0; i < 3; i++) {
+                RequestHeader requestHeader = new RequestHeader();
+                requestHeader.setCount(i);
+                requestHeader.setMessageTitle("Welcome");
+                RemotingCommand request = RemotingCommand.createRequestCommand(0, requestHeader);
+                RemotingCommand response = binaryClient.invokeSync(addr, request, 1000 * 3);
+                assertNotNull(response);
+                // the first request announces the support, the server answers in binary from then on
+                assertThat(request.getSerializeTypeCurrentRPC())
+                    .isEqualTo(i == 0 ? RemotingCommand.getSerializeTypeConfigInThisServer() : SerializeType.ROCKETMQ_BINARY);
+                assertThat(response.getSerializeTypeCurrentRPC()).isEqualTo(SerializeType.ROCKETMQ_BINARY);
+                assertThat(response.getExtFields()).containsEntry("count", String.valueOf(i))
+                    .containsEntry("messageTitle", "Welcome");
+            }
+        } finally {
+            binaryClient.shutdown();
+        }
+    }
+
     @Test
     public void testInvokeOneway() throws InterruptedException, RemotingConnectException,
         RemotingTimeoutException, RemotingTooMuchRequestException, RemotingSendRequestException {
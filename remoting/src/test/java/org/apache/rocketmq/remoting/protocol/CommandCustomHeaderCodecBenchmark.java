@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.remoting.protocol;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes and encodes the custom headers of the most used request codes with the reflective path and with
+ * {@link CommandCustomHeaderCodec}. The {@code FastCodesHeader} headers are included as a reference.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CommandCustomHeaderCodecBenchmark {
+
+    @Param({
+        "SendMessageRequestHeaderV2",                 // SEND_MESSAGE_V2
+        "PullMessageRequestHeader",                   // PULL_MESSAGE
+        "PopMessageRequestHeader",                    // POP_MESSAGE
+        "AckMessageRequestHeader",                    // ACK_MESSAGE
+        "ChangeInvisibleTimeRequestHeader",           // CHANGE_MESSAGE_INVISIBLETIME
+        "QueryConsumerOffsetRequestHeader",           // QUERY_CONSUMER_OFFSET
+        "UpdateConsumerOffsetRequestHeader",          // UPDATE_CONSUMER_OFFSET
+        "GetConsumerListByGroupRequestHeader",        // GET_CONSUMER_LIST_BY_GROUP
+        "GetMaxOffsetRequestHeader",                  // GET_MAX_OFFSET
+        "GetMinOffsetRequestHeader",                  // GET_MIN_OFFSET
+        "SearchOffsetRequestHeader",                  // SEARCH_OFFSET_BY_TIMESTAMP
+        "GetEarliestMsgStoretimeRequestHeader",       // GET_EARLIEST_MSG_STORETIME
+        "EndTransactionRequestHeader",                // END_TRANSACTION
+        "CheckTransactionStateRequestHeader",         // CHECK_TRANSACTION_STATE
+        "ConsumerSendMsgBackRequestHeader",           // CONSUMER_SEND_MSG_BACK
+        "UnregisterClientRequestHeader",              // UNREGISTER_CLIENT
+        "NotifyConsumerIdsChangedRequestHeader",      // NOTIFY_CONSUMER_IDS_CHANGED
+        "QueryMessageRequestHeader",                  // QUERY_MESSAGE
+        "ViewMessageRequestHeader",                   // VIEW_MESSAGE_BY_ID
+        "GetConsumerRunningInfoRequestHeader",        // GET_CONSUMER_RUNNING_INFO
+        "namesrv.GetRouteInfoRequestHeader",          // GET_ROUTEINFO_BY_TOPIC
+        "namesrv.RegisterBrokerRequestHeader"         // REGISTER_BROKER
+    })
+    private String headerName;
+
+    private Class<? extends CommandCustomHeader> headerClass;
+    private RemotingCommand request;
+    private CommandCustomHeader header;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        headerClass = (Class<? extends CommandCustomHeader>) Class.forName(
+            "org.apache.rocketmq.remoting.protocol.header." + headerName);
+        HashMap<String, String> extFields = new HashMap<>();
+        int i = 0;
+        for (Class<?> clazz = headerClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                Class<?> type = field.getType();
+                i++;
+                if (type == String.class) {
+                    extFields.put(field.getName(), "value" + i);
+                } else if (type == Integer.class || type == int.class) {
+                    extFields.put(field.getName(), String.valueOf(i));
+                } else if (type == Long.class || type == long.class) {
+                    extFields.put(field.getName(), String.valueOf(System.currentTimeMillis() + i));
+                } else if (type == Boolean.class || type == boolean.class) {
+                    extFields.put(field.getName(), "false");
+                }
+            }
+        }
+        request = RemotingCommand.createRequestCommand(0, null);
+        request.setExtFields(extFields);
+        header = request.decodeCommandCustomHeaderDirectly(headerClass, true);
+    }
+
+    @Benchmark
+    public CommandCustomHeader decodeReflection() throws Exception {
+        return request.decodeCommandCustomHeaderDirectly(headerClass, false);
+    }
+
+    @Benchmark
+    public CommandCustomHeader decodeGenerated() throws Exception {
+        return request.decodeCommandCustomHeaderDirectly(headerClass, true);
+    }
+
+    @Benchmark
+    public HashMap<String, String> encodeReflection() throws Exception {
+        HashMap<String, String> extFields = new HashMap<>();
+        for (Field field : request.getClazzFields(headerClass)) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.getName().startsWith("this")) {
+                field.setAccessible(true);
+                Object value = field.get(header);
+                if (value != null) {
+                    extFields.put(field.getName(), value.toString());
+                }
+            }
+        }
+        return extFields;
+    }
+
+    @Benchmark
+    public HashMap<String, String> encodeGenerated() {
+        HashMap<String, String> extFields = new HashMap<>();
+        CommandCustomHeaderCodec.getCodec(headerClass).encode(header, extFields);
+        return extFields;
+    }
+}
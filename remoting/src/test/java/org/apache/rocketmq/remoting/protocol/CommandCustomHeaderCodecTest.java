@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.remoting.protocol;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.apache.rocketmq.common.BoundaryType;
+import org.apache.rocketmq.common.sysflag.MessageSysFlag;
+import org.apache.rocketmq.remoting.CommandCustomHeader;
+import org.apache.rocketmq.remoting.protocol.header.AckMessageRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.ChangeInvisibleTimeRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.ConsumerSendMsgBackRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.EndTransactionRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.GetConsumerListByGroupRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.GetMaxOffsetRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.PopMessageRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.PopMessageResponseHeader;
+import org.apache.rocketmq.remoting.protocol.header.QueryConsumerOffsetRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.SearchOffsetRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.UpdateConsumerOffsetRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.namesrv.GetRouteInfoRequestHeader;
+import org.apache.rocketmq.remoting.protocol.header.namesrv.RegisterBrokerRequestHeader;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommandCustomHeaderCodecTest {
+
+    private static final List<Class<? extends CommandCustomHeader>> HEADER_CLASSES = Arrays.asList(
+        AckMessageRequestHeader.class,
+        ChangeInvisibleTimeRequestHeader.class,
+        ConsumerSendMsgBackRequestHeader.class,
+        EndTransactionRequestHeader.class,
+        GetConsumerListByGroupRequestHeader.class,
+        GetMaxOffsetRequestHeader.class,
+        GetRouteInfoRequestHeader.class,
+        PopMessageRequestHeader.class,
+        PopMessageResponseHeader.class,
+        QueryConsumerOffsetRequestHeader.class,
+        RegisterBrokerRequestHeader.class,
+        SearchOffsetRequestHeader.class,
+        UpdateConsumerOffsetRequestHeader.class);
+
+    @Test
+    public void testDecodeSameAsReflection() throws Exception {
+        for (Class<? extends CommandCustomHeader> headerClass : HEADER_CLASSES) {
+            RemotingCommand command = RemotingCommand.createRequestCommand(0, null);
+            command.setExtFields(buildExtFields(headerClass));
+
+            CommandCustomHeader reflected = command.decodeCommandCustomHeaderDirectly(headerClass, false);
+            CommandCustomHeader generated = command.decodeCommandCustomHeaderDirectly(headerClass, true);
+            for (Field field : getFields(headerClass)) {
+                assertThat(field.get(generated)).as(headerClass.getSimpleName() + "." + field.getName())
+                    .isEqualTo(field.get(reflected));
+            }
+        }
+    }
+
+    @Test
+    public void testEncodeRawFieldValues() throws Exception {
+        SearchOffsetRequestHeader header = new SearchOffsetRequestHeader();
+        header.setTopic("topic");
+        header.setQueueId(-5);
+        header.setTimestamp(1000L);
+        RemotingCommand command = RemotingCommand.createRequestCommand(0, header);
+        command.makeCustomHeaderToNet();
+
+        // the getters normalize queueId and boundaryType, the wire format keeps the raw fields
+        assertThat(command.getExtFields()).containsEntry("topic", "topic")
+            .containsEntry("queueId", "-5")
+            .containsEntry("timestamp", "1000")
+            .doesNotContainKey("boundaryType");
+    }
+
+    @Test
+    public void testEncodeDecodeRoundTrip() throws Exception {
+        for (Class<? extends CommandCustomHeader> headerClass : HEADER_CLASSES) {
+            RemotingCommand source = RemotingCommand.createRequestCommand(0, null);
+            HashMap<String, String> extFields = buildExtFields(headerClass);
+            source.setExtFields(extFields);
+            CommandCustomHeader header = source.decodeCommandCustomHeaderDirectly(headerClass, true);
+
+            RemotingCommand command = RemotingCommand.createRequestCommand(0, header);
+            command.makeCustomHeaderToNet();
+            assertThat(command.getExtFields()).as(headerClass.getSimpleName()).isEqualTo(extFields);
+        }
+    }
+
+    @Test
+    public void testDecodeUnsupportedFieldType() throws Exception {
+        assertThat(CommandCustomHeaderCodec.getCodec(UnsupportedFieldHeader.class).isDecodable()).isFalse();
+
+        RemotingCommand command = RemotingCommand.createRequestCommand(0, null);
+        HashMap<String, String> extFields = new HashMap<>();
+        extFields.put("topic", "topic");
+        extFields.put("tags", "a,b");
+        command.setExtFields(extFields);
+
+        UnsupportedFieldHeader header = (UnsupportedFieldHeader) command.decodeCommandCustomHeaderDirectly(UnsupportedFieldHeader.class, true);
+        assertThat(header.topic).isEqualTo("topic");
+        assertThat(header.tags).isNull();
+    }
+
+    public static class UnsupportedFieldHeader implements CommandCustomHeader {
+        private String topic;
+        private List<String> tags;
+
+        @Override
+        public void checkFields() {
+        }
+    }
+
+    private static List<Field> getFields(Class<?> headerClass) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> clazz = headerClass; clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    private static HashMap<String, String> buildExtFields(Class<?> headerClass) {
+        HashMap<String, String> extFields = new HashMap<>();
+        int i = 0;
+        for (Field field : getFields(headerClass)) {
+            Class<?> type = field.getType();
+            i++;
+            if (type == String.class) {
+                extFields.put(field.getName(), "str" + i);
+            } else if (type == Integer.class || type == int.class) {
+                extFields.put(field.getName(), String.valueOf(i));
+            } else if (type == Long.class || type == long.class) {
+                extFields.put(field.getName(), String.valueOf(1000L + i));
+            } else if (type == Boolean.class || type == boolean.class) {
+                extFields.put(field.getName(), "true");
+            } else if (type == BoundaryType.class) {
+                extFields.put(field.getName(), String.valueOf(BoundaryType.UPPER));
+            }
+        }
+        if (headerClass == EndTransactionRequestHeader.class) {
+            extFields.put("commitOrRollback", String.valueOf(MessageSysFlag.TRANSACTION_COMMIT_TYPE));
+        }
+        return extFields;
+    }
+}
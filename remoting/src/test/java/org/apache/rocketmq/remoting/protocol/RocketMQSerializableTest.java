@@ -22,10 +22,13 @@ import io.netty.buffer.Unpooled;
 import java.util.HashMap;
 import org.apache.rocketmq.remoting.CommandCustomHeader;
 import org.apache.rocketmq.remoting.exception.RemotingCommandException;
+import org.apache.rocketmq.remoting.protocol.header.PullMessageResponseHeader;
+import org.apache.rocketmq.remoting.protocol.header.SendMessageRequestHeaderV2;
 import org.junit.Assert;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class RocketMQSerializableTest {
     @Test
@@ -214,4 +217,86 @@ public class RocketMQSerializableTest {
         assertThat(h2.getStr()).isEqualTo("s1");
         assertThat(h2.getNum()).isEqualTo(100);
     }
+
+    @Test
+    public void testBinaryEncodeAndDecode() throws Exception {
+        SendMessageRequestHeaderV2 header = new SendMessageRequestHeaderV2();
+        header.setA("producerGroup");
+        header.setB("topic");
+        header.setC("TBW102");
+        header.setD(4);
+        header.setE(-1);
+        header.setF(0);
+        header.setG(1700000000000L);
+        header.setH(0);
+        header.setI("KEYS\u0001k1\u0002");
+        header.setK(false);
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(310, header);
+        cmd.setSerializeTypeCurrentRPC(SerializeType.ROCKETMQ_BINARY);
+        cmd.setRemark("remark");
+        cmd.addExtField("AccessKey", "ak");
+        cmd.addExtField("customKey", "customValue");
+
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(16);
+        cmd.fastEncodeHeader(buf);
+        buf.readInt();
+        RemotingCommand cmd2 = RemotingCommand.decode(buf);
+        buf.release();
+        assertThat(cmd2.getSerializeTypeCurrentRPC()).isEqualTo(SerializeType.ROCKETMQ_BINARY);
+        assertThat(cmd2.getCode()).isEqualTo(310);
+        assertThat(cmd2.getOpaque()).isEqualTo(cmd.getOpaque());
+        assertThat(cmd2.getRemark()).isEqualTo("remark");
+
+        SendMessageRequestHeaderV2 header2 =
+            (SendMessageRequestHeaderV2) cmd2.decodeCommandCustomHeader(SendMessageRequestHeaderV2.class);
+        assertThat(header2.getA()).isEqualTo("producerGroup");
+        assertThat(header2.getB()).isEqualTo("topic");
+        assertThat(header2.getD()).isEqualTo(4);
+        assertThat(header2.getE()).isEqualTo(-1);
+        assertThat(header2.getG()).isEqualTo(1700000000000L);
+        assertThat(header2.getI()).isEqualTo("KEYS\u0001k1\u0002");
+        assertThat(header2.isK()).isFalse();
+        assertThat(header2.isM()).isNull();
+
+        // the ext fields read the same as with the string based serialize types
+        cmd.setSerializeTypeCurrentRPC(SerializeType.ROCKETMQ);
+        buf = ByteBufAllocator.DEFAULT.buffer(16);
+        cmd.fastEncodeHeader(buf);
+        buf.readInt();
+        RemotingCommand cmd3 = RemotingCommand.decode(buf);
+        buf.release();
+        assertThat(cmd2.getExtFields()).isEqualTo(cmd3.getExtFields());
+    }
+
+    @Test
+    public void testBinaryEncodeIsSmaller() {
+        PullMessageResponseHeader header = new PullMessageResponseHeader();
+        header.setSuggestWhichBrokerId(0L);
+        header.setNextBeginOffset(123456789L);
+        header.setMinOffset(0L);
+        header.setMaxOffset(123456799L);
+        header.setTopicSysFlag(0);
+        header.setGroupSysFlag(0);
+        RemotingCommand cmd = RemotingCommand.createResponseCommandWithHeader(ResponseCode.SUCCESS, header);
+
+        cmd.setSerializeTypeCurrentRPC(SerializeType.ROCKETMQ);
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(16);
+        int size = RocketMQSerializable.rocketMQProtocolEncode(cmd, buf);
+        buf.clear();
+        int binarySize = RocketMQSerializable.rocketMQBinaryProtocolEncode(cmd, buf);
+        buf.release();
+        assertThat(binarySize).isLessThan(size / 2);
+    }
+
+    @Test
+    public void testBinaryDecodeRejectsNewerFormat() {
+        RemotingCommand cmd = RemotingCommand.createRequestCommand(1, null);
+        ByteBuf buf = ByteBufAllocator.DEFAULT.buffer(16);
+        int size = RocketMQSerializable.rocketMQBinaryProtocolEncode(cmd, buf);
+        // the format version follows code, language, version, opaque, flag and the empty remark
+        buf.setByte(17, BinaryExtFields.FORMAT_VERSION + 1);
+        assertThatThrownBy(() -> RocketMQSerializable.rocketMQBinaryProtocolDecode(buf, size))
+            .isInstanceOf(RemotingCommandException.class);
+        buf.release();
+    }
 }
@@ -31,6 +31,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import com.sun.jna.NativeLong;
@@ -79,6 +80,7 @@ public class CommitLog implements Swappable {
      * CRC32 Format: [PROPERTY_CRC32 + NAME_VALUE_SEPARATOR + 10-digit fixed-length string + PROPERTY_SEPARATOR]
      */
     public static final int CRC32_RESERVED_LEN = MessageConst.PROPERTY_CRC32.length() + 1 + 10 + 1;
+    private static final long CONCURRENT_APPEND_ROLL_WAIT_MS = 1;
     protected final MappedFileQueue mappedFileQueue;
     protected final DefaultMessageStore defaultMessageStore;
 
@@ -96,6 +98,16 @@ public class CommitLog implements Swappable {
 
     protected final TopicQueueLock topicQueueLock;
 
+    /**
+     * Whether appends reserve their range in the mapped file instead of holding putMessageLock.
+     */
+    protected final boolean concurrentAppend;
+
+    /**
+     * Serializes switching to a new mapped file when appending concurrently.
+     */
+    private final Object concurrentAppendRollLock = new Object();
+
     private volatile Set<String> fullStorePaths = Collections.emptySet();
 
     private final FlushDiskWatcher flushDiskWatcher;
@@ -135,6 +147,10 @@ public class CommitLog implements Swappable {
 
         this.topicQueueLock = new TopicQueueLock(messageStore.getMessageStoreConfig().getTopicQueueLockNum());
 
+        // multi-dispatch rewrites properties and lmq offsets inside the append callback, which relies on putMessageLock
+        this.concurrentAppend = messageStore.getMessageStoreConfig().isEnableConcurrentAppend()
+            && !messageStore.getMessageStoreConfig().isEnableMultiDispatch();
+
         this.commitLogSize = messageStore.getMessageStoreConfig().getMappedFileSizeCommitLog();
 
         this.enabledAppendPropCRC = messageStore.getMessageStoreConfig().isEnabledAppendPropCRC();
@@ -987,67 +1003,84 @@ public class CommitLog implements Swappable {
             msg.setEncodedBuff(putMessageThreadLocal.getEncoder().getEncoderBuffer());
             PutMessageContext putMessageContext = new PutMessageContext(topicQueueKey);
 
-            putMessageLock.lock(); //spin or ReentrantLock ,depending on store config
-            try {
-                long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
-                this.beginTimeInLock = beginLockTimestamp;
-
-                // Here settings are stored timestamp, in order to ensure an orderly
-                // global
+            if (this.concurrentAppend) {
+                long beginAppendTimestamp = this.defaultMessageStore.getSystemClock().now();
+                this.beginTimeInLock = beginAppendTimestamp;
                 if (!defaultMessageStore.getMessageStoreConfig().isDuplicationEnable()) {
-                    msg.setStoreTimestamp(beginLockTimestamp);
+                    msg.setStoreTimestamp(beginAppendTimestamp);
                 }
 
-                if (null == mappedFile || mappedFile.isFull()) {
-                    mappedFile = this.mappedFileQueue.getLastMappedFile(0); // Mark: NewFile may be cause noise
-                    if (isCloseReadAhead()) {
-                        setFileReadMode(mappedFile, LibC.MADV_RANDOM);
-                    }
-                }
-                if (null == mappedFile) {
-                    log.error("create mapped file1 error, topic: " + msg.getTopic() + " clientAddr: " + msg.getBornHostString());
-                    beginTimeInLock = 0;
-                    return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, null));
+                result = appendConcurrently(msg, file -> file.appendMessageConcurrently(msg, this.appendMessageCallback, putMessageContext));
+                beginTimeInLock = 0;
+                PutMessageResult failedResult = toFailedPutMessageResult(result);
+                if (failedResult != null) {
+                    log.error("concurrent append failed, topic: {} clientAddr: {} result: {}", msg.getTopic(), msg.getBornHostString(), result);
+                    return CompletableFuture.completedFuture(failedResult);
                 }
+                elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginAppendTimestamp;
+            } else {
+                putMessageLock.lock(); //spin or ReentrantLock ,depending on store config
+                try {
+                    long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
+                    this.beginTimeInLock = beginLockTimestamp;
 
-                result = mappedFile.appendMessage(msg, this.appendMessageCallback, putMessageContext);
-                switch (result.getStatus()) {
-                    case PUT_OK:
-                        onCommitLogAppend(msg, result, mappedFile);
-                        break;
-                    case END_OF_FILE:
-                        onCommitLogAppend(msg, result, mappedFile);
-                        unlockMappedFile = mappedFile;
-                        // Create a new file, re-write the message
-                        mappedFile = this.mappedFileQueue.getLastMappedFile(0);
-                        if (null == mappedFile) {
-                            // XXX: warn and notify me
-                            log.error("create mapped file2 error, topic: " + msg.getTopic() + " clientAddr: " + msg.getBornHostString());
-                            beginTimeInLock = 0;
-                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, result));
-                        }
+                    // Here settings are stored timestamp, in order to ensure an orderly
+                    // global
+                    if (!defaultMessageStore.getMessageStoreConfig().isDuplicationEnable()) {
+                        msg.setStoreTimestamp(beginLockTimestamp);
+                    }
+
+                    if (null == mappedFile || mappedFile.isFull()) {
+                        mappedFile = this.mappedFileQueue.getLastMappedFile(0); // Mark: NewFile may be cause noise
                         if (isCloseReadAhead()) {
                             setFileReadMode(mappedFile, LibC.MADV_RANDOM);
                         }
-                        result = mappedFile.appendMessage(msg, this.appendMessageCallback, putMessageContext);
-                        if (AppendMessageStatus.PUT_OK.equals(result.getStatus())) {
-                            onCommitLogAppend(msg, result, mappedFile);
-                        }
-                        break;
-                    case MESSAGE_SIZE_EXCEEDED:
-                    case PROPERTIES_SIZE_EXCEEDED:
-                        beginTimeInLock = 0;
-                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result));
-                    case UNKNOWN_ERROR:
-                    default:
+                    }
+                    if (null == mappedFile) {
+                        log.error("create mapped file1 error, topic: " + msg.getTopic() + " clientAddr: " + msg.getBornHostString());
                         beginTimeInLock = 0;
-                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result));
-                }
+                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, null));
+                    }
 
-                elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
-                beginTimeInLock = 0;
-            } finally {
-                putMessageLock.unlock();
+                    result = mappedFile.appendMessage(msg, this.appendMessageCallback, putMessageContext);
+                    switch (result.getStatus()) {
+                        case PUT_OK:
+                            onCommitLogAppend(msg, result, mappedFile);
+                            break;
+                        case END_OF_FILE:
+                            onCommitLogAppend(msg, result, mappedFile);
+                            unlockMappedFile = mappedFile;
+                            // Create a new file, re-write the message
+                            mappedFile = this.mappedFileQueue.getLastMappedFile(0);
+                            if (null == mappedFile) {
+                                // XXX: warn and notify me
+                                log.error("create mapped file2 error, topic: " + msg.getTopic() + " clientAddr: " + msg.getBornHostString());
+                                beginTimeInLock = 0;
+                                return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, result));
+                            }
+                            if (isCloseReadAhead()) {
+                                setFileReadMode(mappedFile, LibC.MADV_RANDOM);
+                            }
+                            result = mappedFile.appendMessage(msg, this.appendMessageCallback, putMessageContext);
+                            if (AppendMessageStatus.PUT_OK.equals(result.getStatus())) {
+                                onCommitLogAppend(msg, result, mappedFile);
+                            }
+                            break;
+                        case MESSAGE_SIZE_EXCEEDED:
+                        case PROPERTIES_SIZE_EXCEEDED:
+                            beginTimeInLock = 0;
+                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result));
+                        case UNKNOWN_ERROR:
+                        default:
+                            beginTimeInLock = 0;
+                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result));
+                    }
+
+                    elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
+                    beginTimeInLock = 0;
+                } finally {
+                    putMessageLock.unlock();
+                }
             }
             // Increase queue offset when messages are successfully written
             if (AppendMessageStatus.PUT_OK.equals(result.getStatus())) {
@@ -1154,60 +1187,75 @@ public class CommitLog implements Swappable {
         try {
             defaultMessageStore.assignOffset(messageExtBatch);
 
-            putMessageLock.lock();
-            try {
-                long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
-                this.beginTimeInLock = beginLockTimestamp;
-
-                // Here settings are stored timestamp, in order to ensure an orderly
-                // global
-                messageExtBatch.setStoreTimestamp(beginLockTimestamp);
+            if (this.concurrentAppend) {
+                long beginAppendTimestamp = this.defaultMessageStore.getSystemClock().now();
+                this.beginTimeInLock = beginAppendTimestamp;
+                messageExtBatch.setStoreTimestamp(beginAppendTimestamp);
 
-                if (null == mappedFile || mappedFile.isFull()) {
-                    mappedFile = this.mappedFileQueue.getLastMappedFile(0); // Mark: NewFile may be cause noise
-                    if (isCloseReadAhead()) {
-                        setFileReadMode(mappedFile, LibC.MADV_RANDOM);
-                    }
-                }
-                if (null == mappedFile) {
-                    log.error("Create mapped file1 error, topic: {} clientAddr: {}", messageExtBatch.getTopic(), messageExtBatch.getBornHostString());
-                    beginTimeInLock = 0;
-                    return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, null));
+                result = appendConcurrently(messageExtBatch, file -> file.appendMessagesConcurrently(messageExtBatch, this.appendMessageCallback, putMessageContext));
+                beginTimeInLock = 0;
+                PutMessageResult failedResult = toFailedPutMessageResult(result);
+                if (failedResult != null) {
+                    log.error("concurrent append failed, topic: {} clientAddr: {} result: {}", messageExtBatch.getTopic(), messageExtBatch.getBornHostString(), result);
+                    return CompletableFuture.completedFuture(failedResult);
                 }
+                elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginAppendTimestamp;
+            } else {
+                putMessageLock.lock();
+                try {
+                    long beginLockTimestamp = this.defaultMessageStore.getSystemClock().now();
+                    this.beginTimeInLock = beginLockTimestamp;
 
-                result = mappedFile.appendMessages(messageExtBatch, this.appendMessageCallback, putMessageContext);
-                switch (result.getStatus()) {
-                    case PUT_OK:
-                        break;
-                    case END_OF_FILE:
-                        unlockMappedFile = mappedFile;
-                        // Create a new file, re-write the message
-                        mappedFile = this.mappedFileQueue.getLastMappedFile(0);
-                        if (null == mappedFile) {
-                            // XXX: warn and notify me
-                            log.error("Create mapped file2 error, topic: {} clientAddr: {}", messageExtBatch.getTopic(), messageExtBatch.getBornHostString());
-                            beginTimeInLock = 0;
-                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, result));
-                        }
+                    // Here settings are stored timestamp, in order to ensure an orderly
+                    // global
+                    messageExtBatch.setStoreTimestamp(beginLockTimestamp);
+
+                    if (null == mappedFile || mappedFile.isFull()) {
+                        mappedFile = this.mappedFileQueue.getLastMappedFile(0); // Mark: NewFile may be cause noise
                         if (isCloseReadAhead()) {
                             setFileReadMode(mappedFile, LibC.MADV_RANDOM);
                         }
-                        result = mappedFile.appendMessages(messageExtBatch, this.appendMessageCallback, putMessageContext);
-                        break;
-                    case MESSAGE_SIZE_EXCEEDED:
-                    case PROPERTIES_SIZE_EXCEEDED:
-                        beginTimeInLock = 0;
-                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result));
-                    case UNKNOWN_ERROR:
-                    default:
+                    }
+                    if (null == mappedFile) {
+                        log.error("Create mapped file1 error, topic: {} clientAddr: {}", messageExtBatch.getTopic(), messageExtBatch.getBornHostString());
                         beginTimeInLock = 0;
-                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result));
-                }
+                        return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, null));
+                    }
 
-                elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
-                beginTimeInLock = 0;
-            } finally {
-                putMessageLock.unlock();
+                    result = mappedFile.appendMessages(messageExtBatch, this.appendMessageCallback, putMessageContext);
+                    switch (result.getStatus()) {
+                        case PUT_OK:
+                            break;
+                        case END_OF_FILE:
+                            unlockMappedFile = mappedFile;
+                            // Create a new file, re-write the message
+                            mappedFile = this.mappedFileQueue.getLastMappedFile(0);
+                            if (null == mappedFile) {
+                                // XXX: warn and notify me
+                                log.error("Create mapped file2 error, topic: {} clientAddr: {}", messageExtBatch.getTopic(), messageExtBatch.getBornHostString());
+                                beginTimeInLock = 0;
+                                return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, result));
+                            }
+                            if (isCloseReadAhead()) {
+                                setFileReadMode(mappedFile, LibC.MADV_RANDOM);
+                            }
+                            result = mappedFile.appendMessages(messageExtBatch, this.appendMessageCallback, putMessageContext);
+                            break;
+                        case MESSAGE_SIZE_EXCEEDED:
+                        case PROPERTIES_SIZE_EXCEEDED:
+                            beginTimeInLock = 0;
+                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result));
+                        case UNKNOWN_ERROR:
+                        default:
+                            beginTimeInLock = 0;
+                            return CompletableFuture.completedFuture(new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result));
+                    }
+
+                    elapsedTimeInLock = this.defaultMessageStore.getSystemClock().now() - beginLockTimestamp;
+                    beginTimeInLock = 0;
+                } finally {
+                    putMessageLock.unlock();
+                }
             }
 
             // Increase queue offset when messages are successfully written
@@ -1358,6 +1406,97 @@ public class CommitLog implements Swappable {
         return null;
     }
 
+    /**
+     * Appends through {@link MappedFile#appendMessageConcurrently} and friends, rolling to a new file when needed.
+     *
+     * @return the append result, or null if a new mapped file could not be created
+     */
+    private AppendMessageResult appendConcurrently(final MessageExt msg, final Function<MappedFile, AppendMessageResult> appender) {
+        MappedFile mappedFile = this.mappedFileQueue.getLastMappedFile();
+        while (true) {
+            if (null == mappedFile || mappedFile.isFull()) {
+                mappedFile = rollMappedFileConcurrently(mappedFile);
+                if (null == mappedFile) {
+                    return null;
+                }
+            }
+
+            AppendMessageResult result = appender.apply(mappedFile);
+            if (!AppendMessageStatus.END_OF_FILE.equals(result.getStatus())) {
+                if (AppendMessageStatus.PUT_OK.equals(result.getStatus()) && msg instanceof MessageExtBrokerInner) {
+                    onCommitLogAppend((MessageExtBrokerInner) msg, result, mappedFile);
+                }
+                return result;
+            }
+
+            // Only the writer that filled the tail with the blank marker owns the file switch
+            if (result.getWroteBytes() > 0) {
+                if (msg instanceof MessageExtBrokerInner) {
+                    onCommitLogAppend((MessageExtBrokerInner) msg, result, mappedFile);
+                }
+                if (this.defaultMessageStore.getMessageStoreConfig().isWarmMapedFileEnable()) {
+                    this.defaultMessageStore.unlockMappedFile(mappedFile);
+                }
+            }
+            mappedFile = rollMappedFileConcurrently(mappedFile);
+            if (null == mappedFile) {
+                return null;
+            }
+        }
+    }
+
+    private MappedFile rollMappedFileConcurrently(final MappedFile exhaustedFile) {
+        synchronized (this.concurrentAppendRollLock) {
+            boolean interrupted = false;
+            if (exhaustedFile != null) {
+                // Wait for the writers still copying into the old file, getLastMappedFile only rolls a full file.
+                // The writer owning the tail rolls the file and wakes us up, the timeout covers a failed tail copy.
+                while (!exhaustedFile.isFull() && exhaustedFile == this.mappedFileQueue.getLastMappedFile()) {
+                    try {
+                        this.concurrentAppendRollLock.wait(CONCURRENT_APPEND_ROLL_WAIT_MS);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            MappedFile lastMappedFile = this.mappedFileQueue.getLastMappedFile();
+            if (lastMappedFile != null && lastMappedFile != exhaustedFile && !lastMappedFile.isFull()) {
+                return lastMappedFile;
+            }
+            MappedFile mappedFile = this.mappedFileQueue.getLastMappedFile(0);
+            if (null == mappedFile) {
+                log.error("create mapped file error when appending concurrently");
+                return null;
+            }
+            if (mappedFile != lastMappedFile) {
+                if (isCloseReadAhead()) {
+                    setFileReadMode(mappedFile, LibC.MADV_RANDOM);
+                }
+                this.concurrentAppendRollLock.notifyAll();
+            }
+            return mappedFile;
+        }
+    }
+
+    private PutMessageResult toFailedPutMessageResult(final AppendMessageResult result) {
+        if (null == result) {
+            return new PutMessageResult(PutMessageStatus.CREATE_MAPPED_FILE_FAILED, null);
+        }
+        switch (result.getStatus()) {
+            case PUT_OK:
+                return null;
+            case MESSAGE_SIZE_EXCEEDED:
+            case PROPERTIES_SIZE_EXCEEDED:
+                return new PutMessageResult(PutMessageStatus.MESSAGE_ILLEGAL, result);
+            case UNKNOWN_ERROR:
+            default:
+                return new PutMessageResult(PutMessageStatus.UNKNOWN_ERROR, result);
+        }
+    }
+
     public long rollNextFile(final long offset) {
         int mappedFileSize = this.defaultMessageStore.getMessageStoreConfig().getMappedFileSizeCommitLog();
         return offset + mappedFileSize - offset % mappedFileSize;
@@ -1832,13 +1971,13 @@ public class CommitLog implements Swappable {
     class DefaultAppendMessageCallback implements AppendMessageCallback {
         // File at the end of the minimum fixed length empty
         private static final int END_FILE_MIN_BLANK_LENGTH = 4 + 4;
-        // Store the message content
-        private final ByteBuffer msgStoreItemMemory;
+        // Store the blank marker at the end of the file, per thread as concurrent appends share the callback
+        private final ThreadLocal<ByteBuffer> msgStoreItemMemory =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocate(END_FILE_MIN_BLANK_LENGTH));
         private final int crc32ReservedLength = CommitLog.CRC32_RESERVED_LEN;
         private final MessageStoreConfig messageStoreConfig;
 
         DefaultAppendMessageCallback(MessageStoreConfig messageStoreConfig) {
-            this.msgStoreItemMemory = ByteBuffer.allocate(END_FILE_MIN_BLANK_LENGTH);
             this.messageStoreConfig = messageStoreConfig;
         }
 
@@ -1949,15 +2088,16 @@ public class CommitLog implements Swappable {
 
             // Determines whether there is sufficient free space
             if ((msgLen + END_FILE_MIN_BLANK_LENGTH) > maxBlank) {
-                this.msgStoreItemMemory.clear();
+                final ByteBuffer msgStoreItemMemory = this.msgStoreItemMemory.get();
+                msgStoreItemMemory.clear();
                 // 1 TOTALSIZE
-                this.msgStoreItemMemory.putInt(maxBlank);
+                msgStoreItemMemory.putInt(maxBlank);
                 // 2 MAGICCODE
-                this.msgStoreItemMemory.putInt(CommitLog.BLANK_MAGIC_CODE);
+                msgStoreItemMemory.putInt(CommitLog.BLANK_MAGIC_CODE);
                 // 3 The remaining space may be any value
                 // Here the length of the specially set maxBlank
                 final long beginTimeMills = CommitLog.this.defaultMessageStore.now();
-                byteBuffer.put(this.msgStoreItemMemory.array(), 0, 8);
+                byteBuffer.put(msgStoreItemMemory.array(), 0, 8);
                 return new AppendMessageResult(AppendMessageStatus.END_OF_FILE, wroteOffset,
                     maxBlank, /* only wrote 8 bytes, but declare wrote maxBlank for compute write position */
                     msgIdSupplier, msgInner.getStoreTimestamp(),
@@ -2047,17 +2187,18 @@ public class CommitLog implements Swappable {
                 totalMsgLen += msgLen;
                 // Determines whether there is sufficient free space
                 if ((totalMsgLen + END_FILE_MIN_BLANK_LENGTH) > maxBlank) {
-                    this.msgStoreItemMemory.clear();
+                    final ByteBuffer msgStoreItemMemory = this.msgStoreItemMemory.get();
+                    msgStoreItemMemory.clear();
                     // 1 TOTALSIZE
-                    this.msgStoreItemMemory.putInt(maxBlank);
+                    msgStoreItemMemory.putInt(maxBlank);
                     // 2 MAGICCODE
-                    this.msgStoreItemMemory.putInt(CommitLog.BLANK_MAGIC_CODE);
+                    msgStoreItemMemory.putInt(CommitLog.BLANK_MAGIC_CODE);
                     // 3 The remaining space may be any value
                     //ignore previous read
                     messagesByteBuff.reset();
                     // Here the length of the specially set maxBlank
                     byteBuffer.reset(); //ignore the previous appended messages
-                    byteBuffer.put(this.msgStoreItemMemory.array(), 0, 8);
+                    byteBuffer.put(msgStoreItemMemory.array(), 0, 8);
                     return new AppendMessageResult(AppendMessageStatus.END_OF_FILE, wroteOffset, maxBlank, msgIdSupplier, messageExtBatch.getStoreTimestamp(),
                         beginQueueOffset, CommitLog.this.defaultMessageStore.now() - beginTimeMills);
                 }
@@ -700,7 +700,10 @@ public class ConsumeQueue implements ConsumeQueueInterface, FileQueueLifeCycle {
                     this.messageStore.getMessageStoreConfig().isEnableDLegerCommitLog()) {
                     this.messageStore.getStoreCheckpoint().setPhysicMsgTimestamp(request.getStoreTimestamp());
                 }
-                this.messageStore.getStoreCheckpoint().setLogicsMsgTimestamp(request.getStoreTimestamp());
+                if (!DispatchPipeline.isEnabled(this.messageStore.getMessageStoreConfig())) {
+                    // else only advanced to the messages through the whole pipeline
+                    this.messageStore.getStoreCheckpoint().setLogicsMsgTimestamp(request.getStoreTimestamp());
+                }
                 if (MultiDispatchUtils.checkMultiDispatchQueue(this.messageStore.getMessageStoreConfig(), request)) {
                     multiDispatchLmqQueue(request, maxRetries);
                 }
@@ -1156,7 +1159,7 @@ public class ConsumeQueue implements ConsumeQueueInterface, FileQueueLifeCycle {
                             ext = consumeQueueExt.get(tagCode);
                             tagCode = ext.getTagsCode();
                         }
-                        if (filter.isMatchedByConsumeQueue(tagCode, ext)) {
+                        if (filter.isMatchedByConsumeQueue(tagCode, ext, buffer.getLong(current))) {
                             match++;
                         }
                         raw++;
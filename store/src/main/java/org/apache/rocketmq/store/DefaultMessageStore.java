@@ -34,6 +34,7 @@ import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -105,6 +106,7 @@ import org.apache.rocketmq.store.kv.CompactionStore;
 import org.apache.rocketmq.store.logfile.MappedFile;
 import org.apache.rocketmq.store.metrics.DefaultStoreMetricsManager;
 import org.apache.rocketmq.store.queue.ConsumeQueueInterface;
+import org.apache.rocketmq.store.queue.ConsumeQueueRangeCache;
 import org.apache.rocketmq.store.queue.ConsumeQueueStore;
 import org.apache.rocketmq.store.queue.ConsumeQueueStoreInterface;
 import org.apache.rocketmq.store.queue.CqUnit;
@@ -149,6 +151,8 @@ public class DefaultMessageStore implements MessageStore {
 
     private final StoreStatsService storeStatsService;
 
+    private final ConsumeQueueRangeCache consumeQueueRangeCache;
+
     private final TransientStorePool transientStorePool;
 
     protected final RunningFlags runningFlags = new RunningFlags();
@@ -235,6 +239,12 @@ public class DefaultMessageStore implements MessageStore {
         this.correctLogicOffsetService = createCorrectLogicOffsetService();
         this.storeStatsService = new StoreStatsService(getBrokerIdentity());
         this.indexService = new IndexService(this);
+        if (messageStoreConfig.isEnableConsumeQueueRangeCache() && !messageStoreConfig.isEnableConsumeQueueExt()) {
+            this.consumeQueueRangeCache = new ConsumeQueueRangeCache(messageStoreConfig.getConsumeQueueRangeCacheUnitNum(),
+                messageStoreConfig.getConsumeQueueRangeCacheMaxQueueNum());
+        } else {
+            this.consumeQueueRangeCache = null;
+        }
 
         if (!messageStoreConfig.isEnableDLegerCommitLog() && !this.messageStoreConfig.isDuplicationEnable()) {
             if (brokerConfig.isEnableControllerMode()) {
@@ -249,11 +259,7 @@ public class DefaultMessageStore implements MessageStore {
             }
         }
 
-        if (!messageStoreConfig.isEnableBuildConsumeQueueConcurrently()) {
-            this.reputMessageService = new ReputMessageService();
-        } else {
-            this.reputMessageService = new ConcurrentReputMessageService();
-        }
+        this.reputMessageService = createReputMessageService();
 
         this.transientStorePool = new TransientStorePool(messageStoreConfig.getTransientStorePoolSize(), messageStoreConfig.getMappedFileSizeCommitLog());
 
@@ -278,6 +284,15 @@ public class DefaultMessageStore implements MessageStore {
         parseDelayLevel();
     }
 
+    private ReputMessageService createReputMessageService() {
+        if (DispatchPipeline.isEnabled(messageStoreConfig)) {
+            return new PipelinedReputMessageService();
+        } else if (messageStoreConfig.isEnableBuildConsumeQueueConcurrently()) {
+            return new ConcurrentReputMessageService();
+        }
+        return new ReputMessageService();
+    }
+
     public ConsumeQueueStoreInterface createConsumeQueueStore() {
         return new ConsumeQueueStore(this);
     }
@@ -327,7 +342,14 @@ public class DefaultMessageStore implements MessageStore {
 
     @Override
     public void truncateDirtyLogicFiles(long phyOffset) throws RocksDBException {
+        // units read during the truncation must not be cached either
+        if (this.consumeQueueRangeCache != null) {
+            this.consumeQueueRangeCache.invalidate();
+        }
         this.consumeQueueStore.truncateDirty(phyOffset);
+        if (this.consumeQueueRangeCache != null) {
+            this.consumeQueueRangeCache.invalidate();
+        }
     }
 
     /**
@@ -405,7 +427,7 @@ public class DefaultMessageStore implements MessageStore {
         lockFile.getChannel().write(ByteBuffer.wrap("lock".getBytes(StandardCharsets.UTF_8)));
         lockFile.getChannel().force(true);
 
-        this.reputMessageService.setReputFromOffset(this.commitLog.getConfirmOffset());
+        this.reputMessageService.setReputFromOffset(getDispatchedPhyOffsetInCheckpoint(this.commitLog.getConfirmOffset()));
         this.reputMessageService.start();
 
         // Checking is not necessary, as long as the dLedger's implementation exactly follows the definition of Recover,
@@ -427,6 +449,21 @@ public class DefaultMessageStore implements MessageStore {
         this.shutdown = false;
     }
 
+    /**
+     * The dispatch pipeline builds the consume queues of its shards out of commit log order, so the messages after the
+     * dispatched offset in the checkpoint may be missing from some consume queues, they are dispatched again.
+     *
+     * @return the dispatched offset in the checkpoint if it is below the given offset, else the given offset
+     */
+    private long getDispatchedPhyOffsetInCheckpoint(long reputFromOffset) {
+        long dispatchedPhyOffset = Math.max(this.storeCheckpoint.getDispatchedPhyOffset(), this.commitLog.getMinOffset());
+        if (this.storeCheckpoint.getDispatchedPhyOffset() > 0 && dispatchedPhyOffset < reputFromOffset) {
+            LOGGER.info("reput from the dispatched offset {} in the checkpoint instead of {}", dispatchedPhyOffset, reputFromOffset);
+            return dispatchedPhyOffset;
+        }
+        return reputFromOffset;
+    }
+
     private void doRecheckReputOffsetFromCq() throws InterruptedException {
         if (!messageStoreConfig.isRecheckReputOffsetFromCq()) {
             return;
@@ -446,6 +483,7 @@ public class DefaultMessageStore implements MessageStore {
                 }
             }
         }
+        maxPhysicalPosInLogicQueue = getDispatchedPhyOffsetInCheckpoint(maxPhysicalPosInLogicQueue);
         // If maxPhyPos(CQs) < minPhyPos(CommitLog), some newly deleted topics may be re-dispatched into cqs mistakenly.
         if (maxPhysicalPosInLogicQueue < 0) {
             maxPhysicalPosInLogicQueue = 0;
@@ -539,6 +577,9 @@ public class DefaultMessageStore implements MessageStore {
     @Override
     public void destroy() {
         this.consumeQueueStore.destroy();
+        if (this.consumeQueueRangeCache != null) {
+            this.consumeQueueRangeCache.invalidate();
+        }
         this.commitLog.destroy();
         this.indexService.destroy();
         this.deleteFile(StorePathConfigHelper.getAbortFile(this.messageStoreConfig.getStorePathRootDir()));
@@ -717,6 +758,10 @@ public class DefaultMessageStore implements MessageStore {
         this.reputMessageService.shutdown();
 
         long oldReputFromOffset = this.reputMessageService.getReputFromOffset();
+        DispatchPipeline dispatchPipeline = getDispatchPipeline();
+        if (dispatchPipeline != null) {
+            oldReputFromOffset = dispatchPipeline.getDispatchedOffset(oldReputFromOffset);
+        }
 
         // truncate consume queue
         this.truncateDirtyLogicFiles(offsetToTruncate);
@@ -726,11 +771,7 @@ public class DefaultMessageStore implements MessageStore {
 
         this.recoverTopicQueueTable();
 
-        if (!messageStoreConfig.isEnableBuildConsumeQueueConcurrently()) {
-            this.reputMessageService = new ReputMessageService();
-        } else {
-            this.reputMessageService = new ConcurrentReputMessageService();
-        }
+        this.reputMessageService = createReputMessageService();
 
         long resetReputOffset = Math.min(oldReputFromOffset, offsetToTruncate);
 
@@ -846,7 +887,7 @@ public class DefaultMessageStore implements MessageStore {
                     ReferredIterator<CqUnit> bufferConsumeQueue = null;
 
                     try {
-                        bufferConsumeQueue = consumeQueue.iterateFrom(nextBeginOffset, maxMsgNums);
+                        bufferConsumeQueue = iterateConsumeQueue(consumeQueue, nextBeginOffset, maxMsgNums);
 
                         if (bufferConsumeQueue == null) {
                             status = GetMessageStatus.OFFSET_FOUND_NULL;
@@ -889,7 +930,7 @@ public class DefaultMessageStore implements MessageStore {
                             }
 
                             if (messageFilter != null
-                                && !messageFilter.isMatchedByConsumeQueue(cqUnit.getValidTagsCodeAsLong(), cqUnit.getCqExtUnit())) {
+                                && !messageFilter.isMatchedByConsumeQueue(cqUnit.getValidTagsCodeAsLong(), cqUnit.getCqExtUnit(), offsetPy)) {
                                 if (getResult.getBufferTotalSize() == 0) {
                                     status = GetMessageStatus.NO_MATCHED_MESSAGE;
                                 }
@@ -970,6 +1011,14 @@ public class DefaultMessageStore implements MessageStore {
         return getResult;
     }
 
+    private ReferredIterator<CqUnit> iterateConsumeQueue(ConsumeQueueInterface consumeQueue, long startOffset,
+        int count) throws RocksDBException {
+        if (this.consumeQueueRangeCache != null && consumeQueue instanceof ConsumeQueue) {
+            return this.consumeQueueRangeCache.iterateFrom(consumeQueue, startOffset, count);
+        }
+        return consumeQueue.iterateFrom(startOffset, count);
+    }
+
     @Override
     public CompletableFuture<GetMessageResult> getMessageAsync(String group, String topic,
         int queueId, long offset, int maxMsgNums, int maxTotalMsgSize, MessageFilter messageFilter) {
@@ -1392,6 +1441,9 @@ public class DefaultMessageStore implements MessageStore {
 
             // remove topic from cq table
             this.consumeQueueStore.getConsumeQueueTable().remove(topic);
+            if (this.consumeQueueRangeCache != null) {
+                this.consumeQueueRangeCache.invalidate(topic);
+            }
 
             if (this.brokerConfig.isAutoDeleteUnusedStats()) {
                 this.brokerStatsManager.onTopicDeleted(topic);
@@ -1435,6 +1487,9 @@ public class DefaultMessageStore implements MessageStore {
         long minCommitLogOffset = this.commitLog.getMinOffset();
 
         this.consumeQueueStore.cleanExpired(minCommitLogOffset);
+        if (this.consumeQueueRangeCache != null) {
+            this.consumeQueueRangeCache.invalidate(this.consumeQueueStore.getConsumeQueueTable());
+        }
     }
 
     public Map<String, Long> getMessageIds(final String topic, final int queueId, long minOffset, long maxOffset,
@@ -2630,6 +2685,7 @@ public class DefaultMessageStore implements MessageStore {
             }
 
             long logicsMsgTimestamp = 0;
+            long dispatchedPhyOffset = 0;
 
             int flushConsumeQueueThoroughInterval = DefaultMessageStore.this.getMessageStoreConfig().getFlushConsumeQueueThoroughInterval();
             long currentTimeMillis = System.currentTimeMillis();
@@ -2639,6 +2695,15 @@ public class DefaultMessageStore implements MessageStore {
                 logicsMsgTimestamp = DefaultMessageStore.this.getStoreCheckpoint().getLogicsMsgTimestamp();
             }
 
+            DispatchPipeline dispatchPipeline = getDispatchPipeline();
+            if (0 == flushConsumeQueueLeastPages && dispatchPipeline != null) {
+                // the consume queues are built out of commit log order, the checkpoint only advances to the messages
+                // through all stages, read before flushing so that they are on disk
+                long reputFromOffset = getReputFromOffset();
+                dispatchedPhyOffset = dispatchPipeline.getDispatchedOffset(reputFromOffset);
+                logicsMsgTimestamp = dispatchPipeline.getDispatchedTimestamp(reputFromOffset);
+            }
+
             ConcurrentMap<String, ConcurrentMap<Integer, ConsumeQueueInterface>> tables = DefaultMessageStore.this.getConsumeQueueTable();
 
             for (ConcurrentMap<Integer, ConsumeQueueInterface> maps : tables.values()) {
@@ -2658,6 +2723,7 @@ public class DefaultMessageStore implements MessageStore {
                 if (logicsMsgTimestamp > 0) {
                     DefaultMessageStore.this.getStoreCheckpoint().setLogicsMsgTimestamp(logicsMsgTimestamp);
                 }
+                DefaultMessageStore.this.getStoreCheckpoint().setDispatchedPhyOffset(dispatchedPhyOffset);
                 DefaultMessageStore.this.getStoreCheckpoint().flush();
             }
         }
@@ -2842,11 +2908,7 @@ public class DefaultMessageStore implements MessageStore {
 
                         if (dispatchRequest.isSuccess()) {
                             if (size > 0) {
-                                DefaultMessageStore.this.doDispatch(dispatchRequest);
-
-                                if (!notifyMessageArriveInBatch) {
-                                    notifyMessageArriveIfNecessary(dispatchRequest);
-                                }
+                                this.dispatch(dispatchRequest);
 
                                 this.reputFromOffset += size;
                                 readSize += size;
@@ -2890,6 +2952,14 @@ public class DefaultMessageStore implements MessageStore {
             }
         }
 
+        protected void dispatch(DispatchRequest dispatchRequest) throws RocksDBException {
+            DefaultMessageStore.this.doDispatch(dispatchRequest);
+
+            if (!notifyMessageArriveInBatch) {
+                notifyMessageArriveIfNecessary(dispatchRequest);
+            }
+        }
+
         private void notifyMessageArrive4MultiQueue(DispatchRequest dispatchRequest) {
             Map<String, String> prop = dispatchRequest.getPropertiesMap();
             if (prop == null || dispatchRequest.getTopic().startsWith(MixAll.RETRY_GROUP_TOPIC_PREFIX)) {
@@ -3071,6 +3141,75 @@ public class DefaultMessageStore implements MessageStore {
         }
     }
 
+    class PipelinedReputMessageService extends ReputMessageService {
+
+        private volatile DispatchPipeline dispatchPipeline;
+
+        @Override
+        public void start() {
+            Map<DispatchPipeline.Stage, List<CommitLogDispatcher>> dispatchers = new EnumMap<>(DispatchPipeline.Stage.class);
+            DispatchPipeline.Stage stage = DispatchPipeline.Stage.PRE_BUILD_CONSUME_QUEUE;
+            for (CommitLogDispatcher dispatcher : DefaultMessageStore.this.dispatcherList) {
+                DispatchPipeline.Stage dispatcherStage = stage;
+                if (dispatcher instanceof CommitLogDispatcherBuildConsumeQueue) {
+                    dispatcherStage = DispatchPipeline.Stage.BUILD_CONSUME_QUEUE;
+                    stage = DispatchPipeline.Stage.OTHERS;
+                } else if (dispatcher instanceof CommitLogDispatcherBuildIndex) {
+                    dispatcherStage = DispatchPipeline.Stage.BUILD_INDEX;
+                }
+                dispatchers.computeIfAbsent(dispatcherStage, k -> new ArrayList<>()).add(dispatcher);
+            }
+            // a multi dispatch message is also put into the queues of other shards
+            int shardNums = messageStoreConfig.isEnableMultiDispatch() || messageStoreConfig.isEnableLmq()
+                ? 1 : messageStoreConfig.getDispatchPipelineShardNums();
+            this.dispatchPipeline = new DispatchPipeline(getServiceName(), dispatchers, shardNums,
+                messageStoreConfig.getDispatchPipelineQueueCapacity(), DefaultMessageStore.this::notifyMessageArriveIfNecessary,
+                this.reputFromOffset);
+            this.dispatchPipeline.start();
+            super.start();
+        }
+
+        @Override
+        public void shutdown() {
+            super.shutdown();
+            if (this.dispatchPipeline != null) {
+                this.dispatchPipeline.shutdown();
+            }
+        }
+
+        @Override
+        protected void dispatch(DispatchRequest dispatchRequest) {
+            try {
+                this.dispatchPipeline.put(dispatchRequest);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while putting into the dispatch pipeline", e);
+            }
+        }
+
+        @Override
+        public long behind() {
+            long reputFromOffset = this.reputFromOffset;
+            DispatchPipeline dispatchPipeline = this.dispatchPipeline;
+            if (dispatchPipeline == null) {
+                return super.behind();
+            }
+            return DefaultMessageStore.this.getConfirmOffset() - dispatchPipeline.getDispatchedOffset(reputFromOffset);
+        }
+
+        public DispatchPipeline getDispatchPipeline() {
+            return dispatchPipeline;
+        }
+
+        @Override
+        public String getServiceName() {
+            if (DefaultMessageStore.this.getBrokerConfig().isInBrokerContainer()) {
+                return DefaultMessageStore.this.getBrokerIdentity().getIdentifier() + PipelinedReputMessageService.class.getSimpleName();
+            }
+            return PipelinedReputMessageService.class.getSimpleName();
+        }
+    }
+
     class ConcurrentReputMessageService extends ReputMessageService {
 
         private static final int BATCH_SIZE = 1024 * 1024 * 4;
@@ -3325,4 +3464,21 @@ public class DefaultMessageStore implements MessageStore {
     public long getReputFromOffset() {
         return this.reputMessageService.getReputFromOffset();
     }
+
+    /**
+     * @return the dispatch pipeline, null if not enabled or not started
+     */
+    public DispatchPipeline getDispatchPipeline() {
+        if (this.reputMessageService instanceof PipelinedReputMessageService) {
+            return ((PipelinedReputMessageService) this.reputMessageService).getDispatchPipeline();
+        }
+        return null;
+    }
+
+    /**
+     * @return the cache of recently read consume queue units, null if not enabled
+     */
+    public ConsumeQueueRangeCache getConsumeQueueRangeCache() {
+        return consumeQueueRangeCache;
+    }
 }
@@ -0,0 +1,367 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.apache.rocketmq.common.ServiceThread;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+
+/**
+ * Runs the commit log dispatchers on stage threads fed by the reput thread through bounded queues:
+ * <ul>
+ * <li>{@link Stage#PRE_BUILD_CONSUME_QUEUE}, the dispatchers before the consume queue build, e.g. the bit map
+ * calculation, and {@link Stage#BUILD_CONSUME_QUEUE}, both sharded by topic and queue id, a pre shard hands its requests
+ * to the consume queue shard of the same index, so each queue is still built in commit log order,</li>
+ * <li>{@link Stage#BUILD_INDEX}, a single thread as the index skips the offsets below the last one built,</li>
+ * <li>{@link Stage#OTHERS}, the remaining dispatchers on a single thread, in commit log order.</li>
+ * </ul>
+ * The reput thread blocks when a queue is full. The dispatched offset is the lowest commit log offset not yet through
+ * all stages, it is kept in the checkpoint and a restart dispatches again from there, as the consume queues of the
+ * shards may be ahead of each other.
+ */
+public class DispatchPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.STORE_LOGGER_NAME);
+
+    private static final long TIMESTAMP_SAMPLE_INTERVAL_BYTES = 64 * 1024;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final int SHUTDOWN_STALLED_TIMES = 50;
+
+    public enum Stage {
+        PRE_BUILD_CONSUME_QUEUE("pre_build_consume_queue"),
+        BUILD_CONSUME_QUEUE("build_consume_queue"),
+        BUILD_INDEX("build_index"),
+        OTHERS("others");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String name;
+    private final Consumer<DispatchRequest> arrivedListener;
+    /**
+     * In the order the requests go through, so a request handed over between two reads is seen by the second one
+     */
+    private final List<Worker> workers = new ArrayList<>();
+    private final Worker[] preWorkers;
+    private final Worker[] consumeQueueWorkers;
+    private final Worker indexWorker;
+    private final Worker otherWorker;
+
+    private volatile long putTo;
+    private long lastSampleOffset = -1;
+    private final Queue<long[]> timestampSamples = new ConcurrentLinkedQueue<>();
+    private volatile long dispatchedTimestamp = 0;
+
+    /**
+     * @param dispatchers the dispatchers of each stage, in dispatch order
+     * @param arrivedListener called once a message is in its consume queue, may be null
+     * @param startOffset the commit log offset the first request starts at
+     */
+    public DispatchPipeline(String name, Map<Stage, List<CommitLogDispatcher>> dispatchers, int shardNums,
+        int queueCapacity, Consumer<DispatchRequest> arrivedListener, long startOffset) {
+        this.name = name;
+        this.arrivedListener = arrivedListener;
+        this.putTo = startOffset;
+        int shards = Math.max(1, shardNums);
+        this.consumeQueueWorkers = new Worker[shards];
+        for (int i = 0; i < shards; i++) {
+            this.consumeQueueWorkers[i] = new Worker(Stage.BUILD_CONSUME_QUEUE, i,
+                dispatchersOf(dispatchers, Stage.BUILD_CONSUME_QUEUE), queueCapacity, null, startOffset);
+        }
+        List<CommitLogDispatcher> preDispatchers = dispatchersOf(dispatchers, Stage.PRE_BUILD_CONSUME_QUEUE);
+        this.preWorkers = new Worker[preDispatchers.isEmpty() ? 0 : shards];
+        for (int i = 0; i < this.preWorkers.length; i++) {
+            this.preWorkers[i] = new Worker(Stage.PRE_BUILD_CONSUME_QUEUE, i, preDispatchers, queueCapacity,
+                this.consumeQueueWorkers[i], startOffset);
+        }
+        List<CommitLogDispatcher> indexDispatchers = dispatchersOf(dispatchers, Stage.BUILD_INDEX);
+        this.indexWorker = indexDispatchers.isEmpty() ? null
+            : new Worker(Stage.BUILD_INDEX, 0, indexDispatchers, queueCapacity, null, startOffset);
+        List<CommitLogDispatcher> otherDispatchers = dispatchersOf(dispatchers, Stage.OTHERS);
+        this.otherWorker = otherDispatchers.isEmpty() ? null
+            : new Worker(Stage.OTHERS, 0, otherDispatchers, queueCapacity, null, startOffset);
+
+        Collections.addAll(this.workers, this.preWorkers);
+        Collections.addAll(this.workers, this.consumeQueueWorkers);
+        if (this.indexWorker != null) {
+            this.workers.add(this.indexWorker);
+        }
+        if (this.otherWorker != null) {
+            this.workers.add(this.otherWorker);
+        }
+    }
+
+    /**
+     * @return whether the store dispatches through a pipeline, rocksdb mode is not pipelined
+     */
+    public static boolean isEnabled(MessageStoreConfig messageStoreConfig) {
+        return messageStoreConfig.isEnableDispatchPipeline() && !messageStoreConfig.isEnableRocksDBStore();
+    }
+
+    private static List<CommitLogDispatcher> dispatchersOf(Map<Stage, List<CommitLogDispatcher>> dispatchers,
+        Stage stage) {
+        List<CommitLogDispatcher> list = dispatchers.get(stage);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    public void start() {
+        for (Worker worker : this.workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Waits for the pending requests as long as they are making progress, then stops the stage threads.
+     *
+     * @return false if some requests are not dispatched, they are dispatched again after a restart
+     */
+    public boolean shutdown() {
+        long lastDispatchedOffset = -1;
+        int stalledTimes = 0;
+        while (!isIdle() && stalledTimes < SHUTDOWN_STALLED_TIMES) {
+            long dispatchedOffset = getDispatchedOffset(this.putTo);
+            stalledTimes = dispatchedOffset == lastDispatchedOffset ? stalledTimes + 1 : 0;
+            lastDispatchedOffset = dispatchedOffset;
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        boolean drained = isIdle();
+        if (!drained) {
+            LOGGER.error("shutdown {}, but the requests have not finished to be dispatched, they are dispatched again "
+                + "after restart, putTo={}, dispatchedTo={}", this.name, this.putTo, getDispatchedOffset(this.putTo));
+        }
+        for (Worker worker : this.workers) {
+            worker.shutdown();
+        }
+        return drained;
+    }
+
+    /**
+     * Only called by the reput thread.
+     */
+    public void put(DispatchRequest request) throws InterruptedException {
+        long offset = request.getCommitLogOffset();
+        if (this.lastSampleOffset < 0 || offset - this.lastSampleOffset >= TIMESTAMP_SAMPLE_INTERVAL_BYTES) {
+            this.lastSampleOffset = offset;
+            this.timestampSamples.add(new long[] {offset, request.getStoreTimestamp()});
+        }
+        int shard = shardOf(request);
+        if (this.preWorkers.length > 0) {
+            this.preWorkers[shard].put(request);
+        } else {
+            this.consumeQueueWorkers[shard].put(request);
+        }
+        if (this.indexWorker != null) {
+            this.indexWorker.put(request);
+        }
+        if (this.otherWorker != null) {
+            this.otherWorker.put(request);
+        }
+        this.putTo = offset + request.getMsgSize();
+    }
+
+    private int shardOf(DispatchRequest request) {
+        if (this.consumeQueueWorkers.length == 1) {
+            return 0;
+        }
+        int hash = 31 * request.getTopic().hashCode() + request.getQueueId();
+        return (hash & Integer.MAX_VALUE) % this.consumeQueueWorkers.length;
+    }
+
+    public boolean isIdle() {
+        for (Worker worker : this.workers) {
+            if (!worker.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param parseOffset the offset the reput thread has parsed to, read before calling
+     * @return the lowest commit log offset not yet through all stages
+     */
+    public long getDispatchedOffset(long parseOffset) {
+        long offset = parseOffset;
+        for (Worker worker : this.workers) {
+            offset = Math.min(offset, worker.getDispatchedOffset(parseOffset));
+        }
+        return offset;
+    }
+
+    /**
+     * @return the store timestamp of a message through all stages, close to the latest one, 0 if none yet
+     */
+    public long getDispatchedTimestamp(long parseOffset) {
+        long dispatchedOffset = getDispatchedOffset(parseOffset);
+        long[] sample;
+        while ((sample = this.timestampSamples.peek()) != null && sample[0] < dispatchedOffset) {
+            this.dispatchedTimestamp = sample[1];
+            this.timestampSamples.poll();
+        }
+        return this.dispatchedTimestamp;
+    }
+
+    /**
+     * @return the bytes put into the pipeline but not yet through the stage
+     */
+    public long getStageBehind(Stage stage) {
+        long offset = this.putTo;
+        long dispatchedOffset = offset;
+        for (Worker worker : this.workers) {
+            if (worker.stage == stage) {
+                dispatchedOffset = Math.min(dispatchedOffset, worker.getDispatchedOffset(offset));
+            }
+        }
+        return offset - dispatchedOffset;
+    }
+
+    /**
+     * @return the requests waiting in the queues of the stage
+     */
+    public int getStageQueueSize(Stage stage) {
+        int size = 0;
+        for (Worker worker : this.workers) {
+            if (worker.stage == stage) {
+                size += worker.queue.size();
+            }
+        }
+        return size;
+    }
+
+    private class Worker extends ServiceThread {
+        private final Stage stage;
+        private final int index;
+        private final List<CommitLogDispatcher> dispatchers;
+        private final BlockingQueue<DispatchRequest> queue;
+        private final Worker next;
+
+        /**
+         * Both written by the single thread putting requests while idle, else completedTo only by the worker
+         */
+        private volatile long enqueuedTo;
+        private volatile long completedTo;
+
+        /**
+         * The request taken from the queue but not done yet and the number of its dispatchers done, only accessed by
+         * the worker
+         */
+        private DispatchRequest pending;
+        private int dispatchedNum;
+
+        Worker(Stage stage, int index, List<CommitLogDispatcher> dispatchers, int queueCapacity, Worker next,
+            long startOffset) {
+            this.stage = stage;
+            this.index = index;
+            this.dispatchers = dispatchers;
+            this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+            this.next = next;
+            this.enqueuedTo = startOffset;
+            this.completedTo = startOffset;
+        }
+
+        void put(DispatchRequest request) throws InterruptedException {
+            if (isIdle()) {
+                // nothing pending, the worker won't move completedTo until this request is done
+                this.completedTo = request.getCommitLogOffset();
+            }
+            this.enqueuedTo = request.getCommitLogOffset() + request.getMsgSize();
+            this.queue.put(request);
+        }
+
+        boolean isIdle() {
+            return this.completedTo == this.enqueuedTo;
+        }
+
+        long getDispatchedOffset(long upperBound) {
+            long completed = this.completedTo;
+            return completed == this.enqueuedTo ? upperBound : completed;
+        }
+
+        @Override
+        public void run() {
+            LOGGER.info(this.getServiceName() + " service started");
+
+            while (!this.isStopped()) {
+                try {
+                    if (this.pending == null) {
+                        this.pending = this.queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                        this.dispatchedNum = 0;
+                        if (this.pending == null) {
+                            continue;
+                        }
+                    }
+                    process(this.pending);
+                    this.pending = null;
+                } catch (InterruptedException e) {
+                    LOGGER.warn(this.getServiceName() + " interrupted, the request is handed over again", e);
+                } catch (Throwable e) {
+                    LOGGER.error("[BUG]{} dispatch failed, retry later, commitLogOffset={}", this.getServiceName(),
+                        this.pending.getCommitLogOffset(), e);
+                    this.waitForRunning(POLL_INTERVAL_MS);
+                }
+            }
+
+            LOGGER.info(this.getServiceName() + " service end");
+        }
+
+        /**
+         * Retried from the dispatcher failed last time, completedTo stays below the request until it is done, so the
+         * dispatched offset in the checkpoint never skips a request not through all dispatchers.
+         */
+        private void process(DispatchRequest request) throws InterruptedException {
+            while (this.dispatchedNum < this.dispatchers.size()) {
+                this.dispatchers.get(this.dispatchedNum).dispatch(request);
+                this.dispatchedNum++;
+            }
+            if (this.next != null) {
+                this.next.put(request);
+            } else if (this.stage == Stage.BUILD_CONSUME_QUEUE && arrivedListener != null) {
+                arrivedListener.accept(request);
+            }
+            this.completedTo = request.getCommitLogOffset() + request.getMsgSize();
+        }
+
+        @Override
+        public String getServiceName() {
+            return name + "_" + this.stage.getLabel() + "_" + this.index;
+        }
+    }
+}
@@ -574,6 +574,13 @@ public class MappedFileQueue implements Swappable {
     }
 
     public int deleteExpiredFileByOffsetForTimerLog(long offset, int checkOffset, int unitSize) {
+        return deleteExpiredFileByOffsetForTimerLog(offset, checkOffset, unitSize, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxDeletableOffset files ending after this offset are kept whatever the offset of their last unit is
+     */
+    public int deleteExpiredFileByOffsetForTimerLog(long offset, int checkOffset, int unitSize, long maxDeletableOffset) {
         Object[] mfs = this.copyMappedFiles(0);
 
         List<MappedFile> files = new ArrayList<>();
@@ -585,6 +592,11 @@ public class MappedFileQueue implements Swappable {
             for (int i = 0; i < mfsLength; i++) {
                 boolean destroy = false;
                 MappedFile mappedFile = (MappedFile) mfs[i];
+                if (mappedFile.getFileFromOffset() + mappedFile.getFileSize() > maxDeletableOffset) {
+                    log.info("timer log file {} is still referenced, max deletable offset {}", mappedFile.getFileName(),
+                        maxDeletableOffset);
+                    break;
+                }
                 SelectMappedBufferResult result = mappedFile.selectMappedBuffer(checkOffset);
                 try {
                     if (result != null) {
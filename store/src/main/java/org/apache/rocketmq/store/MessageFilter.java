@@ -30,6 +30,18 @@ public interface MessageFilter {
     boolean isMatchedByConsumeQueue(final Long tagsCode,
         final ConsumeQueueExt.CqExtUnit cqExtUnit);
 
+    /**
+     * match by tags code or filter bit map, knowing the commit log offset of the message.
+     *
+     * @param tagsCode tagsCode
+     * @param cqExtUnit extend unit of consume queue
+     * @param commitLogOffset commit log offset of the message, -1 if unknown
+     */
+    default boolean isMatchedByConsumeQueue(final Long tagsCode,
+        final ConsumeQueueExt.CqExtUnit cqExtUnit, final long commitLogOffset) {
+        return isMatchedByConsumeQueue(tagsCode, cqExtUnit);
+    }
+
     /**
      * match by message content which are stored in commit log.
      * <br>{@code msgBuffer} and {@code properties} are not all null.If invoked in store,
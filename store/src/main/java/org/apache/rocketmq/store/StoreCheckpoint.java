@@ -38,6 +38,10 @@ public class StoreCheckpoint {
     private volatile long indexMsgTimestamp = 0;
     private volatile long masterFlushedOffset = 0;
     private volatile long confirmPhyOffset = 0;
+    /**
+     * Commit log offset all messages before which are dispatched, 0 if unknown, only kept with the dispatch pipeline
+     */
+    private volatile long dispatchedPhyOffset = 0;
 
     public StoreCheckpoint(final String scpPath) throws IOException {
         File file = new File(scpPath);
@@ -55,6 +59,7 @@ public class StoreCheckpoint {
             this.indexMsgTimestamp = this.mappedByteBuffer.getLong(16);
             this.masterFlushedOffset = this.mappedByteBuffer.getLong(24);
             this.confirmPhyOffset = this.mappedByteBuffer.getLong(32);
+            this.dispatchedPhyOffset = this.mappedByteBuffer.getLong(40);
 
             log.info("store checkpoint file physicMsgTimestamp " + this.physicMsgTimestamp + ", "
                 + UtilAll.timeMillisToHumanString(this.physicMsgTimestamp));
@@ -64,6 +69,7 @@ public class StoreCheckpoint {
                 + UtilAll.timeMillisToHumanString(this.indexMsgTimestamp));
             log.info("store checkpoint file masterFlushedOffset " + this.masterFlushedOffset);
             log.info("store checkpoint file confirmPhyOffset " + this.confirmPhyOffset);
+            log.info("store checkpoint file dispatchedPhyOffset " + this.dispatchedPhyOffset);
         } else {
             log.info("store checkpoint file not exists, " + scpPath);
         }
@@ -88,6 +94,7 @@ public class StoreCheckpoint {
         this.mappedByteBuffer.putLong(16, this.indexMsgTimestamp);
         this.mappedByteBuffer.putLong(24, this.masterFlushedOffset);
         this.mappedByteBuffer.putLong(32, this.confirmPhyOffset);
+        this.mappedByteBuffer.putLong(40, this.dispatchedPhyOffset);
         this.mappedByteBuffer.force();
     }
 
@@ -115,6 +122,14 @@ public class StoreCheckpoint {
         this.confirmPhyOffset = confirmPhyOffset;
     }
 
+    public long getDispatchedPhyOffset() {
+        return dispatchedPhyOffset;
+    }
+
+    public void setDispatchedPhyOffset(long dispatchedPhyOffset) {
+        this.dispatchedPhyOffset = dispatchedPhyOffset;
+    }
+
     public long getMinTimestampIndex() {
         return Math.min(this.getMinTimestamp(), this.indexMsgTimestamp);
     }
@@ -70,6 +70,19 @@ public class MessageStoreConfig {
     private int timerPrecisionMs = 1000;
 
     private int timerRollWindowSlot = 3600 * 24 * 2;
+
+    /**
+     * Precisions in milliseconds of the overflow levels stacked above the timer wheel, from fine to coarse,
+     * e.g. "3600000,86400000". Timers beyond the roll window are parked in these levels and cascade down
+     * through the timer log instead of being rolled through the commit log, as long as their commit log
+     * files are kept until they are due. Empty means a single level wheel.
+     */
+    private String timerWheelOverflowLevels = "";
+
+    /**
+     * Slots of each overflow level, the span of a level is its precision multiplied by this.
+     */
+    private int timerWheelOverflowLevelSlots = 24 * 366;
     private int timerFlushIntervalMs = 1000;
     private int timerGetMessageThreadNum = 3;
     private int timerPutMessageThreadNum = 3;
@@ -137,6 +150,12 @@ public class MessageStoreConfig {
      */
     private boolean useReentrantLockWhenPutMessage = true;
 
+    /**
+     * Append to the commit log without the global put message lock: writers reserve their byte range in the
+     * mapped file with a CAS and publish the write position in order. Ignored when multi-dispatch is enabled.
+     */
+    private boolean enableConcurrentAppend = false;
+
     // Whether schedule flush
     @ImportantField
     private boolean flushCommitLogTimed = true;
@@ -195,6 +214,19 @@ public class MessageStoreConfig {
     private boolean messageIndexEnable = true;
     private int maxHashSlotNum = 5000000;
     private int maxIndexNum = 5000000 * 4;
+    /**
+     * Keep a bloom filter of the keys in each index file, a query skips the files which surely don't contain the key.
+     * Takes about 10 bits per index at the default error rate, only the index files created afterwards have one.
+     */
+    private boolean enableIndexBloomFilter = false;
+    /**
+     * False positive rate of the index bloom filter, in percent.
+     */
+    private int indexBloomFilterErrorRate = 1;
+    /**
+     * Threads searching the candidate index files of a query in parallel, 0 to search them one by one.
+     */
+    private int indexQueryThreadPoolNums = 0;
     private int maxMsgsNumBatch = 64;
     @ImportantField
     private boolean messageIndexSafe = false;
@@ -404,6 +436,40 @@ public class MessageStoreConfig {
 
     private int batchDispatchRequestThreadPoolNums = 16;
 
+    /**
+     * Dispatch through a staged pipeline: the reput thread only parses the commit log, the dispatchers before the
+     * consume queue build (e.g. bit map calculation), the consume queue build, the index build and the other
+     * dispatchers run on their own threads. Ignored in rocksdb mode.
+     */
+    private boolean enableDispatchPipeline = false;
+
+    /**
+     * Threads building consume queues in the dispatch pipeline, each one owns the queues hashed to it.
+     * Forced to one when multi dispatch or lmq is enabled, as a message may be put into several queues.
+     */
+    private int dispatchPipelineShardNums = 4;
+
+    /**
+     * Pending requests per dispatch pipeline thread, the reput thread blocks when one is full.
+     */
+    private int dispatchPipelineQueueCapacity = 4096;
+
+    /**
+     * Cache the recently read units of each consume queue, so consumer groups pulling the same range of a queue only
+     * read the consume queue file once. Ignored when the consume queue extend file is enabled and in rocksdb mode.
+     */
+    private boolean enableConsumeQueueRangeCache = false;
+
+    /**
+     * Units cached per consume queue, rounded up to a power of two, each takes 20 bytes.
+     */
+    private int consumeQueueRangeCacheUnitNum = 1024;
+
+    /**
+     * Consume queues in the range cache, the least recently used one is evicted to make room for a new one.
+     */
+    private int consumeQueueRangeCacheMaxQueueNum = 1024;
+
     // rocksdb mode
     private long cleanRocksDBDirtyCQIntervalMin = 60;
     private long statRocksDBCQIntervalSec = 10;
@@ -1092,6 +1158,14 @@ public class MessageStoreConfig {
         this.useReentrantLockWhenPutMessage = useReentrantLockWhenPutMessage;
     }
 
+    public boolean isEnableConcurrentAppend() {
+        return enableConcurrentAppend;
+    }
+
+    public void setEnableConcurrentAppend(boolean enableConcurrentAppend) {
+        this.enableConcurrentAppend = enableConcurrentAppend;
+    }
+
     public int getCommitCommitLogLeastPages() {
         return commitCommitLogLeastPages;
     }
@@ -1819,4 +1893,92 @@ public class MessageStoreConfig {
     public void setTopicQueueLockNum(int topicQueueLockNum) {
         this.topicQueueLockNum = topicQueueLockNum;
     }
+
+    public boolean isEnableDispatchPipeline() {
+        return enableDispatchPipeline;
+    }
+
+    public void setEnableDispatchPipeline(boolean enableDispatchPipeline) {
+        this.enableDispatchPipeline = enableDispatchPipeline;
+    }
+
+    public boolean isEnableConsumeQueueRangeCache() {
+        return enableConsumeQueueRangeCache;
+    }
+
+    public void setEnableConsumeQueueRangeCache(boolean enableConsumeQueueRangeCache) {
+        this.enableConsumeQueueRangeCache = enableConsumeQueueRangeCache;
+    }
+
+    public int getConsumeQueueRangeCacheUnitNum() {
+        return consumeQueueRangeCacheUnitNum;
+    }
+
+    public void setConsumeQueueRangeCacheUnitNum(int consumeQueueRangeCacheUnitNum) {
+        this.consumeQueueRangeCacheUnitNum = consumeQueueRangeCacheUnitNum;
+    }
+
+    public int getConsumeQueueRangeCacheMaxQueueNum() {
+        return consumeQueueRangeCacheMaxQueueNum;
+    }
+
+    public void setConsumeQueueRangeCacheMaxQueueNum(int consumeQueueRangeCacheMaxQueueNum) {
+        this.consumeQueueRangeCacheMaxQueueNum = consumeQueueRangeCacheMaxQueueNum;
+    }
+
+    public int getDispatchPipelineShardNums() {
+        return dispatchPipelineShardNums;
+    }
+
+    public void setDispatchPipelineShardNums(int dispatchPipelineShardNums) {
+        this.dispatchPipelineShardNums = dispatchPipelineShardNums;
+    }
+
+    public int getDispatchPipelineQueueCapacity() {
+        return dispatchPipelineQueueCapacity;
+    }
+
+    public void setDispatchPipelineQueueCapacity(int dispatchPipelineQueueCapacity) {
+        this.dispatchPipelineQueueCapacity = dispatchPipelineQueueCapacity;
+    }
+
+    public boolean isEnableIndexBloomFilter() {
+        return enableIndexBloomFilter;
+    }
+
+    public void setEnableIndexBloomFilter(boolean enableIndexBloomFilter) {
+        this.enableIndexBloomFilter = enableIndexBloomFilter;
+    }
+
+    public int getIndexBloomFilterErrorRate() {
+        return indexBloomFilterErrorRate;
+    }
+
+    public void setIndexBloomFilterErrorRate(int indexBloomFilterErrorRate) {
+        this.indexBloomFilterErrorRate = indexBloomFilterErrorRate;
+    }
+
+    public int getIndexQueryThreadPoolNums() {
+        return indexQueryThreadPoolNums;
+    }
+
+    public void setIndexQueryThreadPoolNums(int indexQueryThreadPoolNums) {
+        this.indexQueryThreadPoolNums = indexQueryThreadPoolNums;
+    }
+
+    public String getTimerWheelOverflowLevels() {
+        return timerWheelOverflowLevels;
+    }
+
+    public void setTimerWheelOverflowLevels(String timerWheelOverflowLevels) {
+        this.timerWheelOverflowLevels = timerWheelOverflowLevels;
+    }
+
+    public int getTimerWheelOverflowLevelSlots() {
+        return timerWheelOverflowLevelSlots;
+    }
+
+    public void setTimerWheelOverflowLevelSlots(int timerWheelOverflowLevelSlots) {
+        this.timerWheelOverflowLevelSlots = timerWheelOverflowLevelSlots;
+    }
 }
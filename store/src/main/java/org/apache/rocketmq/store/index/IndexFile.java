@@ -16,12 +16,15 @@
  */
 package org.apache.rocketmq.store.index;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.util.List;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.filter.util.BloomFilter;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.store.logfile.DefaultMappedFile;
@@ -45,25 +48,58 @@ public class IndexFile {
      */
     private static int indexSize = 20;
     private static int invalidIndex = 0;
+    /**
+     * Optional bloom filter of the keys, after the index store units. Format:
+     * <pre>
+     * ┌───────────────┬───────────────┬───────────────┬───────────────┬───────────────────────────────┐
+     * │     Magic     │  Error Rate   │  Mapping Num  │   Reserved    │             Bits              │
+     * │   (4 Bytes)   │   (4 Bytes)   │   (4 Bytes)   │   (4 Bytes)   │         (m / 8 Bytes)         │
+     * ├───────────────┴───────────────┴───────────────┴───────────────┴───────────────────────────────┤
+     * │                                       Bloom Filter                                            │
+     * │                                                                                               │
+     * </pre>
+     * The files written before have no such part, they are always searched.
+     */
+    private static final int BLOOM_FILTER_MAGIC = 0xB10F1DE8;
+    private static final int BLOOM_FILTER_HEADER_SIZE = 16;
     private final int hashSlotNum;
     private final int indexNum;
     private final int fileTotalSize;
     private final MappedFile mappedFile;
     private final MappedByteBuffer mappedByteBuffer;
     private final IndexHeader indexHeader;
+    private final BloomFilter bloomFilter;
+    private final int bloomFilterBitsPos;
 
     public IndexFile(final String fileName, final int hashSlotNum, final int indexNum,
         final long endPhyOffset, final long endTimestamp) throws IOException {
-        this.fileTotalSize =
-            IndexHeader.INDEX_HEADER_SIZE + (hashSlotNum * hashSlotSize) + (indexNum * indexSize);
+        this(fileName, hashSlotNum, indexNum, endPhyOffset, endTimestamp, null);
+    }
+
+    /**
+     * @param bloomFilter filter of the keys, null for none, must be the one of an existing file, see
+     * {@link #loadBloomFilter(File, int, int)}
+     */
+    public IndexFile(final String fileName, final int hashSlotNum, final int indexNum,
+        final long endPhyOffset, final long endTimestamp, final BloomFilter bloomFilter) throws IOException {
+        int baseSize = baseFileSize(hashSlotNum, indexNum);
+        this.fileTotalSize = bloomFilter == null ? baseSize : baseSize + BLOOM_FILTER_HEADER_SIZE + bloomFilter.getM() / Byte.SIZE;
         this.mappedFile = new DefaultMappedFile(fileName, fileTotalSize);
         this.mappedByteBuffer = this.mappedFile.getMappedByteBuffer();
         this.hashSlotNum = hashSlotNum;
         this.indexNum = indexNum;
+        this.bloomFilter = bloomFilter;
+        this.bloomFilterBitsPos = baseSize + BLOOM_FILTER_HEADER_SIZE;
 
         ByteBuffer byteBuffer = this.mappedByteBuffer.slice();
         this.indexHeader = new IndexHeader(byteBuffer);
 
+        if (bloomFilter != null && this.mappedByteBuffer.getInt(baseSize) != BLOOM_FILTER_MAGIC) {
+            this.mappedByteBuffer.putInt(baseSize, BLOOM_FILTER_MAGIC);
+            this.mappedByteBuffer.putInt(baseSize + 4, bloomFilter.getF());
+            this.mappedByteBuffer.putInt(baseSize + 8, bloomFilter.getN());
+        }
+
         if (endPhyOffset > 0) {
             this.indexHeader.setBeginPhyOffset(endPhyOffset);
             this.indexHeader.setEndPhyOffset(endPhyOffset);
@@ -75,6 +111,63 @@ public class IndexFile {
         }
     }
 
+    private static int baseFileSize(final int hashSlotNum, final int indexNum) {
+        return IndexHeader.INDEX_HEADER_SIZE + (hashSlotNum * hashSlotSize) + (indexNum * indexSize);
+    }
+
+    /**
+     * @return the bloom filter the existing file was written with, null if it has none
+     */
+    public static BloomFilter loadBloomFilter(final File file, final int hashSlotNum, final int indexNum) {
+        int baseSize = baseFileSize(hashSlotNum, indexNum);
+        if (file.length() <= baseSize + BLOOM_FILTER_HEADER_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            randomAccessFile.seek(baseSize);
+            if (randomAccessFile.readInt() != BLOOM_FILTER_MAGIC) {
+                return null;
+            }
+            BloomFilter bloomFilter = BloomFilter.createByFn(randomAccessFile.readInt(), randomAccessFile.readInt());
+            if (file.length() != baseSize + BLOOM_FILTER_HEADER_SIZE + bloomFilter.getM() / Byte.SIZE) {
+                log.warn("bloom filter of index file {} does not match the file size, ignore it", file);
+                return null;
+            }
+            return bloomFilter;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("load bloom filter of index file {} failed, ignore it", file, e);
+            return null;
+        }
+    }
+
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * @return false if the key is surely not in this file
+     */
+    public boolean mightContain(final String key) {
+        return mightContain(key, null, null);
+    }
+
+    /**
+     * @param filter filter {@code bitPositions} was calculated by, to share them across the files written with it
+     * @return false if the key is surely not in this file
+     */
+    public boolean mightContain(final String key, final BloomFilter filter, final int[] bitPositions) {
+        if (this.bloomFilter == null) {
+            return true;
+        }
+        int[] positions = this.bloomFilter.equals(filter) ? bitPositions : this.bloomFilter.calcBitPositions(key);
+        for (int bitPos : positions) {
+            if ((this.mappedByteBuffer.get(this.bloomFilterBitsPos + (bitPos >>> 3)) & (1 << (bitPos & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public String getFileName() {
         return this.mappedFile.getFileName();
     }
@@ -154,6 +247,12 @@ public class IndexFile {
                 if (invalidIndex == slotValue) {
                     this.indexHeader.incHashSlotCount();
                 }
+                if (this.bloomFilter != null) {
+                    for (int bitPos : this.bloomFilter.calcBitPositions(key)) {
+                        int absBitsPos = this.bloomFilterBitsPos + (bitPos >>> 3);
+                        this.mappedByteBuffer.put(absBitsPos, (byte) (this.mappedByteBuffer.get(absBitsPos) | (1 << (bitPos & 7))));
+                    }
+                }
                 this.indexHeader.incIndexCount();
                 this.indexHeader.setEndPhyOffset(phyOffset);
                 this.indexHeader.setEndTimestamp(storeTimestamp);
@@ -21,11 +21,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.rocketmq.common.AbstractBrokerRunnable;
+import org.apache.rocketmq.common.ThreadFactoryImpl;
 import org.apache.rocketmq.common.UtilAll;
 import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.common.utils.ThreadUtils;
+import org.apache.rocketmq.filter.util.BloomFilter;
 import org.apache.rocketmq.logging.org.slf4j.Logger;
 import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.common.message.MessageConst;
@@ -46,6 +54,14 @@ public class IndexService {
     private final String storePath;
     private final ArrayList<IndexFile> indexFileList = new ArrayList<>();
     private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    /**
+     * Filter of the keys in the files created, null if disabled
+     */
+    private final BloomFilter bloomFilter;
+    /**
+     * Searches the candidate files of a query in parallel, null if disabled
+     */
+    private final ExecutorService queryExecutor;
 
     public IndexService(final DefaultMessageStore store) {
         this.defaultMessageStore = store;
@@ -53,6 +69,17 @@ public class IndexService {
         this.indexNum = store.getMessageStoreConfig().getMaxIndexNum();
         this.storePath =
             StorePathConfigHelper.getStorePathIndex(defaultMessageStore.getMessageStoreConfig().getStorePathRootDir());
+        this.bloomFilter = store.getMessageStoreConfig().isEnableIndexBloomFilter()
+            ? BloomFilter.createByFn(store.getMessageStoreConfig().getIndexBloomFilterErrorRate(), this.indexNum) : null;
+        int queryThreadPoolNums = store.getMessageStoreConfig().getIndexQueryThreadPoolNums();
+        this.queryExecutor = queryThreadPoolNums <= 0 ? null : ThreadUtils.newThreadPoolExecutor(
+            queryThreadPoolNums,
+            queryThreadPoolNums,
+            1000 * 60,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(1024),
+            new ThreadFactoryImpl("IndexQueryThread_", store.getBrokerIdentity()),
+            new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
     public boolean load(final boolean lastExitOK) {
@@ -63,7 +90,8 @@ public class IndexService {
             Arrays.sort(files);
             for (File file : files) {
                 try {
-                    IndexFile f = new IndexFile(file.getPath(), this.hashSlotNum, this.indexNum, 0, 0);
+                    IndexFile f = new IndexFile(file.getPath(), this.hashSlotNum, this.indexNum, 0, 0,
+                        IndexFile.loadBloomFilter(file, this.hashSlotNum, this.indexNum));
                     f.load();
 
                     if (!lastExitOK) {
@@ -88,6 +116,13 @@ public class IndexService {
         return true;
     }
 
+    /**
+     * @return the bloom filter of the files created, null if disabled
+     */
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
     public long getTotalSize() {
         if (indexFileList.isEmpty()) {
             return 0;
@@ -169,9 +204,12 @@ public class IndexService {
         long indexLastUpdateTimestamp = 0;
         long indexLastUpdatePhyoffset = 0;
         maxNum = Math.min(maxNum, this.defaultMessageStore.getMessageStoreConfig().getMaxMsgsNumBatch());
+        String indexKey = buildKey(topic, key);
+        int[] bitPositions = this.bloomFilter == null ? null : this.bloomFilter.calcBitPositions(indexKey);
         try {
             this.readWriteLock.readLock().lock();
             if (!this.indexFileList.isEmpty()) {
+                List<IndexFile> candidates = new ArrayList<>();
                 for (int i = this.indexFileList.size(); i > 0; i--) {
                     IndexFile f = this.indexFileList.get(i - 1);
                     boolean lastFile = i == this.indexFileList.size();
@@ -180,9 +218,12 @@ public class IndexService {
                         indexLastUpdatePhyoffset = f.getEndPhyOffset();
                     }
 
-                    if (f.isTimeMatched(begin, end)) {
-
-                        f.selectPhyOffset(phyOffsets, buildKey(topic, key), maxNum, begin, end);
+                    if (f.isTimeMatched(begin, end) && f.mightContain(indexKey, this.bloomFilter, bitPositions)) {
+                        if (this.queryExecutor != null) {
+                            candidates.add(f);
+                        } else {
+                            f.selectPhyOffset(phyOffsets, indexKey, maxNum, begin, end);
+                        }
                     }
 
                     if (f.getBeginTimestamp() < begin) {
@@ -193,6 +234,9 @@ public class IndexService {
                         break;
                     }
                 }
+                if (!candidates.isEmpty()) {
+                    selectPhyOffsetInParallel(candidates, phyOffsets, indexKey, maxNum, begin, end);
+                }
             }
         } catch (Exception e) {
             LOGGER.error("queryMsg exception", e);
@@ -203,6 +247,34 @@ public class IndexService {
         return new QueryOffsetResult(phyOffsets, indexLastUpdateTimestamp, indexLastUpdatePhyoffset);
     }
 
+    /**
+     * Searches the files in parallel, the offsets are merged in the order of {@code files}, same as searching them
+     * one by one.
+     */
+    private void selectPhyOffsetInParallel(List<IndexFile> files, List<Long> phyOffsets, String indexKey,
+        int maxNum, long begin, long end) {
+        if (files.size() == 1) {
+            files.get(0).selectPhyOffset(phyOffsets, indexKey, maxNum, begin, end);
+            return;
+        }
+        List<CompletableFuture<List<Long>>> futures = new ArrayList<>(files.size());
+        for (IndexFile f : files) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                List<Long> offsets = new ArrayList<>();
+                f.selectPhyOffset(offsets, indexKey, maxNum, begin, end);
+                return offsets;
+            }, this.queryExecutor));
+        }
+        for (CompletableFuture<List<Long>> future : futures) {
+            for (Long offset : future.join()) {
+                if (phyOffsets.size() >= maxNum) {
+                    return;
+                }
+                phyOffsets.add(offset);
+            }
+        }
+    }
+
     private String buildKey(final String topic, final String key) {
         return topic + "#" + key;
     }
@@ -328,7 +400,7 @@ public class IndexService {
                         + UtilAll.timeMillisToHumanString(System.currentTimeMillis());
                 indexFile =
                     new IndexFile(fileName, this.hashSlotNum, this.indexNum, lastUpdateEndPhyOffset,
-                        lastUpdateIndexTimestamp);
+                        lastUpdateIndexTimestamp, this.bloomFilter);
                 this.readWriteLock.writeLock().lock();
                 this.indexFileList.add(indexFile);
             } catch (Exception e) {
@@ -379,6 +451,9 @@ public class IndexService {
     }
 
     public void shutdown() {
+        if (this.queryExecutor != null) {
+            this.queryExecutor.shutdown();
+        }
         try {
             this.readWriteLock.writeLock().lock();
             for (IndexFile f : this.indexFileList) {
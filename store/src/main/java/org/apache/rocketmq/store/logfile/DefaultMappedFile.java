@@ -73,8 +73,18 @@ public class DefaultMappedFile extends AbstractMappedFile {
     protected static final AtomicIntegerFieldUpdater<DefaultMappedFile> WROTE_POSITION_UPDATER;
     protected static final AtomicIntegerFieldUpdater<DefaultMappedFile> COMMITTED_POSITION_UPDATER;
     protected static final AtomicIntegerFieldUpdater<DefaultMappedFile> FLUSHED_POSITION_UPDATER;
+    protected static final AtomicIntegerFieldUpdater<DefaultMappedFile> RESERVED_POSITION_UPDATER;
+
+    /**
+     * Space kept at the end of the file for the blank marker, same as the commit log append callback.
+     */
+    private static final int END_FILE_MIN_BLANK_LENGTH = 4 + 4;
 
     protected volatile int wrotePosition;
+    /**
+     * End of the byte ranges handed out to concurrent writers, wrotePosition trails it until the ranges are copied.
+     */
+    protected volatile int reservedPosition;
     protected volatile int committedPosition;
     protected volatile int flushedPosition;
     protected int fileSize;
@@ -112,6 +122,7 @@ public class DefaultMappedFile extends AbstractMappedFile {
         WROTE_POSITION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(DefaultMappedFile.class, "wrotePosition");
         COMMITTED_POSITION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(DefaultMappedFile.class, "committedPosition");
         FLUSHED_POSITION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(DefaultMappedFile.class, "flushedPosition");
+        RESERVED_POSITION_UPDATER = AtomicIntegerFieldUpdater.newUpdater(DefaultMappedFile.class, "reservedPosition");
 
         Method isLoaded0method = null;
         // On the windows platform and openjdk 11 method isLoaded0 always returns false.
@@ -297,6 +308,70 @@ public class DefaultMappedFile extends AbstractMappedFile {
         return new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR);
     }
 
+    @Override
+    public AppendMessageResult appendMessageConcurrently(final MessageExtBrokerInner msg, final AppendMessageCallback cb,
+        PutMessageContext putMessageContext) {
+        return appendMessagesConcurrentlyInner(msg, msg.getEncodedBuff().getInt(0), cb, putMessageContext);
+    }
+
+    @Override
+    public AppendMessageResult appendMessagesConcurrently(final MessageExtBatch messageExtBatch, final AppendMessageCallback cb,
+        PutMessageContext putMessageContext) {
+        return appendMessagesConcurrentlyInner(messageExtBatch, messageExtBatch.getEncodedBuff().remaining(), cb, putMessageContext);
+    }
+
+    protected AppendMessageResult appendMessagesConcurrentlyInner(final MessageExt messageExt, final int msgLen,
+        final AppendMessageCallback cb, PutMessageContext putMessageContext) {
+        assert messageExt != null;
+        assert cb != null;
+
+        int currentPos;
+        int nextPos;
+        while (true) {
+            int reservedPos = RESERVED_POSITION_UPDATER.get(this);
+            // wrotePosition is ahead of reservedPosition only after recovery or before the first reservation
+            currentPos = Math.max(reservedPos, WROTE_POSITION_UPDATER.get(this));
+            if (currentPos >= this.fileSize) {
+                // Another writer has already claimed the tail of this file, retry on the next one
+                return new AppendMessageResult(AppendMessageStatus.END_OF_FILE);
+            }
+            // A message that does not fit claims the rest of the file for the blank marker
+            nextPos = currentPos + msgLen + END_FILE_MIN_BLANK_LENGTH <= this.fileSize ? currentPos + msgLen : this.fileSize;
+            if (RESERVED_POSITION_UPDATER.compareAndSet(this, reservedPos, nextPos)) {
+                break;
+            }
+        }
+
+        AppendMessageResult result = null;
+        try {
+            ByteBuffer byteBuffer = appendMessageBuffer().slice();
+            byteBuffer.position(currentPos);
+            if (messageExt instanceof MessageExtBatch && !((MessageExtBatch) messageExt).isInnerBatch()) {
+                result = cb.doAppend(this.getFileFromOffset(), byteBuffer, this.fileSize - currentPos,
+                    (MessageExtBatch) messageExt, putMessageContext);
+            } else if (messageExt instanceof MessageExtBrokerInner) {
+                result = cb.doAppend(this.getFileFromOffset(), byteBuffer, this.fileSize - currentPos,
+                    (MessageExtBrokerInner) messageExt, putMessageContext);
+            } else {
+                result = new AppendMessageResult(AppendMessageStatus.UNKNOWN_ERROR);
+            }
+            return result;
+        } finally {
+            // Publish in reservation order so that flush, commit and reput only ever see a contiguous prefix.
+            // The whole reserved range is published even if the copy failed, otherwise later writers would hang.
+            int spins = 0;
+            while (WROTE_POSITION_UPDATER.get(this) != currentPos) {
+                if (++spins > 64) {
+                    Thread.yield();
+                }
+            }
+            if (result != null && result.getStoreTimestamp() > this.storeTimestamp) {
+                this.storeTimestamp = result.getStoreTimestamp();
+            }
+            WROTE_POSITION_UPDATER.set(this, nextPos);
+        }
+    }
+
     protected ByteBuffer appendMessageBuffer() {
         this.mappedByteBufferAccessCountSinceLastSwap++;
         return writeBuffer != null ? writeBuffer : this.mappedByteBuffer;
@@ -584,6 +659,7 @@ public class DefaultMappedFile extends AbstractMappedFile {
     @Override
     public void setWrotePosition(int pos) {
         WROTE_POSITION_UPDATER.set(this, pos);
+        RESERVED_POSITION_UPDATER.set(this, pos);
     }
 
     /**
@@ -97,6 +97,33 @@ public interface MappedFile {
      */
     AppendMessageResult appendMessages(MessageExtBatch message, AppendMessageCallback messageCallback, PutMessageContext putMessageContext);
 
+    /**
+     * Appends a pre-encoded message without requiring the caller to serialize appends to this {@code MappedFile}.
+     * <p>
+     * The byte range is reserved with a CAS, the message is copied outside any lock, and the wrote position is only
+     * advanced once every earlier range has been copied, so readers always see a contiguous prefix. Must not be mixed
+     * with the other append methods on the same file.
+     *
+     * @param message a message to append, its encoded buffer must be complete
+     * @param messageCallback the specific call back to execute the real append action
+     * @param putMessageContext
+     * @return the append result, {@code END_OF_FILE} with zero wrote bytes if another writer already closed the file
+     */
+    AppendMessageResult appendMessageConcurrently(MessageExtBrokerInner message, AppendMessageCallback messageCallback,
+        PutMessageContext putMessageContext);
+
+    /**
+     * Appends a pre-encoded batch message concurrently, see
+     * {@link #appendMessageConcurrently(MessageExtBrokerInner, AppendMessageCallback, PutMessageContext)}.
+     *
+     * @param message a message to append, its encoded buffer must be complete
+     * @param messageCallback the specific call back to execute the real append action
+     * @param putMessageContext
+     * @return the append result
+     */
+    AppendMessageResult appendMessagesConcurrently(MessageExtBatch message, AppendMessageCallback messageCallback,
+        PutMessageContext putMessageContext);
+
     AppendMessageResult appendMessage(final ByteBuffer byteBufferMsg, final CompactionAppendMsgCallback cb);
 
     /**
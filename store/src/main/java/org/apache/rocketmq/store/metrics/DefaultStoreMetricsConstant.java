@@ -21,6 +21,10 @@ public class DefaultStoreMetricsConstant {
     public static final String GAUGE_STORAGE_FLUSH_BEHIND = "rocketmq_storage_flush_behind_bytes";
     public static final String GAUGE_STORAGE_DISPATCH_BEHIND = "rocketmq_storage_dispatch_behind_bytes";
     public static final String GAUGE_STORAGE_MESSAGE_RESERVE_TIME = "rocketmq_storage_message_reserve_time";
+    public static final String GAUGE_STORAGE_DISPATCH_STAGE_BEHIND = "rocketmq_storage_dispatch_stage_behind_bytes";
+    public static final String GAUGE_STORAGE_DISPATCH_STAGE_QUEUE_SIZE = "rocketmq_storage_dispatch_stage_queue_size";
+    public static final String GAUGE_STORAGE_CQ_CACHE_HIT_RATE = "rocketmq_storage_consume_queue_cache_hit_rate";
+    public static final String GAUGE_STORAGE_CQ_CACHE_UNITS = "rocketmq_storage_consume_queue_cache_units";
 
     public static final String GAUGE_TIMER_ENQUEUE_LAG = "rocketmq_timer_enqueue_lag";
     public static final String GAUGE_TIMER_ENQUEUE_LATENCY = "rocketmq_timer_enqueue_latency";
@@ -30,6 +34,8 @@ public class DefaultStoreMetricsConstant {
 
     public static final String COUNTER_TIMER_ENQUEUE_TOTAL = "rocketmq_timer_enqueue_total";
     public static final String COUNTER_TIMER_DEQUEUE_TOTAL = "rocketmq_timer_dequeue_total";
+    public static final String COUNTER_TIMER_ROLL_TOTAL = "rocketmq_timer_roll_total";
+    public static final String COUNTER_TIMER_CASCADE_TOTAL = "rocketmq_timer_cascade_total";
     public static final String GAUGE_TIMER_MESSAGE_SNAPSHOT = "rocketmq_timer_message_snapshot";
     public static final String HISTOGRAM_DELAY_MSG_LATENCY = "rocketmq_delay_message_latency";
 
@@ -39,6 +45,8 @@ public class DefaultStoreMetricsConstant {
     public static final String DEFAULT_STORAGE_MEDIUM = "disk";
     public static final String LABEL_TOPIC = "topic";
     public static final String LABEL_TIMING_BOUND = "timer_bound_s";
+    public static final String LABEL_TIMER_LEVEL = "timer_level";
+    public static final String LABEL_DISPATCH_STAGE = "dispatch_stage";
     public static final String GAUGE_BYTES_ROCKSDB_WRITTEN = "rocketmq_rocksdb_bytes_written";
     public static final String GAUGE_BYTES_ROCKSDB_READ = "rocketmq_rocksdb_bytes_read";
 
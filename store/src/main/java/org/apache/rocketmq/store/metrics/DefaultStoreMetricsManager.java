@@ -22,6 +22,7 @@ import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.metrics.LongCounter;
 import io.opentelemetry.api.metrics.LongHistogram;
 import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleGauge;
 import io.opentelemetry.api.metrics.ObservableLongGauge;
 import io.opentelemetry.sdk.metrics.Aggregation;
 import io.opentelemetry.sdk.metrics.InstrumentSelector;
@@ -31,9 +32,12 @@ import io.opentelemetry.sdk.metrics.ViewBuilder;
 import org.apache.rocketmq.common.Pair;
 import org.apache.rocketmq.common.metrics.NopLongCounter;
 import org.apache.rocketmq.common.metrics.NopLongHistogram;
+import org.apache.rocketmq.common.metrics.NopObservableDoubleGauge;
 import org.apache.rocketmq.common.metrics.NopObservableLongGauge;
 import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.DispatchPipeline;
 import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.queue.ConsumeQueueRangeCache;
 import org.apache.rocketmq.store.timer.Slot;
 import org.apache.rocketmq.store.timer.TimerMessageStore;
 import org.apache.rocketmq.store.timer.TimerMetrics;
@@ -44,11 +48,17 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.function.Supplier;
 
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.COUNTER_TIMER_CASCADE_TOTAL;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.COUNTER_TIMER_DEQUEUE_TOTAL;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.COUNTER_TIMER_ENQUEUE_TOTAL;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.COUNTER_TIMER_ROLL_TOTAL;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.DEFAULT_STORAGE_MEDIUM;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.DEFAULT_STORAGE_TYPE;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_CQ_CACHE_HIT_RATE;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_CQ_CACHE_UNITS;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_DISPATCH_BEHIND;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_DISPATCH_STAGE_BEHIND;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_DISPATCH_STAGE_QUEUE_SIZE;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_FLUSH_BEHIND;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_MESSAGE_RESERVE_TIME;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_STORAGE_SIZE;
@@ -59,8 +69,10 @@ import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUG
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_TIMER_MESSAGE_SNAPSHOT;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.GAUGE_TIMING_MESSAGES;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.HISTOGRAM_DELAY_MSG_LATENCY;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_DISPATCH_STAGE;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_STORAGE_MEDIUM;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_STORAGE_TYPE;
+import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_TIMER_LEVEL;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_TIMING_BOUND;
 import static org.apache.rocketmq.store.metrics.DefaultStoreMetricsConstant.LABEL_TOPIC;
 
@@ -72,6 +84,12 @@ public class DefaultStoreMetricsManager {
     public static ObservableLongGauge flushBehind = new NopObservableLongGauge();
     public static ObservableLongGauge dispatchBehind = new NopObservableLongGauge();
     public static ObservableLongGauge messageReserveTime = new NopObservableLongGauge();
+    public static ObservableLongGauge dispatchStageBehind = new NopObservableLongGauge();
+    public static ObservableLongGauge dispatchStageQueueSize = new NopObservableLongGauge();
+    public static ObservableDoubleGauge consumeQueueCacheHitRate = new NopObservableDoubleGauge();
+    public static ObservableLongGauge consumeQueueCacheUnits = new NopObservableLongGauge();
+    private static long consumeQueueCacheHitUnits = 0;
+    private static long consumeQueueCacheMissUnits = 0;
 
     public static ObservableLongGauge timerEnqueueLag = new NopObservableLongGauge();
     public static ObservableLongGauge timerEnqueueLatency = new NopObservableLongGauge();
@@ -81,6 +99,8 @@ public class DefaultStoreMetricsManager {
 
     public static LongCounter timerDequeueTotal = new NopLongCounter();
     public static LongCounter timerEnqueueTotal = new NopLongCounter();
+    public static LongCounter timerRollTotal = new NopLongCounter();
+    public static LongCounter timerCascadeTotal = new NopLongCounter();
     public static ObservableLongGauge timerMessageSnapshot = new NopObservableLongGauge();
     public static LongHistogram timerMessageSetLatency = new NopLongHistogram();
 
@@ -146,6 +166,57 @@ public class DefaultStoreMetricsManager {
                 measurement.record(System.currentTimeMillis() - earliestMessageTime, newAttributesBuilder().build());
             });
 
+        if (messageStore.getMessageStoreConfig().isEnableDispatchPipeline()) {
+            dispatchStageBehind = meter.gaugeBuilder(GAUGE_STORAGE_DISPATCH_STAGE_BEHIND)
+                .setDescription("Broker dispatch pipeline stage behind bytes")
+                .setUnit("bytes")
+                .ofLongs()
+                .buildWithCallback(measurement -> {
+                    DispatchPipeline dispatchPipeline = messageStore.getDispatchPipeline();
+                    if (dispatchPipeline == null) {
+                        return;
+                    }
+                    for (DispatchPipeline.Stage stage : DispatchPipeline.Stage.values()) {
+                        measurement.record(dispatchPipeline.getStageBehind(stage),
+                            newAttributesBuilder().put(LABEL_DISPATCH_STAGE, stage.getLabel()).build());
+                    }
+                });
+
+            dispatchStageQueueSize = meter.gaugeBuilder(GAUGE_STORAGE_DISPATCH_STAGE_QUEUE_SIZE)
+                .setDescription("Broker dispatch pipeline stage queue size")
+                .ofLongs()
+                .buildWithCallback(measurement -> {
+                    DispatchPipeline dispatchPipeline = messageStore.getDispatchPipeline();
+                    if (dispatchPipeline == null) {
+                        return;
+                    }
+                    for (DispatchPipeline.Stage stage : DispatchPipeline.Stage.values()) {
+                        measurement.record(dispatchPipeline.getStageQueueSize(stage),
+                            newAttributesBuilder().put(LABEL_DISPATCH_STAGE, stage.getLabel()).build());
+                    }
+                });
+        }
+
+        ConsumeQueueRangeCache consumeQueueRangeCache = messageStore.getConsumeQueueRangeCache();
+        if (consumeQueueRangeCache != null) {
+            consumeQueueCacheHitRate = meter.gaugeBuilder(GAUGE_STORAGE_CQ_CACHE_HIT_RATE)
+                .setDescription("Rate of consume queue units read from the range cache since the last collection")
+                .buildWithCallback(measurement -> {
+                    long hitUnits = consumeQueueRangeCache.getHitUnits();
+                    long missUnits = consumeQueueRangeCache.getMissUnits();
+                    long totalPeriod = hitUnits - consumeQueueCacheHitUnits + missUnits - consumeQueueCacheMissUnits;
+                    double hitRate = totalPeriod == 0 ? 0 : (double) (hitUnits - consumeQueueCacheHitUnits) / totalPeriod;
+                    consumeQueueCacheHitUnits = hitUnits;
+                    consumeQueueCacheMissUnits = missUnits;
+                    measurement.record(hitRate, newAttributesBuilder().build());
+                });
+
+            consumeQueueCacheUnits = meter.gaugeBuilder(GAUGE_STORAGE_CQ_CACHE_UNITS)
+                .setDescription("Consume queue units in the range cache")
+                .ofLongs()
+                .buildWithCallback(measurement -> measurement.record(consumeQueueRangeCache.getCachedUnits(), newAttributesBuilder().build()));
+        }
+
         if (messageStore.getMessageStoreConfig().isTimerWheelEnable()) {
             timerEnqueueLag = meter.gaugeBuilder(GAUGE_TIMER_ENQUEUE_LAG)
                 .setDescription("Timer enqueue messages lag")
@@ -198,6 +269,12 @@ public class DefaultStoreMetricsManager {
             timerEnqueueTotal = meter.counterBuilder(COUNTER_TIMER_ENQUEUE_TOTAL)
                 .setDescription("Total number of timer enqueue")
                 .build();
+            timerRollTotal = meter.counterBuilder(COUNTER_TIMER_ROLL_TOTAL)
+                .setDescription("Total number of timer messages rolled through the commit log")
+                .build();
+            timerCascadeTotal = meter.counterBuilder(COUNTER_TIMER_CASCADE_TOTAL)
+                .setDescription("Total number of timers cascaded down from the timer wheel overflow levels")
+                .build();
             timerMessageSnapshot = meter.gaugeBuilder(GAUGE_TIMER_MESSAGE_SNAPSHOT)
                 .setDescription("Timer message distribution snapshot, only count timing messages in 24h.")
                 .ofLongs()
@@ -240,6 +317,20 @@ public class DefaultStoreMetricsManager {
         timerEnqueueTotal.add(1, attributesBuilder.build());
     }
 
+    public static void incTimerRollCount(String topic) {
+        AttributesBuilder attributesBuilder = newAttributesBuilder();
+        if (topic != null) {
+            attributesBuilder.put(LABEL_TOPIC, topic);
+        }
+        timerRollTotal.add(1, attributesBuilder.build());
+    }
+
+    public static void incTimerCascadeCount(int level, long count) {
+        timerCascadeTotal.add(count, newAttributesBuilder()
+            .put(LABEL_TIMER_LEVEL, level)
+            .build());
+    }
+
     public static AttributesBuilder newAttributesBuilder() {
         if (attributesBuilderSupplier == null) {
             return Attributes.builder();
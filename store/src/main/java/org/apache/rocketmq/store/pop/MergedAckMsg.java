@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.pop;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary body of a revive message carrying the acks of many requests at once.
+ *
+ * <pre>
+ * version(1) | stringCount(2) | [length(2) | utf8]... | ackCount(4) | [ack]...
+ * ack: topic(2) | group(2) | brokerName(2) | queueId(4) | startOffset(8) | popTime(8) | type(1) | offsets
+ * offsets: ackOffset(8) for a single ack, count(2) | [ackOffset - startOffset(4)]... for a batch ack
+ * </pre>
+ *
+ * Topics, groups and broker names are written once per record and referred to by index, -1 stands for null.
+ */
+public class MergedAckMsg {
+    public static final byte VERSION = 1;
+
+    private static final byte TYPE_ACK = 0;
+    private static final byte TYPE_BATCH_ACK = 1;
+
+    private final List<AckMsg> ackMsgList;
+
+    public MergedAckMsg() {
+        this(new ArrayList<>());
+    }
+
+    public MergedAckMsg(List<AckMsg> ackMsgList) {
+        this.ackMsgList = ackMsgList;
+    }
+
+    public List<AckMsg> getAckMsgList() {
+        return ackMsgList;
+    }
+
+    /**
+     * @return number of acked messages, a batch ack counts for each of its offsets
+     */
+    public int getAckNum() {
+        int num = 0;
+        for (AckMsg ackMsg : ackMsgList) {
+            num += ackMsg instanceof BatchAckMsg ? ((BatchAckMsg) ackMsg).getAckOffsetList().size() : 1;
+        }
+        return num;
+    }
+
+    public byte[] encode() {
+        Map<String, Short> stringIndex = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int size = 1 + 2 + 4;
+        for (AckMsg ackMsg : ackMsgList) {
+            size += indexString(ackMsg.getTopic(), stringIndex, strings);
+            size += indexString(ackMsg.getConsumerGroup(), stringIndex, strings);
+            size += indexString(ackMsg.getBrokerName(), stringIndex, strings);
+            size += 2 + 2 + 2 + 4 + 8 + 8 + 1;
+            size += ackMsg instanceof BatchAckMsg ? 2 + 4 * ((BatchAckMsg) ackMsg).getAckOffsetList().size() : 8;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putShort((short) strings.size());
+        for (byte[] bytes : strings) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.putInt(ackMsgList.size());
+        for (AckMsg ackMsg : ackMsgList) {
+            buffer.putShort(stringIndexOf(ackMsg.getTopic(), stringIndex));
+            buffer.putShort(stringIndexOf(ackMsg.getConsumerGroup(), stringIndex));
+            buffer.putShort(stringIndexOf(ackMsg.getBrokerName(), stringIndex));
+            buffer.putInt(ackMsg.getQueueId());
+            buffer.putLong(ackMsg.getStartOffset());
+            buffer.putLong(ackMsg.getPopTime());
+            if (ackMsg instanceof BatchAckMsg) {
+                List<Long> ackOffsetList = ((BatchAckMsg) ackMsg).getAckOffsetList();
+                buffer.put(TYPE_BATCH_ACK);
+                buffer.putShort((short) ackOffsetList.size());
+                for (Long ackOffset : ackOffsetList) {
+                    buffer.putInt((int) (ackOffset - ackMsg.getStartOffset()));
+                }
+            } else {
+                buffer.put(TYPE_ACK);
+                buffer.putLong(ackMsg.getAckOffset());
+            }
+        }
+        return buffer.array();
+    }
+
+    public static MergedAckMsg decode(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported merged ack version " + version);
+        }
+        String[] strings = new String[buffer.getShort() & 0xFFFF];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int ackCount = buffer.getInt();
+        List<AckMsg> ackMsgList = new ArrayList<>(ackCount);
+        for (int i = 0; i < ackCount; i++) {
+            String topic = stringAt(strings, buffer.getShort());
+            String consumerGroup = stringAt(strings, buffer.getShort());
+            String brokerName = stringAt(strings, buffer.getShort());
+            int queueId = buffer.getInt();
+            long startOffset = buffer.getLong();
+            long popTime = buffer.getLong();
+            byte type = buffer.get();
+
+            AckMsg ackMsg;
+            if (type == TYPE_BATCH_ACK) {
+                BatchAckMsg batchAckMsg = new BatchAckMsg();
+                int num = buffer.getShort() & 0xFFFF;
+                List<Long> ackOffsetList = new ArrayList<>(num);
+                for (int j = 0; j < num; j++) {
+                    ackOffsetList.add(startOffset + buffer.getInt());
+                }
+                batchAckMsg.setAckOffsetList(ackOffsetList);
+                batchAckMsg.setAckOffset(-1);
+                ackMsg = batchAckMsg;
+            } else {
+                ackMsg = new AckMsg();
+                ackMsg.setAckOffset(buffer.getLong());
+            }
+            ackMsg.setTopic(topic);
+            ackMsg.setConsumerGroup(consumerGroup);
+            ackMsg.setBrokerName(brokerName);
+            ackMsg.setQueueId(queueId);
+            ackMsg.setStartOffset(startOffset);
+            ackMsg.setPopTime(popTime);
+            ackMsgList.add(ackMsg);
+        }
+        return new MergedAckMsg(ackMsgList);
+    }
+
+    private static int indexString(String value, Map<String, Short> stringIndex, List<byte[]> strings) {
+        if (value == null || stringIndex.containsKey(value)) {
+            return 0;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        stringIndex.put(value, (short) strings.size());
+        strings.add(bytes);
+        return 2 + bytes.length;
+    }
+
+    private static short stringIndexOf(String value, Map<String, Short> stringIndex) {
+        return value == null ? -1 : stringIndex.get(value);
+    }
+
+    private static String stringAt(String[] strings, short index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    @Override
+    public String toString() {
+        return "MergedAckMsg{" + "ackMsgList=" + ackMsgList + '}';
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import org.apache.rocketmq.common.constant.LoggerName;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the most recently read units (queue offset to commit log offset, size and tags code) of each consume queue,
+ * so consumer groups reading the same range of a queue, usually its tail, share one consume queue file access.
+ * <p>
+ * Each queue caches one contiguous window of offsets which only moves forward, reads before the window go to the
+ * file and do not replace it. Only simple consume queues without extend units are cached, the whole cache is dropped
+ * when consume queues are truncated.
+ */
+public class ConsumeQueueRangeCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoggerName.STORE_LOGGER_NAME);
+
+    private static final int MAX_CHUNK_NUM = 256;
+
+    private final int unitNumPerQueue;
+    private final int maxQueueNum;
+    private final ConcurrentMap<String/* topic */, ConcurrentMap<Integer/* queueId */, QueueRange>> rangeTable =
+        new ConcurrentHashMap<>(256);
+    private final AtomicInteger queueNum = new AtomicInteger(0);
+
+    /**
+     * Bumped on every invalidation, units read from the file before it are not put into the cache.
+     */
+    private final AtomicLong generation = new AtomicLong(0);
+
+    private final LongAdder hitUnits = new LongAdder();
+    private final LongAdder missUnits = new LongAdder();
+
+    public ConsumeQueueRangeCache(int unitNumPerQueue, int maxQueueNum) {
+        int unitNum = 1;
+        while (unitNum < unitNumPerQueue && unitNum < (1 << 30)) {
+            unitNum <<= 1;
+        }
+        this.unitNumPerQueue = unitNum;
+        this.maxQueueNum = Math.max(1, maxQueueNum);
+    }
+
+    /**
+     * Iterate the units of a consume queue from the given offset, cached units are returned without touching the
+     * file, units read from the file are put into the cache when the iterator is released.
+     *
+     * @return null if the offset is neither cached nor readable from the file
+     */
+    public ReferredIterator<CqUnit> iterateFrom(ConsumeQueueInterface consumeQueue, long startOffset, int count) {
+        long currentGeneration = generation.get();
+        QueueRange range = getRange(consumeQueue);
+        CqUnit[] chunk = new CqUnit[Math.max(1, Math.min(Math.min(count, MAX_CHUNK_NUM), unitNumPerQueue))];
+        int chunkSize = range != null ? range.get(startOffset, chunk) : 0;
+        if (chunkSize > 0) {
+            return new RangeIterator(consumeQueue, currentGeneration, range, chunk, chunkSize, null);
+        }
+        ReferredIterator<CqUnit> fileIterator = consumeQueue.iterateFrom(startOffset);
+        if (fileIterator == null) {
+            return null;
+        }
+        return new RangeIterator(consumeQueue, currentGeneration, range, chunk, 0, fileIterator);
+    }
+
+    /**
+     * Drop all cached units, called when consume queues are truncated.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        for (ConcurrentMap<Integer, QueueRange> queueTable : rangeTable.values()) {
+            queueNum.addAndGet(-queueTable.size());
+        }
+        rangeTable.clear();
+        LOGGER.info("consume queue range cache invalidated");
+    }
+
+    /**
+     * Drop the cached units of a topic, called when the topic is deleted.
+     */
+    public void invalidate(String topic) {
+        generation.incrementAndGet();
+        ConcurrentMap<Integer, QueueRange> queueTable = rangeTable.remove(topic);
+        if (queueTable != null) {
+            queueNum.addAndGet(-queueTable.size());
+        }
+    }
+
+    /**
+     * Drop the cached units of the queues destroyed, i.e. not in the consume queue table any more or created again,
+     * called when the expired consume queues are cleaned.
+     */
+    public void invalidate(ConcurrentMap<String, ConcurrentMap<Integer, ConsumeQueueInterface>> consumeQueueTable) {
+        List<QueueRange> staleRanges = new ArrayList<>();
+        for (ConcurrentMap<Integer, QueueRange> queueTable : rangeTable.values()) {
+            for (QueueRange range : queueTable.values()) {
+                ConcurrentMap<Integer, ConsumeQueueInterface> consumeQueues = consumeQueueTable.get(range.consumeQueue.getTopic());
+                if (consumeQueues == null || consumeQueues.get(range.consumeQueue.getQueueId()) != range.consumeQueue) {
+                    staleRanges.add(range);
+                }
+            }
+        }
+        if (staleRanges.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        for (QueueRange range : staleRanges) {
+            removeRange(range);
+        }
+        LOGGER.info("consume queue range cache invalidated {} destroyed queues", staleRanges.size());
+    }
+
+    public long getHitUnits() {
+        return hitUnits.sum();
+    }
+
+    public long getMissUnits() {
+        return missUnits.sum();
+    }
+
+    public int getQueueNum() {
+        return queueNum.get();
+    }
+
+    public long getCachedUnits() {
+        long units = 0;
+        for (ConcurrentMap<Integer, QueueRange> queueTable : rangeTable.values()) {
+            for (QueueRange range : queueTable.values()) {
+                units += range.size();
+            }
+        }
+        return units;
+    }
+
+    /**
+     * @return the range of the consume queue, null if there is none or the one cached is of a queue destroyed
+     */
+    private QueueRange getRange(ConsumeQueueInterface consumeQueue) {
+        ConcurrentMap<Integer, QueueRange> queueTable = rangeTable.get(consumeQueue.getTopic());
+        QueueRange range = queueTable != null ? queueTable.get(consumeQueue.getQueueId()) : null;
+        if (range != null && range.consumeQueue != consumeQueue) {
+            removeRange(range);
+            return null;
+        }
+        return range;
+    }
+
+    private QueueRange getOrCreateRange(ConsumeQueueInterface consumeQueue) {
+        QueueRange range = getRange(consumeQueue);
+        if (range != null) {
+            return range;
+        }
+        if (queueNum.get() >= maxQueueNum) {
+            evictLeastRecentlyUsed();
+        }
+        ConcurrentMap<Integer, QueueRange> queueTable =
+            rangeTable.computeIfAbsent(consumeQueue.getTopic(), k -> new ConcurrentHashMap<>(16));
+        QueueRange newRange = new QueueRange(consumeQueue, unitNumPerQueue);
+        range = queueTable.putIfAbsent(consumeQueue.getQueueId(), newRange);
+        if (range == null) {
+            queueNum.incrementAndGet();
+            range = newRange;
+        }
+        return range;
+    }
+
+    private void removeRange(QueueRange range) {
+        ConcurrentMap<Integer, QueueRange> queueTable = rangeTable.get(range.consumeQueue.getTopic());
+        if (queueTable != null && queueTable.remove(range.consumeQueue.getQueueId(), range)) {
+            queueNum.decrementAndGet();
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        String evictTopic = null;
+        Integer evictQueueId = null;
+        long evictAccessTime = Long.MAX_VALUE;
+        for (Map.Entry<String, ConcurrentMap<Integer, QueueRange>> topicEntry : rangeTable.entrySet()) {
+            for (Map.Entry<Integer, QueueRange> queueEntry : topicEntry.getValue().entrySet()) {
+                if (queueEntry.getValue().lastAccessTime < evictAccessTime) {
+                    evictTopic = topicEntry.getKey();
+                    evictQueueId = queueEntry.getKey();
+                    evictAccessTime = queueEntry.getValue().lastAccessTime;
+                }
+            }
+        }
+        if (evictTopic == null) {
+            return;
+        }
+        ConcurrentMap<Integer, QueueRange> queueTable = rangeTable.get(evictTopic);
+        if (queueTable != null && queueTable.remove(evictQueueId) != null) {
+            queueNum.decrementAndGet();
+        }
+    }
+
+    private void put(ConsumeQueueInterface consumeQueue, long expectedGeneration, List<CqUnit> units) {
+        if (generation.get() != expectedGeneration) {
+            return;
+        }
+        QueueRange range = getOrCreateRange(consumeQueue);
+        // a range created before the invalidation was removed from the table with it
+        if (generation.get() == expectedGeneration) {
+            range.put(units);
+        }
+    }
+
+    private class RangeIterator implements ReferredIterator<CqUnit> {
+        private final ConsumeQueueInterface consumeQueue;
+        private final long expectedGeneration;
+        private QueueRange range;
+        private final CqUnit[] chunk;
+        private int chunkSize;
+        private int chunkIndex = 0;
+        private ReferredIterator<CqUnit> fileIterator;
+        private List<CqUnit> loadedUnits;
+        private long nextOffset = -1;
+
+        RangeIterator(ConsumeQueueInterface consumeQueue, long expectedGeneration, QueueRange range,
+            CqUnit[] chunk, int chunkSize, ReferredIterator<CqUnit> fileIterator) {
+            this.consumeQueue = consumeQueue;
+            this.expectedGeneration = expectedGeneration;
+            this.range = range;
+            this.chunk = chunk;
+            this.chunkSize = chunkSize;
+            this.fileIterator = fileIterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (chunkIndex < chunkSize) {
+                return true;
+            }
+            if (fileIterator == null && nextOffset >= 0) {
+                // the cached units are used up, go on with the next chunk or the file
+                chunkIndex = 0;
+                chunkSize = range != null ? range.get(nextOffset, chunk) : 0;
+                if (chunkSize > 0) {
+                    return true;
+                }
+                fileIterator = consumeQueue.iterateFrom(nextOffset);
+                if (fileIterator == null) {
+                    nextOffset = -1;
+                }
+            }
+            return fileIterator != null && fileIterator.hasNext();
+        }
+
+        @Override
+        public CqUnit next() {
+            if (!hasNext()) {
+                return null;
+            }
+            CqUnit cqUnit;
+            if (chunkIndex < chunkSize) {
+                cqUnit = chunk[chunkIndex];
+                chunk[chunkIndex++] = null;
+                hitUnits.increment();
+            } else {
+                cqUnit = fileIterator.next();
+                if (cqUnit == null) {
+                    return null;
+                }
+                missUnits.increment();
+                if (cqUnit.getCqExtUnit() == null && cqUnit.getBatchNum() == 1) {
+                    if (loadedUnits == null) {
+                        loadedUnits = new ArrayList<>();
+                    }
+                    loadedUnits.add(cqUnit);
+                }
+            }
+            nextOffset = cqUnit.getQueueOffset() + cqUnit.getBatchNum();
+            return cqUnit;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+
+        @Override
+        public void release() {
+            if (fileIterator != null) {
+                fileIterator.release();
+                fileIterator = null;
+            }
+            nextOffset = -1;
+            if (loadedUnits != null) {
+                put(consumeQueue, expectedGeneration, loadedUnits);
+                loadedUnits = null;
+            }
+            range = null;
+        }
+
+        @Override
+        public CqUnit nextAndRelease() {
+            try {
+                return next();
+            } finally {
+                release();
+            }
+        }
+    }
+
+    /**
+     * A ring of the units in [startOffset, endOffset) of one queue.
+     */
+    static class QueueRange {
+        private final ConsumeQueueInterface consumeQueue;
+        private final StampedLock lock = new StampedLock();
+        private final int mask;
+        private final long[] pos;
+        private final int[] size;
+        private final long[] tagsCode;
+        private long startOffset = 0;
+        private long endOffset = 0;
+        volatile long lastAccessTime = System.currentTimeMillis();
+
+        QueueRange(ConsumeQueueInterface consumeQueue, int unitNum) {
+            this.consumeQueue = consumeQueue;
+            this.mask = unitNum - 1;
+            this.pos = new long[unitNum];
+            this.size = new int[unitNum];
+            this.tagsCode = new long[unitNum];
+        }
+
+        /**
+         * Copy the cached units from the given offset into the chunk.
+         *
+         * @return number of units copied, 0 if the offset is not cached
+         */
+        int get(long offset, CqUnit[] chunk) {
+            long stamp = lock.tryOptimisticRead();
+            int num = read(offset, chunk);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    num = read(offset, chunk);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            if (num > 0) {
+                lastAccessTime = System.currentTimeMillis();
+            }
+            return num;
+        }
+
+        private int read(long offset, CqUnit[] chunk) {
+            long start = startOffset;
+            long end = endOffset;
+            if (offset < start || offset >= end) {
+                return 0;
+            }
+            int num = (int) Math.min(end - offset, chunk.length);
+            for (int i = 0; i < num; i++) {
+                int index = (int) ((offset + i) & mask);
+                chunk[i] = new CqUnit(offset + i, pos[index], size[index], tagsCode[index]);
+            }
+            return num;
+        }
+
+        void put(List<CqUnit> units) {
+            long stamp = lock.writeLock();
+            try {
+                for (CqUnit cqUnit : units) {
+                    long offset = cqUnit.getQueueOffset();
+                    if (offset < endOffset) {
+                        // already cached or behind the window
+                        continue;
+                    }
+                    if (offset > endOffset || startOffset == endOffset) {
+                        startOffset = offset;
+                    }
+                    int index = (int) (offset & mask);
+                    pos[index] = cqUnit.getPos();
+                    size[index] = cqUnit.getSize();
+                    tagsCode[index] = cqUnit.getTagsCode();
+                    endOffset = offset + 1;
+                    if (endOffset - startOffset > pos.length) {
+                        startOffset = endOffset - pos.length;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            lastAccessTime = System.currentTimeMillis();
+        }
+
+        long size() {
+            long stamp = lock.readLock();
+            try {
+                return endOffset - startOffset;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
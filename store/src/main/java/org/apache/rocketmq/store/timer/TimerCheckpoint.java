@@ -33,6 +33,7 @@ import org.apache.rocketmq.store.logfile.DefaultMappedFile;
 
 public class TimerCheckpoint {
     private static final Logger log = LoggerFactory.getLogger(LoggerName.STORE_LOGGER_NAME);
+    private static final int MAX_CASCADE_LEVEL_NUM = 64;
     private final RandomAccessFile randomAccessFile;
     private final FileChannel fileChannel;
     private final MappedByteBuffer mappedByteBuffer;
@@ -40,6 +41,8 @@ public class TimerCheckpoint {
     private volatile long lastTimerLogFlushPos = 0;
     private volatile long lastTimerQueueOffset = 0;
     private volatile long masterTimerQueueOffset = 0; // read from master
+    // the start time of the next slot to cascade in each overflow level of the timer wheel
+    private volatile long[] cascadeTimeMs = new long[0];
     private final DataVersion dataVersion = new DataVersion();
 
     public TimerCheckpoint() {
@@ -69,6 +72,13 @@ public class TimerCheckpoint {
                 dataVersion.setTimestamp(this.mappedByteBuffer.getLong(40));
                 dataVersion.setCounter(new AtomicLong(this.mappedByteBuffer.getLong(48)));
             }
+            int levelNum = this.mappedByteBuffer.getInt(56);
+            if (levelNum > 0 && levelNum <= MAX_CASCADE_LEVEL_NUM) {
+                this.cascadeTimeMs = new long[levelNum];
+                for (int i = 0; i < levelNum; i++) {
+                    this.cascadeTimeMs[i] = this.mappedByteBuffer.getLong(64 + i * 8);
+                }
+            }
 
             log.info("timer checkpoint file lastReadTimeMs " + this.lastReadTimeMs + ", "
                 + UtilAll.timeMillisToHumanString(this.lastReadTimeMs));
@@ -112,6 +122,11 @@ public class TimerCheckpoint {
         this.mappedByteBuffer.putLong(32, this.dataVersion.getStateVersion());
         this.mappedByteBuffer.putLong(40, this.dataVersion.getTimestamp());
         this.mappedByteBuffer.putLong(48, this.dataVersion.getCounter().get());
+        long[] tmpCascadeTimeMs = this.cascadeTimeMs;
+        this.mappedByteBuffer.putInt(56, tmpCascadeTimeMs.length);
+        for (int i = 0; i < tmpCascadeTimeMs.length; i++) {
+            this.mappedByteBuffer.putLong(64 + i * 8, tmpCascadeTimeMs[i]);
+        }
         this.mappedByteBuffer.force();
     }
 
@@ -176,6 +191,21 @@ public class TimerCheckpoint {
         this.masterTimerQueueOffset = masterTimerQueueOffset;
     }
 
+    /**
+     * @return the start time of the next slot to cascade in the overflow level, 0 if it is not recorded
+     */
+    public long getCascadeTimeMs(int level) {
+        long[] tmpCascadeTimeMs = this.cascadeTimeMs;
+        return level >= 1 && level <= tmpCascadeTimeMs.length ? tmpCascadeTimeMs[level - 1] : 0;
+    }
+
+    public void setCascadeTimeMs(long[] cascadeTimeMs) {
+        if (cascadeTimeMs.length > MAX_CASCADE_LEVEL_NUM) {
+            throw new IllegalArgumentException("Too many overflow levels " + cascadeTimeMs.length);
+        }
+        this.cascadeTimeMs = cascadeTimeMs;
+    }
+
     public void updateDateVersion(long stateVersion) {
         dataVersion.nextVersion(stateVersion);
     }
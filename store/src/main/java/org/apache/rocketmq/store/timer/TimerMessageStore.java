@@ -39,9 +39,12 @@ import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import io.opentelemetry.api.common.Attributes;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.rocketmq.common.ServiceThread;
 import org.apache.rocketmq.common.ThreadFactoryImpl;
@@ -99,6 +102,16 @@ public class TimerMessageStore {
     public static final int MAGIC_DEFAULT = 1;
     public static final int MAGIC_ROLL = 1 << 1;
     public static final int MAGIC_DELETE = 1 << 2;
+    // The unit is parked in an overflow level, its delay field is the level and the reserved field the delayed time.
+    public static final int MAGIC_CASCADE = 1 << 3;
+    // Appended once all the units of an overflow slot are handed down, its delay field is the level and the write
+    // time the slot time. It is never linked into a slot, parked units never roll, so the magic is not ambiguous.
+    public static final int MAGIC_CASCADE_DONE = MAGIC_CASCADE | MAGIC_ROLL;
+    // Timers are only parked in the overflow levels if their commit log is kept this long after they are due.
+    public static final long OVERFLOW_RETENTION_MARGIN_MS = 3600 * 1000L;
+    // Parked timers whose message is in this many oldest commit log files are rolled once the commit log is cleaned
+    // before its reserved time, so that their message is put again before it is deleted.
+    public static final int OVERFLOW_RESCUE_COMMIT_LOG_FILES = 2;
     public boolean debug = false;
 
     protected static final String ENQUEUE_PUT = "enqueue_put";
@@ -115,6 +128,18 @@ public class TimerMessageStore {
 
     private final MessageStore messageStore;
     private final TimerWheel timerWheel;
+    private final TimerWheel[] overflowWheels;
+    // The start time of the next slot to cascade in each overflow level, only written by the enqueue put service.
+    private final AtomicLongArray cascadeTimeMs;
+    // No parked timer refers to a message before this commit log offset, only accessed by the enqueue put service.
+    private long minParkedOffsetPy = 0;
+    // How long the commit log is kept, less than the reserved time if it is cleaned forcibly.
+    private volatile long commitLogRetentionMs;
+    // The store time of the first message in the commit log and its offset, only accessed by the enqueue put service.
+    private long earliestMessageTime = -1;
+    private long earliestMinPhyOffset = -1;
+    private final LongAdder rollCount = new LongAdder();
+    private final LongAdder cascadeCount = new LongAdder();
     private final TimerLog timerLog;
     private final TimerCheckpoint timerCheckpoint;
 
@@ -194,6 +219,9 @@ public class TimerMessageStore {
         } else {
             this.timerRollWindowSlots = storeConfig.getTimerRollWindowSlot();
         }
+        this.overflowWheels = createOverflowWheels();
+        this.cascadeTimeMs = new AtomicLongArray(overflowWheels.length);
+        this.commitLogRetentionMs = storeConfig.getFileReservedTime() * 3600L * 1000;
 
         bufferLocal = new ThreadLocal<ByteBuffer>() {
             @Override
@@ -251,6 +279,32 @@ public class TimerMessageStore {
         return rootDir + File.separator + "timerlog";
     }
 
+    public static String getOverflowTimerWheelPath(final String rootDir, final int levelPrecisionMs) {
+        return getTimerWheelPath(rootDir) + "_" + levelPrecisionMs;
+    }
+
+    private TimerWheel[] createOverflowWheels() throws IOException {
+        List<TimerWheel> wheels = new ArrayList<>();
+        if (StringUtils.isBlank(storeConfig.getTimerWheelOverflowLevels())) {
+            return new TimerWheel[0];
+        }
+        int levelSlots = storeConfig.getTimerWheelOverflowLevelSlots();
+        long lowerWindowMs = (long) timerRollWindowSlots * precisionMs;
+        for (String level : storeConfig.getTimerWheelOverflowLevels().split(",")) {
+            int levelPrecisionMs = NumberUtils.toInt(level.trim(), -1);
+            // a level must be able to hand a whole slot down to the level below it, and reach further than it
+            if (levelPrecisionMs <= 0 || levelPrecisionMs % precisionMs != 0 || levelPrecisionMs > lowerWindowMs
+                || (long) levelPrecisionMs * levelSlots <= lowerWindowMs) {
+                LOGGER.warn("Ignore timer wheel overflow level {}, lower window:{}ms slots:{}", level, lowerWindowMs, levelSlots);
+                continue;
+            }
+            wheels.add(new TimerWheel(
+                getOverflowTimerWheelPath(storeConfig.getStorePathRootDir(), levelPrecisionMs), levelSlots, levelPrecisionMs));
+            lowerWindowMs = (long) levelPrecisionMs * levelSlots;
+        }
+        return wheels.toArray(new TimerWheel[0]);
+    }
+
     private void calcTimerDistribution() {
         long startTime = System.currentTimeMillis();
         List<Integer> timerDist = this.timerMetrics.getTimerDistList();
@@ -272,6 +326,11 @@ public class TimerMessageStore {
 
     @SuppressWarnings("NonAtomicOperationOnVolatileField")
     public void recover() {
+        //the units of the slots cascaded before the checkpoint are not revised
+        for (int level = 1; level <= overflowWheels.length; level++) {
+            long checkpointTimeMs = timerCheckpoint.getCascadeTimeMs(level);
+            cascadeTimeMs.set(level - 1, checkpointTimeMs % overflowWheels[level - 1].precisionMs == 0 ? checkpointTimeMs : 0);
+        }
         //recover timerLog
         long lastFlushPos = timerCheckpoint.getLastTimerLogFlushPos();
         MappedFile lastFile = timerLog.getMappedFileQueue().getLastMappedFile();
@@ -316,12 +375,34 @@ public class TimerMessageStore {
 
         commitReadTimeMs = currReadTimeMs;
         commitQueueOffset = currQueueOffset;
+        //parked slots always start after the write time, so cascade from the read time to not miss any of them
+        for (int level = 1; level <= overflowWheels.length; level++) {
+            TimerWheel overflowWheel = overflowWheels[level - 1];
+            long readSlotTimeMs = currReadTimeMs / overflowWheel.precisionMs * overflowWheel.precisionMs;
+            long checkpointTimeMs = cascadeTimeMs.get(level - 1);
+            //the cascade never goes beyond the window of the level, it is not the progress of this level otherwise
+            if (checkpointTimeMs < readSlotTimeMs || checkpointTimeMs > System.currentTimeMillis() + getLevelWindowMs(level)) {
+                checkpointTimeMs = readSlotTimeMs;
+            }
+            cascadeTimeMs.set(level - 1, checkpointTimeMs);
+            //the clear of the slots cascaded may not be flushed
+            for (int i = 1; i <= overflowWheel.slotsTotal; i++) {
+                long slotTimeMs = checkpointTimeMs - (long) i * overflowWheel.precisionMs;
+                if (-1 != overflowWheel.getSlot(slotTimeMs).timeMs) {
+                    overflowWheel.clearSlot(slotTimeMs);
+                }
+            }
+        }
 
         prepareTimerCheckPoint();
     }
 
     public long reviseQueueOffset(long processOffset) {
-        SelectMappedBufferResult selectRes = timerLog.getTimerMessage(processOffset - (TimerLog.UNIT_SIZE - TimerLog.UNIT_PRE_SIZE_FOR_MSG));
+        long unitEnd = getLastEnqueuedUnitEnd(processOffset);
+        if (-1 == unitEnd) {
+            return -1;
+        }
+        SelectMappedBufferResult selectRes = timerLog.getTimerMessage(unitEnd - (TimerLog.UNIT_SIZE - TimerLog.UNIT_PRE_SIZE_FOR_MSG));
         if (null == selectRes) {
             return -1;
         }
@@ -384,6 +465,31 @@ public class TimerMessageStore {
         }
     }
 
+    /**
+     * The units handed down from the overflow levels refer to messages enqueued long before, skip them.
+     *
+     * @return the end offset of the last unit appended by the enqueue in the last file, -1 if there is none
+     */
+    private long getLastEnqueuedUnitEnd(long processOffset) {
+        long unitEnd = processOffset;
+        while (unitEnd % timerLogFileSize >= TimerLog.UNIT_SIZE) {
+            SelectMappedBufferResult selectRes = timerLog.getTimerMessage(unitEnd - TimerLog.UNIT_SIZE);
+            if (null == selectRes) {
+                return -1;
+            }
+            try {
+                ByteBuffer bf = selectRes.getByteBuffer();
+                if (!needCascade(bf.getInt(12)) && 0 == bf.getLong(TimerLog.UNIT_SIZE - 8)) {
+                    return unitEnd;
+                }
+            } finally {
+                selectRes.release();
+            }
+            unitEnd -= TimerLog.UNIT_SIZE;
+        }
+        return unitEnd == processOffset ? processOffset : -1;
+    }
+
     //recover timerLog and revise timerWheel
     //return process offset
     private long recoverAndRevise(long beginOffset, boolean checkTimerLog) {
@@ -405,6 +511,7 @@ public class TimerMessageStore {
             index = 0;
         }
         long checkOffset = mappedFiles.get(index).getFileFromOffset();
+        long lostCascadeNum = 0;
         for (; index < mappedFiles.size(); index++) {
             MappedFile mappedFile = mappedFiles.get(index);
             SelectMappedBufferResult sbr = mappedFile.selectMappedBuffer(0, checkTimerLog ? mappedFiles.get(index).getFileSize() : mappedFile.getReadPosition());
@@ -424,9 +531,21 @@ public class TimerMessageStore {
                         stopCheck = true;
                         break;
                     }
-                    long delayTime = bf.getLong() + bf.getInt();
+                    long writeTime = bf.getLong();
+                    int delay = bf.getInt();
                     if (TimerLog.UNIT_SIZE == size && isMagicOK(magic)) {
-                        timerWheel.reviseSlot(delayTime, TimerWheel.IGNORE, sbr.getStartOffset() + position, true);
+                        if (!needCascade(magic)) {
+                            timerWheel.reviseSlot(writeTime + delay, TimerWheel.IGNORE, sbr.getStartOffset() + position, true);
+                        } else if (delay < 1 || delay > overflowWheels.length) {
+                            if (!isCascadeDone(magic)) {
+                                lostCascadeNum++;
+                            }
+                        } else if (isCascadeDone(magic)) {
+                            //the units of the slot before are handed down already
+                            reviseCascadeDone(delay, writeTime);
+                        } else if (writeTime >= cascadeTimeMs.get(delay - 1)) {
+                            overflowWheels[delay - 1].reviseSlot(writeTime, TimerWheel.IGNORE, sbr.getStartOffset() + position, true);
+                        }
                     }
                 } catch (Exception e) {
                     LOGGER.error("Recover timerLog error", e);
@@ -440,12 +559,54 @@ public class TimerMessageStore {
                 break;
             }
         }
+        if (lostCascadeNum > 0) {
+            LOGGER.warn("{} timers parked in overflow levels are not recovered, the levels are not configured anymore", lostCascadeNum);
+        }
         if (checkTimerLog) {
             timerLog.getMappedFileQueue().truncateDirtyFiles(checkOffset);
         }
         return checkOffset;
     }
 
+    private void reviseCascadeDone(int level, long slotTimeMs) {
+        TimerWheel overflowWheel = overflowWheels[level - 1];
+        if (-1 != overflowWheel.getSlot(slotTimeMs).timeMs) {
+            overflowWheel.clearSlot(slotTimeMs);
+        }
+        //a slot may be handed down early to rescue its timers, the cascade only goes on from the next slot
+        if (slotTimeMs == cascadeTimeMs.get(level - 1)) {
+            cascadeTimeMs.set(level - 1, slotTimeMs + overflowWheel.precisionMs);
+        }
+    }
+
+    /**
+     * Delete the timer log files whose last unit refers to a message before the min offset of the commit log.
+     * A cascaded unit is appended again with the offset of the old message, so with overflow levels the files
+     * still referenced by a slot of any wheel are kept as well.
+     */
+    protected int deleteExpiredTimerLog(long minOffsetPy) {
+        long maxDeletableOffset = Long.MAX_VALUE;
+        if (overflowWheels.length > 0) {
+            maxDeletableOffset = getMinReferencedTimerLogOffset();
+        }
+        return timerLog.getMappedFileQueue().deleteExpiredFileByOffsetForTimerLog(minOffsetPy,
+            timerLog.getOffsetForLastUnit(), TimerLog.UNIT_SIZE, maxDeletableOffset);
+    }
+
+    /**
+     * @return the first timer log offset of all the slots not read or cascaded yet, Long.MAX_VALUE if there is none
+     */
+    private long getMinReferencedTimerLogOffset() {
+        long tmpWriteTimeMs = currWriteTimeMs;
+        long minFirst = timerWheel.checkPhyPos(currReadTimeMs, -1);
+        for (int level = 1; level <= overflowWheels.length; level++) {
+            // the slots of an overflow level are cascaded before the write time reaches them
+            long levelStartMs = tmpWriteTimeMs - getLevelWindowMs(level);
+            minFirst = Math.min(minFirst, overflowWheels[level - 1].checkPhyPos(levelStartMs, -1));
+        }
+        return minFirst;
+    }
+
     public static boolean isMagicOK(int magic) {
         return (magic | 0xF) == 0xF;
     }
@@ -469,10 +630,7 @@ public class TimerMessageStore {
             @Override
             public void run() {
                 try {
-                    long minPy = messageStore.getMinPhyOffset();
-                    int checkOffset = timerLog.getOffsetForLastUnit();
-                    timerLog.getMappedFileQueue()
-                        .deleteExpiredFileByOffsetForTimerLog(minPy, checkOffset, TimerLog.UNIT_SIZE);
+                    deleteExpiredTimerLog(messageStore.getMinPhyOffset());
                 } catch (Exception e) {
                     LOGGER.error("Error in cleaning timerLog", e);
                 }
@@ -537,6 +695,9 @@ public class TimerMessageStore {
             dequeuePutMessageServices[i].shutdown();
         }
         timerWheel.shutdown(false);
+        for (TimerWheel overflowWheel : overflowWheels) {
+            overflowWheel.shutdown(false);
+        }
 
         this.scheduler.shutdown();
         UtilAll.cleanBuffer(this.bufferLocal.get());
@@ -726,6 +887,13 @@ public class TimerMessageStore {
         //copy the value first, avoid concurrent problem
         long tmpWriteTimeMs = currWriteTimeMs;
         boolean needRoll = delayedTime - tmpWriteTimeMs >= (long) timerRollWindowSlots * precisionMs;
+        if (needRoll && overflowWheels.length > 0) {
+            int level = selectTimerLevel(delayedTime, tmpWriteTimeMs);
+            long retentionMs = commitLogRetentionMs - OVERFLOW_RETENTION_MARGIN_MS;
+            if (level > 0 && delayedTime - messageExt.getStoreTimestamp() <= retentionMs) {
+                return doEnqueueOverflow(level, offsetPy, sizePy, delayedTime, messageExt);
+            }
+        }
         int magic = MAGIC_DEFAULT;
         if (needRoll) {
             magic = magic | MAGIC_ROLL;
@@ -741,27 +909,264 @@ public class TimerMessageStore {
             magic = magic | MAGIC_DELETE;
         }
         String realTopic = messageExt.getProperty(MessageConst.PROPERTY_REAL_TOPIC);
-        Slot slot = timerWheel.getSlot(delayedTime);
+        long ret = appendTimerLog(timerWheel, delayedTime, magic, tmpWriteTimeMs, (int) (delayedTime - tmpWriteTimeMs),
+            offsetPy, sizePy, hashTopicForMetrics(realTopic), 0);
+        if (-1 != ret) {
+            addMetric(messageExt, isDelete ? -1 : 1);
+        }
+        return -1 != ret;
+    }
+
+    private boolean doEnqueueOverflow(int level, long offsetPy, int sizePy, long delayedTime, MessageExt messageExt) {
+        int magic = MAGIC_DEFAULT | MAGIC_CASCADE;
+        boolean isDelete = messageExt.getProperty(TIMER_DELETE_UNIQUE_KEY) != null;
+        if (isDelete) {
+            magic = magic | MAGIC_DELETE;
+        }
+        String realTopic = messageExt.getProperty(MessageConst.PROPERTY_REAL_TOPIC);
+        long ret = appendOverflowTimerLog(level, delayedTime, magic, offsetPy, sizePy, hashTopicForMetrics(realTopic));
+        if (-1 != ret) {
+            addMetric(messageExt, isDelete ? -1 : 1);
+        }
+        return -1 != ret;
+    }
+
+    private long appendOverflowTimerLog(int level, long delayedTime, int magic, long offsetPy, int sizePy, int topicHash) {
+        TimerWheel overflowWheel = overflowWheels[level - 1];
+        long slotTimeMs = delayedTime / overflowWheel.precisionMs * overflowWheel.precisionMs;
+        minParkedOffsetPy = Math.min(minParkedOffsetPy, offsetPy);
+        return appendTimerLog(overflowWheel, slotTimeMs, magic, slotTimeMs, level, offsetPy, sizePy, topicHash, delayedTime);
+    }
+
+    private long appendTimerLog(TimerWheel wheel, long slotTimeMs, int magic, long writeTimeMs, int delay,
+        long offsetPy, int sizePy, int topicHash, long reserved) {
+        Slot slot = wheel.getSlot(slotTimeMs);
         ByteBuffer tmpBuffer = timerLogBuffer;
         tmpBuffer.clear();
         tmpBuffer.putInt(TimerLog.UNIT_SIZE); //size
         tmpBuffer.putLong(slot.lastPos); //prev pos
         tmpBuffer.putInt(magic); //magic
-        tmpBuffer.putLong(tmpWriteTimeMs); //currWriteTime
-        tmpBuffer.putInt((int) (delayedTime - tmpWriteTimeMs)); //delayTime
+        tmpBuffer.putLong(writeTimeMs); //currWriteTime, or the slot time in an overflow level
+        tmpBuffer.putInt(delay); //delayTime, or the overflow level
         tmpBuffer.putLong(offsetPy); //offset
         tmpBuffer.putInt(sizePy); //size
-        tmpBuffer.putInt(hashTopicForMetrics(realTopic)); //hashcode of real topic
-        tmpBuffer.putLong(0); //reserved value, just set to 0 now
+        tmpBuffer.putInt(topicHash); //hashcode of real topic
+        tmpBuffer.putLong(reserved); //reserved value, the delayed time in an overflow level
         long ret = timerLog.append(tmpBuffer.array(), 0, TimerLog.UNIT_SIZE);
         if (-1 != ret) {
             // If it's a delete message, then slot's total num -1
             // TODO: check if the delete msg is in the same slot with "the msg to be deleted".
-            timerWheel.putSlot(delayedTime, slot.firstPos == -1 ? ret : slot.firstPos, ret,
-                isDelete ? slot.num - 1 : slot.num + 1, slot.magic);
-            addMetric(messageExt, isDelete ? -1 : 1);
+            wheel.putSlot(slotTimeMs, slot.firstPos == -1 ? ret : slot.firstPos, ret,
+                needDelete(magic) ? slot.num - 1 : slot.num + 1, slot.magic);
         }
-        return -1 != ret;
+        return ret;
+    }
+
+    /**
+     * @return 0 for the timer wheel, the overflow level which can hold the delayed time, or -1 if none can
+     */
+    private int selectTimerLevel(long delayedTime, long writeTimeMs) {
+        for (int level = 0; level <= overflowWheels.length; level++) {
+            if (delayedTime - writeTimeMs < getLevelWindowMs(level)) {
+                return level;
+            }
+        }
+        return -1;
+    }
+
+    private long getLevelWindowMs(int level) {
+        if (level == 0) {
+            return (long) timerRollWindowSlots * precisionMs;
+        }
+        return (long) overflowWheels[level - 1].slotsTotal * overflowWheels[level - 1].precisionMs;
+    }
+
+    /**
+     * Hand the slots of each overflow level down to the level below once the whole slot fits in its window,
+     * from the coarsest level down, so a timer is rewritten to the timer log once per level instead of being
+     * rolled through the commit log. Only called by the enqueue put service, the single writer of the timer log.
+     */
+    protected void cascadeOverflowLevels() {
+        long tmpWriteTimeMs = currWriteTimeMs;
+        if (overflowWheels.length > 0 && !rescueParkedTimers(tmpWriteTimeMs)) {
+            return;
+        }
+        for (int level = overflowWheels.length; level > 0; level--) {
+            TimerWheel overflowWheel = overflowWheels[level - 1];
+            long lowerWindowMs = getLevelWindowMs(level - 1);
+            long slotTimeMs = cascadeTimeMs.get(level - 1);
+            while (slotTimeMs + overflowWheel.precisionMs <= tmpWriteTimeMs + lowerWindowMs) {
+                if (!cascadeSlot(level, slotTimeMs, tmpWriteTimeMs, false)) {
+                    return;
+                }
+                slotTimeMs += overflowWheel.precisionMs;
+                cascadeTimeMs.set(level - 1, slotTimeMs);
+            }
+        }
+    }
+
+    /**
+     * Parking a timer counts on its message being kept by the reserved time of the commit log. Once the commit log
+     * is cleaned earlier, e.g. forcibly when the disk is short of space, roll the parked timers whose message is
+     * about to be deleted, so that the message is put again with a new offset and the timer is parked again.
+     *
+     * @return false if a slot fails to be rolled
+     */
+    private boolean rescueParkedTimers(long writeTimeMs) {
+        long minPhyOffset = messageStore.getMinPhyOffset();
+        if (minPhyOffset != earliestMinPhyOffset) {
+            earliestMessageTime = minPhyOffset > 0 ? messageStore.getEarliestMessageTime() : -1;
+            earliestMinPhyOffset = minPhyOffset;
+        }
+        long retentionMs = storeConfig.getFileReservedTime() * 3600L * 1000;
+        if (earliestMessageTime > 0) {
+            retentionMs = Math.min(retentionMs, System.currentTimeMillis() - earliestMessageTime);
+        }
+        commitLogRetentionMs = retentionMs;
+        if (retentionMs >= storeConfig.getFileReservedTime() * 3600L * 1000) {
+            return true;
+        }
+        // never the file being written, so the messages put again are not rescued once more
+        long fileSize = storeConfig.getMappedFileSizeCommitLog();
+        long safeOffsetPy = Math.min(minPhyOffset + OVERFLOW_RESCUE_COMMIT_LOG_FILES * fileSize,
+            messageStore.getMaxPhyOffset() / fileSize * fileSize);
+        if (minParkedOffsetPy >= safeOffsetPy) {
+            return true;
+        }
+        long newMinParkedOffsetPy = Long.MAX_VALUE;
+        int rescuedNum = 0;
+        for (int level = 1; level <= overflowWheels.length; level++) {
+            TimerWheel overflowWheel = overflowWheels[level - 1];
+            for (int i = 0; i < overflowWheel.slotsTotal; i++) {
+                long slotTimeMs = cascadeTimeMs.get(level - 1) + (long) i * overflowWheel.precisionMs;
+                Slot slot = overflowWheel.getSlot(slotTimeMs);
+                if (-1 == slot.timeMs) {
+                    continue;
+                }
+                long slotMinOffsetPy = Long.MAX_VALUE;
+                for (ByteBuffer unit : readSlotUnits(slot)) {
+                    slotMinOffsetPy = Math.min(slotMinOffsetPy, unit.getLong(TimerLog.UNIT_PRE_SIZE_FOR_MSG));
+                }
+                if (slotMinOffsetPy >= safeOffsetPy) {
+                    newMinParkedOffsetPy = Math.min(newMinParkedOffsetPy, slotMinOffsetPy);
+                    continue;
+                }
+                if (!cascadeSlot(level, slotTimeMs, writeTimeMs, true)) {
+                    return false;
+                }
+                rescuedNum++;
+            }
+        }
+        minParkedOffsetPy = newMinParkedOffsetPy;
+        if (rescuedNum > 0) {
+            LOGGER.warn("Roll {} overflow slots, the commit log is kept {}ms only, min offset:{} safe offset:{}",
+                rescuedNum, retentionMs, minPhyOffset, safeOffsetPy);
+        }
+        return true;
+    }
+
+    /**
+     * Hand all the units of the slot down to the level below, or roll them in the timer wheel at the write time,
+     * and then append a unit marking the slot as handed down, so the slot is not revised again on recovery.
+     */
+    private boolean cascadeSlot(int level, long slotTimeMs, long writeTimeMs, boolean roll) {
+        TimerWheel overflowWheel = overflowWheels[level - 1];
+        Slot slot = overflowWheel.getSlot(slotTimeMs);
+        if (-1 == slot.timeMs) {
+            return true;
+        }
+        List<ByteBuffer> units = readSlotUnits(slot);
+        long minPhyOffset = messageStore.getMinPhyOffset();
+        int lostNum = 0;
+        for (ByteBuffer unit : units) {
+            int magic = unit.getInt(12) & ~MAGIC_CASCADE;
+            long offsetPy = unit.getLong(TimerLog.UNIT_PRE_SIZE_FOR_MSG);
+            int sizePy = unit.getInt(TimerLog.UNIT_PRE_SIZE_FOR_MSG + 8);
+            int topicHash = unit.getInt(TimerLog.UNIT_PRE_SIZE_FOR_METRIC);
+            long delayedTime = unit.getLong(TimerLog.UNIT_PRE_SIZE_FOR_METRIC + 4);
+            if (offsetPy < minPhyOffset) {
+                lostNum++;
+                continue;
+            }
+            int lowerLevel = selectTimerLevel(delayedTime, writeTimeMs);
+            if (lowerLevel < 0 || lowerLevel >= level) {
+                lowerLevel = level - 1;
+            }
+            long ret;
+            if (roll) {
+                // the message is put again when the timer wheel reaches the write time, and parked again
+                ret = appendTimerLog(timerWheel, writeTimeMs, magic | MAGIC_ROLL, writeTimeMs, 0,
+                    offsetPy, sizePy, topicHash, slotTimeMs);
+            } else if (lowerLevel == 0) {
+                // the reserved field tells the unit from the ones appended by the enqueue
+                long delayedSlotMs = Math.max(delayedTime, writeTimeMs);
+                ret = appendTimerLog(timerWheel, delayedSlotMs, magic, writeTimeMs, (int) (delayedSlotMs - writeTimeMs),
+                    offsetPy, sizePy, topicHash, slotTimeMs);
+            } else {
+                ret = appendOverflowTimerLog(lowerLevel, delayedTime, magic | MAGIC_CASCADE, offsetPy, sizePy, topicHash);
+            }
+            if (-1 == ret) {
+                LOGGER.error("Cascade timer log of level {} slot {} failed", level, slotTimeMs);
+                return false;
+            }
+        }
+        ByteBuffer tmpBuffer = timerLogBuffer;
+        tmpBuffer.clear();
+        tmpBuffer.putInt(TimerLog.UNIT_SIZE); //size
+        tmpBuffer.putLong(-1); //prev pos
+        tmpBuffer.putInt(MAGIC_CASCADE_DONE); //magic
+        tmpBuffer.putLong(slotTimeMs); //slot time
+        tmpBuffer.putInt(level); //overflow level
+        tmpBuffer.putLong(0); //offset
+        tmpBuffer.putInt(0); //size
+        tmpBuffer.putInt(0); //hashcode of real topic
+        tmpBuffer.putLong(0); //reserved value
+        if (-1 == timerLog.append(tmpBuffer.array(), 0, TimerLog.UNIT_SIZE)) {
+            LOGGER.error("Mark timer log of level {} slot {} cascaded failed", level, slotTimeMs);
+            return false;
+        }
+        overflowWheel.clearSlot(slotTimeMs);
+        if (lostNum > 0) {
+            LOGGER.error("{} timers of level {} slot {} are lost, their messages are deleted from the commit log before {}",
+                lostNum, level, slotTimeMs, minPhyOffset);
+        }
+        cascadeCount.add(units.size());
+        DefaultStoreMetricsManager.incTimerCascadeCount(level, units.size());
+        return true;
+    }
+
+    private List<ByteBuffer> readSlotUnits(Slot slot) {
+        LinkedList<ByteBuffer> units = new LinkedList<>();
+        LinkedList<SelectMappedBufferResult> sbrs = new LinkedList<>();
+        SelectMappedBufferResult timeSbr = null;
+        long currOffsetPy = slot.lastPos;
+        try {
+            //read the timer log one by one
+            while (currOffsetPy != -1) {
+                if (null == timeSbr || timeSbr.getStartOffset() > currOffsetPy) {
+                    timeSbr = timerLog.getWholeBuffer(currOffsetPy);
+                    if (null != timeSbr) {
+                        sbrs.add(timeSbr);
+                    }
+                }
+                if (null == timeSbr) {
+                    break;
+                }
+                int position = (int) (currOffsetPy % timerLogFileSize);
+                ByteBuffer unit = ByteBuffer.allocate(TimerLog.UNIT_SIZE);
+                ByteBuffer bf = timeSbr.getByteBuffer().duplicate();
+                bf.position(position);
+                bf.limit(position + TimerLog.UNIT_SIZE);
+                unit.put(bf);
+                units.addFirst(unit);
+                currOffsetPy = unit.getLong(4); //prev pos
+            }
+        } finally {
+            for (SelectMappedBufferResult sbr : sbrs) {
+                sbr.release();
+            }
+        }
+        return units;
     }
 
     @SuppressWarnings("NonAtomicOperationOnVolatileField")
@@ -1381,6 +1786,7 @@ public class TimerMessageStore {
             if (CollectionUtils.isEmpty(trs)) {
                 commitQueueOffset = tmpCommitQueueOffset;
                 maybeMoveWriteTime();
+                cascadeOverflowLevels();
                 return;
             }
 
@@ -1400,6 +1806,7 @@ public class TimerMessageStore {
             }
             commitQueueOffset = trs.get(trs.size() - 1).getMsg().getQueueOffset();
             maybeMoveWriteTime();
+            cascadeOverflowLevels();
         }
 
         @Override
@@ -1505,6 +1912,10 @@ public class TimerMessageStore {
                                     doRes = PUT_NEED_RETRY != doPut(msg, needRoll(tr.getMagic()));
                                     Thread.sleep(500L * precisionMs / 1000);
                                 }
+                                if (doRes && needRoll(tr.getMagic())) {
+                                    rollCount.increment();
+                                    DefaultStoreMetricsManager.incTimerRollCount(getRealTopic(msgExt));
+                                }
                                 perfCounterTicks.endTick(DEQUEUE_PUT);
                             } catch (Throwable t) {
                                 LOGGER.info("Unknown error", t);
@@ -1638,6 +2049,14 @@ public class TimerMessageStore {
         return (magic & MAGIC_ROLL) != 0;
     }
 
+    public boolean needCascade(int magic) {
+        return (magic & MAGIC_CASCADE) != 0;
+    }
+
+    public boolean isCascadeDone(int magic) {
+        return (magic & MAGIC_CASCADE_DONE) == MAGIC_CASCADE_DONE;
+    }
+
     public boolean needDelete(int magic) {
         return (magic & MAGIC_DELETE) != 0;
     }
@@ -1666,6 +2085,9 @@ public class TimerMessageStore {
                     prepareTimerCheckPoint();
                     timerLog.getMappedFileQueue().flush(0);
                     timerWheel.flush();
+                    for (TimerWheel overflowWheel : overflowWheels) {
+                        overflowWheel.flush();
+                    }
                     timerCheckpoint.flush();
                     if (System.currentTimeMillis() - start > storeConfig.getTimerProgressLogIntervalMs()) {
                         start = System.currentTimeMillis();
@@ -1761,6 +2183,12 @@ public class TimerMessageStore {
             }
         }
         timerCheckpoint.setLastTimerQueueOffset(Math.min(commitQueueOffset, timerCheckpoint.getMasterTimerQueueOffset()));
+        //taken before the timer log is flushed, so the units of the slots cascaded are flushed with it
+        long[] tmpCascadeTimeMs = new long[overflowWheels.length];
+        for (int i = 0; i < tmpCascadeTimeMs.length; i++) {
+            tmpCascadeTimeMs[i] = cascadeTimeMs.get(i);
+        }
+        timerCheckpoint.setCascadeTimeMs(tmpCascadeTimeMs);
     }
 
     public void registerEscapeBridgeHook(Function<MessageExtBrokerInner, PutMessageResult> escapeBridgeHook) {
@@ -1799,6 +2227,18 @@ public class TimerMessageStore {
         return timerLog;
     }
 
+    public TimerWheel[] getOverflowWheels() {
+        return overflowWheels;
+    }
+
+    public long getRollCount() {
+        return rollCount.sum();
+    }
+
+    public long getCascadeCount() {
+        return cascadeCount.sum();
+    }
+
     public TimerMetrics getTimerMetrics() {
         return this.timerMetrics;
     }
@@ -148,6 +148,15 @@ public class TimerWheel {
         localBuffer.get().putInt(magic);
     }
 
+    public void clearSlot(long timeMs) {
+        localBuffer.get().position(getSlotIndex(timeMs) * Slot.SIZE);
+        localBuffer.get().putLong(-1);
+        localBuffer.get().putLong(-1);
+        localBuffer.get().putLong(-1);
+        localBuffer.get().putInt(0);
+        localBuffer.get().putInt(0);
+    }
+
     public void reviseSlot(long timeMs, long firstPos, long lastPos, boolean force) {
         localBuffer.get().position(getSlotIndex(timeMs) * Slot.SIZE);
 
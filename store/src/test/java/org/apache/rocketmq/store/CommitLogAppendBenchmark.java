@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.store;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.store.config.FlushDiskType;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.stats.BrokerStatsManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares commit log append throughput of {@link PutMessageSpinLock}, {@link PutMessageReentrantLock} and the
+ * concurrent append mode. Run {@link #main(String[])} to measure with 1, 8, 32 and 64 producer threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+public class CommitLogAppendBenchmark {
+
+    private static final int QUEUE_NUM = 64;
+
+    @Param({"SPIN", "REENTRANT", "CONCURRENT"})
+    private String appendMode;
+
+    @Param({"256"})
+    private int bodySize;
+
+    private final String storePath = StoreTestBase.createBaseDir();
+    private final AtomicInteger threadIndex = new AtomicInteger();
+    private DefaultMessageStore messageStore;
+    private byte[] body;
+
+    @State(Scope.Thread)
+    public static class Producer {
+        private int queueId;
+
+        @Setup(Level.Trial)
+        public void setup(CommitLogAppendBenchmark benchmark) {
+            // each producer thread sends to its own queue like independent clients would
+            queueId = benchmark.threadIndex.getAndIncrement() % QUEUE_NUM;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setMappedFileSizeCommitLog(1024 * 1024 * 1024);
+        messageStoreConfig.setFlushDiskType(FlushDiskType.ASYNC_FLUSH);
+        messageStoreConfig.setStorePathRootDir(storePath);
+        messageStoreConfig.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        messageStoreConfig.setHaListenPort(0);
+        messageStoreConfig.setUseReentrantLockWhenPutMessage("REENTRANT".equals(appendMode));
+        messageStoreConfig.setEnableConcurrentAppend("CONCURRENT".equals(appendMode));
+        messageStore = new DefaultMessageStore(messageStoreConfig, new BrokerStatsManager("benchmark", true),
+            (topic, queueId, logicOffset, tagsCode, msgStoreTime, filterBitMap, properties) -> {
+            }, new BrokerConfig(), new ConcurrentHashMap<>());
+        if (!messageStore.load()) {
+            throw new IllegalStateException("load message store failed");
+        }
+        messageStore.start();
+        body = new byte[bodySize];
+    }
+
+    @TearDown
+    public void tearDown() {
+        messageStore.shutdown();
+        messageStore.destroy();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Benchmark
+    public PutMessageResult asyncPutMessage(Producer producer) {
+        MessageExtBrokerInner msg = new MessageExtBrokerInner();
+        msg.setTopic("CommitLogAppendBenchmark");
+        msg.setTags("TAG");
+        msg.setBody(body);
+        msg.setQueueId(producer.queueId);
+        msg.setBornTimestamp(System.currentTimeMillis());
+        msg.setBornHost(new InetSocketAddress("127.0.0.1", 8123));
+        msg.setStoreHost(new InetSocketAddress("127.0.0.1", 10911));
+        msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+        return messageStore.putMessage(msg);
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (int threads : new int[] {1, 8, 32, 64}) {
+            Options options = new OptionsBuilder()
+                .include(CommitLogAppendBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
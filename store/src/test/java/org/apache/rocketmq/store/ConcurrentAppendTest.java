@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.rocketmq.store;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.common.message.MessageExtBatch;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.store.config.FlushDiskType;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.stats.BrokerStatsManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ConcurrentAppendTest extends StoreTestBase {
+
+    private static final int THREADS = 8;
+    private static final int MESSAGES_PER_THREAD = 200;
+    private static final int QUEUE_NUM = 4;
+
+    private final String storePath = createBaseDir();
+    private DefaultMessageStore messageStore;
+
+    @Before
+    public void init() throws Exception {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        // small files so that writers race on the tail and the file switch
+        messageStoreConfig.setMappedFileSizeCommitLog(1024 * 64);
+        messageStoreConfig.setMappedFileSizeConsumeQueue(1024 * 64);
+        messageStoreConfig.setMaxHashSlotNum(100);
+        messageStoreConfig.setMaxIndexNum(100 * 10);
+        messageStoreConfig.setFlushDiskType(FlushDiskType.ASYNC_FLUSH);
+        messageStoreConfig.setStorePathRootDir(storePath);
+        messageStoreConfig.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        messageStoreConfig.setHaListenPort(0);
+        messageStoreConfig.setEnableConcurrentAppend(true);
+        messageStore = new DefaultMessageStore(messageStoreConfig, new BrokerStatsManager("simpleTest", true),
+            (topic, queueId, logicOffset, tagsCode, msgStoreTime, filterBitMap, properties) -> {
+            }, new BrokerConfig(), new ConcurrentHashMap<>());
+        assertThat(messageStore.load()).isTrue();
+        messageStore.start();
+    }
+
+    @After
+    public void destroy() {
+        messageStore.shutdown();
+        messageStore.destroy();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testConcurrentPutMessages() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch latch = new CountDownLatch(THREADS);
+        AtomicInteger failed = new AtomicInteger();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            executor.submit(() -> {
+                try {
+                    for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                        PutMessageResult result;
+                        if (i % 10 == 0) {
+                            MessageExtBatch batch = buildBatchMessage(2);
+                            batch.setTopic("ConcurrentAppend");
+                            batch.setQueueId((thread + i) % QUEUE_NUM);
+                            result = messageStore.putMessages(batch);
+                        } else {
+                            MessageExtBrokerInner msg = buildMessage();
+                            msg.setTopic("ConcurrentAppend");
+                            msg.setQueueId((thread + i) % QUEUE_NUM);
+                            msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+                            result = messageStore.putMessage(msg);
+                        }
+                        if (result.getPutMessageStatus() != PutMessageStatus.PUT_OK) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        assertThat(latch.await(60, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(failed.get()).isZero();
+
+        int expected = THREADS * MESSAGES_PER_THREAD + THREADS * MESSAGES_PER_THREAD / 10;
+        await().atMost(10, TimeUnit.SECONDS).until(() -> messageStore.dispatchBehindBytes() == 0);
+        assertThat(messageStore.getCommitLog().getMappedFileQueue().getMappedFiles().size()).isGreaterThan(1);
+
+        int total = 0;
+        for (int queueId = 0; queueId < QUEUE_NUM; queueId++) {
+            long maxOffset = messageStore.getMaxOffsetInQueue("ConcurrentAppend", queueId);
+            long lastPhyOffset = -1;
+            for (long offset = 0; offset < maxOffset; offset++) {
+                GetMessageResult result = messageStore.getMessage("GROUP", "ConcurrentAppend", queueId, offset, 1, null);
+                assertThat(result.getStatus()).isEqualTo(GetMessageStatus.FOUND);
+                ByteBuffer buffer = result.getMessageBufferList().get(0);
+                MessageExt messageExt = MessageDecoder.decode(buffer);
+                result.release();
+                assertThat(messageExt.getQueueOffset()).isEqualTo(offset);
+                assertThat(messageExt.getCommitLogOffset()).isGreaterThan(lastPhyOffset);
+                lastPhyOffset = messageExt.getCommitLogOffset();
+                total++;
+            }
+        }
+        assertThat(total).isEqualTo(expected);
+    }
+
+    @Test
+    public void testAppendIsContiguousAcrossFiles() {
+        int fileSize = messageStore.getMessageStoreConfig().getMappedFileSizeCommitLog();
+        long expectedOffset = 0;
+        for (int i = 0; i < 300; i++) {
+            MessageExtBrokerInner msg = buildMessage();
+            msg.setTopic("ConcurrentAppend");
+            msg.setQueueId(0);
+            msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+            PutMessageResult result = messageStore.putMessage(msg);
+            assertThat(result.getPutMessageStatus()).isEqualTo(PutMessageStatus.PUT_OK);
+
+            long wroteOffset = result.getAppendMessageResult().getWroteOffset();
+            if (wroteOffset != expectedOffset) {
+                // the previous file was closed with a blank marker
+                assertThat(wroteOffset % fileSize).isZero();
+                assertThat(wroteOffset).isGreaterThan(expectedOffset);
+            }
+            expectedOffset = wroteOffset + result.getAppendMessageResult().getWroteBytes();
+        }
+        assertThat(messageStore.getMaxPhyOffset()).isEqualTo(expectedOffset);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.common.message.MessageDecoder;
+import org.apache.rocketmq.common.message.MessageExtBrokerInner;
+import org.apache.rocketmq.store.config.FlushDiskType;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.config.StorePathConfigHelper;
+import org.apache.rocketmq.store.stats.BrokerStatsManager;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class DispatchPipelineTest extends StoreTestBase {
+
+    private static final int QUEUE_NUM = 8;
+
+    private final String storePath = createBaseDir();
+    private DefaultMessageStore messageStore;
+
+    @After
+    public void destroy() {
+        if (messageStore != null) {
+            messageStore.shutdown();
+            messageStore.destroy();
+        }
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testDispatchedOffset() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        Map<DispatchPipeline.Stage, List<CommitLogDispatcher>> dispatchers = new EnumMap<>(DispatchPipeline.Stage.class);
+        dispatchers.put(DispatchPipeline.Stage.BUILD_CONSUME_QUEUE, Collections.singletonList(request -> {
+        }));
+        dispatchers.put(DispatchPipeline.Stage.BUILD_INDEX, Collections.singletonList(request -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ignored) {
+            }
+        }));
+        DispatchPipeline pipeline = new DispatchPipeline("DispatchPipelineTest", dispatchers, 2, 16, null, 100);
+        pipeline.start();
+        try {
+            assertThat(pipeline.getDispatchedOffset(100)).isEqualTo(100);
+            pipeline.put(request(100, 50, 1000));
+            pipeline.put(request(150, 50, 2000));
+            assertThat(pipeline.getDispatchedOffset(200)).isEqualTo(100);
+            await().atMost(5, TimeUnit.SECONDS)
+                .until(() -> pipeline.getStageBehind(DispatchPipeline.Stage.BUILD_CONSUME_QUEUE) == 0);
+            assertThat(pipeline.getStageBehind(DispatchPipeline.Stage.BUILD_INDEX)).isEqualTo(100);
+            assertThat(pipeline.getDispatchedTimestamp(200)).isZero();
+
+            blocked.countDown();
+            await().atMost(5, TimeUnit.SECONDS).until(pipeline::isIdle);
+            assertThat(pipeline.getDispatchedOffset(200)).isEqualTo(200);
+            assertThat(pipeline.getDispatchedTimestamp(200)).isEqualTo(1000);
+        } finally {
+            blocked.countDown();
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testRetryFailedDispatch() throws Exception {
+        AtomicInteger failures = new AtomicInteger(3);
+        List<Long> dispatched = new CopyOnWriteArrayList<>();
+        Map<DispatchPipeline.Stage, List<CommitLogDispatcher>> dispatchers = new EnumMap<>(DispatchPipeline.Stage.class);
+        dispatchers.put(DispatchPipeline.Stage.BUILD_CONSUME_QUEUE, Arrays.asList(
+            request -> dispatched.add(request.getCommitLogOffset()),
+            request -> {
+                if (failures.getAndDecrement() > 0) {
+                    throw new RuntimeException("mock dispatch failure");
+                }
+            }));
+        DispatchPipeline pipeline = new DispatchPipeline("DispatchPipelineTest", dispatchers, 1, 16, null, 100);
+        pipeline.start();
+        try {
+            pipeline.put(request(100, 50, 1000));
+            pipeline.put(request(150, 50, 2000));
+            // not through the failing dispatcher yet
+            assertThat(pipeline.getDispatchedOffset(200)).isEqualTo(100);
+
+            await().atMost(5, TimeUnit.SECONDS).until(pipeline::isIdle);
+            assertThat(pipeline.getDispatchedOffset(200)).isEqualTo(200);
+            // retried from the failed dispatcher only
+            assertThat(dispatched).containsExactly(100L, 150L);
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+
+    @Test
+    public void testPipelinedDispatch() throws Exception {
+        messageStore = buildMessageStore();
+        List<Long> bitMapped = new CopyOnWriteArrayList<>();
+        messageStore.getDispatcherList().addFirst(request -> {
+            request.setBitMap(new byte[] {1});
+            bitMapped.add(request.getCommitLogOffset());
+        });
+        assertThat(messageStore.load()).isTrue();
+        messageStore.start();
+        assertThat(messageStore.getDispatchPipeline()).isNotNull();
+
+        int total = 1000;
+        for (int i = 0; i < total; i++) {
+            MessageExtBrokerInner msg = buildMessage();
+            msg.setTopic("DispatchPipeline");
+            msg.setQueueId(i % QUEUE_NUM);
+            msg.setKeys("key" + i);
+            msg.setPropertiesString(MessageDecoder.messageProperties2String(msg.getProperties()));
+            assertThat(messageStore.putMessage(msg).getPutMessageStatus()).isEqualTo(PutMessageStatus.PUT_OK);
+        }
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> messageStore.dispatchBehindBytes() == 0);
+        assertThat(bitMapped).hasSize(total);
+        for (int queueId = 0; queueId < QUEUE_NUM; queueId++) {
+            assertThat(messageStore.getMaxOffsetInQueue("DispatchPipeline", queueId)).isEqualTo(total / QUEUE_NUM);
+            long lastPhyOffset = -1;
+            for (long offset = 0; offset < total / QUEUE_NUM; offset++) {
+                long phyOffset = messageStore.getCommitLogOffsetInQueue("DispatchPipeline", queueId, offset);
+                assertThat(phyOffset).isGreaterThan(lastPhyOffset);
+                lastPhyOffset = phyOffset;
+            }
+        }
+        QueryMessageResult result = messageStore.queryMessage("DispatchPipeline", "key" + (total - 1), 1, 0, Long.MAX_VALUE);
+        assertThat(result.getMessageMapedList()).hasSize(1);
+        result.release();
+    }
+
+    @Test
+    public void testReputFromDispatchedOffsetInCheckpoint() throws Exception {
+        messageStore = buildMessageStore();
+        assertThat(messageStore.load()).isTrue();
+        messageStore.start();
+        int total = 200;
+        for (int i = 0; i < total; i++) {
+            MessageExtBrokerInner msg = buildMessage();
+            msg.setTopic("DispatchPipeline");
+            msg.setQueueId(i % QUEUE_NUM);
+            assertThat(messageStore.putMessage(msg).getPutMessageStatus()).isEqualTo(PutMessageStatus.PUT_OK);
+        }
+        await().atMost(10, TimeUnit.SECONDS).until(() -> messageStore.dispatchBehindBytes() == 0);
+        long maxPhyOffset = messageStore.getMaxPhyOffset();
+        long middlePhyOffset = messageStore.getCommitLogOffsetInQueue("DispatchPipeline", 0, total / QUEUE_NUM / 2);
+        messageStore.shutdown();
+
+        String checkpointPath = StorePathConfigHelper.getStoreCheckpoint(storePath);
+        StoreCheckpoint checkpoint = new StoreCheckpoint(checkpointPath);
+        assertThat(checkpoint.getDispatchedPhyOffset()).isEqualTo(maxPhyOffset);
+        // as if the shards were behind each other when stopped
+        checkpoint.setDispatchedPhyOffset(middlePhyOffset);
+        checkpoint.shutdown();
+
+        messageStore = buildMessageStore();
+        assertThat(messageStore.load()).isTrue();
+        messageStore.start();
+        await().atMost(10, TimeUnit.SECONDS).until(() -> messageStore.dispatchBehindBytes() == 0);
+        // the messages dispatched again are not put twice
+        for (int queueId = 0; queueId < QUEUE_NUM; queueId++) {
+            assertThat(messageStore.getMaxOffsetInQueue("DispatchPipeline", queueId)).isEqualTo(total / QUEUE_NUM);
+        }
+    }
+
+    private DefaultMessageStore buildMessageStore() throws Exception {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setMappedFileSizeCommitLog(1024 * 64);
+        messageStoreConfig.setMappedFileSizeConsumeQueue(1024 * 64);
+        messageStoreConfig.setMaxHashSlotNum(1000);
+        messageStoreConfig.setMaxIndexNum(1000 * 10);
+        messageStoreConfig.setFlushDiskType(FlushDiskType.ASYNC_FLUSH);
+        messageStoreConfig.setStorePathRootDir(storePath);
+        messageStoreConfig.setStorePathCommitLog(storePath + File.separator + "commitlog");
+        messageStoreConfig.setHaListenPort(0);
+        messageStoreConfig.setEnableDispatchPipeline(true);
+        messageStoreConfig.setDispatchPipelineShardNums(3);
+        messageStoreConfig.setDispatchPipelineQueueCapacity(16);
+        return new DefaultMessageStore(messageStoreConfig, new BrokerStatsManager("simpleTest", true),
+            (topic, queueId, logicOffset, tagsCode, msgStoreTime, filterBitMap, properties) -> {
+            }, new BrokerConfig(), new ConcurrentHashMap<>());
+    }
+
+    private static DispatchRequest request(long commitLogOffset, int size, long storeTimestamp) {
+        return new DispatchRequest("DispatchPipeline", 0, commitLogOffset, size, 0, storeTimestamp, 0,
+            null, null, 0, 0, null);
+    }
+}
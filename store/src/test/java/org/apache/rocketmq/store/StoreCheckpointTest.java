@@ -37,6 +37,7 @@ public class StoreCheckpointTest {
         long logicsMsgTimestamp = 0xCCDD;
         storeCheckpoint.setPhysicMsgTimestamp(physicMsgTimestamp);
         storeCheckpoint.setLogicsMsgTimestamp(logicsMsgTimestamp);
+        storeCheckpoint.setDispatchedPhyOffset(1024);
         storeCheckpoint.flush();
 
         long diff = physicMsgTimestamp - storeCheckpoint.getMinTimestamp();
@@ -45,6 +46,7 @@ public class StoreCheckpointTest {
         storeCheckpoint = new StoreCheckpoint("target/checkpoint_test/0000");
         assertThat(storeCheckpoint.getPhysicMsgTimestamp()).isEqualTo(physicMsgTimestamp);
         assertThat(storeCheckpoint.getLogicsMsgTimestamp()).isEqualTo(logicsMsgTimestamp);
+        assertThat(storeCheckpoint.getDispatchedPhyOffset()).isEqualTo(1024);
     }
 
     @After
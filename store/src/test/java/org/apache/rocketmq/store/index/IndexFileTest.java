@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.filter.util.BloomFilter;
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -70,4 +71,36 @@ public class IndexFileTest {
         File file = new File("200");
         UtilAll.deleteFile(file);
     }
+
+    @Test
+    public void testBloomFilter() throws Exception {
+        BloomFilter bloomFilter = BloomFilter.createByFn(1, INDEX_NUM);
+        IndexFile indexFile = new IndexFile("300", HASH_SLOT_NUM, INDEX_NUM, 0, 0, bloomFilter);
+        for (long i = 0; i < (INDEX_NUM - 1); i++) {
+            assertThat(indexFile.putKey(Long.toString(i), i, System.currentTimeMillis())).isTrue();
+        }
+        indexFile.shutdown();
+
+        assertThat(IndexFile.loadBloomFilter(new File("300"), HASH_SLOT_NUM, INDEX_NUM)).isEqualTo(bloomFilter);
+        indexFile = new IndexFile("300", HASH_SLOT_NUM, INDEX_NUM, 0, 0, bloomFilter);
+        indexFile.load();
+        int misses = 0;
+        for (long i = 0; i < (INDEX_NUM - 1); i++) {
+            assertThat(indexFile.mightContain(Long.toString(i))).isTrue();
+            if (!indexFile.mightContain(Long.toString(i + INDEX_NUM))) {
+                misses++;
+            }
+        }
+        assertThat(misses).isGreaterThan((INDEX_NUM - 1) * 9 / 10);
+        indexFile.destroy(0);
+        UtilAll.deleteFile(new File("300"));
+
+        // written without a bloom filter
+        indexFile = new IndexFile("400", HASH_SLOT_NUM, INDEX_NUM, 0, 0);
+        indexFile.putKey("1", 1, System.currentTimeMillis());
+        indexFile.shutdown();
+        assertThat(IndexFile.loadBloomFilter(new File("400"), HASH_SLOT_NUM, INDEX_NUM)).isNull();
+        indexFile.destroy(0);
+        UtilAll.deleteFile(new File("400"));
+    }
 }
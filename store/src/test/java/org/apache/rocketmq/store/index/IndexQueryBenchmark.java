@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.index;
+
+import java.io.File;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.StoreTestBase;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.config.StorePathConfigHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Queries a message key over 100 index files, without bloom filters, with them, and with them searching the
+ * remaining candidates in parallel.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class IndexQueryBenchmark {
+
+    private static final String TOPIC = "IndexQueryBenchmark";
+    private static final int FILE_NUM = 100;
+    private static final int HASH_SLOT_NUM = 20000;
+    private static final int INDEX_NUM = 80000;
+    private static final int KEYS_PER_FILE = INDEX_NUM - 1;
+
+    @Param({"PLAIN", "BLOOM", "BLOOM_PARALLEL"})
+    private String queryMode;
+
+    private final String storePath = StoreTestBase.createBaseDir();
+    private IndexService indexService;
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        messageStoreConfig.setMaxHashSlotNum(HASH_SLOT_NUM);
+        messageStoreConfig.setMaxIndexNum(INDEX_NUM);
+        messageStoreConfig.setEnableIndexBloomFilter(!"PLAIN".equals(queryMode));
+        messageStoreConfig.setIndexQueryThreadPoolNums("BLOOM_PARALLEL".equals(queryMode) ? 4 : 0);
+        DefaultMessageStore messageStore = mock(DefaultMessageStore.class);
+        when(messageStore.getMessageStoreConfig()).thenReturn(messageStoreConfig);
+        when(messageStore.getBrokerConfig()).thenReturn(new BrokerConfig());
+        when(messageStore.getBrokerIdentity()).thenReturn(new BrokerConfig());
+        indexService = new IndexService(messageStore);
+
+        String indexPath = StorePathConfigHelper.getStorePathIndex(storePath);
+        UtilAll.ensureDirOK(indexPath);
+        long timestamp = 1L;
+        for (int file = 0; file < FILE_NUM; file++) {
+            IndexFile indexFile = new IndexFile(indexPath + File.separator + String.format("%05d", file),
+                HASH_SLOT_NUM, INDEX_NUM, 0, 0, indexService.getBloomFilter());
+            for (int i = 0; i < KEYS_PER_FILE; i++) {
+                indexFile.putKey(TOPIC + "#" + key(file, i), (long) file * KEYS_PER_FILE + i, timestamp++);
+            }
+            indexFile.shutdown();
+        }
+        if (!indexService.load(true)) {
+            throw new IllegalStateException("load index files failed");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        indexService.shutdown();
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    private static String key(int file, int i) {
+        return "key-" + file + "-" + i;
+    }
+
+    @Benchmark
+    public QueryOffsetResult queryHit() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return indexService.queryOffset(TOPIC, key(random.nextInt(FILE_NUM), random.nextInt(KEYS_PER_FILE)), 32, 0, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public QueryOffsetResult queryMiss() {
+        return indexService.queryOffset(TOPIC, key(FILE_NUM, ThreadLocalRandom.current().nextInt(KEYS_PER_FILE)), 32, 0, Long.MAX_VALUE);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(IndexQueryBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.index;
+
+import java.io.File;
+import org.apache.rocketmq.common.BrokerConfig;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.store.DefaultMessageStore;
+import org.apache.rocketmq.store.StoreTestBase;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.apache.rocketmq.store.config.StorePathConfigHelper;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IndexServiceTest {
+    private static final int HASH_SLOT_NUM = 100;
+    private static final int INDEX_NUM = 400;
+    private static final int FILE_NUM = 5;
+
+    private final String storePath = StoreTestBase.createBaseDir();
+
+    @After
+    public void destroy() {
+        UtilAll.deleteFile(new File(storePath));
+    }
+
+    @Test
+    public void testQueryOffset() throws Exception {
+        writeIndexFiles(true);
+        // older files written without a bloom filter are still searched
+        IndexService sequential = newIndexService(false, 0);
+        IndexService parallel = newIndexService(true, 3);
+        try {
+            assertThat(parallel.getBloomFilter()).isNotNull();
+            for (String key : new String[] {"key-0", "key-3", "shared", "missing"}) {
+                QueryOffsetResult expected = sequential.queryOffset("Topic", key, 64, 0, Long.MAX_VALUE);
+                QueryOffsetResult actual = parallel.queryOffset("Topic", key, 64, 0, Long.MAX_VALUE);
+                assertThat(actual.getPhyOffsets()).isEqualTo(expected.getPhyOffsets());
+            }
+            assertThat(parallel.queryOffset("Topic", "shared", 64, 0, Long.MAX_VALUE).getPhyOffsets())
+                .hasSize(FILE_NUM);
+            assertThat(parallel.queryOffset("Topic", "shared", 2, 0, Long.MAX_VALUE).getPhyOffsets())
+                .containsExactly(FILE_NUM - 1L, FILE_NUM - 2L);
+            assertThat(parallel.queryOffset("Topic", "missing", 64, 0, Long.MAX_VALUE).getPhyOffsets()).isEmpty();
+        } finally {
+            sequential.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    private void writeIndexFiles(boolean bloomFilter) throws Exception {
+        IndexService indexService = newIndexService(bloomFilter, 0);
+        String indexPath = StorePathConfigHelper.getStorePathIndex(storePath);
+        UtilAll.ensureDirOK(indexPath);
+        for (int file = 0; file < FILE_NUM; file++) {
+            IndexFile indexFile = new IndexFile(indexPath + File.separator + file, HASH_SLOT_NUM, INDEX_NUM, 0, 0,
+                file < 2 ? null : indexService.getBloomFilter());
+            indexFile.putKey("Topic#key-" + file, file, 1000L + file);
+            indexFile.putKey("Topic#shared", file, 1000L + file);
+            indexFile.shutdown();
+        }
+        indexService.shutdown();
+    }
+
+    private IndexService newIndexService(boolean bloomFilter, int queryThreadPoolNums) {
+        MessageStoreConfig messageStoreConfig = new MessageStoreConfig();
+        messageStoreConfig.setStorePathRootDir(storePath);
+        messageStoreConfig.setMaxHashSlotNum(HASH_SLOT_NUM);
+        messageStoreConfig.setMaxIndexNum(INDEX_NUM);
+        messageStoreConfig.setEnableIndexBloomFilter(bloomFilter);
+        messageStoreConfig.setIndexQueryThreadPoolNums(queryThreadPoolNums);
+        DefaultMessageStore messageStore = mock(DefaultMessageStore.class);
+        when(messageStore.getMessageStoreConfig()).thenReturn(messageStoreConfig);
+        when(messageStore.getBrokerConfig()).thenReturn(new BrokerConfig());
+        when(messageStore.getBrokerIdentity()).thenReturn(new BrokerConfig());
+        IndexService indexService = new IndexService(messageStore);
+        assertThat(indexService.load(true)).isTrue();
+        return indexService;
+    }
+}
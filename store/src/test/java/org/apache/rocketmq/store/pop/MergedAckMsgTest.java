@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.pop;
+
+import com.alibaba.fastjson.JSON;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MergedAckMsgTest {
+
+    @Test
+    public void testEncodeAndDecode() {
+        AckMsg ackMsg = new AckMsg();
+        ackMsg.setTopic("topic");
+        ackMsg.setConsumerGroup("group");
+        ackMsg.setQueueId(3);
+        ackMsg.setStartOffset(200L);
+        ackMsg.setAckOffset(205L);
+        ackMsg.setPopTime(1679454922000L);
+
+        BatchAckMsg batchAckMsg = new BatchAckMsg();
+        batchAckMsg.setTopic("topic");
+        batchAckMsg.setConsumerGroup("group");
+        batchAckMsg.setBrokerName("broker-a");
+        batchAckMsg.setQueueId(1);
+        batchAckMsg.setStartOffset(300L);
+        batchAckMsg.setAckOffsetList(Arrays.asList(300L, 301L, 331L));
+        batchAckMsg.setPopTime(1679454923000L);
+
+        MergedAckMsg mergedAckMsg = new MergedAckMsg(Arrays.asList(ackMsg, batchAckMsg));
+        Assert.assertEquals(4, mergedAckMsg.getAckNum());
+
+        List<AckMsg> decoded = MergedAckMsg.decode(mergedAckMsg.encode()).getAckMsgList();
+        Assert.assertEquals(2, decoded.size());
+
+        AckMsg decodedAck = decoded.get(0);
+        Assert.assertFalse(decodedAck instanceof BatchAckMsg);
+        Assert.assertEquals(JSON.toJSONString(ackMsg), JSON.toJSONString(decodedAck));
+
+        Assert.assertTrue(decoded.get(1) instanceof BatchAckMsg);
+        BatchAckMsg decodedBatchAck = (BatchAckMsg) decoded.get(1);
+        Assert.assertEquals(batchAckMsg.getAckOffsetList(), decodedBatchAck.getAckOffsetList());
+        Assert.assertEquals("broker-a", decodedBatchAck.getBrokerName());
+        Assert.assertEquals(1, decodedBatchAck.getQueueId());
+        Assert.assertEquals(300L, decodedBatchAck.getStartOffset());
+        Assert.assertEquals(1679454923000L, decodedBatchAck.getPopTime());
+    }
+
+    @Test
+    public void testSmallerThanJson() {
+        MergedAckMsg mergedAckMsg = new MergedAckMsg();
+        int jsonSize = 0;
+        for (int i = 0; i < 64; i++) {
+            AckMsg ackMsg = new AckMsg();
+            ackMsg.setTopic("topic");
+            ackMsg.setConsumerGroup("group");
+            ackMsg.setBrokerName("broker-a");
+            ackMsg.setQueueId(i % 4);
+            ackMsg.setStartOffset(1000L + i);
+            ackMsg.setAckOffset(1000L + i);
+            ackMsg.setPopTime(1679454922000L);
+            mergedAckMsg.getAckMsgList().add(ackMsg);
+            jsonSize += JSON.toJSONString(ackMsg).length();
+        }
+        Assert.assertTrue(mergedAckMsg.encode().length * 2 < jsonSize);
+    }
+}
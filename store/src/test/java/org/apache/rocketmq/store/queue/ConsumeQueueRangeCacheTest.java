@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConsumeQueueRangeCacheTest {
+    private static final String TOPIC = "ConsumeQueueRangeCacheTest";
+
+    private ConsumeQueueInterface consumeQueue;
+    private final List<CqUnit> units = new ArrayList<>();
+    private final AtomicInteger fileReads = new AtomicInteger(0);
+
+    @Before
+    public void init() {
+        for (int i = 0; i < 100; i++) {
+            units.add(new CqUnit(i, 1000L * i, 100 + i, i % 7));
+        }
+        consumeQueue = mock(ConsumeQueueInterface.class);
+        when(consumeQueue.getTopic()).thenReturn(TOPIC);
+        when(consumeQueue.getQueueId()).thenReturn(0);
+        when(consumeQueue.iterateFrom(anyLong())).thenAnswer(invocation -> {
+            long startOffset = invocation.getArgument(0);
+            if (startOffset >= units.size()) {
+                return null;
+            }
+            fileReads.incrementAndGet();
+            return new ListIterator(units.subList((int) startOffset, units.size()));
+        });
+    }
+
+    @Test
+    public void testSharedByReaders() {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(64, 16);
+
+        assertUnits(read(cache, 50, 10), 50, 10);
+        assertThat(fileReads.get()).isEqualTo(1);
+        assertThat(cache.getMissUnits()).isEqualTo(10);
+
+        // another group reading the same range does not touch the file
+        assertUnits(read(cache, 50, 10), 50, 10);
+        assertUnits(read(cache, 55, 5), 55, 5);
+        assertThat(fileReads.get()).isEqualTo(1);
+        assertThat(cache.getHitUnits()).isEqualTo(15);
+
+        // read through the end of the window goes on with the file
+        assertUnits(read(cache, 55, 10), 55, 10);
+        assertThat(fileReads.get()).isEqualTo(2);
+        assertThat(cache.getCachedUnits()).isEqualTo(15);
+
+        // reads behind the window do not replace it
+        assertUnits(read(cache, 10, 5), 10, 5);
+        assertUnits(read(cache, 50, 15), 50, 15);
+        assertThat(fileReads.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void testWindowBounded() {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(16, 16);
+        assertUnits(read(cache, 0, 40), 0, 40);
+        assertThat(cache.getCachedUnits()).isEqualTo(16);
+
+        assertUnits(read(cache, 24, 16), 24, 16);
+        assertThat(fileReads.get()).isEqualTo(1);
+        assertUnits(read(cache, 20, 4), 20, 4);
+        assertThat(fileReads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void testInvalidate() {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(64, 16);
+        assertUnits(read(cache, 0, 10), 0, 10);
+
+        // units read before an invalidation are not cached
+        ReferredIterator<CqUnit> iterator = cache.iterateFrom(consumeQueue, 10, 10);
+        for (int i = 0; i < 10; i++) {
+            iterator.next();
+        }
+        cache.invalidate();
+        iterator.release();
+        assertThat(cache.getCachedUnits()).isZero();
+
+        assertUnits(read(cache, 0, 10), 0, 10);
+        cache.invalidate(TOPIC);
+        assertThat(cache.getQueueNum()).isZero();
+        assertUnits(read(cache, 0, 10), 0, 10);
+        assertThat(fileReads.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void testInvalidateDestroyedQueue() {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(64, 16);
+        assertUnits(read(cache, 0, 10), 0, 10);
+        ConcurrentMap<String, ConcurrentMap<Integer, ConsumeQueueInterface>> consumeQueueTable = new ConcurrentHashMap<>();
+        consumeQueueTable.computeIfAbsent(TOPIC, k -> new ConcurrentHashMap<>()).put(0, consumeQueue);
+        cache.invalidate(consumeQueueTable);
+        assertThat(cache.getCachedUnits()).isEqualTo(10);
+
+        // destroyed as expired
+        consumeQueueTable.clear();
+        cache.invalidate(consumeQueueTable);
+        assertThat(cache.getQueueNum()).isZero();
+
+        // created again from offset 0, the units cached for the old queue are not served
+        assertUnits(read(cache, 0, 10), 0, 10);
+        ConsumeQueueInterface recreated = mock(ConsumeQueueInterface.class);
+        when(recreated.getTopic()).thenReturn(TOPIC);
+        when(recreated.getQueueId()).thenReturn(0);
+        when(recreated.iterateFrom(anyLong())).thenReturn(new ListIterator(units.subList(50, 60)));
+        ReferredIterator<CqUnit> iterator = cache.iterateFrom(recreated, 0, 10);
+        assertThat(iterator.next().getPos()).isEqualTo(units.get(50).getPos());
+        iterator.release();
+        assertThat(cache.getQueueNum()).isEqualTo(1);
+        assertThat(cache.getCachedUnits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws InterruptedException {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(64, 2);
+        for (int queueId = 0; queueId < 3; queueId++) {
+            when(consumeQueue.getQueueId()).thenReturn(queueId);
+            read(cache, 0, 10);
+            Thread.sleep(2);
+        }
+        assertThat(cache.getQueueNum()).isEqualTo(2);
+        assertThat(cache.getCachedUnits()).isEqualTo(20);
+    }
+
+    @Test
+    public void testOffsetNotFound() {
+        ConsumeQueueRangeCache cache = new ConsumeQueueRangeCache(64, 16);
+        assertThat(cache.iterateFrom(consumeQueue, 100, 10)).isNull();
+    }
+
+    private List<CqUnit> read(ConsumeQueueRangeCache cache, long offset, int num) {
+        List<CqUnit> result = new ArrayList<>();
+        ReferredIterator<CqUnit> iterator = cache.iterateFrom(consumeQueue, offset, num);
+        try {
+            while (result.size() < num && iterator.hasNext()) {
+                result.add(iterator.next());
+            }
+        } finally {
+            iterator.release();
+        }
+        return result;
+    }
+
+    private void assertUnits(List<CqUnit> result, long offset, int num) {
+        assertThat(result).hasSize(num);
+        for (int i = 0; i < num; i++) {
+            CqUnit expect = units.get((int) offset + i);
+            CqUnit actual = result.get(i);
+            assertThat(actual.getQueueOffset()).isEqualTo(expect.getQueueOffset());
+            assertThat(actual.getPos()).isEqualTo(expect.getPos());
+            assertThat(actual.getSize()).isEqualTo(expect.getSize());
+            assertThat(actual.getTagsCode()).isEqualTo(expect.getTagsCode());
+        }
+    }
+
+    private static class ListIterator implements ReferredIterator<CqUnit> {
+        private final List<CqUnit> list;
+        private int index = 0;
+
+        ListIterator(List<CqUnit> list) {
+            this.list = list;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < list.size();
+        }
+
+        @Override
+        public CqUnit next() {
+            return hasNext() ? list.get(index++) : null;
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public CqUnit nextAndRelease() {
+            return next();
+        }
+    }
+}
@@ -44,6 +44,7 @@ import org.apache.rocketmq.store.ConsumeQueue;
 import org.apache.rocketmq.store.DefaultMessageStore;
 import org.apache.rocketmq.store.GetMessageResult;
 import org.apache.rocketmq.store.GetMessageStatus;
+import org.apache.rocketmq.store.MappedFileQueue;
 import org.apache.rocketmq.store.MessageArrivingListener;
 import org.apache.rocketmq.common.message.MessageExtBrokerInner;
 import org.apache.rocketmq.store.MessageStore;
@@ -486,6 +487,113 @@ public class TimerMessageStoreTest {
         storeConfig.setTimerRollWindowSlot(Integer.MAX_VALUE);
     }
 
+    @Test
+    public void testCascadeOverflowLevels() throws Exception {
+        storeConfig.setTimerRollWindowSlot(2);
+        storeConfig.setTimerWheelOverflowLevels("1000,2000");
+        storeConfig.setTimerWheelOverflowLevelSlots(4);
+        String topic = "TimerTest_testCascadeOverflowLevels";
+
+        TimerMessageStore timerMessageStore = createTimerMessageStore(null);
+        timerMessageStore.load();
+        timerMessageStore.start(true);
+        assertEquals(2, timerMessageStore.getOverflowWheels().length);
+
+        long curr = System.currentTimeMillis() / precisionMs * precisionMs;
+        long delayMs = curr + 12 * precisionMs;
+        MessageExtBrokerInner inner = buildMessage(delayMs, topic, false);
+        transformTimerMessage(timerMessageStore, inner);
+        assertEquals(PutMessageStatus.PUT_OK, messageStore.putMessage(inner).getPutMessageStatus());
+
+        ByteBuffer msgBuff = getOneMessage(topic, 0, 0, 10000);
+        assertNotNull(msgBuff);
+        assertThat(System.currentTimeMillis()).isGreaterThanOrEqualTo(delayMs - precisionMs);
+        MessageExt msgExt = MessageDecoder.decode(msgBuff);
+        assertNotNull(msgExt);
+        assertNull(msgExt.getProperty(MessageConst.PROPERTY_TIMER_ROLL_TIMES));
+        assertEquals(0, timerMessageStore.getRollCount());
+        assertEquals(2, timerMessageStore.getCascadeCount());
+        storeConfig.setTimerRollWindowSlot(Integer.MAX_VALUE);
+        storeConfig.setTimerWheelOverflowLevels("");
+    }
+
+    @Test
+    public void testDeleteTimerLogWithCascadedUnits() throws Exception {
+        storeConfig.setTimerRollWindowSlot(2);
+        storeConfig.setTimerWheelOverflowLevels("1000,2000");
+        storeConfig.setTimerWheelOverflowLevelSlots(4);
+        // two units and the blank in a file
+        storeConfig.setMappedFileSizeTimerLog(TimerLog.UNIT_SIZE * 2 + 16);
+
+        TimerMessageStore timerMessageStore = createTimerMessageStore(null);
+        timerMessageStore.load();
+        MappedFileQueue timerLogQueue = timerMessageStore.getTimerLog().getMappedFileQueue();
+        long writeTimeMs = System.currentTimeMillis() / precisionMs * precisionMs;
+        timerMessageStore.currWriteTimeMs = writeTimeMs;
+        MessageExt messageExt = new MessageExt();
+        messageExt.setStoreTimestamp(writeTimeMs);
+
+        // parked in the second level, and cascaded to the first one as the last unit of the first file
+        assertTrue(timerMessageStore.doEnqueue(100, 10, writeTimeMs + 12 * precisionMs, messageExt));
+        timerMessageStore.currWriteTimeMs = writeTimeMs + 8 * precisionMs;
+        timerMessageStore.cascadeOverflowLevels();
+        assertEquals(1, timerMessageStore.getCascadeCount());
+        assertTrue(timerMessageStore.doEnqueue(5000, 10, writeTimeMs + 9 * precisionMs, messageExt));
+        assertEquals(2, timerLogQueue.getMappedFiles().size());
+
+        // the old offset of the cascaded unit does not expire the file
+        assertEquals(0, timerMessageStore.deleteExpiredTimerLog(1000));
+        assertEquals(2, timerLogQueue.getMappedFiles().size());
+
+        // cascaded again to the timer wheel into the third file, the second one keeps the marker of the first cascade
+        timerMessageStore.currWriteTimeMs = writeTimeMs + 12 * precisionMs;
+        timerMessageStore.cascadeOverflowLevels();
+        assertEquals(2, timerMessageStore.getCascadeCount());
+        assertEquals(3, timerLogQueue.getMappedFiles().size());
+        assertEquals(1, timerMessageStore.deleteExpiredTimerLog(1000));
+        assertEquals(2, timerLogQueue.getMappedFiles().size());
+
+        storeConfig.setTimerRollWindowSlot(Integer.MAX_VALUE);
+        storeConfig.setTimerWheelOverflowLevels("");
+    }
+
+    @Test
+    public void testRecoverCascadeProgress() throws Exception {
+        storeConfig.setTimerRollWindowSlot(2);
+        storeConfig.setTimerWheelOverflowLevels("1000,2000");
+        storeConfig.setTimerWheelOverflowLevelSlots(4);
+        String base = StoreTestUtils.createBaseDir();
+
+        TimerMessageStore first = createTimerMessageStore(base);
+        first.load();
+        long writeTimeMs = System.currentTimeMillis() / precisionMs * precisionMs;
+        first.currWriteTimeMs = writeTimeMs;
+        MessageExt messageExt = new MessageExt();
+        messageExt.setStoreTimestamp(writeTimeMs);
+        long delayedMs = writeTimeMs + 12 * precisionMs;
+        assertTrue(first.doEnqueue(100, 10, delayedMs, messageExt));
+        Slot parked = first.getOverflowWheels()[1].getSlot(delayedMs);
+        assertNotEquals(-1, parked.timeMs);
+
+        // cascaded to the first level, but the slot is back as if its clear had not been flushed before the crash
+        first.currWriteTimeMs = writeTimeMs + 8 * precisionMs;
+        first.cascadeOverflowLevels();
+        assertEquals(1, first.getCascadeCount());
+        first.getOverflowWheels()[1].putSlot(parked.timeMs, parked.firstPos, parked.lastPos, parked.num, parked.magic);
+        first.shutdown();
+
+        TimerMessageStore second = createTimerMessageStore(base);
+        assertTrue(second.load());
+        assertEquals(-1, second.getOverflowWheels()[1].getSlot(delayedMs).timeMs);
+        assertNotEquals(-1, second.getOverflowWheels()[0].getSlot(delayedMs).timeMs);
+        second.currWriteTimeMs = writeTimeMs + 8 * precisionMs;
+        second.cascadeOverflowLevels();
+        assertEquals(0, second.getCascadeCount());
+
+        storeConfig.setTimerRollWindowSlot(Integer.MAX_VALUE);
+        storeConfig.setTimerWheelOverflowLevels("");
+    }
+
     public ByteBuffer getOneMessage(String topic, int queue, long offset, int timeout) throws Exception {
         int retry = timeout / 100;
         while (retry-- > 0) {
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.store.timer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.apache.rocketmq.common.message.MessageAccessor;
+import org.apache.rocketmq.common.message.MessageConst;
+import org.apache.rocketmq.common.message.MessageExt;
+import org.apache.rocketmq.store.MessageStore;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
+import org.apache.rocketmq.store.config.MessageStoreConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Schedules timers spread evenly over 30 days and moves the write time forward until all of them are due, once
+ * rolling the far ones through the timer wheel and once parking them in hourly and daily overflow levels. Rolls
+ * are simulated on the timer log side only, the commit log rewrite each of them costs is not measured but counted.
+ * The timer log grows by 52 bytes per timer and per roll or cascade, mind the disk space with 10M timers.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class TimerWheelCascadeBenchmark {
+
+    private static final long SPAN_MS = 30L * 24 * 3600 * 1000;
+    private static final String TOPIC = "TimerWheelCascadeBenchmark";
+
+    @Param({"", "3600000,86400000"})
+    private String overflowLevels;
+
+    @Param({"10000000"})
+    private int timers;
+
+    private final String baseDir = StoreTestUtils.createBaseDir();
+    private TimerMessageStore timerMessageStore;
+    private MessageExt messageExt;
+    private long[] delayedTimes;
+    private long rollNum;
+    private long deliverNum;
+
+    @Setup
+    public void setup() throws Exception {
+        MessageStoreConfig storeConfig = new MessageStoreConfig();
+        storeConfig.setStorePathRootDir(baseDir);
+        storeConfig.setTimerWheelOverflowLevels(overflowLevels);
+        storeConfig.setFileReservedTime(31 * 24);
+        timerMessageStore = new TimerMessageStore(mock(MessageStore.class), storeConfig,
+            new TimerCheckpoint(baseDir + File.separator + "config" + File.separator + "timercheck"),
+            new TimerMetrics(baseDir + File.separator + "config" + File.separator + "timermetrics"), null);
+        if (!timerMessageStore.load()) {
+            throw new IllegalStateException("load timer message store failed");
+        }
+        timerMessageStore.maybeMoveWriteTime();
+        messageExt = new MessageExt();
+        MessageAccessor.putProperty(messageExt, MessageConst.PROPERTY_REAL_TOPIC, TOPIC);
+        delayedTimes = new long[timers];
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nlevels:[%s] timers:%d delivered:%d rolls:%d cascades:%d timerLog:%dMB%n",
+            overflowLevels, timers, deliverNum, rollNum, timerMessageStore.getCascadeCount(),
+            timerMessageStore.getTimerLog().getMappedFileQueue().getMaxOffset() / 1024 / 1024);
+        timerMessageStore.shutdown();
+        StoreTestUtils.deleteFile(baseDir);
+    }
+
+    @Benchmark
+    public long scheduleAndExpire() {
+        int precisionMs = timerMessageStore.getPrecisionMs();
+        long startMs = timerMessageStore.currWriteTimeMs;
+        messageExt.setStoreTimestamp(startMs);
+        for (int i = 0; i < timers; i++) {
+            delayedTimes[i] = (startMs + precisionMs + SPAN_MS * i / timers) / precisionMs * precisionMs;
+            timerMessageStore.doEnqueue(i, 1, delayedTimes[i], messageExt);
+        }
+        for (long timeMs = startMs; deliverNum < timers && timeMs <= startMs + 2 * SPAN_MS; timeMs += precisionMs) {
+            timerMessageStore.currWriteTimeMs = timeMs;
+            timerMessageStore.cascadeOverflowLevels();
+            expire(timeMs);
+        }
+        return deliverNum;
+    }
+
+    private void expire(long timeMs) {
+        Slot slot = timerMessageStore.getTimerWheel().getSlot(timeMs);
+        long currOffsetPy = slot.lastPos;
+        while (currOffsetPy != -1) {
+            SelectMappedBufferResult sbr = timerMessageStore.getTimerLog().getTimerMessage(currOffsetPy);
+            ByteBuffer bf = sbr.getByteBuffer();
+            bf.getInt(); //size
+            currOffsetPy = bf.getLong();
+            int magic = bf.getInt();
+            bf.position(TimerLog.UNIT_PRE_SIZE_FOR_MSG);
+            int index = (int) bf.getLong();
+            sbr.release();
+            if (timerMessageStore.needRoll(magic)) {
+                rollNum++;
+                messageExt.setStoreTimestamp(timeMs);
+                timerMessageStore.doEnqueue(index, 1, delayedTimes[index], messageExt);
+            } else {
+                deliverNum++;
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TimerWheelCascadeBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
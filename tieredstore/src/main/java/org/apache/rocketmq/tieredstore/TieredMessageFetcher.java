@@ -18,6 +18,7 @@ package org.apache.rocketmq.tieredstore;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
@@ -27,6 +28,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.rocketmq.common.BoundaryType;
 import org.apache.rocketmq.common.message.MessageQueue;
@@ -40,6 +42,8 @@ import org.apache.rocketmq.store.SelectMappedBufferResult;
 import org.apache.rocketmq.tieredstore.common.GetMessageResultExt;
 import org.apache.rocketmq.tieredstore.common.InFlightRequestFuture;
 import org.apache.rocketmq.tieredstore.common.MessageCacheKey;
+import org.apache.rocketmq.tieredstore.common.OffHeapMessageCache;
+import org.apache.rocketmq.tieredstore.common.ReadPatternTracker;
 import org.apache.rocketmq.tieredstore.common.SelectBufferResult;
 import org.apache.rocketmq.tieredstore.common.SelectBufferResultWrapper;
 import org.apache.rocketmq.tieredstore.common.TieredMessageStoreConfig;
@@ -68,6 +72,8 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
     private final TieredMessageStoreConfig storeConfig;
     private final TieredFlatFileManager flatFileManager;
     private final Cache<MessageCacheKey, SelectBufferResultWrapper> readAheadCache;
+    private final OffHeapMessageCache offHeapCache;
+    private final AtomicLong inflightPrefetchBytes;
 
     public TieredMessageFetcher(TieredMessageStoreConfig storeConfig) {
         this.storeConfig = storeConfig;
@@ -75,6 +81,9 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
         this.metadataStore = TieredStoreUtil.getMetadataStore(storeConfig);
         this.flatFileManager = TieredFlatFileManager.getInstance(storeConfig);
         this.readAheadCache = this.initCache(storeConfig);
+        this.offHeapCache = storeConfig.isReadAheadCacheOffHeapEnable() ?
+            new OffHeapMessageCache(storeConfig, key -> recordReadAheadWaste(key.getFlatFile(), 1)) : null;
+        this.inflightPrefetchBytes = new AtomicLong();
     }
 
     private Cache<MessageCacheKey, SelectBufferResultWrapper> initCache(TieredMessageStoreConfig storeConfig) {
@@ -87,6 +96,12 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
             .maximumWeight(memoryMaxSize)
             // Using the buffer size of messages to calculate memory usage
             .weigher((MessageCacheKey key, SelectBufferResultWrapper msg) -> msg.getBufferSize())
+            // Messages read ahead but evicted before anyone reads them are wasted
+            .removalListener((MessageCacheKey key, SelectBufferResultWrapper msg, RemovalCause cause) -> {
+                if (cause.wasEvicted() && key != null && msg != null && msg.getAccessCount() == 0) {
+                    recordReadAheadWaste(key.getFlatFile(), 1);
+                }
+            })
             .recordStats()
             .build();
     }
@@ -96,12 +111,53 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
         return readAheadCache;
     }
 
+    public OffHeapMessageCache getOffHeapCache() {
+        return offHeapCache;
+    }
+
+    public long getCacheMessageCount() {
+        return offHeapCache != null ? offHeapCache.estimatedSize() : readAheadCache.estimatedSize();
+    }
+
+    public long getCacheMessageBytes() {
+        if (offHeapCache != null) {
+            return offHeapCache.weightedSize();
+        }
+        return readAheadCache.policy().eviction()
+            .map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    public long getInflightPrefetchBytes() {
+        return inflightPrefetchBytes.get();
+    }
+
+    public void shutdown() {
+        if (offHeapCache != null) {
+            offHeapCache.shutdown();
+        }
+    }
+
     protected void putMessageToCache(CompositeFlatFile flatFile, SelectBufferResultWrapper result) {
-        readAheadCache.put(new MessageCacheKey(flatFile, result.getOffset()), result);
+        MessageCacheKey key = new MessageCacheKey(flatFile, result.getOffset());
+        if (offHeapCache != null) {
+            offHeapCache.put(key, result);
+        } else {
+            readAheadCache.put(key, result);
+        }
     }
 
     protected SelectBufferResultWrapper getMessageFromCache(CompositeFlatFile flatFile, long offset) {
-        return readAheadCache.getIfPresent(new MessageCacheKey(flatFile, offset));
+        MessageCacheKey key = new MessageCacheKey(flatFile, offset);
+        return offHeapCache != null ? offHeapCache.get(key) : readAheadCache.getIfPresent(key);
+    }
+
+    protected void invalidateMessageCache(CompositeFlatFile flatFile, long offset) {
+        MessageCacheKey key = new MessageCacheKey(flatFile, offset);
+        if (offHeapCache != null) {
+            offHeapCache.invalidate(key);
+        } else {
+            readAheadCache.invalidate(key);
+        }
     }
 
     protected void recordCacheAccess(CompositeFlatFile flatFile,
@@ -110,20 +166,69 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
             offset = resultWrapperList.get(resultWrapperList.size() - 1).getOffset();
         }
         flatFile.recordGroupAccess(group, offset);
-        resultWrapperList.forEach(wrapper -> {
-            if (wrapper.incrementAndGet() >= flatFile.getActiveGroupCount()) {
-                readAheadCache.invalidate(new MessageCacheKey(flatFile, wrapper.getOffset()));
+        int readAheadHitCount = 0;
+        for (SelectBufferResultWrapper wrapper : resultWrapperList) {
+            int accessCount = wrapper.incrementAndGet();
+            // the first access of a message read ahead, messages read on cache miss start from one
+            if (accessCount == 1) {
+                readAheadHitCount++;
             }
-        });
+            if (accessCount >= flatFile.getActiveGroupCount()) {
+                invalidateMessageCache(flatFile, wrapper.getOffset());
+            }
+        }
+        if (readAheadHitCount > 0 && flatFile instanceof CompositeQueueFlatFile) {
+            Attributes attributes = TieredStoreMetricsManager.newAttributesBuilder()
+                .put(TieredStoreMetricsConstant.LABEL_TOPIC, ((CompositeQueueFlatFile) flatFile).getMessageQueue().getTopic())
+                .put(TieredStoreMetricsConstant.LABEL_GROUP, group)
+                .build();
+            TieredStoreMetricsManager.readAheadHit.add(readAheadHitCount, attributes);
+        }
+    }
+
+    private void recordReadAheadWaste(CompositeFlatFile flatFile, int count) {
+        if (flatFile instanceof CompositeQueueFlatFile) {
+            Attributes attributes = TieredStoreMetricsManager.newAttributesBuilder()
+                .put(TieredStoreMetricsConstant.LABEL_TOPIC, ((CompositeQueueFlatFile) flatFile).getMessageQueue().getTopic())
+                .build();
+            TieredStoreMetricsManager.readAheadWaste.add(count, attributes);
+        }
+    }
+
+    /**
+     * Estimate bytes of a prefetch request by the average message size of the queue
+     */
+    private long estimatePrefetchBytes(CompositeFlatFile flatFile, int batchSize) {
+        long messageCount = flatFile.getConsumeQueueCommitOffset() - flatFile.getConsumeQueueMinOffset();
+        long commitLogSize = flatFile.getCommitLogMaxOffset() - flatFile.getCommitLogMinOffset();
+        if (messageCount <= 0 || commitLogSize <= 0) {
+            return 0L;
+        }
+        return Math.min(commitLogSize / messageCount * batchSize, storeConfig.getReadAheadMessageSizeThreshold());
+    }
+
+    private boolean tryAcquirePrefetchBytes(long bytes) {
+        long threshold = storeConfig.getReadAheadInflightBytesThreshold();
+        while (true) {
+            long current = inflightPrefetchBytes.get();
+            // always allow one request when nothing is in flight, or a large request could never be issued
+            if (current > 0 && current + bytes > threshold) {
+                return false;
+            }
+            if (inflightPrefetchBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
     }
 
     private void prefetchMessage(CompositeQueueFlatFile flatFile, String group, int maxCount, long nextBeginOffset) {
-        if (maxCount == 1 || flatFile.getReadAheadFactor() == 1) {
+        ReadPatternTracker tracker = flatFile.getReadPatternTracker(group);
+        if (maxCount == 1 || tracker.getFactor() == ReadPatternTracker.NOT_READ_AHEAD) {
             return;
         }
 
         // make sure there is only one request per group and request range
-        int prefetchBatchSize = Math.min(maxCount * flatFile.getReadAheadFactor(), storeConfig.getReadAheadMessageCountThreshold());
+        int prefetchBatchSize = Math.min(maxCount * tracker.getFactor(), storeConfig.getReadAheadMessageCountThreshold());
         InFlightRequestFuture inflightRequest = flatFile.getInflightRequest(group, nextBeginOffset, prefetchBatchSize);
         if (!inflightRequest.isAllDone()) {
             return;
@@ -144,13 +249,19 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
                 long queueOffset;
                 if (lastRequestIsExpired) {
                     queueOffset = nextBeginOffset;
-                    flatFile.decreaseReadAheadFactor();
+                    // the message was read ahead but is gone before the group reads it, the window is too large
+                    if (nextBeginOffset >= inflightRequest.getStartOffset() && nextBeginOffset <= maxOffsetOfLastRequest) {
+                        tracker.recordExpired();
+                    }
                 } else {
                     queueOffset = maxOffsetOfLastRequest + 1;
-                    flatFile.increaseReadAheadFactor();
                 }
 
-                int factor = Math.min(flatFile.getReadAheadFactor(), storeConfig.getReadAheadMessageCountThreshold() / maxCount);
+                int factor = Math.min(tracker.getFactor(), storeConfig.getReadAheadMessageCountThreshold() / maxCount);
+                if (factor < 1) {
+                    return;
+                }
+                long epoch = tracker.getEpoch();
                 int flag = 0;
                 int concurrency = 1;
                 if (factor > storeConfig.getReadAheadBatchSizeFactorThreshold()) {
@@ -161,25 +272,34 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
 
                 List<Pair<Integer, CompletableFuture<Long>>> futureList = new ArrayList<>();
                 long nextQueueOffset = queueOffset;
-                if (flag == 1) {
-                    int firstBatchSize = factor % storeConfig.getReadAheadBatchSizeFactorThreshold() * maxCount;
-                    CompletableFuture<Long> future = prefetchMessageThenPutToCache(flatFile, nextQueueOffset, firstBatchSize);
-                    futureList.add(Pair.of(firstBatchSize, future));
-                    nextQueueOffset += firstBatchSize;
+                for (int i = 0; i < concurrency; i++) {
+                    int batchSize = i == 0 && flag == 1 ?
+                        factor % storeConfig.getReadAheadBatchSizeFactorThreshold() * maxCount : requestBatchSize;
+                    // bound the bytes of all prefetch requests in flight, the rest of the window is read later
+                    long bytes = estimatePrefetchBytes(flatFile, batchSize);
+                    if (!tryAcquirePrefetchBytes(bytes)) {
+                        LOGGER.debug("TieredMessageFetcher#preFetchMessage: too many bytes in flight: {}, skip prefetch, request offset: {}, batch size: {}",
+                            inflightPrefetchBytes.get(), nextQueueOffset, batchSize);
+                        break;
+                    }
+                    CompletableFuture<Long> future =
+                        prefetchMessageThenPutToCache(flatFile, tracker, epoch, nextQueueOffset, batchSize)
+                            .whenComplete((v, t) -> inflightPrefetchBytes.addAndGet(-bytes));
+                    futureList.add(Pair.of(batchSize, future));
+                    nextQueueOffset += batchSize;
                 }
-                for (long i = 0; i < concurrency - flag; i++) {
-                    CompletableFuture<Long> future = prefetchMessageThenPutToCache(flatFile, nextQueueOffset + i * requestBatchSize, requestBatchSize);
-                    futureList.add(Pair.of(requestBatchSize, future));
+                if (futureList.isEmpty()) {
+                    return;
                 }
-                flatFile.putInflightRequest(group, queueOffset, maxCount * factor, futureList);
+                flatFile.putInflightRequest(group, queueOffset, (int) (nextQueueOffset - queueOffset), futureList);
                 LOGGER.debug("TieredMessageFetcher#preFetchMessage: try to prefetch messages for later requests: next begin offset: {}, request offset: {}, factor: {}, flag: {}, request batch: {}, concurrency: {}",
-                    nextBeginOffset, queueOffset, factor, flag, requestBatchSize, concurrency);
+                    nextBeginOffset, queueOffset, factor, flag, requestBatchSize, futureList.size());
             }
         }
     }
 
-    private CompletableFuture<Long> prefetchMessageThenPutToCache(
-        CompositeQueueFlatFile flatFile, long queueOffset, int batchSize) {
+    private CompletableFuture<Long> prefetchMessageThenPutToCache(CompositeQueueFlatFile flatFile,
+        ReadPatternTracker tracker, long epoch, long queueOffset, int batchSize) {
 
         MessageQueue mq = flatFile.getMessageQueue();
         return getMessageFromTieredStoreAsync(flatFile, queueOffset, batchSize)
@@ -194,6 +314,13 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
                         result.getStatus(), mq.getTopic(), mq.getQueueId(), queueOffset, batchSize);
                     return -1L;
                 }
+                // the group turned to random reads, do not evict useful messages by these
+                if (tracker.isCancelled(epoch)) {
+                    LOGGER.debug("MessageFetcher prefetch is cancelled, topic: {}, queue: {}, queue offset: {}, batch size: {}",
+                        mq.getTopic(), mq.getQueueId(), queueOffset, batchSize);
+                    recordReadAheadWaste(flatFile, result.getMessageCount());
+                    return -1L;
+                }
                 try {
                     List<Long> offsetList = result.getMessageQueueOffset();
                     List<Long> tagCodeList = result.getTagCodeList();
@@ -231,8 +358,9 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
             resultWrapperList.add(wrapper);
         }
 
-        // only record cache access count once
+        // only record cache access count and read pattern once
         if (waitInflightRequest) {
+            flatFile.getReadPatternTracker(group).recordRequest(queueOffset, maxCount);
             Attributes attributes = TieredStoreMetricsManager.newAttributesBuilder()
                 .put(TieredStoreMetricsConstant.LABEL_TOPIC, mq.getTopic())
                 .put(TieredStoreMetricsConstant.LABEL_GROUP, group)
@@ -295,7 +423,9 @@ public class TieredMessageFetcher implements MessageStoreFetcher {
 
         CompletableFuture<GetMessageResultExt> resultFuture;
         synchronized (flatFile) {
-            int batchSize = maxCount * storeConfig.getReadAheadMinFactor();
+            // random readers only get what they request
+            int batchSize = flatFile.getReadPatternTracker(group).getFactor() == ReadPatternTracker.NOT_READ_AHEAD ?
+                maxCount : maxCount * storeConfig.getReadAheadMinFactor();
             resultFuture = getMessageFromTieredStoreAsync(flatFile, queueOffset, batchSize)
                 .thenApply(result -> {
                     if (result.getStatus() != GetMessageStatus.FOUND) {
@@ -382,6 +382,7 @@ public class TieredMessageStore extends AbstractPluginMessageStore {
         dispatcher.shutdown();
         TieredFlatFileManager.getInstance(storeConfig).shutdown();
         TieredStoreExecutor.shutdown();
+        fetcher.shutdown();
     }
 
     @Override
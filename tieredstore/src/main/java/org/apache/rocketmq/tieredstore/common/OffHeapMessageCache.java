@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tieredstore.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.rocketmq.common.UtilAll;
+import org.apache.rocketmq.logging.org.slf4j.Logger;
+import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
+import org.apache.rocketmq.tieredstore.exception.TieredStoreErrorCode;
+import org.apache.rocketmq.tieredstore.exception.TieredStoreException;
+import org.apache.rocketmq.tieredstore.util.TieredStoreUtil;
+
+/**
+ * Read-ahead message cache keeping the messages off heap, in slabs of direct memory or of a memory-mapped scratch
+ * file, only a small index entry of each message stays on heap.
+ * <p>
+ * The index is a Caffeine cache weighed by message size, its window TinyLFU policy decides which messages to admit
+ * and to evict, and removing a message from it frees the space in the slab. Slabs are filled in order and reused
+ * once all their messages are removed, if no slab is free the oldest filled one is evicted as a whole. The slabs never
+ * exceed the configured size, a message that does not fit is not cached. A message is copied to heap when read, as
+ * its slab may be reused as soon as it is removed.
+ * </p>
+ */
+public class OffHeapMessageCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TieredStoreUtil.TIERED_STORE_LOGGER_NAME);
+    private static final int MAX_EVICT_TIMES = 3;
+
+    private final int slabSize;
+    private final long capacity;
+    private final Slab[] slabs;
+    private final Deque<Slab> freeSlabs;
+    private final Deque<Slab> filledSlabs;
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final Cache<MessageCacheKey, Entry> cache;
+    private final Consumer<MessageCacheKey> unreadEvictionListener;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // slab being filled, guarded by this
+    private Slab currentSlab;
+    // no slab is allocated and no message is read once closed, set under the lock of this
+    private volatile boolean closed;
+
+    /**
+     * @param unreadEvictionListener called with the key of a message evicted before being read
+     */
+    public OffHeapMessageCache(TieredMessageStoreConfig storeConfig, Consumer<MessageCacheKey> unreadEvictionListener) {
+        this.slabSize = storeConfig.getReadAheadCacheOffHeapSlabSize();
+        int slabNum = (int) Math.min(Math.max(storeConfig.getReadAheadCacheOffHeapSize() / slabSize, 1), Integer.MAX_VALUE);
+        this.capacity = (long) slabNum * slabSize;
+        this.slabs = new Slab[slabNum];
+        this.freeSlabs = new ArrayDeque<>(slabNum);
+        this.filledSlabs = new ArrayDeque<>(slabNum);
+        this.unreadEvictionListener = unreadEvictionListener;
+        for (int i = 0; i < slabNum; i++) {
+            slabs[i] = new Slab(i);
+            freeSlabs.addLast(slabs[i]);
+        }
+
+        String filePath = storeConfig.getReadAheadCacheOffHeapFilePath();
+        if (StringUtils.isBlank(filePath)) {
+            this.file = null;
+            this.randomAccessFile = null;
+        } else {
+            this.file = new File(filePath);
+            this.randomAccessFile = createScratchFile(file, capacity);
+        }
+
+        this.cache = Caffeine.newBuilder()
+            .scheduler(Scheduler.systemScheduler())
+            .expireAfterWrite(storeConfig.getReadAheadCacheExpireDuration(), TimeUnit.MILLISECONDS)
+            // leave room for the space of removed messages, which is not reused until their slab is empty
+            .maximumWeight(capacity - capacity / 8)
+            .weigher((MessageCacheKey key, Entry entry) -> entry.size)
+            // free the space at once, so that the next message can use it
+            .executor(Runnable::run)
+            .removalListener((MessageCacheKey key, Entry entry, RemovalCause cause) -> {
+                if (entry == null) {
+                    return;
+                }
+                if (key != null && cause.wasEvicted() && entry.accessCount.get() == 0) {
+                    unreadEvictionListener.accept(key);
+                }
+                free(entry);
+            })
+            .build();
+
+        LOGGER.info("OffHeapMessageCache init, capacity: {}, slab size: {}, file: {}", capacity, slabSize, filePath);
+    }
+
+    private static RandomAccessFile createScratchFile(File file, long capacity) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            if (file.getParent() != null) {
+                UtilAll.ensureDirOK(file.getParent());
+            }
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(capacity);
+            return randomAccessFile;
+        } catch (IOException e) {
+            LOGGER.error("OffHeapMessageCache create scratch file failed, file: {}", file, e);
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException ignored) {
+                }
+            }
+            throw new TieredStoreException(TieredStoreErrorCode.IO_ERROR,
+                "create read ahead cache file failed: " + file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Copy the message into the cache.
+     *
+     * @return false if there is no space for the message
+     */
+    public boolean put(MessageCacheKey key, SelectBufferResultWrapper wrapper) {
+        if (closed) {
+            return false;
+        }
+        SelectMappedBufferResult result = wrapper.getDuplicateResult();
+        int size = result.getSize();
+        Entry entry = allocate(key, size, result.getStartOffset(), wrapper.getTagCode(), wrapper.getAccessCount());
+        if (entry == null && size <= slabSize) {
+            // expired messages may be still in the cache
+            cache.cleanUp();
+            entry = allocate(key, size, result.getStartOffset(), wrapper.getTagCode(), wrapper.getAccessCount());
+            // the slab evicted may be taken by concurrent writers first
+            for (int i = 0; entry == null && i < MAX_EVICT_TIMES && evictOldestSlab(); i++) {
+                entry = allocate(key, size, result.getStartOffset(), wrapper.getTagCode(), wrapper.getAccessCount());
+            }
+        }
+        if (entry == null) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        if (!entry.write(result.getByteBuffer())) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        // an entry put after closed is never read
+        cache.put(key, entry);
+        return true;
+    }
+
+    public SelectBufferResultWrapper get(MessageCacheKey key) {
+        if (closed) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        ByteBuffer buffer = entry.read();
+        if (buffer == null) {
+            return null;
+        }
+        return new SelectBufferResultWrapper(new SelectMappedBufferResult(entry.startOffset, buffer, entry.size, null),
+            key.getOffset(), entry.tagCode, entry.accessCount);
+    }
+
+    public void invalidate(MessageCacheKey key) {
+        cache.invalidate(key);
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    public long weightedSize() {
+        return cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private synchronized Entry allocate(MessageCacheKey key, int size, long startOffset, long tagCode, int accessCount) {
+        if (closed || size > slabSize) {
+            return null;
+        }
+        if (currentSlab == null || currentSlab.writePosition + size > slabSize) {
+            Slab lastSlab = currentSlab;
+            currentSlab = null;
+            if (lastSlab != null) {
+                if (lastSlab.liveCount.get() == 0) {
+                    recycle(lastSlab);
+                } else {
+                    filledSlabs.addLast(lastSlab);
+                }
+            }
+            Slab slab = freeSlabs.pollFirst();
+            if (slab == null) {
+                return null;
+            }
+            if (slab.buffer == null) {
+                try {
+                    slab.buffer = createBuffer(slab.index);
+                } catch (IOException | OutOfMemoryError e) {
+                    LOGGER.error("OffHeapMessageCache allocate slab failed, index: {}, slab size: {}", slab.index, slabSize, e);
+                    freeSlabs.addLast(slab);
+                    return null;
+                }
+            }
+            slab.free = false;
+            currentSlab = slab;
+        }
+
+        Entry entry = new Entry(key, currentSlab, currentSlab.generation, currentSlab.writePosition, size,
+            startOffset, tagCode, new AtomicInteger(accessCount));
+        currentSlab.writePosition += size;
+        currentSlab.liveCount.incrementAndGet();
+        currentSlab.entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Remove all the messages of the oldest filled slab, so that it can be reused.
+     *
+     * @return false if there is no filled slab
+     */
+    private boolean evictOldestSlab() {
+        List<Entry> entries;
+        synchronized (this) {
+            // taken out so that concurrent writers evict different slabs, it is reused when the last message is removed
+            Slab slab = filledSlabs.pollFirst();
+            if (slab == null) {
+                return false;
+            }
+            entries = new ArrayList<>(slab.entries);
+        }
+        for (Entry entry : entries) {
+            if (cache.asMap().remove(entry.key, entry) && entry.accessCount.get() == 0) {
+                unreadEvictionListener.accept(entry.key);
+            }
+        }
+        return true;
+    }
+
+    private ByteBuffer createBuffer(int index) throws IOException {
+        if (randomAccessFile == null) {
+            return ByteBuffer.allocateDirect(slabSize);
+        }
+        return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) index * slabSize, slabSize);
+    }
+
+    private void free(Entry entry) {
+        Slab slab = entry.slab;
+        if (slab.liveCount.decrementAndGet() == 0) {
+            synchronized (this) {
+                if (slab != currentSlab && !slab.free && slab.liveCount.get() == 0) {
+                    recycle(slab);
+                }
+            }
+        }
+    }
+
+    private void recycle(Slab slab) {
+        // readers of the messages removed see the new generation and give up
+        long stamp = slab.lock.writeLock();
+        try {
+            slab.generation++;
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+        slab.writePosition = 0;
+        slab.entries.clear();
+        slab.free = true;
+        filledSlabs.remove(slab);
+        freeSlabs.addFirst(slab);
+    }
+
+    public synchronized void shutdown() {
+        closed = true;
+        for (Slab slab : slabs) {
+            // wait for the readers and writers copying messages of the slab, those coming later see the new generation
+            long stamp = slab.lock.writeLock();
+            try {
+                slab.generation++;
+                UtilAll.cleanBuffer(slab.buffer);
+                slab.buffer = null;
+            } finally {
+                slab.lock.unlockWrite(stamp);
+            }
+        }
+        cache.invalidateAll();
+        cache.cleanUp();
+        if (randomAccessFile != null) {
+            try {
+                randomAccessFile.close();
+            } catch (IOException e) {
+                LOGGER.warn("OffHeapMessageCache close scratch file failed, file: {}", file, e);
+            }
+            if (!file.delete()) {
+                LOGGER.warn("OffHeapMessageCache delete scratch file failed, file: {}", file);
+            }
+        }
+    }
+
+    private static class Slab {
+        private final int index;
+        private final AtomicInteger liveCount = new AtomicInteger();
+        private final StampedLock lock = new StampedLock();
+        private final List<Entry> entries = new ArrayList<>();
+        // guarded by the lock of the cache, except that it is copied from and freed under the slab lock
+        private ByteBuffer buffer;
+        private int generation;
+        private int writePosition;
+        private boolean free = true;
+
+        private Slab(int index) {
+            this.index = index;
+        }
+    }
+
+    private static class Entry {
+        private final MessageCacheKey key;
+        private final Slab slab;
+        private final int generation;
+        private final int position;
+        private final int size;
+        private final long startOffset;
+        private final long tagCode;
+        private final AtomicInteger accessCount;
+
+        private Entry(MessageCacheKey key, Slab slab, int generation, int position, int size,
+            long startOffset, long tagCode, AtomicInteger accessCount) {
+            this.key = key;
+            this.slab = slab;
+            this.generation = generation;
+            this.position = position;
+            this.size = size;
+            this.startOffset = startOffset;
+            this.tagCode = tagCode;
+            this.accessCount = accessCount;
+        }
+
+        /**
+         * Copy the message into the slab.
+         *
+         * @return false if the slab has been freed
+         */
+        private boolean write(ByteBuffer src) {
+            // not optimistic, the memory of the slab must not be freed while copying
+            long stamp = slab.lock.readLock();
+            try {
+                if (slab.generation != generation || slab.buffer == null) {
+                    return false;
+                }
+                src.limit(src.position() + size);
+                ByteBuffer dst = slab.buffer.duplicate();
+                dst.position(position);
+                dst.put(src);
+                return true;
+            } finally {
+                slab.lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Copy the message to heap.
+         *
+         * @return null if the slab has been reused or freed
+         */
+        private ByteBuffer read() {
+            long stamp = slab.lock.readLock();
+            try {
+                if (slab.generation != generation || slab.buffer == null) {
+                    return null;
+                }
+                ByteBuffer src = slab.buffer.duplicate();
+                src.position(position);
+                src.limit(position + size);
+                ByteBuffer buffer = ByteBuffer.allocate(size);
+                buffer.put(src);
+                buffer.flip();
+                return buffer;
+            } finally {
+                slab.lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tieredstore.common;
+
+/**
+ * Read pattern of one group on one queue, decides how many times of the request batch to read ahead.
+ * <p>
+ * A request starting after the last one and no further than the last batch size is sequential, the read-ahead factor
+ * starts from the min factor and doubles on every sequential request up to the max factor. Any other request is
+ * random, read-ahead is stopped and the prefetch requests of the group issued before are cancelled, it resumes after
+ * enough sequential requests. Requesting the same offset again, e.g. a retry, changes nothing.
+ * </p>
+ */
+public class ReadPatternTracker {
+
+    public static final int NOT_READ_AHEAD = 0;
+
+    private final int minFactor;
+    private final int maxFactor;
+    private final int sequentialThreshold;
+
+    private long lastOffset = -1L;
+    private int lastBatchSize;
+    private int sequentialCount;
+    private int factor;
+    private long epoch;
+
+    public ReadPatternTracker(TieredMessageStoreConfig storeConfig) {
+        this.minFactor = storeConfig.getReadAheadMinFactor();
+        this.maxFactor = Math.max(storeConfig.getReadAheadMaxFactor(), minFactor);
+        this.sequentialThreshold = storeConfig.getReadAheadSequentialThreshold();
+        this.factor = minFactor;
+    }
+
+    /**
+     * Record a request of the group.
+     *
+     * @return read-ahead factor for the request, {@link #NOT_READ_AHEAD} if the group is reading randomly
+     */
+    public synchronized int recordRequest(long offset, int batchSize) {
+        if (lastOffset < 0 || offset == lastOffset) {
+            lastOffset = offset;
+            lastBatchSize = batchSize;
+            return factor;
+        }
+
+        if (offset > lastOffset && offset <= lastOffset + lastBatchSize) {
+            sequentialCount++;
+            if (factor == NOT_READ_AHEAD) {
+                if (sequentialCount >= sequentialThreshold) {
+                    factor = minFactor;
+                }
+            } else {
+                factor = Math.min(factor * 2, maxFactor);
+            }
+        } else {
+            sequentialCount = 0;
+            if (factor != NOT_READ_AHEAD) {
+                factor = NOT_READ_AHEAD;
+                epoch++;
+            }
+        }
+        lastOffset = offset;
+        lastBatchSize = batchSize;
+        return factor;
+    }
+
+    /**
+     * Messages read ahead for the group expired before being read, the window is too large.
+     */
+    public synchronized void recordExpired() {
+        if (factor != NOT_READ_AHEAD) {
+            factor = Math.max(factor / 2, minFactor);
+        }
+    }
+
+    public synchronized int getFactor() {
+        return factor;
+    }
+
+    /**
+     * Epoch increases every time read-ahead is stopped, prefetch requests issued in an earlier epoch are cancelled.
+     */
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized boolean isCancelled(long epoch) {
+        return this.epoch != epoch;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReadPatternTracker{" +
+            "lastOffset=" + lastOffset +
+            ", lastBatchSize=" + lastBatchSize +
+            ", sequentialCount=" + sequentialCount +
+            ", factor=" + factor +
+            ", epoch=" + epoch +
+            '}';
+    }
+}
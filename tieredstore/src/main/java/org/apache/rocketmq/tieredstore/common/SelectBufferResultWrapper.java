@@ -33,6 +33,14 @@ public class SelectBufferResultWrapper {
         this.accessCount = new AtomicInteger(used ? 1 : 0);
     }
 
+    public SelectBufferResultWrapper(SelectMappedBufferResult result, long offset, long tagCode,
+        AtomicInteger accessCount) {
+        this.result = result;
+        this.offset = offset;
+        this.tagCode = tagCode;
+        this.accessCount = accessCount;
+    }
+
     public SelectMappedBufferResult getDuplicateResult() {
 
         return new SelectMappedBufferResult(
@@ -115,6 +115,18 @@ public class TieredMessageStoreConfig {
     private int readAheadMessageSizeThreshold = 128 * 1024 * 1024;
     private long readAheadCacheExpireDuration = 10 * 1000;
     private double readAheadCacheSizeThresholdRate = 0.3;
+    // sequential reads a group needs to resume read-ahead after a random read, default is 2
+    private int readAheadSequentialThreshold = 2;
+    // max bytes of prefetch requests in flight, default is 256M
+    private long readAheadInflightBytesThreshold = 256 * 1024 * 1024;
+    // keep read-ahead messages off heap, in direct memory or in the scratch file if its path is set
+    private boolean readAheadCacheOffHeapEnable = false;
+    // max size of the off heap read-ahead cache, direct memory must be large enough if no file is set, default is 4G
+    private long readAheadCacheOffHeapSize = 4L * 1024 * 1024 * 1024;
+    // off heap read-ahead cache is allocated in slabs, messages larger than a slab are not cached, default is 16M
+    private int readAheadCacheOffHeapSlabSize = 16 * 1024 * 1024;
+    // scratch file mapped for the off heap read-ahead cache, it is recreated on start
+    private String readAheadCacheOffHeapFilePath = "";
 
     private String tieredStoreFilePath = "";
 
@@ -359,6 +371,54 @@ public class TieredMessageStoreConfig {
         this.readAheadCacheSizeThresholdRate = rate;
     }
 
+    public int getReadAheadSequentialThreshold() {
+        return readAheadSequentialThreshold;
+    }
+
+    public void setReadAheadSequentialThreshold(int readAheadSequentialThreshold) {
+        this.readAheadSequentialThreshold = readAheadSequentialThreshold;
+    }
+
+    public long getReadAheadInflightBytesThreshold() {
+        return readAheadInflightBytesThreshold;
+    }
+
+    public void setReadAheadInflightBytesThreshold(long readAheadInflightBytesThreshold) {
+        this.readAheadInflightBytesThreshold = readAheadInflightBytesThreshold;
+    }
+
+    public boolean isReadAheadCacheOffHeapEnable() {
+        return readAheadCacheOffHeapEnable;
+    }
+
+    public void setReadAheadCacheOffHeapEnable(boolean readAheadCacheOffHeapEnable) {
+        this.readAheadCacheOffHeapEnable = readAheadCacheOffHeapEnable;
+    }
+
+    public long getReadAheadCacheOffHeapSize() {
+        return readAheadCacheOffHeapSize;
+    }
+
+    public void setReadAheadCacheOffHeapSize(long readAheadCacheOffHeapSize) {
+        this.readAheadCacheOffHeapSize = readAheadCacheOffHeapSize;
+    }
+
+    public int getReadAheadCacheOffHeapSlabSize() {
+        return readAheadCacheOffHeapSlabSize;
+    }
+
+    public void setReadAheadCacheOffHeapSlabSize(int readAheadCacheOffHeapSlabSize) {
+        this.readAheadCacheOffHeapSlabSize = readAheadCacheOffHeapSlabSize;
+    }
+
+    public String getReadAheadCacheOffHeapFilePath() {
+        return readAheadCacheOffHeapFilePath;
+    }
+
+    public void setReadAheadCacheOffHeapFilePath(String readAheadCacheOffHeapFilePath) {
+        this.readAheadCacheOffHeapFilePath = readAheadCacheOffHeapFilePath;
+    }
+
     public String getTieredStoreFilePath() {
         return tieredStoreFilePath;
     }
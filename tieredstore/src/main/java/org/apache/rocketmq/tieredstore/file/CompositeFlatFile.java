@@ -40,6 +40,7 @@ import org.apache.rocketmq.tieredstore.common.AppendResult;
 import org.apache.rocketmq.tieredstore.common.FileSegmentType;
 import org.apache.rocketmq.tieredstore.common.InFlightRequestFuture;
 import org.apache.rocketmq.tieredstore.common.InFlightRequestKey;
+import org.apache.rocketmq.tieredstore.common.ReadPatternTracker;
 import org.apache.rocketmq.tieredstore.common.TieredMessageStoreConfig;
 import org.apache.rocketmq.tieredstore.metadata.TieredMetadataStore;
 import org.apache.rocketmq.tieredstore.util.CQItemBufferUtil;
@@ -52,7 +53,6 @@ public class CompositeFlatFile implements CompositeAccess {
     protected static final Logger LOGGER = LoggerFactory.getLogger(TieredStoreUtil.TIERED_STORE_LOGGER_NAME);
 
     protected volatile boolean closed = false;
-    protected int readAheadFactor;
 
     /**
      * Dispatch offset represents the offset of the messages that have been
@@ -69,12 +69,12 @@ public class CompositeFlatFile implements CompositeAccess {
     protected final TieredCommitLog commitLog;
     protected final TieredConsumeQueue consumeQueue;
     protected final Cache<String, Long> groupOffsetCache;
+    protected final Cache<String, ReadPatternTracker> readPatternCache;
     protected final ConcurrentMap<InFlightRequestKey, InFlightRequestFuture> inFlightRequestMap;
 
     public CompositeFlatFile(TieredFileAllocator fileQueueFactory, String filePath) {
         this.filePath = filePath;
         this.storeConfig = fileQueueFactory.getStoreConfig();
-        this.readAheadFactor = this.storeConfig.getReadAheadMinFactor();
         this.metadataStore = TieredStoreUtil.getMetadataStore(this.storeConfig);
         this.compositeFlatFileLock = new ReentrantLock();
         this.inFlightRequestMap = new ConcurrentHashMap<>();
@@ -83,6 +83,9 @@ public class CompositeFlatFile implements CompositeAccess {
         this.dispatchOffset = new AtomicLong(
             this.consumeQueue.isInitialized() ? this.getConsumeQueueCommitOffset() : -1L);
         this.groupOffsetCache = this.initOffsetCache();
+        this.readPatternCache = Caffeine.newBuilder()
+            .expireAfterAccess(2, TimeUnit.MINUTES)
+            .build();
     }
 
     private Cache<String, Long> initOffsetCache() {
@@ -394,20 +397,8 @@ public class CompositeFlatFile implements CompositeAccess {
         consumeQueue.commit(sync);
     }
 
-    public void increaseReadAheadFactor() {
-        readAheadFactor = Math.min(readAheadFactor + 1, storeConfig.getReadAheadMaxFactor());
-    }
-
-    public void decreaseReadAheadFactor() {
-        readAheadFactor = Math.max(readAheadFactor - 1, storeConfig.getReadAheadMinFactor());
-    }
-
-    public void setNotReadAhead() {
-        readAheadFactor = 1;
-    }
-
-    public int getReadAheadFactor() {
-        return readAheadFactor;
+    public ReadPatternTracker getReadPatternTracker(String group) {
+        return readPatternCache.get(group, k -> new ReadPatternTracker(storeConfig));
     }
 
     public void recordGroupAccess(String group, long offset) {
@@ -32,6 +32,9 @@ public class TieredStoreMetricsConstant {
     public static final String GAUGE_CACHE_BYTES = "rocketmq_tiered_store_read_ahead_cache_bytes";
     public static final String COUNTER_CACHE_ACCESS = "rocketmq_tiered_store_read_ahead_cache_access_total";
     public static final String COUNTER_CACHE_HIT = "rocketmq_tiered_store_read_ahead_cache_hit_total";
+    public static final String COUNTER_READ_AHEAD_HIT = "rocketmq_tiered_store_read_ahead_hit_total";
+    public static final String COUNTER_READ_AHEAD_WASTE = "rocketmq_tiered_store_read_ahead_waste_total";
+    public static final String GAUGE_READ_AHEAD_INFLIGHT_BYTES = "rocketmq_tiered_store_read_ahead_inflight_bytes";
 
     public static final String GAUGE_STORAGE_MESSAGE_RESERVE_TIME = "rocketmq_storage_message_reserve_time";
 
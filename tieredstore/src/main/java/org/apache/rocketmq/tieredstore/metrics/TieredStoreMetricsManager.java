@@ -16,7 +16,6 @@
  */
 package org.apache.rocketmq.tieredstore.metrics;
 
-import com.github.benmanes.caffeine.cache.Policy;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.metrics.LongCounter;
@@ -33,7 +32,6 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.Supplier;
 import org.apache.rocketmq.common.Pair;
 import org.apache.rocketmq.common.message.MessageQueue;
@@ -45,8 +43,6 @@ import org.apache.rocketmq.logging.org.slf4j.LoggerFactory;
 import org.apache.rocketmq.store.MessageStore;
 import org.apache.rocketmq.tieredstore.TieredMessageFetcher;
 import org.apache.rocketmq.tieredstore.common.FileSegmentType;
-import org.apache.rocketmq.tieredstore.common.MessageCacheKey;
-import org.apache.rocketmq.tieredstore.common.SelectBufferResultWrapper;
 import org.apache.rocketmq.tieredstore.common.TieredMessageStoreConfig;
 import org.apache.rocketmq.tieredstore.file.CompositeQueueFlatFile;
 import org.apache.rocketmq.tieredstore.file.TieredFlatFileManager;
@@ -61,10 +57,13 @@ import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.COUNTER_GET_MESSAGE_FALLBACK_TOTAL;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.COUNTER_MESSAGES_DISPATCH_TOTAL;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.COUNTER_MESSAGES_OUT_TOTAL;
+import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.COUNTER_READ_AHEAD_HIT;
+import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.COUNTER_READ_AHEAD_WASTE;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_CACHE_BYTES;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_CACHE_COUNT;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_DISPATCH_BEHIND;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_DISPATCH_LATENCY;
+import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_READ_AHEAD_INFLIGHT_BYTES;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.GAUGE_STORAGE_MESSAGE_RESERVE_TIME;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.HISTOGRAM_API_LATENCY;
 import static org.apache.rocketmq.tieredstore.metrics.TieredStoreMetricsConstant.HISTOGRAM_DOWNLOAD_BYTES;
@@ -98,6 +97,9 @@ public class TieredStoreMetricsManager {
     public static ObservableLongGauge cacheBytes = new NopObservableLongGauge();
     public static LongCounter cacheAccess = new NopLongCounter();
     public static LongCounter cacheHit = new NopLongCounter();
+    public static LongCounter readAheadHit = new NopLongCounter();
+    public static LongCounter readAheadWaste = new NopLongCounter();
+    public static ObservableLongGauge readAheadInflightBytes = new NopObservableLongGauge();
 
     public static ObservableLongGauge storageSize = new NopObservableLongGauge();
     public static ObservableLongGauge storageMessageReserveTime = new NopObservableLongGauge();
@@ -258,16 +260,13 @@ public class TieredStoreMetricsManager {
         cacheCount = meter.gaugeBuilder(GAUGE_CACHE_COUNT)
             .setDescription("Tiered store cache message count")
             .ofLongs()
-            .buildWithCallback(measurement -> measurement.record(fetcher.getMessageCache().estimatedSize(), newAttributesBuilder().build()));
+            .buildWithCallback(measurement -> measurement.record(fetcher.getCacheMessageCount(), newAttributesBuilder().build()));
 
         cacheBytes = meter.gaugeBuilder(GAUGE_CACHE_BYTES)
             .setDescription("Tiered store cache message bytes")
             .setUnit("bytes")
             .ofLongs()
-            .buildWithCallback(measurement -> {
-                Optional<Policy.Eviction<MessageCacheKey, SelectBufferResultWrapper>> eviction = fetcher.getMessageCache().policy().eviction();
-                eviction.ifPresent(resultEviction -> measurement.record(resultEviction.weightedSize().orElse(0), newAttributesBuilder().build()));
-            });
+            .buildWithCallback(measurement -> measurement.record(fetcher.getCacheMessageBytes(), newAttributesBuilder().build()));
 
         cacheAccess = meter.counterBuilder(COUNTER_CACHE_ACCESS)
             .setDescription("Tiered store cache access count")
@@ -277,6 +276,20 @@ public class TieredStoreMetricsManager {
             .setDescription("Tiered store cache hit count")
             .build();
 
+        readAheadHit = meter.counterBuilder(COUNTER_READ_AHEAD_HIT)
+            .setDescription("Tiered store read ahead message hit count")
+            .build();
+
+        readAheadWaste = meter.counterBuilder(COUNTER_READ_AHEAD_WASTE)
+            .setDescription("Tiered store read ahead message count evicted or cancelled before being read")
+            .build();
+
+        readAheadInflightBytes = meter.gaugeBuilder(GAUGE_READ_AHEAD_INFLIGHT_BYTES)
+            .setDescription("Tiered store read ahead bytes in flight")
+            .setUnit("bytes")
+            .ofLongs()
+            .buildWithCallback(measurement -> measurement.record(fetcher.getInflightPrefetchBytes(), newAttributesBuilder().build()));
+
         storageSize = meter.gaugeBuilder(GAUGE_STORAGE_SIZE)
             .setDescription("Broker storage size")
             .setUnit("bytes")
@@ -31,6 +31,7 @@ import org.apache.rocketmq.store.GetMessageStatus;
 import org.apache.rocketmq.store.QueryMessageResult;
 import org.apache.rocketmq.store.SelectMappedBufferResult;
 import org.apache.rocketmq.tieredstore.common.AppendResult;
+import org.apache.rocketmq.tieredstore.common.ReadPatternTracker;
 import org.apache.rocketmq.tieredstore.common.SelectBufferResultWrapper;
 import org.apache.rocketmq.tieredstore.common.TieredMessageStoreConfig;
 import org.apache.rocketmq.tieredstore.common.TieredStoreExecutor;
@@ -171,6 +172,66 @@ public class TieredMessageFetcherTest {
         Assert.assertEquals(0, fetcher.getMessageCache().estimatedSize());
     }
 
+    @Test
+    public void testGetMessageFromOffHeapCacheAsync() {
+        storeConfig.setReadAheadCacheOffHeapEnable(true);
+        storeConfig.setReadAheadCacheOffHeapSize(1024 * 1024);
+        storeConfig.setReadAheadCacheOffHeapSlabSize(64 * 1024);
+        Triple<TieredMessageFetcher, ByteBuffer, ByteBuffer> triple = buildFetcher();
+        TieredMessageFetcher fetcher = triple.getLeft();
+        ByteBuffer msg1 = triple.getMiddle();
+        ByteBuffer msg2 = triple.getRight();
+        CompositeQueueFlatFile flatFile = TieredFlatFileManager.getInstance(storeConfig).getFlatFile(mq);
+        Assert.assertNotNull(flatFile);
+        Assert.assertNotNull(fetcher.getOffHeapCache());
+
+        fetcher.recordCacheAccess(flatFile, "prevent-invalid-cache", 0, new ArrayList<>());
+        SelectMappedBufferResult bufferResult = new SelectMappedBufferResult(0, msg1, msg1.remaining(), null);
+        fetcher.putMessageToCache(flatFile, new SelectBufferResultWrapper(bufferResult, 0, 0, false));
+        Assert.assertEquals(0, fetcher.getMessageCache().estimatedSize());
+        Assert.assertEquals(1, fetcher.getCacheMessageCount());
+        Assert.assertEquals(msg1.remaining(), fetcher.getCacheMessageBytes());
+
+        GetMessageResult getMessageResult = fetcher.getMessageFromCacheAsync(flatFile, "group", 0, 32, true).join();
+        Assert.assertEquals(GetMessageStatus.FOUND, getMessageResult.getStatus());
+        Assert.assertEquals(1, getMessageResult.getMessageBufferList().size());
+        Assert.assertEquals(msg1, getMessageResult.getMessageBufferList().get(0));
+
+        Awaitility.waitAtMost(3, TimeUnit.SECONDS)
+            .until(() -> fetcher.getCacheMessageCount() == 2);
+        SelectMappedBufferResult messageFromCache =
+            Objects.requireNonNull(fetcher.getMessageFromCache(flatFile, 1)).getDuplicateResult();
+        Assert.assertEquals(msg2, messageFromCache.getByteBuffer());
+        fetcher.shutdown();
+        Assert.assertEquals(0, fetcher.getCacheMessageCount());
+    }
+
+    @Test
+    public void testGetMessageFromCacheAsyncRandomRead() {
+        Triple<TieredMessageFetcher, ByteBuffer, ByteBuffer> triple = buildFetcher();
+        TieredMessageFetcher fetcher = triple.getLeft();
+        ByteBuffer msg1 = triple.getMiddle();
+        CompositeQueueFlatFile flatFile = TieredFlatFileManager.getInstance(storeConfig).getFlatFile(mq);
+        Assert.assertNotNull(flatFile);
+
+        fetcher.recordCacheAccess(flatFile, "prevent-invalid-cache", 0, new ArrayList<>());
+        SelectMappedBufferResult bufferResult = new SelectMappedBufferResult(0, msg1, msg1.remaining(), null);
+        fetcher.putMessageToCache(flatFile, new SelectBufferResultWrapper(bufferResult, 0, 0, false));
+
+        // the group jumps back from offset 100, it is reading randomly
+        ReadPatternTracker tracker = flatFile.getReadPatternTracker("group");
+        tracker.recordRequest(100, 32);
+        GetMessageResult getMessageResult = fetcher.getMessageFromCacheAsync(flatFile, "group", 0, 32, true).join();
+        Assert.assertEquals(GetMessageStatus.FOUND, getMessageResult.getStatus());
+        Assert.assertEquals(1, getMessageResult.getMessageBufferList().size());
+        Assert.assertEquals(ReadPatternTracker.NOT_READ_AHEAD, tracker.getFactor());
+
+        // nothing is read ahead
+        Assert.assertEquals(0, fetcher.getInflightPrefetchBytes());
+        Assert.assertEquals(1, fetcher.getMessageCache().estimatedSize());
+        Assert.assertTrue(flatFile.getInflightRequest("group", 1, 32).isAllDone());
+    }
+
     @Test
     public void testGetMessageAsync() {
         Triple<TieredMessageFetcher, ByteBuffer, ByteBuffer> triple = buildFetcher();
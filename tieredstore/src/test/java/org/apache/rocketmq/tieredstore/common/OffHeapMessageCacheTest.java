@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tieredstore.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.rocketmq.store.SelectMappedBufferResult;
+import org.apache.rocketmq.tieredstore.TieredStoreTestUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OffHeapMessageCacheTest {
+
+    private static SelectBufferResultWrapper buildWrapper(long offset, int size, boolean used) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) (offset + i));
+        }
+        buffer.flip();
+        return new SelectBufferResultWrapper(
+            new SelectMappedBufferResult(offset * 1000, buffer, size, null), offset, offset + 1, used);
+    }
+
+    private static void assertMessage(SelectBufferResultWrapper wrapper, long offset, int size) {
+        Assert.assertNotNull(wrapper);
+        Assert.assertEquals(offset, wrapper.getOffset());
+        Assert.assertEquals(offset + 1, wrapper.getTagCode());
+        Assert.assertEquals(size, wrapper.getBufferSize());
+        SelectMappedBufferResult result = wrapper.getDuplicateResult();
+        Assert.assertEquals(offset * 1000, result.getStartOffset());
+        Assert.assertEquals(buildWrapper(offset, size, true).getDuplicateResult().getByteBuffer(), result.getByteBuffer());
+    }
+
+    @Test
+    public void testPutAndGet() {
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadCacheOffHeapSize(4096);
+        storeConfig.setReadAheadCacheOffHeapSlabSize(1024);
+        AtomicInteger unreadEvictionCount = new AtomicInteger();
+        OffHeapMessageCache cache = new OffHeapMessageCache(storeConfig, key -> unreadEvictionCount.incrementAndGet());
+        Assert.assertEquals(4096, cache.getCapacity());
+
+        Assert.assertTrue(cache.put(new MessageCacheKey(null, 0), buildWrapper(0, 100, false)));
+        Assert.assertTrue(cache.put(new MessageCacheKey(null, 1), buildWrapper(1, 200, true)));
+        Assert.assertEquals(2, cache.estimatedSize());
+        Assert.assertEquals(300, cache.weightedSize());
+        Assert.assertNull(cache.get(new MessageCacheKey(null, 2)));
+
+        SelectBufferResultWrapper wrapper = cache.get(new MessageCacheKey(null, 0));
+        assertMessage(wrapper, 0, 100);
+        Assert.assertEquals(0, wrapper.getAccessCount());
+        wrapper.incrementAndGet();
+        Assert.assertEquals(1, cache.get(new MessageCacheKey(null, 0)).getAccessCount());
+        assertMessage(cache.get(new MessageCacheKey(null, 1)), 1, 200);
+        Assert.assertEquals(1, cache.get(new MessageCacheKey(null, 1)).getAccessCount());
+
+        cache.invalidate(new MessageCacheKey(null, 0));
+        Assert.assertNull(cache.get(new MessageCacheKey(null, 0)));
+        Assert.assertEquals(1, cache.estimatedSize());
+        Assert.assertEquals(0, unreadEvictionCount.get());
+
+        // larger than a slab
+        Assert.assertFalse(cache.put(new MessageCacheKey(null, 3), buildWrapper(3, 1025, false)));
+        Assert.assertEquals(1, cache.getRejectedCount());
+        cache.shutdown();
+    }
+
+    @Test
+    public void testSlabReuse() {
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadCacheOffHeapSize(4096);
+        storeConfig.setReadAheadCacheOffHeapSlabSize(1024);
+        OffHeapMessageCache cache = new OffHeapMessageCache(storeConfig, key -> { });
+
+        // the messages never exceed the capacity
+        for (long offset = 0; offset < 1000; offset++) {
+            cache.put(new MessageCacheKey(null, offset), buildWrapper(offset, 300, false));
+            Assert.assertTrue(cache.weightedSize() <= cache.getCapacity());
+        }
+        for (long offset = 0; offset < 1000; offset++) {
+            SelectBufferResultWrapper wrapper = cache.get(new MessageCacheKey(null, offset));
+            if (wrapper != null) {
+                assertMessage(wrapper, offset, 300);
+            }
+        }
+
+        // all the slabs are reused once their messages are removed
+        for (long offset = 0; offset < 1000; offset++) {
+            cache.invalidate(new MessageCacheKey(null, offset));
+        }
+        Assert.assertEquals(0, cache.estimatedSize());
+        long rejectedCount = cache.getRejectedCount();
+        for (long offset = 1000; offset < 1011; offset++) {
+            Assert.assertTrue(cache.put(new MessageCacheKey(null, offset), buildWrapper(offset, 300, false)));
+        }
+        Assert.assertEquals(rejectedCount, cache.getRejectedCount());
+        for (long offset = 1000; offset < 1011; offset++) {
+            assertMessage(cache.get(new MessageCacheKey(null, offset)), offset, 300);
+        }
+        cache.shutdown();
+    }
+
+    @Test
+    public void testShutdown() {
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadCacheOffHeapSize(4096);
+        storeConfig.setReadAheadCacheOffHeapSlabSize(1024);
+        OffHeapMessageCache cache = new OffHeapMessageCache(storeConfig, key -> { });
+        Assert.assertTrue(cache.put(new MessageCacheKey(null, 0), buildWrapper(0, 100, false)));
+        cache.shutdown();
+
+        // the slabs are freed and never allocated again
+        Assert.assertNull(cache.get(new MessageCacheKey(null, 0)));
+        Assert.assertFalse(cache.put(new MessageCacheKey(null, 1), buildWrapper(1, 100, false)));
+        Assert.assertNull(cache.get(new MessageCacheKey(null, 1)));
+        Assert.assertEquals(0, cache.estimatedSize());
+    }
+
+    @Test
+    public void testMappedFile() throws IOException {
+        String storePath = TieredStoreTestUtil.getRandomStorePath();
+        File file = new File(storePath, "read_ahead_cache");
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadCacheOffHeapSize(4096);
+        storeConfig.setReadAheadCacheOffHeapSlabSize(1024);
+        storeConfig.setReadAheadCacheOffHeapFilePath(file.getPath());
+        OffHeapMessageCache cache = new OffHeapMessageCache(storeConfig, key -> { });
+        Assert.assertEquals(4096, file.length());
+
+        for (long offset = 0; offset < 8; offset++) {
+            Assert.assertTrue(cache.put(new MessageCacheKey(null, offset), buildWrapper(offset, 400, false)));
+        }
+        for (long offset = 0; offset < 8; offset++) {
+            assertMessage(cache.get(new MessageCacheKey(null, offset)), offset, 400);
+        }
+
+        cache.shutdown();
+        Assert.assertFalse(file.exists());
+        TieredStoreTestUtil.destroyTempDir(storePath);
+    }
+}
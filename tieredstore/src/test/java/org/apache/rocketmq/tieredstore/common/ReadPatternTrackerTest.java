@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.rocketmq.tieredstore.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReadPatternTrackerTest {
+
+    @Test
+    public void testSequentialRead() {
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadMinFactor(2);
+        storeConfig.setReadAheadMaxFactor(24);
+        ReadPatternTracker tracker = new ReadPatternTracker(storeConfig);
+
+        Assert.assertEquals(2, tracker.recordRequest(100, 32));
+        Assert.assertEquals(2, tracker.recordRequest(100, 32));
+        Assert.assertEquals(4, tracker.recordRequest(132, 32));
+        // fewer messages returned than requested is still sequential
+        Assert.assertEquals(8, tracker.recordRequest(140, 32));
+        Assert.assertEquals(16, tracker.recordRequest(172, 32));
+        Assert.assertEquals(24, tracker.recordRequest(204, 32));
+        Assert.assertEquals(24, tracker.recordRequest(236, 32));
+        Assert.assertEquals(0, tracker.getEpoch());
+
+        tracker.recordExpired();
+        Assert.assertEquals(12, tracker.getFactor());
+        tracker.recordExpired();
+        tracker.recordExpired();
+        tracker.recordExpired();
+        Assert.assertEquals(2, tracker.getFactor());
+    }
+
+    @Test
+    public void testRandomRead() {
+        TieredMessageStoreConfig storeConfig = new TieredMessageStoreConfig();
+        storeConfig.setReadAheadMinFactor(2);
+        storeConfig.setReadAheadSequentialThreshold(2);
+        ReadPatternTracker tracker = new ReadPatternTracker(storeConfig);
+
+        Assert.assertEquals(2, tracker.recordRequest(100, 32));
+        long epoch = tracker.getEpoch();
+        Assert.assertEquals(ReadPatternTracker.NOT_READ_AHEAD, tracker.recordRequest(50, 32));
+        Assert.assertTrue(tracker.isCancelled(epoch));
+        Assert.assertEquals(ReadPatternTracker.NOT_READ_AHEAD, tracker.recordRequest(1000, 32));
+        tracker.recordExpired();
+        Assert.assertEquals(ReadPatternTracker.NOT_READ_AHEAD, tracker.getFactor());
+
+        // resume after enough sequential requests
+        epoch = tracker.getEpoch();
+        Assert.assertEquals(ReadPatternTracker.NOT_READ_AHEAD, tracker.recordRequest(1032, 32));
+        Assert.assertEquals(2, tracker.recordRequest(1064, 32));
+        Assert.assertEquals(4, tracker.recordRequest(1096, 32));
+        Assert.assertFalse(tracker.isCancelled(epoch));
+    }
+}